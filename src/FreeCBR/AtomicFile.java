@@ -0,0 +1,259 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class replaces a file atomically. The new contents are written to a
+ * temporary file next to the file, forced to disk and read back to verify
+ * their CRC-32 against the bytes that were written. Only then is the
+ * temporary file renamed to the file, so a crash or a failed write at any
+ * point leaves either the old file or the new one, never a mix.<br />
+ * Usage: write the contents, call finish() to force and verify them and
+ * commit() to replace the file. discard() removes the temporary file if
+ * the file is not replaced, it is safe to call it after commit().
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class AtomicFile extends java.io.OutputStream
+{
+	/**
+	 * Size of the buffer used when the written file is verified
+	 * @since 1.2
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The file to replace
+	 * @since 1.2
+	 */
+	private java.io.File file;
+
+	/**
+	 * The temporary file that is written
+	 * @since 1.2
+	 */
+	private java.io.File temp;
+
+	/**
+	 * The open temporary file, null when it is closed
+	 * @since 1.2
+	 */
+	private java.nio.channels.FileChannel channel;
+
+	/**
+	 * Checksum of the bytes written
+	 * @since 1.2
+	 */
+	private java.util.zip.CRC32 checksum = new java.util.zip.CRC32();
+
+	/**
+	 * Number of bytes written
+	 * @since 1.2
+	 */
+	private long length;
+
+	/**
+	 * True when the temporary file is forced and verified
+	 * @since 1.2
+	 */
+	private boolean finished;
+
+	/**
+	 * True when the file is replaced
+	 * @since 1.2
+	 */
+	private boolean committed;
+
+
+	/**
+	* Creates the temporary file, the name of the file followed by ".tmp".
+	* A temporary file left by a crash is overwritten.
+	*
+	* @param filename the file to replace, it need not exist
+	* @throws java.io.IOException if the temporary file can not be created
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	AtomicFile(String filename)
+		throws java.io.IOException
+	{
+		file = new java.io.File(filename).getAbsoluteFile();
+		temp = new java.io.File(file.getPath() + ".tmp");
+		channel = java.nio.channels.FileChannel.open(temp.toPath(),
+													java.nio.file.StandardOpenOption.CREATE,
+													java.nio.file.StandardOpenOption.TRUNCATE_EXISTING,
+													java.nio.file.StandardOpenOption.READ,
+													java.nio.file.StandardOpenOption.WRITE);
+	}
+
+
+	/**
+	* Returns the path of the temporary file
+	*
+	* @return the path
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	String getTempName()
+	{
+		return temp.getPath();
+	}
+
+
+	public void write(int b)
+		throws java.io.IOException
+	{
+		write(new byte[] {(byte) b}, 0, 1);
+	}
+
+
+	public void write(byte b[], int off, int len)
+		throws java.io.IOException
+	{
+		write(java.nio.ByteBuffer.wrap(b, off, len));
+	}
+
+
+	/**
+	* Writes all of a buffer last in the temporary file
+	*
+	* @param buffer the bytes to write
+	* @throws java.io.IOException if the file can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void write(java.nio.ByteBuffer buffer)
+		throws java.io.IOException
+	{
+		if (channel == null)
+		{
+			throw new java.io.IOException("The file \"" + temp + "\" is closed");
+		}
+		checksum.update(buffer.duplicate());
+		while (buffer.hasRemaining())
+		{
+			length += channel.write(buffer);
+		}
+	}
+
+
+	/**
+	* Forces the temporary file to disk, verifies its length and checksum
+	* and closes it
+	*
+	* @throws java.io.IOException if the file can not be forced or read, or
+	*		does not match what was written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void finish()
+		throws java.io.IOException
+	{
+		java.util.zip.CRC32 check = new java.util.zip.CRC32();
+		java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(BUFFER_SIZE);
+		long position = 0;
+		int n;
+
+		if (finished)
+		{
+			return;
+		}
+		channel.force(true);
+		while ((n = channel.read(buffer, position)) > 0)
+		{
+			buffer.flip();
+			check.update(buffer);
+			buffer.clear();
+			position += n;
+		}
+		if (position != length || check.getValue() != checksum.getValue())
+		{
+			throw new java.io.IOException("Error when writing file \"" + file + "\", the written file does not match its checksum.");
+		}
+		channel.close();
+		channel = null;
+		finished = true;
+	}
+
+
+	/**
+	* Replaces the file with the temporary file, after finish() if it is
+	* not called
+	*
+	* @throws java.io.IOException if the file can not be verified or
+	*		replaced, the old file is then left as it was
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void commit()
+		throws java.io.IOException
+	{
+		java.nio.channels.FileChannel directory;
+
+		finish();
+		try
+		{
+			java.nio.file.Files.move(temp.toPath(), file.toPath(),
+									 java.nio.file.StandardCopyOption.ATOMIC_MOVE,
+									 java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+		} catch (java.nio.file.AtomicMoveNotSupportedException e)
+		{
+			java.nio.file.Files.move(temp.toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+		}
+		committed = true;
+
+		// The rename is durable when the directory is forced
+		try
+		{
+			directory = java.nio.channels.FileChannel.open(file.getParentFile().toPath(), java.nio.file.StandardOpenOption.READ);
+			try
+			{
+				directory.force(true);
+			} finally
+			{
+				directory.close();
+			}
+		} catch (java.io.IOException e)
+		{
+			// Directories can not be opened on all platforms
+		}
+	}
+
+
+	/**
+	* Closes and removes the temporary file unless the file is replaced
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void discard()
+	{
+		if (committed)
+		{
+			return;
+		}
+		try
+		{
+			if (channel != null)
+			{
+				channel.close();
+				channel = null;
+			}
+		} catch (java.io.IOException e)
+		{
+			// The file is removed anyway
+		}
+		temp.delete();
+	}
+}
@@ -0,0 +1,112 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is one search of a batch searched by CBR.searchBatch. It is a
+ * prepared search together with the number of results wanted and the
+ * lowest match to return.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class BatchQuery
+{
+	/**
+	 * The search
+	 * @since 1.2
+	 */
+	private final CompiledQuery query;
+
+	/**
+	 * The maximum number of results, 0 or less means all results
+	 * @since 1.2
+	 */
+	private final int k;
+
+	/**
+	 * The lowest match percentage of the results
+	 * @since 1.2
+	 */
+	private final double minMatch;
+
+
+	/**
+	* Creates a search returning all results
+	*
+	* @param query the search, as returned by CBR.prepareSearch
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public BatchQuery(CompiledQuery query)
+	{
+		this(query, 0, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	* Creates a search returning the k best results with at least the
+	* specified match
+	*
+	* @param query the search, as returned by CBR.prepareSearch
+	* @param k the maximum number of results to return, 0 or less means all results
+	* @param minMatch the lowest match percentage to return
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public BatchQuery(CompiledQuery query, int k, double minMatch)
+	{
+		if (query == null)
+		{
+			throw new NullPointerException("query is null");
+		}
+		this.query = query;
+		this.k = k;
+		this.minMatch = minMatch;
+	}
+
+
+	/**
+	* Returns the search
+	*
+	* @return the search
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CompiledQuery getQuery()
+	{
+		return query;
+	}
+
+	/**
+	* Returns the maximum number of results
+	*
+	* @return the maximum number of results, 0 or less means all results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public int getK()
+	{
+		return k;
+	}
+
+	/**
+	* Returns the lowest match percentage to return
+	*
+	* @return the lowest match
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public double getMinMatch()
+	{
+		return minMatch;
+	}
+}
@@ -0,0 +1,178 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class stores the values of a Bool feature in a bit set
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class BoolColumn extends FeatureColumn
+{
+	/**
+	 * The values in segments, bit c is set if case c is true
+	 * @since 1.2
+	 */
+	private long values[][];
+
+
+	/**
+	* Creates an empty column
+	*
+	* @param capacity the number of cases to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected BoolColumn(int capacity)
+	{
+		super(capacity);
+		values = new long[numSegments()][wordsFor(segmentLength())];
+	}
+
+
+	protected short getFeatureType()
+	{
+		return Feature.FEATURE_TYPE_BOOL;
+	}
+
+
+	/**
+	* Returns the Bool value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the value
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean getBoolean(int caseNum)
+	{
+		return getBit(values, caseNum);
+	}
+
+
+	/**
+	* Appends a defined value to the end of the column, same as add but 
+	* without a Feature
+	*
+	* @param value the value to append
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addBoolean(boolean value)
+	{
+		ensureCapacity(size + 1);
+		size++;
+		setBit(undefined, size - 1, false);
+		setBit(values, size - 1, value);
+	}
+
+
+	protected void addAll(FeatureColumn other)
+	{
+		BoolColumn bools = (BoolColumn) other;
+
+		ensureCapacity(size + other.size());
+		for (int i = 0 ; i < other.size() ; i++ )
+		{
+			if (other.isUndefined(i))
+			{
+				addUndefined();
+			} else
+			{
+				addBoolean(bools.getBoolean(i));
+			}
+		}
+	}
+
+
+	protected double diff(int caseNum, Feature searchFeature, Object searchKey)
+	{
+		if (searchFeature.getBoolValue() == getBit(values, caseNum))
+			return 0;
+		else
+			return 1;
+	}
+
+
+	protected void copySegments(int length)
+	{
+		super.copySegments(length);
+		values = java.util.Arrays.copyOf(values, length);
+	}
+
+
+	protected void resizeSegment(int segment, int length)
+	{
+		super.resizeSegment(segment, length);
+		values[segment] = copyOf(values[segment], wordsFor(length));
+	}
+
+
+	protected void addSegment(int segment)
+	{
+		super.addSegment(segment);
+		values[segment] = new long[SEGMENT_SIZE >>> 6];
+	}
+
+
+	/**
+	* Filters the candidates directly with the bit set of the values, no 
+	* index is needed
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean filter(Object searchKey, int searchTerm, long candidates[])
+	{
+		boolean target = ((Feature) searchKey).getBoolValue();
+		long equal;
+		
+		if (searchTerm != CBR.SEARCH_TERM_EQUAL && 
+				searchTerm != CBR.SEARCH_TERM_NOT_EQUAL)
+		{
+			return false;
+		}
+		for (int w = 0; w < candidates.length; w++)
+		{
+			equal = target ? getWord(values, w) : ~getWord(values, w);
+			if (searchTerm == CBR.SEARCH_TERM_EQUAL)
+				candidates[w] &= equal | getWord(undefined, w);
+			else
+				candidates[w] &= ~equal | getWord(undefined, w);
+		}
+		return true;
+	}
+
+
+	protected void setValue(int caseNum, Feature feat)
+	{
+		setBit(values, caseNum, feat.getBoolValue());
+	}
+
+
+	protected void clearValue(int caseNum)
+	{
+		setBit(values, caseNum, false);
+	}
+
+
+	protected void removeValue(int caseNum)
+	{
+		removeBit(values, caseNum, size);
+	}
+
+
+	protected Feature getDefinedFeature(int caseNum)
+	{
+		return new Feature(getBit(values, caseNum));
+	}
+}
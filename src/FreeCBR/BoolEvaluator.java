@@ -0,0 +1,36 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of Bool features.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class BoolEvaluator extends FeatureEvaluator
+{
+	private final BoolColumn column;
+	private final int searchTerm;
+	private final int searchScale;
+	private final boolean target;
+
+	BoolEvaluator(BoolColumn column, int searchTerm, int searchScale, boolean target)
+	{
+		this.column = column;
+		this.searchTerm = searchTerm;
+		this.searchScale = searchScale;
+		this.target = target;
+	}
+
+	double distance(int caseNum)
+	{
+		if (column.isUndefined(caseNum))
+			return 1;
+		return nominalDistance(column.getBoolean(caseNum) == target ? 0 : 1, searchTerm, searchScale);
+	}
+}
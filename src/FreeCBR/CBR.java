@@ -6,7 +6,7 @@ public class CBR implements java.io.Serializable
 	 * Constant used in calculateFeatureDistance
 	 * @since 1.0
 	 */
-	private final static double modE = Math.E - 1;
+	final static double modE = Math.E - 1;
 	
 	/**
 	 * Data file handler
@@ -33,10 +33,107 @@ public class CBR implements java.io.Serializable
 	protected int INFINITY_CONSTANT = 2;
 	
 	/**
-	 * The actual data set
+	 * Searches of at least this many cases are split over several threads
+	 * @since 1.2
+	 */
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	
+	/**
+	 * Executor used for split searches. If null then the common fork/join 
+	 * pool is used.
+	 * @since 1.2
+	 */
+	private transient java.util.concurrent.ExecutorService searchExecutor;
+	
+	/**
+	 * Top-k searches of at least this many cases may use the KD-tree
+	 * @since 1.2
+	 */
+	private int treeThreshold = DEFAULT_TREE_THRESHOLD;
+	
+	/**
+	 * KD-tree over the numerical features, null until needed
+	 * @since 1.2
+	 */
+	private transient KDTree kdTree;
+	
+	/**
+	 * Maximum total number of results kept by the result cache, 0 means 
+	 * no cache
+	 * @since 1.2
+	 */
+	private int resultCacheSize = DEFAULT_RESULT_CACHE_SIZE;
+	
+	/**
+	 * Results of recent searches, null until needed
+	 * @since 1.2
+	 */
+	private transient ResultCache resultCache;
+	
+	/**
+	 * A ResultHeap per thread for searches into caller supplied arrays
+	 * @since 1.2
+	 */
+	private static final ThreadLocal bufferHeaps = new ThreadLocal();
+	
+	/**
+	 * A ScanState per thread for scans that give up cases early
+	 * @since 1.2
+	 */
+	private static final ThreadLocal scanStates = new ThreadLocal();
+	
+	/**
+	 * The actual data set. Never changed once set, a change is made to a 
+	 * copy that then replaces the data, see CBRdata.copy. Searches read the 
+	 * data once and search it without locking, unaffected by changes made 
+	 * meanwhile.
 	 * @since 1.0
 	 */
-	private CBRdata data;
+	private volatile CBRdata data;
+	
+	/**
+	 * Lock taken by changes of the data set, one change at a time copies 
+	 * and replaces the data
+	 * @since 1.2
+	 */
+	private transient java.util.concurrent.locks.ReentrantLock writeLock = 
+		new java.util.concurrent.locks.ReentrantLock();
+	
+	/**
+	 * The journal of the changes, null if changes are not journaled. See 
+	 * openJournal.
+	 * @since 1.2
+	 */
+	private transient Journal journal;
+	
+	/**
+	 * A checkpoint is written when the journal grows larger than this 
+	 * number of bytes
+	 * @since 1.2
+	 */
+	private long checkpointSize = DEFAULT_CHECKPOINT_SIZE;
+	
+	/**
+	 * Lock held while the set is saved, so that saves and checkpoints 
+	 * replace the data file one at a time. Taken before the write lock.
+	 * @since 1.2
+	 */
+	private transient java.util.concurrent.locks.ReentrantLock saveLock = 
+		new java.util.concurrent.locks.ReentrantLock();
+	
+	/**
+	 * Counts the times the set is replaced or read, guarded by the write 
+	 * lock. A checkpoint of a set that was replaced while it was written 
+	 * is discarded.
+	 * @since 1.2
+	 */
+	private transient long generation;
+	
+	/**
+	 * The checkpoint written in the background, null if none is started
+	 * @since 1.2
+	 */
+	private transient volatile java.util.concurrent.FutureTask checkpointTask;
 	
 	/**
 	 * Default weight
@@ -44,6 +141,52 @@ public class CBR implements java.io.Serializable
 	 */
 	public static final int DEFAULT_WEIGHT = 5;
 	
+	/**
+	 * Default number of cases from which searches are split over several threads
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 50000;
+	
+	/**
+	 * Smallest number of cases in each chunk of a split search
+	 * @since 1.2
+	 */
+	private static final int MIN_CHUNK_SIZE = 4096;
+	
+	/**
+	 * Default number of cases from which top-k searches may use a KD-tree
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_TREE_THRESHOLD = 10000;
+	
+	/**
+	 * Default maximum total number of results kept by the result cache
+	 * @since 1.2
+	 */
+	public static final int DEFAULT_RESULT_CACHE_SIZE = 100000;
+	
+	/**
+	 * Default number of bytes of the journal from which a checkpoint is 
+	 * written
+	 * @since 1.2
+	 */
+	public static final long DEFAULT_CHECKPOINT_SIZE = 64 * 1024 * 1024;
+	
+	/**
+	 * Number of cases each search of a batch calculates before the next 
+	 * search takes over, small enough for the columns of the block to stay 
+	 * in the CPU cache
+	 * @since 1.2
+	 */
+	private static final int BATCH_BLOCK_SIZE = 2048;
+	
+	/**
+	 * Number of cases each strict feature is tried on when the order of the 
+	 * features of a search is chosen
+	 * @since 1.2
+	 */
+	private static final int ORDER_SAMPLE_SIZE = 128;
+	
 	/* Search terms.	*/
 	/**
 	 * Search for closest value. Default. Valid for all data types.
@@ -185,6 +328,22 @@ public class CBR implements java.io.Serializable
 	}
 	
 	
+	/**
+	* Restores a serialized CBR, the lock is not serialized
+	* 
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void readObject(java.io.ObjectInputStream in)
+		throws java.io.IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		writeLock = new java.util.concurrent.locks.ReentrantLock();
+		saveLock = new java.util.concurrent.locks.ReentrantLock();
+	}
+	
+	
 	/**
 	* Returns the verbose state
 	* 
@@ -324,20 +483,29 @@ public class CBR implements java.io.Serializable
 	public void readData()
 		throws java.io.IOException, NoDataException
 	{
-		if (this.fileHandler == null)
-		{
-			log.write("Error in readData - no fileHandler initialized - probably no data file was specified.");
-			throw new NoDataException("No file handler specified - probably no data file was specified.");
-		}
-		
+		writeLock.lock();
 		try
 		{
-			data = fileHandler.read();
-			data.finishInput();
-		} catch (java.io.IOException e)
+			if (this.fileHandler == null)
+			{
+				log.write("Error in readData - no fileHandler initialized - probably no data file was specified.");
+				throw new NoDataException("No file handler specified - probably no data file was specified.");
+			}
+		
+			try
+			{
+				CBRdata newData = fileHandler.read();
+				newData.finishInput();
+				data = newData;
+				dataChanged();
+			} catch (java.io.IOException e)
+			{
+				log.write(e.toString());
+				throw e;
+			}
+		} finally
 		{
-			log.write(e.toString());
-			throw e;
+			writeLock.unlock();
 		}
 	}
 	
@@ -364,29 +532,37 @@ public class CBR implements java.io.Serializable
 	public void initialize(String datafile, String logfile)
 		throws java.io.IOException
 	{
-		if (logfile == null ||
-				log == null || 
-				log.getLogfile() == null ||
-				log.getLogfile().compareTo(logfile) != 0)
+		writeLock.lock();
+		try
 		{
-			setLogfile(logfile);
-		}
+			if (logfile == null ||
+					log == null || 
+					log.getLogfile() == null ||
+					log.getLogfile().compareTo(logfile) != 0)
+			{
+				setLogfile(logfile);
+			}
 		
-		if (this.fileHandler == null)
-		{
-			fileHandler = new FileHandler(datafile, log, verbose);
-			data = fileHandler.read();
-		} else if (datafile == null)
-		{
-			this.fileHandler = null;
-			this.data = new CBRdata();
-		} else if (this.fileHandler.getDatafile().compareTo(datafile) != 0)
-		{
-			fileHandler = new FileHandler(datafile, log, verbose);
-			data = fileHandler.read();
-		} else if (data == null)
+			if (this.fileHandler == null)
+			{
+				fileHandler = new FileHandler(datafile, log, verbose);
+				data = fileHandler.read();
+			} else if (datafile == null)
+			{
+				this.fileHandler = null;
+				this.data = new CBRdata();
+			} else if (this.fileHandler.getDatafile().compareTo(datafile) != 0)
+			{
+				fileHandler = new FileHandler(datafile, log, verbose);
+				data = fileHandler.read();
+			} else if (data == null)
+			{
+				data = fileHandler.read();
+			}
+			dataChanged();
+		} finally
 		{
-			data = fileHandler.read();
+			writeLock.unlock();
 		}
 	}
 	
@@ -420,6 +596,185 @@ public class CBR implements java.io.Serializable
 	}
 	
 	
+	/**
+	* Returns the number of cases from which searches are split over 
+	* several threads
+	* 
+	* @return the current threshold
+	* @see #DEFAULT_PARALLEL_THRESHOLD
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public int getParallelThreshold()
+	{
+		return this.parallelThreshold;
+	}
+	
+	/**
+	* Sets the number of cases from which searches are split over several 
+	* threads. Smaller searches are done in the calling thread. Use 0 to 
+	* never split searches.
+	* 
+	* @param threshold the number of cases
+	* @see #DEFAULT_PARALLEL_THRESHOLD
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void setParallelThreshold(int threshold)
+	{
+		this.parallelThreshold = threshold;
+	}
+	
+	/**
+	* Sets the executor used when a search is split over several threads. 
+	* The executor is not saved with the CBR.
+	* 
+	* @param executor the executor to use, null means the common fork/join pool
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void setSearchExecutor(java.util.concurrent.ExecutorService executor)
+	{
+		this.searchExecutor = executor;
+	}
+	
+	
+	/**
+	* Returns the number of cases from which top-k searches may use a 
+	* KD-tree
+	* 
+	* @return the current threshold
+	* @see #DEFAULT_TREE_THRESHOLD
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public int getTreeThreshold()
+	{
+		return this.treeThreshold;
+	}
+	
+	/**
+	* Sets the number of cases from which top-k searches may use a KD-tree. 
+	* The tree is used when all searched features are Int or Float with 
+	* CBR.SEARCH_TERM_EQUAL, CBR.SEARCH_SCALE_FUZZY_LINEAR and no options. 
+	* It is built at the first such search and again after the data has 
+	* changed, so it pays off when the data changes seldom compared to how 
+	* often it is searched. Use 0 to never use the tree.
+	* 
+	* @param threshold the number of cases
+	* @see #DEFAULT_TREE_THRESHOLD
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void setTreeThreshold(int threshold)
+	{
+		this.treeThreshold = threshold;
+		if (threshold <= 0)
+		{
+			this.kdTree = null;
+		}
+	}
+	
+	
+	/**
+	* Returns the maximum total number of results kept by the result cache
+	* 
+	* @return the maximum number of results, 0 means no cache
+	* @see #DEFAULT_RESULT_CACHE_SIZE
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public int getResultCacheSize()
+	{
+		return this.resultCacheSize;
+	}
+	
+	/**
+	* Sets the maximum total number of results kept by the result cache. 
+	* Searches that are not verbose keep their results in the cache, a 
+	* search with the same features, values, weights, terms, scales, options 
+	* and number of results is answered from the cache as long as the data 
+	* has not changed. The least recently used results are dropped first. 
+	* Use 0 to not cache any results.
+	* 
+	* @param size the maximum number of results
+	* @see #DEFAULT_RESULT_CACHE_SIZE
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public synchronized void setResultCacheSize(int size)
+	{
+		this.resultCacheSize = size;
+		if (resultCache != null)
+		{
+			resultCache.setMaxResults(Math.max(size, 0));
+		}
+	}
+	
+	/**
+	* Drops all results kept by the result cache
+	* 
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public synchronized void clearResultCache()
+	{
+		if (resultCache != null)
+		{
+			resultCache.clear();
+		}
+	}
+	
+	/**
+	* Returns the number of searches answered from the result cache
+	* 
+	* @return the number of cache hits
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public synchronized long getResultCacheHits()
+	{
+		return resultCache == null ? 0 : resultCache.getHits();
+	}
+	
+	/**
+	* Returns the number of searches not found in the result cache
+	* 
+	* @return the number of cache misses
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public synchronized long getResultCacheMisses()
+	{
+		return resultCache == null ? 0 : resultCache.getMisses();
+	}
+	
+	/**
+	* Returns the number of results dropped from the result cache to make 
+	* room for newer results. Results dropped because the data has changed 
+	* are not counted.
+	* 
+	* @return the number of cache evictions
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public synchronized long getResultCacheEvictions()
+	{
+		return resultCache == null ? 0 : resultCache.getEvictions();
+	}
+	
+	
 	/**
 	* Returns the number of cases in current set
 	* 
@@ -469,7 +824,26 @@ public class CBR implements java.io.Serializable
 	*/
 	public void addCase(String caseString)
 	{
-		data.addCase(caseString);
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			CBRdata next = data.copy();
+			next.addCase(caseString);
+			if (journal != null)
+			{
+				seq = journal.addCase(caseString);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
 	}
 	/**
 	* Adds a case to the set
@@ -482,7 +856,26 @@ public class CBR implements java.io.Serializable
 	*/
 	public void addCase(Feature features[])
 	{
-		data.addCase(features);
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			CBRdata next = data.copy();
+			next.addCase(features);
+			if (journal != null)
+			{
+				seq = journal.addCase(features);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
 	}
 	
 	/**
@@ -517,7 +910,28 @@ public class CBR implements java.io.Serializable
 	*/
 	public Feature[] editCase(int caseNum, Feature features[])
 	{
-		return data.editCase(caseNum, features);
+		Feature feats[];
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			CBRdata next = data.copy();
+			feats = next.editCase(caseNum, features);
+			if (journal != null)
+			{
+				seq = journal.editCase(caseNum, features);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
+		return feats;
 	}
 	
 	
@@ -532,7 +946,28 @@ public class CBR implements java.io.Serializable
 	*/
 	public Feature[] removeCase(int caseNum)
 	{
-		return data.deleteCase(caseNum);
+		Feature feats[];
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			CBRdata next = data.copy();
+			feats = next.deleteCase(caseNum);
+			if (journal != null)
+			{
+				seq = journal.removeCase(caseNum);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
+		return feats;
 	}
 	
 	
@@ -547,7 +982,26 @@ public class CBR implements java.io.Serializable
 	*/
 	public void addFeature(String name, short type)
 	{
-		data.addFeature(name, type);
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			CBRdata next = data.copy();
+			next.addFeature(name, type);
+			if (journal != null)
+			{
+				seq = journal.addFeature(name, type);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
 	}
 	
 	
@@ -606,11 +1060,30 @@ public class CBR implements java.io.Serializable
 	*/
 	public void setFeatureValue(int caseNum, int featureNum, String value) throws NoDataException
 	{
-		if (data == null)
+		long seq = 0;
+		
+		writeLock.lock();
+		try
 		{
-			throw new NoDataException("CBR has no data");
+			if (data == null)
+			{
+				throw new NoDataException("CBR has no data");
+			}
+			CBRdata next = data.copy();
+			next.setFeature(caseNum, featureNum, value);
+			if (journal != null)
+			{
+				seq = journal.setFeatureValue(caseNum, featureNum, value);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
 		}
-		data.setFeature(caseNum, featureNum, value);
+		commit(seq);
 	}
 	
 	
@@ -647,14 +1120,33 @@ public class CBR implements java.io.Serializable
 	public void setFeatureName(int featureNum, String newName) 
 		throws NoDataException
 	{
-		if (data == null)
+		long seq = 0;
+		
+		writeLock.lock();
+		try
 		{
-			throw new NoDataException("CBR has no data");
-		}
-		data.setFeatureName(featureNum, newName);
-	}
-	
-	
+			if (data == null)
+			{
+				throw new NoDataException("CBR has no data");
+			}
+			CBRdata next = data.copy();
+			next.setFeatureName(featureNum, newName);
+			if (journal != null)
+			{
+				seq = journal.setFeatureName(featureNum, newName);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
+	}
+	
+	
 	/**
 	* Returns the number of the feature that carries the specified name
 	* 
@@ -708,12 +1200,96 @@ public class CBR implements java.io.Serializable
 	/* History: Date		Name	Explanation (possibly multi row)
 	*/
 	public void setFeatureType(int featureNum, short newType) throws NoDataException
+	{
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			if (data == null)
+			{
+				throw new NoDataException("CBR has no data");
+			}
+			CBRdata next = data.copy();
+			next.setFeatureType(featureNum, newType);
+			if (journal != null)
+			{
+				seq = journal.setFeatureType(featureNum, newType);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
+	}
+	
+	
+	/**
+	* Returns true if the specified feature is indexed
+	* 
+	* @param featureNum the number of the feature
+	* @return true if the feature is indexed
+	* @throws NoDataException when no data is read
+	* @see #setFeatureIndexed(int, boolean)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public boolean isFeatureIndexed(int featureNum) throws NoDataException
 	{
 		if (data == null)
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		data.setFeatureType(featureNum, newType);
+		return data.isFeatureIndexed(featureNum);
+	}
+	
+	
+	/**
+	* Turns the index of the specified feature on or off. An indexed String 
+	* or MultiString feature keeps an index of the cases using each string. 
+	* Searches with CBR.SEARCH_SCALE_STRICT and CBR.SEARCH_TERM_EQUAL or 
+	* CBR.SEARCH_TERM_NOT_EQUAL on the feature then remove the disqualified 
+	* cases before any distances are calculated. Bool features are always 
+	* filtered this way.
+	* 
+	* @param featureNum the number of the feature
+	* @param indexed true to index the feature
+	* @throws NoDataException when no data is read
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void setFeatureIndexed(int featureNum, boolean indexed) throws NoDataException
+	{
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			if (data == null)
+			{
+				throw new NoDataException("CBR has no data");
+			}
+			CBRdata next = data.copy();
+			next.setFeatureIndexed(featureNum, indexed);
+			if (journal != null)
+			{
+				seq = journal.setFeatureIndexed(featureNum, indexed);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
 	}
 	
 	
@@ -727,7 +1303,26 @@ public class CBR implements java.io.Serializable
 	*/
 	public void removeFeature(int featureNumber)
 	{
-		data.deleteFeature(featureNumber);
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			CBRdata next = data.copy();
+			next.deleteFeature(featureNumber);
+			if (journal != null)
+			{
+				seq = journal.removeFeature(featureNumber);
+			}
+			data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
 	}
 	
 	
@@ -746,12 +1341,14 @@ public class CBR implements java.io.Serializable
 	public String[] getUsedStringValues(int featureNum) 
 		throws IllegalTypeException, NoDataException
 	{
+		CBRdata data = this.data;
+		
 		if (data == null)
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		if (getFeatureType(featureNum) != Feature.FEATURE_TYPE_STRING &&
-				getFeatureType(featureNum) != Feature.FEATURE_TYPE_MULTISTRING)
+		if (data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_STRING &&
+				data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_MULTISTRING)
 		{
 			throw new IllegalTypeException("Trying to find String values of non-String feature");
 		}
@@ -773,6 +1370,7 @@ public class CBR implements java.io.Serializable
 	public String getUsedStringValuesAX(int featureNum, String separator) 
 		throws IllegalTypeException, NoDataException
 	{
+		CBRdata data = this.data;
 		String str[];
 		StringBuffer ret = new StringBuffer();
 		
@@ -780,8 +1378,8 @@ public class CBR implements java.io.Serializable
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		if (getFeatureType(featureNum) != Feature.FEATURE_TYPE_STRING &&
-				getFeatureType(featureNum) != Feature.FEATURE_TYPE_MULTISTRING)
+		if (data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_STRING &&
+				data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_MULTISTRING)
 		{
 			throw new IllegalTypeException("Trying to find String values of non-String feature");
 		}
@@ -812,22 +1410,17 @@ public class CBR implements java.io.Serializable
 	public long getMinIntValue(int featureNum) 
 		throws IllegalTypeException, NoDataException
 	{
-		Long val;
+		CBRdata data = this.data;
 		
 		if (data == null)
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		if (getFeatureType(featureNum) != Feature.FEATURE_TYPE_INT)
+		if (data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_INT)
 		{
 			throw new IllegalTypeException("Trying to find Int value of non-Int feature");
 		}
-		val = (Long) data.getMinValue(featureNum);
-		if (val == null)
-		{
-			throw new NoDataException("Min. value not found");
-		}
-		return val.intValue();
+		return minIntValue(data.getColumn(featureNum));
 	}
 	
 	/**
@@ -844,22 +1437,17 @@ public class CBR implements java.io.Serializable
 	public long getMaxIntValue(int featureNum)
 		throws IllegalTypeException, NoDataException
 	{
-		Long val;
+		CBRdata data = this.data;
 		
 		if (data == null)
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		if (getFeatureType(featureNum) != Feature.FEATURE_TYPE_INT)
+		if (data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_INT)
 		{
 			throw new IllegalTypeException("Trying to find Int value of non-Int feature");
 		}
-		val = (Long) data.getMaxValue(featureNum);
-		if (val == null)
-		{
-			throw new NoDataException("Max. value not found");
-		}
-		return val.longValue();
+		return maxIntValue(data.getColumn(featureNum));
 	}
 	
 	/**
@@ -876,22 +1464,17 @@ public class CBR implements java.io.Serializable
 	public double getMinFloatValue(int featureNum)
 		throws IllegalTypeException, NoDataException
 	{
-		Double val;
+		CBRdata data = this.data;
 		
 		if (data == null)
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		if (getFeatureType(featureNum) != Feature.FEATURE_TYPE_FLOAT)
+		if (data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_FLOAT)
 		{
 			throw new IllegalTypeException("Trying to find Int value of non-Int feature");
 		}
-		val = (Double) data.getMinValue(featureNum);
-		if (val == null)
-		{
-			throw new NoDataException("Min. value not found");
-		}
-		return val.doubleValue();
+		return minFloatValue(data.getColumn(featureNum));
 	}
 	
 	/**
@@ -908,33 +1491,32 @@ public class CBR implements java.io.Serializable
 	public double getMaxFloatValue(int featureNum)
 		throws IllegalTypeException, NoDataException
 	{
-		Double val;
+		CBRdata data = this.data;
 		
 		if (data == null)
 		{
 			throw new NoDataException("CBR has no data");
 		}
-		if (getFeatureType(featureNum) != Feature.FEATURE_TYPE_FLOAT)
+		if (data.getFeatureTypeShort(featureNum) != Feature.FEATURE_TYPE_FLOAT)
 		{
 			throw new IllegalTypeException("Trying to find Int value of non-Int feature");
 		}
-		val = (Double) data.getMaxValue(featureNum);
-		if (val == null)
-		{
-			throw new NoDataException("Min. value not found");
-		}
-		return val.doubleValue();
+		return maxFloatValue(data.getColumn(featureNum));
 	}
 	
 	
 	/**
-	* Saves the entire case set
+	* Saves the entire case set as a tab separated text file. The file is 
+	*	replaced atomically, a crash while saving leaves the old file. 
+	*	Searches and changes go on while the set is saved, the changes made 
+	*	meanwhile are not saved.
 	* 
 	* @param filename name of the file to save as. If <code>null</code> then save to current file.
 	* @param setDefault sets the specified filename to default if true. Otherwise saves as the 
 	*	specified file name this time only.
 	* @return nothing
 	* @throws java.io.IOException if an error occurs when saving the set
+	* @see #saveBinarySet(String, boolean)
 	* @since 1.0
 	*/
 	/* History: Date		Name	Explanation (possibly multi row)
@@ -942,11 +1524,30 @@ public class CBR implements java.io.Serializable
 	public void saveSet(String filename, boolean setDefault)
 		throws java.io.IOException
 	{
-		if (setDefault)
-		{
-			fileHandler.setDatafile(filename);
-		}
-		fileHandler.save(data, filename);
+		writeSet(filename, false, false);
+	}
+	
+	/**
+	* Saves the entire case set as a binary file of columns. A binary file 
+	*	is read by readData(), initialize() and loadSet() like a text file, 
+	*	but it is mapped into memory instead of parsed, so a large set is 
+	*	searchable almost at once and the file is shared by all processes 
+	*	reading it. The values are searched directly in the file until they 
+	*	are changed. saveSet() saves the set as a text file again.
+	* 
+	* @param filename name of the file to save as. If <code>null</code> then save to current file.
+	* @param setDefault sets the specified filename to default if true. Otherwise saves as the 
+	*	specified file name this time only.
+	* @throws java.io.IOException if an error occurs when saving the set
+	* @see #saveSet(String, boolean)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void saveBinarySet(String filename, boolean setDefault)
+		throws java.io.IOException
+	{
+		writeSet(filename, true, false);
 	}
 	
 	/**
@@ -962,152 +1563,575 @@ public class CBR implements java.io.Serializable
 	public void loadSet(String filename)
 		throws java.lang.Exception
 	{
-		FileHandler newFH;
-		CBRdata newData;
-		
+		writeLock.lock();
 		try
 		{
-			newFH = new FileHandler(filename, log, verbose);
-			newData = newFH.read();
-		} catch (Exception e)
+			FileHandler newFH;
+			CBRdata newData;
+		
+			try
+			{
+				newFH = new FileHandler(filename, log, verbose);
+				newData = newFH.read();
+			} catch (Exception e)
+			{
+				log.write(e.toString());
+				throw e;
+			}
+			// if everything worked then use the new values
+			fileHandler = newFH;
+			data = newData;
+			dataChanged();
+		} finally
 		{
-			log.write(e.toString());
-			throw e;
+			writeLock.unlock();
 		}
-		// if everything worked then use the new values
-		fileHandler = newFH;
-		data = newData;
 	}
 	
 	
 	/**
-	* Empties the memory - deletes the current set from memory and creates 
-	*	a new empty set with the specified feature names and feature data types
+	* Starts to journal the changes of the set. Each change is appended to 
+	*	the journal when it is made, instead of saving the whole set. The 
+	*	data file becomes a checkpoint: when the journal grows larger than 
+	*	the checkpoint size the set is saved to the data file in the 
+	*	background and the journal is compacted to the changes made since. 
+	*	Saving or reading the data file also empties the journal. Without a data file the journal holds the whole set.<br />
+	*	If the journal has changes of the current data file, for example 
+	*	after a crash, the data file is read again and the changes are 
+	*	replayed on top of it. Otherwise the current set is kept, call this 
+	*	method before changing a set read from a data file.<br />
+	*	Changes that fail to write the journal throw 
+	*	java.io.UncheckedIOException and are not made.
 	* 
-	* @param featureNames an array of feature names to use
-	* @param featureTypeNames an array of data type names to use (such as "String", "Float" and so on)
-	* @return nothing
-	* @see Feature
-	* @since 1.0
+	* @param journalfile path to the journal, created if it does not exist
+	* @param syncInterval 0 to force each change to disk before it returns, 
+	*	changes made at the same time share one force. Otherwise the number 
+	*	of milliseconds between forces, changes made since the last force 
+	*	are lost if the machine crashes.
+	* @throws java.io.IOException if the journal can not be opened or 
+	*	replayed
+	* @see #closeJournal
+	* @see #checkpoint
+	* @see #setCheckpointSize(long)
+	* @since 1.2
 	*/
 	/* History: Date		Name	Explanation (possibly multi row)
 	*/
-	public void newSet(String featureNames[], String featureTypeNames[])
+	public void openJournal(String journalfile, long syncInterval)
+		throws java.io.IOException
 	{
-		fileHandler.setDatafile(null);
-		this.data = new CBRdata(featureNames, featureTypeNames);
+		writeLock.lock();
+		try
+		{
+			closeJournal();
+			
+			Journal newJournal = new Journal(journalfile, syncInterval, log);
+			String datafile = fileHandler == null ? null : fileHandler.getDatafile();
+			String fingerprint = Journal.fingerprint(datafile);
+			try
+			{
+				long start = newJournal.find(fingerprint);
+				if (start >= 0)
+				{
+					CBRdata newData = fingerprint.length() == 0 ? new CBRdata() : fileHandler.read();
+					newData = newJournal.replay(newData, start);
+					newData.finishInput();
+					data = newData;
+					generation++;
+					journal = newJournal;
+				} else
+				{
+					if (newJournal.getBase() != null)
+					{
+						log.write("Journal \"" + journalfile + "\" is of another data file than \"" + datafile + "\", it is emptied.");
+					}
+					journal = newJournal;
+					dataChanged();
+				}
+			} catch (java.io.IOException e)
+			{
+				journal = null;
+				newJournal.close();
+				log.write(e.toString());
+				throw e;
+			}
+		} finally
+		{
+			writeLock.unlock();
+		}
 	}
 	
-	
 	/**
-	* Performs a search for the best match in a "web" way. Takes the servlet 
-	*		request part of an URL and tries to make the best of it.<br />
-	* The search parameters must be named 
-	*		<code>featX</code>, <code>weightX</code>, <code>termX</code>, 
-	*		<code>scaleX</code> and <code>optionX</code> where <code>X</code> is 
-	*		the number of the feature corresponding to this value
-	*	An example could be<br />
-	*		<code>CBRBean.search(req)</code>
-	*		where <code>req.getQueryString()</code> might look like
-	*		<code>feat0=Compaq&scale0=0&feat3=1000&weight3=10</code>
+	* Stops journaling the changes of the set. The journal is forced to 
+	*	disk and kept, it is replayed by the next openJournal().
 	* 
-	* @param req the servlet (or jsp) request. Must be <b><code>javax.servlet.http.HttpServletRequest</code></b>
-	* @return WebResult specifying both the result and what was actually 
-	*		searched for
-	* @throws NoDataException when not enough data is present
-	* @since 1.0
+	* @throws java.io.IOException if the journal can not be forced
+	* @see #openJournal(String, long)
+	* @since 1.2
 	*/
 	/* History: Date		Name	Explanation (possibly multi row)
 	*/
-	public WebResult search(Object req)
-		throws NoDataException, Exception
+	public void closeJournal()
+		throws java.io.IOException
 	{
-		return new WebResult(this, req);
+		writeLock.lock();
+		try
+		{
+			if (journal != null)
+			{
+				Journal oldJournal = journal;
+				journal = null;
+				oldJournal.close();
+			}
+		} finally
+		{
+			writeLock.unlock();
+		}
 	}
+	
 	/**
-	* Performs a search for the best match, used primarily by ActiveX components. Principle example: <br />
-	*	search(	{"Manufacurer",	"Speed",	"HDD",	"CD"}, 
-	*		{"Compaq",	"1000",		"1.3",	"?"}, 
-	*		{4,		6,		6,	5}, 
-	*		null,
-	*		{0,		0,		0,	0},
-	*		{0,		0,		0,	0}, 
-	*		":", ";")
+	* Starts to save the set to the data file in the background, in the 
+	*	format the file already has, and compacts the journal. Searches and 
+	*	changes go on while the checkpoint is written: it is written from a 
+	*	snapshot of the set to a temporary file, verified against its 
+	*	checksum and renamed to the data file. A crash at any point leaves 
+	*	a data file and a journal that give the set when openJournal() is 
+	*	called. Does not start a new checkpoint while one is written. The 
+	*	checkpoint is discarded if the set is read or saved meanwhile.
 	* 
-	* @param searchFeatureNames array of names of the features. Must be an array of <code>Strings</code>.
-	* @param searchValues array of strings describing the features to search for. Must be an array of <code>Strings</code>.
-	* @param searchWeights array of weights for the search, valid values are >0 
-	*		where 0 means don't care. May be set to 
-	*		null which means alla features are equally important. Must be <code>Null</code> or an array of <code>Integers</code>.
-	* @param searchTerms array of terms of the search. May be any of<br />
-	*		CBR.SEARCH_TERM_EQUAL, CBR.SEARCH_TERM_GREATER, 
-	*		CBR.SEARCH_TERM_GREATER_OR_EQUAL, CBR.SEARCH_TERM_LESS, CBR.SEARCH_TERM_LESS_OR_EQUAL, 
-	*		CBR.SEARCH_TERM_MAX, CBR.SEARCH_TERM_MIN and 
-	*		CBR.SEARCH_TERM_NOT_EQUAL. Default (when set to 0 or null) is 
-	*		CBR.SEARCH_TYPE_EQUAL. Must be <code>Null</code> or an array of <code>Integers</code>.
-	* @param searchScales array of the scale to use. May be any of 
-	*		CBR.SEARCH_SCALE_FUZZY_LINEAR, CBR.SEARCH_SCALE_FUZZY_LOGARITHMIC, 
-	*		CBR.SEARCH_SCALE_FLAT and CBR.SEARCH_SCALE_STRICT. Default (when set to 0 or null) is 
-	*		CBR.SEARCH_SCALE_FUZZY_LINEAR. Must be <code>Null</code> or an array of <code>Integers</code>.
-	* @param searchOptions array of options on how to perform the search. Default is no options. Must be <code>Null</code> or an array of <code>Integers</code>.
-	* @param resultSeparator string to use to separate the case number and the match percentage in the result
-	* @param caseSeparator string to use to separate the cases in the result
-	* @return string containing the result. If the <code>resultSeparator</code> 
-	*		is ":" and the <code>caseSeparator</code> is ";" the result might look like: 
-	*		<code>"3:33.3;0:25;2:12.5;1:12.5;4:0"</code> which would mean that the best 
-	*		match is case number 3 with a search hit of 33.3%, case number 0 has a hit 
-	*		rate of 25% and case number 1 and 2 have a hit rate of 12.5% each. Case 
-	*		number 4 has the lowest hit rate, 0%. The cases are always returned in 
-	*		decreasing hit order.
-	* @throws NoDataException when not enough data is present
-	* @since 1.0
+	* @return the checkpoint, its get() throws 
+	*	java.util.concurrent.ExecutionException with a java.io.IOException 
+	*	if there is no data file or the set can not be saved
+	* @see #openJournal(String, long)
+	* @since 1.2
 	*/
 	/* History: Date		Name	Explanation (possibly multi row)
 	*/
-	public String searchAX(Object searchFeatureNames[], // Strings
-							  Object searchValues[],	// Strings
-							  Object searchWeights[],	// Integers
-							  Object searchTerms[],		// Integers
-							  Object searchScales[],	// Integers
-							  Object searchOptions[],	// Integers
-							  String resultSeparator,
-							  String caseSeparator)
-		throws NoDataException
+	public java.util.concurrent.Future checkpoint()
 	{
-		StringBuffer ret = new StringBuffer();
-		CBRResult res[];
-		String sNames[], sValues[];
-		int sWeights[], sTerms[], sScales[], sOptions[];
-		if (searchFeatureNames != null)
+		java.util.concurrent.FutureTask task;
+		Thread thread;
+		
+		writeLock.lock();
+		try
 		{
-			sNames = new String[searchFeatureNames.length];
-			for (int i = 0; i < searchFeatureNames.length; i++)
+			task = checkpointTask;
+			if (task == null || task.isDone())
 			{
-				sNames[i] = (String) searchFeatureNames[i];
+				task = new java.util.concurrent.FutureTask(new CheckpointTask(this));
+				thread = new Thread(task, "FreeCBR checkpoint");
+				thread.setDaemon(true);
+				thread.start();
+				checkpointTask = task;
 			}
-		} else
+			return task;
+		} finally
 		{
-			sNames = null;
+			writeLock.unlock();
 		}
-		if (searchValues != null)
+	}
+	
+	/**
+	* Returns the size of the journal from which a checkpoint is written
+	* 
+	* @return the number of bytes
+	* @see #setCheckpointSize(long)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public long getCheckpointSize()
+	{
+		return checkpointSize;
+	}
+	
+	/**
+	* Sets the size of the journal from which a checkpoint is written. A 
+	*	larger journal writes fewer checkpoints but takes longer to replay.
+	* 
+	* @param size the number of bytes, Long.MAX_VALUE to only write 
+	*	checkpoints when checkpoint() is called
+	* @see #openJournal(String, long)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void setCheckpointSize(long size)
+	{
+		this.checkpointSize = size;
+	}
+	
+	
+	/**
+	* Saves the set to the data file and compacts the journal, run by the 
+	* thread of a checkpoint
+	* 
+	* @throws java.io.IOException if there is no data file or an error 
+	*	occurs when saving the set
+	* @see #checkpoint
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void writeCheckpoint()
+		throws java.io.IOException
+	{
+		try
 		{
-			sValues = new String[searchValues.length];
-			for (int i = 0; i < searchValues.length; i++)
-			{
-				sValues[i] = (String) searchValues[i];
-			}
-		} else
+			writeSet(null, false, true);
+		} catch (java.io.IOException e)
 		{
-			sValues = null;
+			log.write("Unable to write checkpoint, error message: " + e.toString());
+			throw e;
 		}
-		if (searchWeights != null)
-		{
-			sWeights = new int[searchWeights.length];
-			for (int i = 0; i < searchWeights.length; i++)
-			{
-				sWeights[i] = getInt(searchWeights[i]);
-			}
-		} else
+	}
+	
+	/**
+	* Saves a snapshot of the set. The write lock is held while the 
+	* snapshot is taken and while the file is replaced, not while it is 
+	* written, so searches and changes go on. The journal, if any, is 
+	* compacted to the changes made after the snapshot.
+	* 
+	* @param filename the file to save to, null for the data file. The 
+	*	file becomes the data file.
+	* @param binary true to save a binary file of columns
+	* @param checkpoint true for a checkpoint: the format of the data file 
+	*	is kept and the file is not replaced if the set was read, saved or 
+	*	replaced meanwhile
+	* @throws java.io.IOException if there is no file to save to or an 
+	*	error occurs when saving the set
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void writeSet(String filename, boolean binary, boolean checkpoint)
+		throws java.io.IOException
+	{
+		FileHandler handler;
+		CBRdata snapshot;
+		Journal snapshotJournal;
+		AtomicFile file;
+		String target;
+		long snapshotGeneration;
+		long start = 0;
+		
+		saveLock.lock();
+		try
+		{
+			writeLock.lock();
+			try
+			{
+				if (fileHandler == null && filename != null)
+				{
+					fileHandler = new FileHandler(filename, log, verbose);
+				}
+				handler = fileHandler;
+				target = filename != null ? filename : handler == null ? null : handler.getDatafile();
+				if (target == null || target.length() == 0)
+				{
+					throw new java.io.IOException("No data file to save the set to");
+				}
+				if (checkpoint)
+				{
+					binary = new java.io.File(target).exists() && ColumnFile.isColumnFile(target);
+				}
+				snapshot = data;
+				snapshotJournal = journal;
+				snapshotGeneration = generation;
+				if (snapshotJournal != null)
+				{
+					start = snapshotJournal.size();
+				}
+			} finally
+			{
+				writeLock.unlock();
+			}
+			
+			// The snapshot is not changed, changes make new sets
+			file = handler.write(snapshot, target, binary);
+			try
+			{
+				writeLock.lock();
+				try
+				{
+					if (generation != snapshotGeneration || handler != fileHandler || journal != snapshotJournal)
+					{
+						if (checkpoint)
+						{
+							log.write("The set was read or replaced while the checkpoint was written, the checkpoint is discarded.");
+							return;
+						}
+						// The set is saved as asked, but the new set has 
+						// another data file and journal
+						file.commit();
+						return;
+					}
+					if (journal != null)
+					{
+						journal.checkpoint(Journal.fingerprint(file.getTempName()), start, snapshot);
+					}
+					file.commit();
+					handler.setDatafile(target);
+					if (journal != null)
+					{
+						journal.compact(Journal.fingerprint(target), start, snapshot);
+					}
+				} finally
+				{
+					writeLock.unlock();
+				}
+			} finally
+			{
+				file.discard();
+			}
+		} finally
+		{
+			saveLock.unlock();
+		}
+	}
+	
+	/**
+	* Empties the journal after the set is read or replaced, and discards 
+	* the checkpoint being written, with the write lock held
+	* 
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void dataChanged()
+		throws java.io.IOException
+	{
+		generation++;
+		if (journal != null)
+		{
+			resetJournal();
+		}
+	}
+	
+	/**
+	* Empties the journal and bases it on the current data file, with the 
+	* write lock held. Without a data file the whole set is written to the 
+	* journal, otherwise the index flags of the set.
+	* 
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void resetJournal()
+		throws java.io.IOException
+	{
+		String base = Journal.fingerprint(fileHandler == null ? null : fileHandler.getDatafile());
+		
+		journal.reset(base);
+		journal.snapshot(data);
+	}
+	
+	/**
+	* Waits until a journaled change is forced to disk, after the write 
+	* lock is released so that changes made meanwhile share the force. 
+	* Then starts a checkpoint if the journal has grown too large.
+	* 
+	* @param seq the sequence number of the change in the journal, 0 if 
+	*	not journaled
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void commit(long seq)
+	{
+		Journal journal = this.journal;
+		java.util.concurrent.FutureTask task;
+		String datafile;
+		
+		if (seq == 0 || journal == null)
+		{
+			return;
+		}
+		try
+		{
+			journal.sync(seq);
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		}
+		
+		datafile = fileHandler == null ? null : fileHandler.getDatafile();
+		task = checkpointTask;
+		if (journal.size() > checkpointSize && datafile != null && datafile.length() > 0 && 
+				(task == null || task.isDone()))
+		{
+			checkpoint();
+		}
+	}
+	
+	/**
+	* Logs an error writing the journal and returns it as an unchecked 
+	* exception, for the changes that do not throw java.io.IOException
+	* 
+	* @param e the error
+	* @return the exception to throw
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private RuntimeException journalError(java.io.IOException e)
+	{
+		log.write("Unable to write journal, error message: " + e.toString());
+		return new java.io.UncheckedIOException(e);
+	}
+	
+	
+	/**
+	* Empties the memory - deletes the current set from memory and creates 
+	*	a new empty set with the specified feature names and feature data types
+	* 
+	* @param featureNames an array of feature names to use
+	* @param featureTypeNames an array of data type names to use (such as "String", "Float" and so on)
+	* @return nothing
+	* @see Feature
+	* @since 1.0
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void newSet(String featureNames[], String featureTypeNames[])
+	{
+		long seq = 0;
+		
+		writeLock.lock();
+		try
+		{
+			fileHandler.setDatafile(null);
+			generation++;
+			CBRdata next = new CBRdata(featureNames, featureTypeNames);
+			if (journal != null)
+			{
+				// Without a data file the journal holds the whole set
+				journal.reset("");
+				seq = journal.newSet(featureNames, featureTypeNames);
+			}
+			this.data = next;
+		} catch (java.io.IOException e)
+		{
+			throw journalError(e);
+		} finally
+		{
+			writeLock.unlock();
+		}
+		commit(seq);
+	}
+	
+	
+	/**
+	* Performs a search for the best match in a "web" way. Takes the servlet 
+	*		request part of an URL and tries to make the best of it.<br />
+	* The search parameters must be named 
+	*		<code>featX</code>, <code>weightX</code>, <code>termX</code>, 
+	*		<code>scaleX</code> and <code>optionX</code> where <code>X</code> is 
+	*		the number of the feature corresponding to this value
+	*	An example could be<br />
+	*		<code>CBRBean.search(req)</code>
+	*		where <code>req.getQueryString()</code> might look like
+	*		<code>feat0=Compaq&scale0=0&feat3=1000&weight3=10</code>
+	* 
+	* @param req the servlet (or jsp) request. Must be <b><code>javax.servlet.http.HttpServletRequest</code></b>
+	* @return WebResult specifying both the result and what was actually 
+	*		searched for
+	* @throws NoDataException when not enough data is present
+	* @since 1.0
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public WebResult search(Object req)
+		throws NoDataException, Exception
+	{
+		return new WebResult(this, req);
+	}
+	/**
+	* Performs a search for the best match, used primarily by ActiveX components. Principle example: <br />
+	*	search(	{"Manufacurer",	"Speed",	"HDD",	"CD"}, 
+	*		{"Compaq",	"1000",		"1.3",	"?"}, 
+	*		{4,		6,		6,	5}, 
+	*		null,
+	*		{0,		0,		0,	0},
+	*		{0,		0,		0,	0}, 
+	*		":", ";")
+	* 
+	* @param searchFeatureNames array of names of the features. Must be an array of <code>Strings</code>.
+	* @param searchValues array of strings describing the features to search for. Must be an array of <code>Strings</code>.
+	* @param searchWeights array of weights for the search, valid values are >0 
+	*		where 0 means don't care. May be set to 
+	*		null which means alla features are equally important. Must be <code>Null</code> or an array of <code>Integers</code>.
+	* @param searchTerms array of terms of the search. May be any of<br />
+	*		CBR.SEARCH_TERM_EQUAL, CBR.SEARCH_TERM_GREATER, 
+	*		CBR.SEARCH_TERM_GREATER_OR_EQUAL, CBR.SEARCH_TERM_LESS, CBR.SEARCH_TERM_LESS_OR_EQUAL, 
+	*		CBR.SEARCH_TERM_MAX, CBR.SEARCH_TERM_MIN and 
+	*		CBR.SEARCH_TERM_NOT_EQUAL. Default (when set to 0 or null) is 
+	*		CBR.SEARCH_TYPE_EQUAL. Must be <code>Null</code> or an array of <code>Integers</code>.
+	* @param searchScales array of the scale to use. May be any of 
+	*		CBR.SEARCH_SCALE_FUZZY_LINEAR, CBR.SEARCH_SCALE_FUZZY_LOGARITHMIC, 
+	*		CBR.SEARCH_SCALE_FLAT and CBR.SEARCH_SCALE_STRICT. Default (when set to 0 or null) is 
+	*		CBR.SEARCH_SCALE_FUZZY_LINEAR. Must be <code>Null</code> or an array of <code>Integers</code>.
+	* @param searchOptions array of options on how to perform the search. Default is no options. Must be <code>Null</code> or an array of <code>Integers</code>.
+	* @param resultSeparator string to use to separate the case number and the match percentage in the result
+	* @param caseSeparator string to use to separate the cases in the result
+	* @return string containing the result. If the <code>resultSeparator</code> 
+	*		is ":" and the <code>caseSeparator</code> is ";" the result might look like: 
+	*		<code>"3:33.3;0:25;2:12.5;1:12.5;4:0"</code> which would mean that the best 
+	*		match is case number 3 with a search hit of 33.3%, case number 0 has a hit 
+	*		rate of 25% and case number 1 and 2 have a hit rate of 12.5% each. Case 
+	*		number 4 has the lowest hit rate, 0%. The cases are always returned in 
+	*		decreasing hit order.
+	* @throws NoDataException when not enough data is present
+	* @since 1.0
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public String searchAX(Object searchFeatureNames[], // Strings
+							  Object searchValues[],	// Strings
+							  Object searchWeights[],	// Integers
+							  Object searchTerms[],		// Integers
+							  Object searchScales[],	// Integers
+							  Object searchOptions[],	// Integers
+							  String resultSeparator,
+							  String caseSeparator)
+		throws NoDataException
+	{
+		StringBuffer ret = new StringBuffer();
+		CBRResult res[];
+		String sNames[], sValues[];
+		int sWeights[], sTerms[], sScales[], sOptions[];
+		if (searchFeatureNames != null)
+		{
+			sNames = new String[searchFeatureNames.length];
+			for (int i = 0; i < searchFeatureNames.length; i++)
+			{
+				sNames[i] = (String) searchFeatureNames[i];
+			}
+		} else
+		{
+			sNames = null;
+		}
+		if (searchValues != null)
+		{
+			sValues = new String[searchValues.length];
+			for (int i = 0; i < searchValues.length; i++)
+			{
+				sValues[i] = (String) searchValues[i];
+			}
+		} else
+		{
+			sValues = null;
+		}
+		if (searchWeights != null)
+		{
+			sWeights = new int[searchWeights.length];
+			for (int i = 0; i < searchWeights.length; i++)
+			{
+				sWeights[i] = getInt(searchWeights[i]);
+			}
+		} else
 		{
 			sWeights = null;
 		}
@@ -1193,6 +2217,37 @@ public class CBR implements java.io.Serializable
 							  int searchScales[], 
 							  int searchOptions[])
 		throws NoDataException
+	{
+		return search(searchFeatureNames, searchValues, searchWeights, searchTerms, searchScales, searchOptions, 0);
+	}
+	/**
+	* Performs a search for the k best matches. Same as 
+	* search(String[], String[], int[], int[], int[], int[]) but only the 
+	* best k results are kept, which is much cheaper than sorting all 
+	* results when k is small.
+	* 
+	* @param searchFeatureNames array of names of the features
+	* @param searchValues array of strings describing the features to search for
+	* @param searchWeights array of weights for the search
+	* @param searchTerms array of terms of the search
+	* @param searchScales array of the scale to use
+	* @param searchOptions array of options on how to perform the search
+	* @param k the maximum number of results to return, 0 or less means all results
+	* @return array of at most k results, ordered by match
+	* @throws NoDataException when not enough data is present
+	* @see #search(String[], String[], int[], int[], int[], int[])
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[] search(String searchFeatureNames[], 
+							  String searchValues[], 
+							  int searchWeights[], 
+							  int searchTerms[], 
+							  int searchScales[], 
+							  int searchOptions[], 
+							  int k)
+		throws NoDataException
 	{
 		int searchFeatureNumbers[];
 		Feature searchData[];
@@ -1229,7 +2284,7 @@ public class CBR implements java.io.Serializable
 		}
 		
 		// Do the search...
-		return search(searchFeatureNumbers, searchData, searchWeights, searchTerms, searchScales, searchOptions);
+		return search(searchFeatureNumbers, searchData, searchWeights, searchTerms, searchScales, searchOptions, k);
 	}
 	/**
 	* Performs a search for the best match.
@@ -1263,29 +2318,105 @@ public class CBR implements java.io.Serializable
 							  int searchScales[], 
 							  int searchOptions[])
 	{
-		FVector resultSet;
-		CBRResult[] resultArr;
-		double dist;
-		double hit;
-		long searchWeightsSum = 0;
-		boolean disqualified;
-		
-		if (verbose)
-		{
-			log.writeNL();
-			log.write("New search for");
-			if (searchFeatureNumbers == null ||
-				searchValues == null)
-			{
-				log.writeShort("Trying to search with \"null\" parameters, throwing exception...");
-				throw new NoDataException("Not enough data available");
-			}
-			for (int i = 0 ; i < searchFeatureNumbers.length - 1 ; i++ )
-			{
-				log.writeShort(getFeatureName(searchFeatureNumbers[i]) + "=" + searchValues[i].toString() + ", ");
-			}
-			log.writeShort(getFeatureName(searchFeatureNumbers[searchFeatureNumbers.length - 1]) + "=" + searchValues[searchFeatureNumbers.length - 1].toString());
+		return search(prepareSearch(searchFeatureNumbers, searchValues, searchWeights, searchTerms, searchScales, searchOptions), 0);
+	}
+	/**
+	* Performs a search for the k best matches. Same as 
+	* search(int[], Feature[], int[], int[], int[], int[]) but only the 
+	* best k results are kept.
+	* 
+	* @param searchFeatureNumbers array of types of the features
+	* @param searchValues array of features to search for
+	* @param searchWeights array of weights for the search
+	* @param searchTerms array of terms of the search
+	* @param searchScales array of the scale to use
+	* @param searchOptions array of options on how to perform the search
+	* @param k the maximum number of results to return, 0 or less means all results
+	* @return array of at most k results, ordered by match
+	* @see #search(int[], Feature[], int[], int[], int[], int[])
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[] search(int searchFeatureNumbers[], 
+							  Feature searchValues[], 
+							  int searchWeights[], 
+							  int searchTerms[], 
+							  int searchScales[], 
+							  int searchOptions[], 
+							  int k)
+	{
+		return search(prepareSearch(searchFeatureNumbers, searchValues, searchWeights, searchTerms, searchScales, searchOptions), k);
+	}
+	/**
+	* Performs a search for the k best matches with at least the specified 
+	* match. Same as search(int[], Feature[], int[], int[], int[], int[], int) 
+	* but cases that can not reach the minimum match are given up as soon as 
+	* that is certain.
+	* 
+	* @param searchFeatureNumbers array of types of the features
+	* @param searchValues array of features to search for
+	* @param searchWeights array of weights for the search
+	* @param searchTerms array of terms of the search
+	* @param searchScales array of the scale to use
+	* @param searchOptions array of options on how to perform the search
+	* @param k the maximum number of results to return, 0 or less means all results
+	* @param minMatchPercent the lowest match percentage to return
+	* @return array of at most k results, ordered by match
+	* @see #search(CompiledQuery, int, double)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[] search(int searchFeatureNumbers[], 
+							  Feature searchValues[], 
+							  int searchWeights[], 
+							  int searchTerms[], 
+							  int searchScales[], 
+							  int searchOptions[], 
+							  int k, 
+							  double minMatchPercent)
+	{
+		return search(prepareSearch(searchFeatureNumbers, searchValues, searchWeights, searchTerms, searchScales, searchOptions), k, minMatchPercent);
+	}
+	
+	/**
+	* Prepares a search for the best match. The returned query may be 
+	* searched any number of times with search(CompiledQuery), also after 
+	* the data has changed.
+	* 
+	* @param searchFeatureNumbers array of types of the features
+	* @param searchValues array of features to search for
+	* @param searchWeights array of weights for the search, see 
+	*		search(int[], Feature[], int[], int[], int[], int[])
+	* @param searchTerms array of terms of the search, see 
+	*		search(int[], Feature[], int[], int[], int[], int[])
+	* @param searchScales array of the scale to use, see 
+	*		search(int[], Feature[], int[], int[], int[], int[])
+	* @param searchOptions array of options on how to perform the search. Default is no options.
+	* @return the prepared search
+	* @throws NoDataException if the arrays are missing or not of the same length
+	* @see #search(CompiledQuery)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CompiledQuery prepareSearch(int searchFeatureNumbers[], 
+									   Feature searchValues[], 
+									   int searchWeights[], 
+									   int searchTerms[], 
+									   int searchScales[], 
+									   int searchOptions[])
+		throws NoDataException
+	{
+		if (verbose && 
+			(searchFeatureNumbers == null ||
+			 searchValues == null))
+		{
 			log.writeNL();
+			log.write("New search for");
+			log.writeShort("Trying to search with \"null\" parameters, throwing exception...");
+			throw new NoDataException("Not enough data available");
 		}
 		
 		// Check for errors in input
@@ -1319,93 +2450,1129 @@ public class CBR implements java.io.Serializable
 		}
 		if (searchScales == null)
 		{
-			searchScales = new int[searchValues.length];
-			for ( int i = 0 ; i < searchValues.length ; i++ )
+			searchScales = new int[searchValues.length];
+			for ( int i = 0 ; i < searchValues.length ; i++ )
+			{
+				searchScales[i] = 0;
+			}
+		}
+		if (searchOptions == null)
+		{
+			searchOptions	 = new int[searchValues.length];
+			for ( int i = 0 ; i < searchValues.length ; i++ )
+			{
+				searchOptions[i] = 0;
+			}
+		}
+		return new CompiledQuery(searchFeatureNumbers, searchValues, searchWeights, searchTerms, searchScales, searchOptions);
+	}
+	
+	/**
+	* Performs a prepared search for the best match.
+	* 
+	* @param query the search, as returned by prepareSearch
+	* @return array of result, ordered by match
+	* @throws NoDataException if the CBR has no data
+	* @see #prepareSearch(int[], Feature[], int[], int[], int[], int[])
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[] search(CompiledQuery query)
+		throws NoDataException
+	{
+		return search(query, 0);
+	}
+	
+	/**
+	* Performs a prepared search for the k best matches. The best k results 
+	* are kept in a bounded heap during the search, so neither all results 
+	* nor a sort of all results are needed.
+	* 
+	* @param query the search, as returned by prepareSearch
+	* @param k the maximum number of results to return, 0 or less means all results
+	* @return array of at most k results, ordered by match
+	* @throws NoDataException if the CBR has no data
+	* @see #search(CompiledQuery)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[] search(CompiledQuery query, int k)
+		throws NoDataException
+	{
+		return search(query, k, Double.NEGATIVE_INFINITY);
+	}
+	
+	/**
+	* Performs a prepared search for the k best matches with at least the 
+	* specified match. The features are calculated in order of decreasing 
+	* weight, and a case is given up as soon as the features calculated so 
+	* far make it certain that the case can not reach the minimum match, 
+	* even if all remaining features would match exactly. The results are 
+	* the same as from search(CompiledQuery, int) without the results below 
+	* the minimum match.
+	* 
+	* @param query the search, as returned by prepareSearch
+	* @param k the maximum number of results to return, 0 or less means all results
+	* @param minMatchPercent the lowest match percentage to return
+	* @return array of at most k results, ordered by match
+	* @throws NoDataException if the CBR has no data
+	* @see #search(CompiledQuery, int)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[] search(CompiledQuery query, int k, double minMatchPercent)
+		throws NoDataException
+	{
+		// The whole search uses the data of this moment, changes made 
+		// meanwhile replace the data and do not change it
+		CBRdata data = this.data;
+		CBRResult[] resultArr;
+		ResultCache cache = null;
+		ResultCache.Key key = null;
+		QueryPlan plan;
+		
+		if (verbose)
+		{
+			logSearch(query);
+		}
+		if (data == null)
+		{
+			throw new NoDataException("CBR has no data");
+		}
+		
+		if (k < 0 || k >= data.getNumCases())
+		{
+			k = 0;
+		}
+		if (!verbose && resultCacheSize > 0)
+		{
+			// Verbose searches are never cached, they must write their log
+			cache = getResultCache();
+			key = new ResultCache.Key(query, k, minMatchPercent, INFINITY_CONSTANT);
+			resultArr = cache.get(key, data, data.getVersion());
+			if (resultArr != null)
+			{
+				return resultArr;
+			}
+		}
+		
+		// The evaluators of the plan have everything that does not depend on 
+		// the case resolved, the inner loop only reads the columns
+		plan = query.getPlan(this, data, INFINITY_CONSTANT, verbose);
+		resultArr = search(query, plan, k, minMatchPercent);
+		if (cache != null)
+		{
+			// Tagged with the version the plan was built for, the data may 
+			// have changed since the cache was asked
+			cache.put(key, resultArr, plan.data, plan.version);
+		}
+		return resultArr;
+	}
+	
+	/**
+	* Performs a prepared search for the best matches and writes them to 
+	* the specified arrays, the best match first. As many results as fit in 
+	* the arrays are written. Apart from when the data has changed since 
+	* last search nothing is allocated, so the search adds no work for the 
+	* garbage collector when the same query and arrays are used again. The 
+	* search is never split over several threads and never uses the result 
+	* cache, but may use the KD-tree.
+	* 
+	* @param query the search, as returned by prepareSearch
+	* @param caseNums array to write the case numbers to
+	* @param matches array to write the match percentages to
+	* @return the number of results written
+	* @throws NoDataException if the CBR has no data
+	* @see #search(CompiledQuery, int)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public int search(CompiledQuery query, int caseNums[], double matches[])
+		throws NoDataException
+	{
+		CBRdata data = this.data;
+		ResultHeap heap;
+		QueryPlan plan;
+		KDTree tree;
+		int numCases;
+		int k;
+		int n;
+		
+		if (verbose)
+		{
+			logSearch(query);
+		}
+		if (data == null)
+		{
+			throw new NoDataException("CBR has no data");
+		}
+		k = Math.min(caseNums.length, matches.length);
+		if (k == 0)
+		{
+			return 0;
+		}
+		plan = query.getPlan(this, data, INFINITY_CONSTANT, verbose);
+		numCases = plan.data.getNumCases();
+		
+		heap = (ResultHeap) bufferHeaps.get();
+		if (heap == null)
+		{
+			heap = new ResultHeap(caseNums, matches, k);
+			bufferHeaps.set(heap);
+		} else
+		{
+			heap.reset(caseNums, matches, k);
+		}
+		tree = null;
+		if (k < numCases && !verbose && treeThreshold > 0 && numCases >= treeThreshold)
+		{
+			tree = getKDTree(plan.data);
+			if (!tree.canSearch(query, plan))
+			{
+				tree = null;
+			}
+		}
+		if (tree != null)
+			tree.search(this, query, plan, heap);
+		else
+			scanCases(query, plan, 0, numCases, heap, null);
+		n = heap.sort();
+		
+		// Do not keep the arrays of the caller
+		heap.reset(null, null, 0);
+		return n;
+	}
+	
+	/**
+	* Writes the searched features and values to the log
+	* 
+	* @param query the search
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void logSearch(CompiledQuery query)
+	{
+		log.writeNL();
+		log.write("New search for");
+		for (int i = 0 ; i < query.featureNums.length - 1 ; i++ )
+		{
+			log.writeShort(getFeatureName(query.featureNums[i]) + "=" + query.values[i].toString() + ", ");
+		}
+		log.writeShort(getFeatureName(query.featureNums[query.featureNums.length - 1]) + "=" + query.values[query.featureNums.length - 1].toString());
+		log.writeNL();
+	}
+	
+	/**
+	* Calculates the results of a planned search
+	* 
+	* @param query the search
+	* @param plan the plan of the search
+	* @param k the maximum number of results to return, 0 means all results
+	* @param minMatch the lowest match to return
+	* @return array of results, ordered by match
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private CBRResult[] search(CompiledQuery query, QueryPlan plan, int k, double minMatch)
+	{
+		ResultList resultSet;
+		ResultHeap heap;
+		CBRResult[] resultArr;
+		int numCases;
+		
+		// Start calculating the results
+		numCases = plan.data.getNumCases();
+		if (k >= numCases)
+		{
+			k = 0;
+		}
+		if (k > 0 && !verbose && treeThreshold > 0 && numCases >= treeThreshold)
+		{
+			KDTree tree = getKDTree(plan.data);
+			if (tree.canSearch(query, plan))
+			{
+				heap = new ResultHeap(k);
+				tree.search(this, query, plan, heap);
+				return atLeast(heap.toArray(), minMatch);
+			}
+		}
+		if (!verbose && parallelThreshold > 0 && numCases >= parallelThreshold && numCases > 1)
+		{
+			// Verbose searches are never split, the log would be garbled
+			return parallelSearch(query, plan, numCases, k, minMatch);
+		}
+		if (k > 0)
+		{
+			heap = new ResultHeap(k);
+			scanCases(query, plan, 0, numCases, minMatch, heap, null);
+			return heap.toArray();
+		}
+		resultSet = new ResultList(numCases);
+		scanCases(query, plan, 0, numCases, minMatch, null, resultSet);
+		
+		// Transform the result set to array, sort it and return it
+		resultArr = resultSet.toArray();
+		CBRResultComparator.sort(resultArr);
+		return resultArr;
+	}
+	
+	/**
+	* Performs several prepared searches in one pass over the cases. The 
+	* cases are taken a block at a time and all searches calculate their 
+	* matches for the block before the next block is read, so each block 
+	* of the columns is read from memory once instead of once per search. 
+	* The results are the same as from search(CompiledQuery, int) with the 
+	* results below the minimum match of the BatchQuery removed.
+	* 
+	* @param queries list of BatchQuery:s
+	* @return array with an array of results for each query, in the order of 
+	* the list, each ordered by match
+	* @throws NoDataException if the CBR has no data
+	* @see #search(CompiledQuery, int)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public CBRResult[][] searchBatch(java.util.List queries)
+		throws NoDataException
+	{
+		CBRdata data = this.data;
+		CBRResult resultArrs[][];
+		BatchQuery batchQueries[];
+		QueryPlan plans[];
+		ResultHeap heaps[];
+		ResultList resultSets[];
+		int numCases;
+		int k;
+		
+		if (data == null)
+		{
+			throw new NoDataException("CBR has no data");
+		}
+		batchQueries = (BatchQuery[]) queries.toArray(new BatchQuery[queries.size()]);
+		resultArrs = new CBRResult[batchQueries.length][];
+		if (verbose)
+		{
+			// Keep the log of each search together
+			for ( int q = 0 ; q < batchQueries.length ; q++ )
+			{
+				resultArrs[q] = atLeast(search(batchQueries[q].getQuery(), batchQueries[q].getK()), 
+										batchQueries[q].getMinMatch());
+			}
+			return resultArrs;
+		}
+		
+		numCases = data.getNumCases();
+		plans = new QueryPlan[batchQueries.length];
+		heaps = new ResultHeap[batchQueries.length];
+		resultSets = new ResultList[batchQueries.length];
+		for ( int q = 0 ; q < batchQueries.length ; q++ )
+		{
+			plans[q] = batchQueries[q].getQuery().getPlan(this, data, INFINITY_CONSTANT, verbose);
+			k = batchQueries[q].getK();
+			if (k > 0 && k < numCases)
+				heaps[q] = new ResultHeap(k);
+			else
+				resultSets[q] = new ResultList(0);
+		}
+		
+		for ( int from = 0 ; from < numCases ; from += BATCH_BLOCK_SIZE )
+		{
+			int to = Math.min(from + BATCH_BLOCK_SIZE, numCases);
+			for ( int q = 0 ; q < batchQueries.length ; q++ )
+			{
+				scanCases(batchQueries[q].getQuery(), plans[q], from, to, 
+						  batchQueries[q].getMinMatch(), heaps[q], resultSets[q]);
+			}
+		}
+		
+		for ( int q = 0 ; q < batchQueries.length ; q++ )
+		{
+			if (heaps[q] != null)
+			{
+				resultArrs[q] = heaps[q].toArray();
+			} else
+			{
+				resultArrs[q] = resultSets[q].toArray();
+				CBRResultComparator.sort(resultArrs[q]);
+			}
+			// Let the garbage collector have the results of finished searches
+			heaps[q] = null;
+			resultSets[q] = null;
+		}
+		return resultArrs;
+	}
+	
+	/**
+	* Returns the results with at least the specified match
+	* 
+	* @param results array of results, ordered by match
+	* @param minMatch the lowest match to keep
+	* @return the first results of the array
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private static CBRResult[] atLeast(CBRResult results[], double minMatch)
+	{
+		int n = 0;
+		CBRResult kept[];
+		
+		while (n < results.length && !(results[n].matchPercent < minMatch))
+		{
+			n++;
+		}
+		if (n == results.length)
+		{
+			return results;
+		}
+		kept = new CBRResult[n];
+		System.arraycopy(results, 0, kept, 0, n);
+		return kept;
+	}
+	
+	/**
+	* Returns the result cache, created if needed
+	* 
+	* @return the cache
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized ResultCache getResultCache()
+	{
+		if (resultCache == null)
+		{
+			resultCache = new ResultCache(resultCacheSize);
+		}
+		return resultCache;
+	}
+	
+	/**
+	* Returns the KD-tree of the specified data, the tree is built if the 
+	* data has changed since last time
+	* 
+	* @param data the data searched
+	* @return the tree
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized KDTree getKDTree(CBRdata data)
+	{
+		if (kdTree == null || 
+			kdTree.data != data || 
+			kdTree.version != data.getVersion())
+		{
+			kdTree = new KDTree(data);
+		}
+		return kdTree;
+	}
+	
+	/**
+	* Splits a search into chunks of cases that are searched by the search 
+	* executor, and merges the results of the chunks
+	* 
+	* @param query the search
+	* @param plan the plan of the search
+	* @param numCases the number of cases to search
+	* @param k the maximum number of results to return, 0 means all results
+	* @param minMatch the lowest match to return
+	* @return array of results, ordered by match
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private CBRResult[] parallelSearch(CompiledQuery query, QueryPlan plan, int numCases, int k, double minMatch)
+	{
+		java.util.concurrent.ExecutorService executor;
+		java.util.List tasks;
+		java.util.List partials;
+		ResultList resultSet;
+		CBRResult resultArr[];
+		ResultHeap heap;
+		int numChunks;
+		int chunkSize;
+		
+		executor = searchExecutor;
+		if (executor == null)
+		{
+			executor = java.util.concurrent.ForkJoinPool.commonPool();
+		}
+		
+		// A few chunks per thread evens out chunks that are slower than others
+		numChunks = Math.min(4 * Runtime.getRuntime().availableProcessors(), 
+							 (numCases + MIN_CHUNK_SIZE - 1) / MIN_CHUNK_SIZE);
+		numChunks = Math.max(2, numChunks);
+		chunkSize = (numCases + numChunks - 1) / numChunks;
+		tasks = new java.util.ArrayList(numChunks);
+		for (int from = 0 ; from < numCases ; from += chunkSize)
+		{
+			tasks.add(new SearchTask(this, query, plan, from, Math.min(from + chunkSize, numCases), k, minMatch));
+		}
+		
+		try
+		{
+			partials = executor.invokeAll(tasks);
+			if (k > 0)
+			{
+				heap = new ResultHeap(k);
+				for (int i = 0 ; i < partials.size() ; i++ )
+				{
+					heap.offerAll((ResultHeap) ((java.util.concurrent.Future) partials.get(i)).get());
+				}
+				return heap.toArray();
+			}
+			
+			// The chunks are added in case order, the same order as when not split
+			resultSet = new ResultList(numCases);
+			for (int i = 0 ; i < partials.size() ; i++ )
+			{
+				resultSet.addAll((ResultList) ((java.util.concurrent.Future) partials.get(i)).get());
+			}
+		} catch (java.util.concurrent.ExecutionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Search interrupted");
+		}
+		resultArr = resultSet.toArray();
+		CBRResultComparator.sort(resultArr);
+		return resultArr;
+	}
+	
+	/**
+	* Calculates the match of the candidate cases from (inclusive) to to 
+	* (exclusive) and adds them to the heap or, if heap is null, to the 
+	* result set. Thread safe unless the search is verbose.
+	* 
+	* @param query the search
+	* @param plan the plan of the search
+	* @param from the first case
+	* @param to the case after the last case
+	* @param heap the heap to add the results to, or null
+	* @param resultSet the list to add the results to if heap is null
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void scanCases(CompiledQuery query, 
+				   QueryPlan plan, 
+				   int from, 
+				   int to, 
+				   ResultHeap heap, 
+				   ResultList resultSet)
+	{
+		scanCases(query, plan, from, to, Double.NEGATIVE_INFINITY, heap, resultSet);
+	}
+	
+	/**
+	* Same as scanCases(CompiledQuery, QueryPlan, int, int, ResultHeap, 
+	* ResultList) but only adds the cases with at least the specified match
+	* 
+	* @param minMatch the lowest match to add
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void scanCases(CompiledQuery query, 
+				   QueryPlan plan, 
+				   int from, 
+				   int to, 
+				   double minMatch, 
+				   ResultHeap heap, 
+				   ResultList resultSet)
+	{
+		if (!verbose && 
+			(plan.disqualifies || (query.weightsSum >= 0 && (minMatch > 0 || heap != null))))
+		{
+			scanCasesAbandoning(query, plan, from, to, minMatch, heap, resultSet);
+			return;
+		}
+		
+		FeatureEvaluator evaluators[] = plan.evaluators;
+		long candidates[] = plan.candidates;
+		int weights[] = query.weights;
+		boolean inverted[] = query.inverted;
+		double dist;
+		double hit;
+		double matchPercent;
+		long searchWeightsSum = 0;
+		boolean disqualified;
+		
+		// Loop through all cases, or only the candidates if some cases are 
+		// already disqualified by indexed features
+		for ( int caseNum = from ; caseNum < to ; caseNum++ )
+		{
+			if (candidates != null)
+			{
+				caseNum = FeatureColumn.nextSetBit(candidates, caseNum, to);
+				if (caseNum >= to)
+				{
+					break;
+				}
+			}
+			disqualified = false;
+			
+			if (verbose)
+			{
+				log.writeNL();
+				log.writeShort("caseNum: " + caseNum);
+				log.writeNL();
+			}
+			searchWeightsSum = 0;
+			hit = 0.0;
+			// and loop through all searched features for each case
+			for ( int searchNum = 0 ; searchNum < evaluators.length ; searchNum++ )
+			{
+				dist = evaluators[searchNum].distance(caseNum);
+				if (verbose)
+				{
+					log.writeShort("" + dist);
+					log.writeNL();
+				}
+				if (dist < -1.5)
+				{
+					// Case disqualified, continue with the next one
+					disqualified = true;
+					break;
+				} else if (dist < 0)
+				{
+					// Feature disqualified, continue with the next one
+					continue;
+				}
+				if (inverted[searchNum])
+				{
+					dist = 1 - dist;
+				}
+				searchWeightsSum += weights[searchNum];
+				hit += weights[searchNum] * 
+					   Math.pow(dist, 2);
+			}
+			if (disqualified)
+			{
+				continue;
+			}
+			if (verbose)
+			{
+				log.writeShort("hit: " + hit);
+				log.writeNL();
+			}
+			if (searchWeightsSum != 0)	// Add case to result set only if at least one feature difference is found at all
+			{
+				matchPercent = 100 * (1 - Math.sqrt(hit/searchWeightsSum));
+				if (matchPercent < minMatch)
+					continue;
+				if (heap != null)
+					heap.offer(caseNum, matchPercent);
+				else
+					resultSet.add(caseNum, matchPercent);
+			}
+		}
+	}
+	
+	/**
+	* Same as scanCases(CompiledQuery, QueryPlan, int, int, double, 
+	* ResultHeap, ResultList), but the features are calculated in the order 
+	* chosen by the plan and ScanState, so that features disqualifying most 
+	* cases are calculated first. Without negative weights a case is also 
+	* given up as soon as the features so far show that it can not reach 
+	* the minimum match or, when the heap is full, the match of the worst 
+	* result in the heap, even if the remaining features would match 
+	* exactly. The match of the other cases is calculated from the distances 
+	* in the same order as by scanCases, so the matches are exactly the 
+	* same.
+	* 
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void scanCasesAbandoning(CompiledQuery query, 
+									 QueryPlan plan, 
+									 int from, 
+									 int to, 
+									 double minMatch, 
+									 ResultHeap heap, 
+									 ResultList resultSet)
+	{
+		FeatureEvaluator evaluators[] = plan.evaluators;
+		long candidates[] = plan.candidates;
+		int weights[] = query.weights;
+		boolean inverted[] = query.inverted;
+		ScanState state;
+		double dists[];
+		boolean counted[];
+		int order[];
+		double dist;
+		double hit;
+		double addition;
+		double floor;
+		double matchPercent;
+		long searchWeightsSum;
+		long remainingWeights;
+		boolean disqualified;
+		// With negative weights nothing is known until all features are done
+		boolean prune = query.weightsSum >= 0;
+		
+		state = (ScanState) scanStates.get();
+		if (state == null)
+		{
+			state = new ScanState(evaluators.length);
+			scanStates.set(state);
+		}
+		state.start(plan);
+		dists = state.dists;
+		counted = state.counted;
+		order = state.order;
+		
+		for ( int caseNum = from ; caseNum < to ; caseNum++ )
+		{
+			if (candidates != null)
+			{
+				caseNum = FeatureColumn.nextSetBit(candidates, caseNum, to);
+				if (caseNum >= to)
+				{
+					break;
+				}
+			}
+			// A case matching the worst kept result exactly may still get in 
+			// on the case number, so only worse cases are given up
+			floor = prune ? minMatch : Double.NEGATIVE_INFINITY;
+			if (prune && heap != null && heap.isFull() && heap.worstMatch() > floor)
+			{
+				floor = heap.worstMatch();
+			}
+			disqualified = false;
+			searchWeightsSum = 0;
+			remainingWeights = query.weightsSum;
+			hit = 0.0;
+			for ( int searchNum = 0 ; searchNum < evaluators.length ; searchNum++ )
+			{
+				counted[searchNum] = false;
+			}
+			for ( int n = 0 ; n < evaluators.length ; n++ )
+			{
+				int searchNum = order[n];
+				dist = evaluators[searchNum].distance(caseNum);
+				remainingWeights -= weights[searchNum];
+				if (dist < -1.5)
+				{
+					state.disqualified(searchNum);
+					disqualified = true;
+					break;
+				} else if (dist < 0)
+				{
+					state.calculated(searchNum, 0);
+					continue;
+				}
+				if (inverted[searchNum])
+				{
+					dist = 1 - dist;
+				}
+				dists[searchNum] = dist;
+				counted[searchNum] = true;
+				searchWeightsSum += weights[searchNum];
+				addition = weights[searchNum] * 
+						   Math.pow(dist, 2);
+				hit += addition;
+				state.calculated(searchNum, addition);
+				// The best the case can do is to match the remaining features 
+				// exactly. The hit is summed in another order than below, so 
+				// it is lowered a little to stay below the real hit.
+				if (prune && hit > 0 && 
+					100 * (1 - Math.sqrt(hit * (1 - 1e-9) / (searchWeightsSum + remainingWeights))) < floor)
+				{
+					disqualified = true;
+					break;
+				}
+			}
+			state.caseDone(evaluators.length);
+			if (disqualified)
+			{
+				continue;
+			}
+			
+			// Sum in the order of the search, as scanCases does
+			searchWeightsSum = 0;
+			hit = 0.0;
+			for ( int searchNum = 0 ; searchNum < evaluators.length ; searchNum++ )
+			{
+				if (counted[searchNum])
+				{
+					searchWeightsSum += weights[searchNum];
+					hit += weights[searchNum] * 
+						   Math.pow(dists[searchNum], 2);
+				}
+			}
+			if (searchWeightsSum != 0)
+			{
+				matchPercent = 100 * (1 - Math.sqrt(hit/searchWeightsSum));
+				if (matchPercent < minMatch)
+					continue;
+				if (heap != null)
+					heap.offer(caseNum, matchPercent);
+				else
+					resultSet.add(caseNum, matchPercent);
+			}
+		}
+	}
+	
+	/**
+	 * Builds the evaluators and the candidate cases of a prepared search for 
+	 * the specified data. Called by CompiledQuery when the data has changed 
+	 * since last search.
+	 * 
+	 * @param query the prepared search
+	 * @param data the data to search
+	 * @return the plan of the search
+	 * @throws IllegalTypeException if a searched value is not of the type of its feature
+	 * @since 1.2
+	 */
+	QueryPlan compilePlan(CompiledQuery query, CBRdata data)
+	{
+		FeatureEvaluator evaluators[];
+		FeatureColumn column;
+		Object searchKey;
+		long candidates[] = null;
+		
+		evaluators = new FeatureEvaluator[query.featureNums.length];
+		for ( int i = 0 ; i < evaluators.length ; i++ )
+		{
+			column = data.getColumn(query.featureNums[i]);
+			searchKey = null;
+			if (!query.values[i].isUndefined())
 			{
-				searchScales[i] = 0;
+				searchKey = column.encodeSearch(query.values[i]);
 			}
-		}
-		if (searchOptions == null)
-		{
-			searchOptions	 = new int[searchValues.length];
-			for ( int i = 0 ; i < searchValues.length ; i++ )
+			evaluators[i] = compileEvaluator(column, 
+											 query.values[i], 
+											 searchKey, 
+											 query.terms[i], 
+											 query.scales[i], 
+											 query.featureNums[i]);
+			
+			// Strict search on an indexed feature, remove the cases it 
+			// disqualifies before any distances are calculated
+			if (!verbose && query.scales[i] == SEARCH_SCALE_STRICT)
 			{
-				searchOptions[i] = 0;
+				candidates = filterStrict(column, searchKey, query.terms[i], candidates);
 			}
 		}
+		return orderPlan(query, data, evaluators, candidates);
+	}
+	
+	/**
+	 * Chooses the order in which the features of a search are calculated 
+	 * and returns the plan. Strict features are tried on a sample of the 
+	 * candidate cases, the ones that disqualify cases are calculated first, 
+	 * those that disqualify most cases for their cost before the others. 
+	 * The remaining features follow in order of decreasing weight.
+	 * 
+	 * @param query the prepared search
+	 * @param data the data to search
+	 * @param evaluators the evaluators of the features
+	 * @param candidates the candidate cases, null means all cases
+	 * @return the plan of the search
+	 * @since 1.2
+	 */
+	private QueryPlan orderPlan(CompiledQuery query, CBRdata data, FeatureEvaluator evaluators[], long candidates[])
+	{
+		int n = evaluators.length;
+		int numCases = data.getNumCases();
+		int order[] = new int[n];
+		double rank[] = new double[n];
+		int numFirst = 0;
+		int pos;
 		
-		// Start calculating the results
-		resultSet = new FVector(this.getNumCases());
-		// Loop through all cases
-		
-		for ( int caseNum = 0 ; caseNum < data.getNumCases() ; caseNum++ )
+		for ( int i = 0 ; i < n ; i++ )
 		{
-			disqualified = false;
-			
-			if (verbose)
+			int searchNum = query.byWeight[i];
+			rank[searchNum] = 0;
+			if (verbose ||
+				query.scales[searchNum] != SEARCH_SCALE_STRICT || 
+				evaluators[searchNum] instanceof ConstantEvaluator)
 			{
-				log.writeNL();
-				log.writeShort("caseNum: " + caseNum);
-				log.writeNL();
+				continue;
 			}
-			searchWeightsSum = 0;
-			hit = 0.0;
-			// and loop through all searched features for each case
-			for ( int searchNum = 0 ; searchNum < searchValues.length ; searchNum++ )
+			// Evenly spread sample of the candidates
+			int tried = 0;
+			int disqualified = 0;
+			int step = Math.max(1, numCases / ORDER_SAMPLE_SIZE);
+			for ( int caseNum = 0 ; caseNum < numCases ; caseNum += step )
 			{
-				dist = calculateFeatureDistance(getFeatureValue(caseNum, searchFeatureNumbers[searchNum]), 
-												searchValues[searchNum], 
-												searchTerms[searchNum], 
-												searchScales[searchNum], 
-												searchFeatureNumbers[searchNum]);
-				if (verbose)
+				if (candidates != null && !FeatureColumn.getBit(candidates, caseNum))
 				{
-					log.writeShort("" + dist);
-					log.writeNL();
+					continue;
 				}
-				if (dist < -1.5)
-				{
-					// Case disqualified, continue with the next one
-					disqualified = true;
-					break;
-				} else if (dist < 0)
+				tried++;
+				if (evaluators[searchNum].distance(caseNum) < -1.5)
 				{
-					// Feature disqualified, continue with the next one
-					continue;
+					disqualified++;
 				}
-				if ((searchOptions[searchNum] & SEARCH_OPTION_INVERTED) != 0)
+			}
+			if (disqualified > 0)
+			{
+				rank[searchNum] = (double) disqualified / tried / evaluators[searchNum].cost();
+				numFirst++;
+			}
+		}
+		
+		// The disqualifying features by decreasing rank, stable so equal 
+		// ranks keep the weight order, then the others
+		pos = 0;
+		for ( int i = 0 ; i < n ; i++ )
+		{
+			int searchNum = query.byWeight[i];
+			if (rank[searchNum] > 0)
+			{
+				int j = pos++;
+				while (j > 0 && rank[order[j - 1]] < rank[searchNum])
 				{
-					dist = 1 - dist;
+					order[j] = order[j - 1];
+					j--;
 				}
-				searchWeightsSum += searchWeights[searchNum];
-				hit += searchWeights[searchNum] * 
-					   Math.pow(dist, 2);
+				order[j] = searchNum;
 			}
-			if (disqualified)
+		}
+		for ( int i = 0 ; i < n ; i++ )
+		{
+			if (rank[query.byWeight[i]] == 0)
 			{
-				continue;
+				order[pos++] = query.byWeight[i];
 			}
-			if (verbose)
+		}
+		return new QueryPlan(data, data.getVersion(), INFINITY_CONSTANT, verbose, evaluators, candidates, 
+							 order, numFirst > 0);
+	}
+	
+	/**
+	 * Removes the cases that a strict search disqualifies from the 
+	 * candidates, if the column can do it with an index. A strict search for 
+	 * the max- or min-value is the same as a strict search for equality with 
+	 * that value.
+	 * 
+	 * @param column the column holding the feature of the cases
+	 * @param searchKey searched feature encoded by the column, null if undefined
+	 * @param searchTerm term of search to perform
+	 * @param candidates the candidates so far, null means all cases
+	 * @return the new candidates, null means all cases
+	 * @since 1.2
+	 */
+	private long[] filterStrict(FeatureColumn column, Object searchKey, int searchTerm, long candidates[])
+	{
+		long filtered[];
+		
+		if (searchTerm == SEARCH_TERM_MAX || searchTerm == SEARCH_TERM_MIN)
+		{
+			if (column.getMinValue() == null)
 			{
-				log.writeShort("hit: " + hit);
-				log.writeNL();
+				// Not numerical or no defined values, nothing to filter
+				return candidates;
 			}
-			if (searchWeightsSum != 0)	// Add case to result set only if at least one feature difference is found at all
+			if (column.getFeatureType() == Feature.FEATURE_TYPE_INT)
+			{
+				searchKey = column.encodeSearch(new Feature(intExtremeOrZero(column, searchTerm)));
+			} else
 			{
-				resultSet.add(new CBRResult(caseNum, 100 * (1 - Math.sqrt(hit/searchWeightsSum))));
+				searchKey = column.encodeSearch(new Feature(floatExtremeOrZero(column, searchTerm)));
 			}
+			searchTerm = SEARCH_TERM_EQUAL;
+		} else if (searchKey == null || 
+				   searchTerm < SEARCH_TERM_EQUAL || 
+				   searchTerm > SEARCH_TERM_LESS)
+		{
+			return candidates;
 		}
-		// Transform the result set to array, sort it and return it
-		resultSet.sort(new CBRResultComparator());
-		resultArr = (CBRResult[]) resultSet.toArray(CBRResult.class);
-		return resultArr;
+		
+		filtered = candidates;
+		if (filtered == null)
+		{
+			filtered = allCases(column.size());
+		}
+		if (column.filter(searchKey, searchTerm, filtered))
+		{
+			return filtered;
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Returns a bit set with the bits of all cases set
+	 * 
+	 * @since 1.2
+	 */
+	private static long[] allCases(int numCases)
+	{
+		long bits[] = new long[FeatureColumn.wordsFor(numCases)];
+		
+		for (int c = 0 ; c < numCases ; c++ )
+		{
+			FeatureColumn.setBit(bits, c, true);
+		}
+		return bits;
+	}
+	
+	/**
+	 * Builds the evaluator for one searched feature. The evaluator returns 
+	 * the same distances as calculateFeatureDistance.
+	 * 
+	 * @param column the column holding the feature of the cases
+	 * @param searchFeature searched feature
+	 * @param searchKey searched feature encoded by the column, null if undefined
+	 * @param searchTerm term of search to perform
+	 * @param searchScale the scale of the search to perform
+	 * @param featureNum the number of the feature (number in the case)
+	 * @return the evaluator
+	 * @since 1.2
+	 */
+	private FeatureEvaluator compileEvaluator(
+			FeatureColumn column, 
+			Feature searchFeature, 
+			Object searchKey, 
+			int searchTerm,
+			int searchScale, 
+			int featureNum)
+	{
+		double fRange;
+		
+		if (verbose ||
+			searchTerm < SEARCH_TERM_EQUAL || searchTerm > SEARCH_TERM_MIN ||
+			searchScale < SEARCH_SCALE_FUZZY_LINEAR || searchScale > SEARCH_SCALE_STRICT)
+		{
+			// Logged or unknown search, let calculateFeatureDistance handle it
+			return new GenericEvaluator(this, column, searchFeature, searchKey, searchTerm, searchScale, featureNum);
+		}
+		if (searchFeature.isUndefined() &&
+				searchTerm != CBR.SEARCH_TERM_MAX && 
+				searchTerm != CBR.SEARCH_TERM_MIN)
+		{
+			return new ConstantEvaluator(-1);
+		}
+		if (searchScale == SEARCH_SCALE_FUZZY_LOGARITHMIC)
+		{
+			return new LogEvaluator(compileEvaluator(column, searchFeature, searchKey, searchTerm, SEARCH_SCALE_FUZZY_LINEAR, featureNum));
+		}
+		
+		switch (column.getFeatureType())
+		{
+		case Feature.FEATURE_TYPE_INT:
+			fRange = rangeOrZero(column);
+			return new IntEvaluator((IntColumn) column, 
+									searchTerm, 
+									searchScale, 
+									searchFeature.isUndefined() ? 0 : searchFeature.getIntValue(), 
+									intExtremeOrZero(column, searchTerm), 
+									fRange, 
+									fRange * INFINITY_CONSTANT);
+			
+		case Feature.FEATURE_TYPE_FLOAT:
+			fRange = rangeOrZero(column);
+			return new FloatEvaluator((FloatColumn) column, 
+									  searchTerm, 
+									  searchScale, 
+									  searchFeature.isUndefined() ? 0 : searchFeature.getFloatValue(), 
+									  floatExtremeOrZero(column, searchTerm), 
+									  fRange, 
+									  fRange * INFINITY_CONSTANT);
+		}
+		
+		if (searchTerm == SEARCH_TERM_MAX || searchTerm == SEARCH_TERM_MIN)
+		{
+			// Neither FLOAT nor INT, rare enough to not need an evaluator of its own
+			return new GenericEvaluator(this, column, searchFeature, searchKey, searchTerm, searchScale, featureNum);
+		}
+		switch (column.getFeatureType())
+		{
+		case Feature.FEATURE_TYPE_STRING:
+			return new StringEvaluator((StringColumn) column, searchTerm, searchScale, ((Integer) searchKey).intValue());
+			
+		case Feature.FEATURE_TYPE_MULTISTRING:
+			return new MultiStringEvaluator((MultiStringColumn) column, searchTerm, searchScale, (int[]) searchKey);
+			
+		case Feature.FEATURE_TYPE_BOOL:
+			return new BoolEvaluator((BoolColumn) column, searchTerm, searchScale, searchFeature.getBoolValue());
+		}
+		return new GenericEvaluator(this, column, searchFeature, searchKey, searchTerm, searchScale, featureNum);
+	}
+	
+	/**
+	 * Returns the range of the specified feature, 0 if there are no 
+	 * defined values. Then the range is never used by the search.
+	 * 
+	 * @since 1.2
+	 */
+	private static double rangeOrZero(FeatureColumn column)
+	{
+		try
+		{
+			return range(column);
+		} catch (NoDataException e)
+		{
+			return 0;
+		}
+	}
+	
+	/**
+	 * Returns the max-value of the specified Int feature for 
+	 * SEARCH_TERM_MAX and the min-value for SEARCH_TERM_MIN, otherwise 0. 
+	 * Also 0 if there are no defined values. 
+	 * 
+	 * @since 1.2
+	 */
+	private static long intExtremeOrZero(FeatureColumn column, int searchTerm)
+	{
+		try
+		{
+			if (searchTerm == SEARCH_TERM_MAX)
+				return maxIntValue(column);
+			if (searchTerm == SEARCH_TERM_MIN)
+				return minIntValue(column);
+		} catch (NoDataException e)
+		{
+		}
+		return 0;
+	}
+	
+	/**
+	 * Returns the max-value of the specified Float feature for 
+	 * SEARCH_TERM_MAX and the min-value for SEARCH_TERM_MIN, otherwise 0. 
+	 * Also 0 if there are no defined values. 
+	 * 
+	 * @since 1.2
+	 */
+	private static double floatExtremeOrZero(FeatureColumn column, int searchTerm)
+	{
+		try
+		{
+			if (searchTerm == SEARCH_TERM_MAX)
+				return maxFloatValue(column);
+			if (searchTerm == SEARCH_TERM_MIN)
+				return minFloatValue(column);
+		} catch (NoDataException e)
+		{
+		}
+		return 0;
 	}
 	
 	/**
 	 * Calculates the distance between two CBR cases
 	 * 
-	 * @param caseFeature feature from a case
+	 * @param caseColumn the column holding the feature of the cases
+	 * @param caseNum the number of the case in the column
 	 * @param searchFeature searched feature
+	 * @param searchKey searched feature encoded by the column, null if undefined
 	 * @param searchTerm term of search to perform
 	 * @param searchScale the scale of the search to perform
 	 * @param featureNum the number of the feature (number in the case)
@@ -1416,9 +3583,11 @@ public class CBR implements java.io.Serializable
 	 *		should be disqualified or -2.0 which means the entire case should be disqualified
 	 * @since 1.0
 	 */
-	private double calculateFeatureDistance(
-			Feature caseFeature, 
+	double calculateFeatureDistance(
+			FeatureColumn caseColumn, 
+			int caseNum, 
 			Feature searchFeature, 
+			Object searchKey, 
 			int searchTerm,
 			int searchScale, 
 			int featureNum)
@@ -1428,13 +3597,13 @@ public class CBR implements java.io.Serializable
 		double tmpRes;
 		
 		if (verbose)
-			log.writeShort("Distance between " + Feature.typeToString(getFeatureType(featureNum)) + " \"" + caseFeature.toString() + "\" and \"" + searchFeature.toString() + "\", search type " + searchTerm + ", " + searchScale + ": ");
+			log.writeShort("Distance between " + Feature.typeToString(caseColumn.getFeatureType()) + " \"" + caseColumn.getFeature(caseNum).toString() + "\" and \"" + searchFeature.toString() + "\", search type " + searchTerm + ", " + searchScale + ": ");
 		
 		// This might not be optimal regarding performance, but simple...
 		if (searchScale == SEARCH_SCALE_FUZZY_LOGARITHMIC)
 		{
 			// Return -1 or -2 the same way as fuzzy linear. Otherwise do it logarithmic
-			tmpRes = calculateFeatureDistance(caseFeature, searchFeature, searchTerm, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+			tmpRes = calculateFeatureDistance(caseColumn, caseNum, searchFeature, searchKey, searchTerm, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 			if (tmpRes < 0)
 				return tmpRes;
 			return Math.log(tmpRes * modE + 1);
@@ -1449,16 +3618,16 @@ public class CBR implements java.io.Serializable
 			return -1;
 		}
 		// Else if the case feature is undefined the distance is regarded as maximum
-		if (caseFeature.isUndefined())
+		if (caseColumn.isUndefined(caseNum))
 		{
 			return 1;
 		}
 		
 		if (!searchFeature.isUndefined())
 		{
-			fDiff = diff(searchFeature, caseFeature);
+			fDiff = caseColumn.diff(caseNum, searchFeature, searchKey);
 		}
-		fCorrRange = range(featureNum) * INFINITY_CONSTANT;
+		fCorrRange = range(caseColumn) * INFINITY_CONSTANT;
 		
 		switch (searchTerm)
 		{
@@ -1473,8 +3642,8 @@ public class CBR implements java.io.Serializable
 				return -2;
 			} else if (searchScale == SEARCH_SCALE_FUZZY_LINEAR)
 			{
-				if (caseFeature.getFeatureType() != Feature.FEATURE_TYPE_FLOAT &&
-					caseFeature.getFeatureType() != Feature.FEATURE_TYPE_INT)
+				if (caseColumn.getFeatureType() != Feature.FEATURE_TYPE_FLOAT &&
+					caseColumn.getFeatureType() != Feature.FEATURE_TYPE_INT)
 				{
 					return fDiff;
 				}
@@ -1503,8 +3672,8 @@ public class CBR implements java.io.Serializable
 				return 0;
 			} else if (searchScale == SEARCH_SCALE_FUZZY_LINEAR)
 			{
-				if (caseFeature.getFeatureType() != Feature.FEATURE_TYPE_FLOAT &&
-					caseFeature.getFeatureType() != Feature.FEATURE_TYPE_INT)
+				if (caseColumn.getFeatureType() != Feature.FEATURE_TYPE_FLOAT &&
+					caseColumn.getFeatureType() != Feature.FEATURE_TYPE_INT)
 				{
 					return 1 - fDiff;
 				}
@@ -1514,7 +3683,7 @@ public class CBR implements java.io.Serializable
 					// The search is not an exact hit and there is only one value among all cases
 					return 0;
 				}
-				return 1 - Math.min(1, Math.abs(fDiff)/range(featureNum));
+				return 1 - Math.min(1, Math.abs(fDiff)/range(caseColumn));
 			}
 			return -1;	// Unknown search
 			
@@ -1533,7 +3702,7 @@ public class CBR implements java.io.Serializable
 				return 1;
 			} else if (searchScale	== SEARCH_SCALE_FUZZY_LINEAR)
 			{
-				return calculateFeatureDistance(caseFeature, searchFeature, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+				return calculateFeatureDistance(caseColumn, caseNum, searchFeature, searchKey, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 			}
 			return -1;	// Unknown search
 			
@@ -1552,13 +3721,13 @@ public class CBR implements java.io.Serializable
 				return 1;
 			} else if (searchScale	== SEARCH_SCALE_FUZZY_LINEAR)
 			{
-				if (caseFeature.getFeatureType() == Feature.FEATURE_TYPE_INT)
+				if (caseColumn.getFeatureType() == Feature.FEATURE_TYPE_INT)
 				{
 					// Fuzzy Int search for ">x" should be the same as ">=(x+1)"
-					return calculateFeatureDistance(caseFeature, new Feature(searchFeature.getIntValue() + 1), SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+					return calculateFeatureDistance(caseColumn, caseNum, new Feature(searchFeature.getIntValue() + 1), null, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 				} else
 				{
-					return calculateFeatureDistance(caseFeature, searchFeature, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+					return calculateFeatureDistance(caseColumn, caseNum, searchFeature, searchKey, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 				}
 			}
 			return -1;	// Unknown search
@@ -1578,7 +3747,7 @@ public class CBR implements java.io.Serializable
 				return 1;
 			} else if (searchScale	== SEARCH_SCALE_FUZZY_LINEAR)
 			{
-				return calculateFeatureDistance(caseFeature, searchFeature, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+				return calculateFeatureDistance(caseColumn, caseNum, searchFeature, searchKey, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 			}
 			return -1;	// Unknown search
 			
@@ -1597,21 +3766,21 @@ public class CBR implements java.io.Serializable
 				return 1;
 			} else if (searchScale	== SEARCH_SCALE_FUZZY_LINEAR)
 			{
-				if (caseFeature.getFeatureType() == Feature.FEATURE_TYPE_INT)
+				if (caseColumn.getFeatureType() == Feature.FEATURE_TYPE_INT)
 				{
 					// Fuzzy Int search for "<x" should be the same as "<=(x+1)"
-					return calculateFeatureDistance(caseFeature, new Feature(searchFeature.getIntValue() - 1), SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+					return calculateFeatureDistance(caseColumn, caseNum, new Feature(searchFeature.getIntValue() - 1), null, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 				} else
 				{
-					return calculateFeatureDistance(caseFeature, searchFeature, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
+					return calculateFeatureDistance(caseColumn, caseNum, searchFeature, searchKey, SEARCH_TERM_EQUAL, SEARCH_SCALE_FUZZY_LINEAR, featureNum);
 				}
 			}
 			return -1;	// Unknown search
 			
 		case CBR.SEARCH_TERM_MAX:
-			if (caseFeature.getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
+			if (caseColumn.getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
 			{
-				double floatDiff = getMaxFloatValue(featureNum) - caseFeature.getFloatValue();
+				double floatDiff = maxFloatValue(caseColumn) - caseColumn.getDouble(caseNum);
 				if (searchScale == SEARCH_SCALE_STRICT)
 				{
 					if (floatDiff == 0)
@@ -1631,9 +3800,9 @@ public class CBR implements java.io.Serializable
 					else
 						return floatDiff/fCorrRange;
 				}
-			} else if (caseFeature.getFeatureType() == Feature.FEATURE_TYPE_INT)
+			} else if (caseColumn.getFeatureType() == Feature.FEATURE_TYPE_INT)
 			{
-				long longDiff = getMaxIntValue(featureNum) - caseFeature.getIntValue();
+				long longDiff = maxIntValue(caseColumn) - caseColumn.getLong(caseNum);
 				if (searchScale == SEARCH_SCALE_STRICT)
 				{
 					if (longDiff == 0)
@@ -1661,9 +3830,9 @@ public class CBR implements java.io.Serializable
 			return -1;	// Unknown search
 			
 		case CBR.SEARCH_TERM_MIN:
-			if (caseFeature.getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
+			if (caseColumn.getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
 			{
-				double floatDiff = caseFeature.getFloatValue() - getMinFloatValue(featureNum);
+				double floatDiff = caseColumn.getDouble(caseNum) - minFloatValue(caseColumn);
 				if (searchScale == SEARCH_SCALE_STRICT)
 				{
 					if (floatDiff == 0)
@@ -1683,9 +3852,9 @@ public class CBR implements java.io.Serializable
 					else
 						return floatDiff/fCorrRange;
 				}
-			} else if (caseFeature.getFeatureType() == Feature.FEATURE_TYPE_INT)
+			} else if (caseColumn.getFeatureType() == Feature.FEATURE_TYPE_INT)
 			{
-				long longDiff = caseFeature.getIntValue() - getMinIntValue(featureNum);
+				long longDiff = caseColumn.getLong(caseNum) - minIntValue(caseColumn);
 				if (searchScale == SEARCH_SCALE_STRICT)
 				{
 					if (longDiff == 0)
@@ -1715,78 +3884,6 @@ public class CBR implements java.io.Serializable
 		return -1;	// Unknown search
 	}
 	
-	/**
-	 * Calculates the difference between two features (-infinity - +infinity)
-	 * 
-	 * @param searchFeature the searched feature
-	 * @param caseFeature a database feature
-	 * @return the difference between the two features. A difference of 0.0 
-	 *		means they are equal. If the feature type is Int or Float then 
-	 *		the difference is the mathematical difference. If the type is 
-	 *		Bool or String and the values are not equal the result is 
-	 *		1.0. If the type is MultiString the return value is 
-	 *		1 - (found features in the database feature / the number of features 
-	 *		in the searched feature)
-	 * @throws IllegalTypeException if the two features are not of the same type
-	 * @since 1.0
-	 */
-	static private double diff(Feature searchFeature, Feature caseFeature)
-		throws IllegalTypeException
-	{
-		short featureType;
-		
-		featureType = searchFeature.getFeatureType();
-		if (featureType != caseFeature.getFeatureType())
-		{
-			throw new IllegalTypeException("Impossible to find the difference between two features of different types");
-		}
-		switch (featureType)
-		{
-		case Feature.FEATURE_TYPE_BOOL:
-			if (searchFeature.getBoolValue() == caseFeature.getBoolValue())
-				return 0;
-			else
-				return 1;
-			
-		case Feature.FEATURE_TYPE_FLOAT:
-			return caseFeature.getFloatValue() - searchFeature.getFloatValue();
-			
-		case Feature.FEATURE_TYPE_INT:
-			return caseFeature.getIntValue() - searchFeature.getIntValue();
-			
-		case Feature.FEATURE_TYPE_MULTISTRING:
-			String m1[], m2[];
-			int found, total;
-			
-			m1 = searchFeature.getMultiStringValue();
-			m2 = caseFeature.getMultiStringValue();
-			if (m1.length == 0)
-				return 1;
-			found = 0;
-			total = m1.length;
-			for (int i1 = 0; i1 < m1.length; i1++ )
-			{
-				for (int i2 = 0; i2 < m2.length; i2++ )
-				{
-					if (m1[i1].compareTo(m2[i2]) == 0)
-					{
-						found++;
-						break;
-					}
-				}
-			}
-			return 1 - ((double)found)/total;
-			
-		case Feature.FEATURE_TYPE_STRING:
-			if (caseFeature.getStringValue().compareTo(searchFeature.getStringValue()) == 0)
-				return 0;
-			else
-				return 1;
-		}
-		return 1;
-	}
-	
-	
 	/**
 	 * Calculates the fraction between the two features
 	 * 
@@ -1892,22 +3989,102 @@ public class CBR implements java.io.Serializable
 	/**
 	 * Calculates the range of values for the specified feature
 	 * 
-	 * @param featureNum the feature number to calculate the range for
+	 * @param column the column of the feature to calculate the range for
 	 * @return the range of values for the specified feature. If not 
 	 *		Feature.FEATURE_TYPE_FLOAT or Feature.FEATURE_TYPE_INT 
 	 *		then returns 1.0.
 	 * @since 1.0
 	 */
-	private double range(int featureNum)
+	private static double range(FeatureColumn column)
 	{
-		if (getFeatureType(featureNum) == Feature.FEATURE_TYPE_FLOAT)
+		if (column.getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
 		{
-			return getMaxFloatValue(featureNum) - getMinFloatValue(featureNum);
-		} else if (getFeatureType(featureNum) == Feature.FEATURE_TYPE_INT)
+			return maxFloatValue(column) - minFloatValue(column);
+		} else if (column.getFeatureType() == Feature.FEATURE_TYPE_INT)
 		{
-			return getMaxIntValue(featureNum) - getMinIntValue(featureNum);
+			return maxIntValue(column) - minIntValue(column);
 		}
 		return 1;
+	}	
+	
+	/**
+	 * Returns the minimum value of a column of type Int
+	 * 
+	 * @param column the column
+	 * @return the minimum value
+	 * @throws NoDataException if the column has no defined values
+	 * @since 1.2
+	 */
+	private static long minIntValue(FeatureColumn column)
+		throws NoDataException
+	{
+		Long val = (Long) column.getMinValue();
+		
+		if (val == null)
+		{
+			throw new NoDataException("Min. value not found");
+		}
+		return val.intValue();
+	}	
+	
+	/**
+	 * Returns the maximum value of a column of type Int
+	 * 
+	 * @param column the column
+	 * @return the maximum value
+	 * @throws NoDataException if the column has no defined values
+	 * @since 1.2
+	 */
+	private static long maxIntValue(FeatureColumn column)
+		throws NoDataException
+	{
+		Long val = (Long) column.getMaxValue();
+		
+		if (val == null)
+		{
+			throw new NoDataException("Max. value not found");
+		}
+		return val.longValue();
+	}	
+	
+	/**
+	 * Returns the minimum value of a column of type Float
+	 * 
+	 * @param column the column
+	 * @return the minimum value
+	 * @throws NoDataException if the column has no defined values
+	 * @since 1.2
+	 */
+	private static double minFloatValue(FeatureColumn column)
+		throws NoDataException
+	{
+		Double val = (Double) column.getMinValue();
+		
+		if (val == null)
+		{
+			throw new NoDataException("Min. value not found");
+		}
+		return val.doubleValue();
+	}	
+	
+	/**
+	 * Returns the maximum value of a column of type Float
+	 * 
+	 * @param column the column
+	 * @return the maximum value
+	 * @throws NoDataException if the column has no defined values
+	 * @since 1.2
+	 */
+	private static double maxFloatValue(FeatureColumn column)
+		throws NoDataException
+	{
+		Double val = (Double) column.getMaxValue();
+		
+		if (val == null)
+		{
+			throw new NoDataException("Min. value not found");
+		}
+		return val.doubleValue();
 	}
 	
 	
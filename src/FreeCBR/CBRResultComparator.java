@@ -14,6 +14,13 @@ package FreeCBR;
  */
 class CBRResultComparator implements FComparator
 {
+	/**
+	 * Arrays shorter than this are sorted by merge sort
+	 * @since 1.2
+	 */
+	private static final int MIN_RADIX_SORT = 64;
+	
+	
 	/**
 	* Empty constructor
 	* 
@@ -39,19 +46,40 @@ class CBRResultComparator implements FComparator
 	*/
 	public int compare(Object o1, Object o2)
 	{
-		if (((CBRResult) o1).matchPercent == ((CBRResult) o2).matchPercent)
+		return compare(((CBRResult) o1).caseNum, ((CBRResult) o1).matchPercent, 
+					   ((CBRResult) o2).caseNum, ((CBRResult) o2).matchPercent);
+	}
+	
+	
+	/**
+	* compares two results without creating CBRResult objects
+	* 
+	* @param caseNum1 the case number of the first result
+	* @param matchPercent1 the match of the first result
+	* @param caseNum2 the case number of the second result
+	* @param matchPercent2 the match of the second result
+	* @return a negative integer, zero, or a positive integer as 
+	*		the first result is less than, equal to, or greater than the second, 
+	*		same as compare(Object, Object)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static int compare(int caseNum1, double matchPercent1, int caseNum2, double matchPercent2)
+	{
+		if (matchPercent1 == matchPercent2)
 		{
-			if (((CBRResult) o1).caseNum == ((CBRResult) o2).caseNum)
+			if (caseNum1 == caseNum2)
 			{
 				return 0;
-			} else if (((CBRResult) o1).caseNum < ((CBRResult) o2).caseNum)
+			} else if (caseNum1 < caseNum2)
 			{
 				return 1;
 			} else
 			{
 				return -1;
 			}
-		} else if (((CBRResult) o1).matchPercent < ((CBRResult) o2).matchPercent)
+		} else if (matchPercent1 < matchPercent2)
 		{
 			return 1;
 		} else
@@ -59,4 +87,112 @@ class CBRResultComparator implements FComparator
 			return -1;
 		}
 	}
+	
+	
+	/**
+	* Sorts results in the order of this comparator, best match first and 
+	* the higher case number first among equal matches. The matches are 
+	* turned into long keys with the same order and the results are radix 
+	* sorted on the keys, so no comparisons are made. If a match is NaN, 
+	* which this comparator does not order consistently, the results are 
+	* merge sorted as before.
+	* 
+	* @param results the results to sort, changed
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static void sort(CBRResult results[])
+	{
+		int n = results.length;
+		long keys[];
+		boolean ascending = true;
+		
+		if (n < MIN_RADIX_SORT)
+		{
+			FArrays.sort(results, new CBRResultComparator());
+			return;
+		}
+		keys = new long[n];
+		for (int i = 0 ; i < n ; i++ )
+		{
+			if (Double.isNaN(results[i].matchPercent))
+			{
+				FArrays.sort(results, new CBRResultComparator());
+				return;
+			}
+			if (i > 0 && results[i - 1].caseNum >= results[i].caseNum)
+			{
+				ascending = false;
+			}
+		}
+		
+		// The radix sort is stable, so first order by case number, highest 
+		// first. Searches give the results in case order, then it is enough 
+		// to reverse them.
+		if (ascending)
+		{
+			for (int i = 0, j = n - 1 ; i < j ; i++, j-- )
+			{
+				CBRResult tmp = results[i];
+				results[i] = results[j];
+				results[j] = tmp;
+			}
+		} else
+		{
+			for (int i = 0 ; i < n ; i++ )
+			{
+				keys[i] = Integer.MAX_VALUE - results[i].caseNum;
+			}
+			radixSort(keys, results);
+		}
+		
+		// Then by match, highest first. SortedIndex.floatKey orders as the 
+		// matches and -0.0 as 0.0, xor with Long.MAX_VALUE reverses the order 
+		// and makes it unsigned.
+		for (int i = 0 ; i < n ; i++ )
+		{
+			keys[i] = SortedIndex.floatKey(results[i].matchPercent) ^ Long.MAX_VALUE;
+		}
+		radixSort(keys, results);
+	}
+	
+	/**
+	* Stable LSD radix sort of the results on the keys seen as unsigned, a 
+	* byte at a time. Bytes that are the same in all keys are skipped.
+	*/
+	private static void radixSort(long keys[], CBRResult results[])
+	{
+		int n = keys.length;
+		long tmpKeys[] = new long[n];
+		CBRResult tmpResults[] = new CBRResult[n];
+		int count[] = new int[256];
+		
+		for (int shift = 0 ; shift < 64 ; shift += 8 )
+		{
+			java.util.Arrays.fill(count, 0);
+			for (int i = 0 ; i < n ; i++ )
+			{
+				count[(int) (keys[i] >>> shift) & 0xff]++;
+			}
+			if (count[(int) (keys[0] >>> shift) & 0xff] == n)
+			{
+				continue;
+			}
+			for (int b = 0, pos = 0 ; b < 256 ; b++ )
+			{
+				int c = count[b];
+				count[b] = pos;
+				pos += c;
+			}
+			for (int i = 0 ; i < n ; i++ )
+			{
+				int pos = count[(int) (keys[i] >>> shift) & 0xff]++;
+				tmpKeys[pos] = keys[i];
+				tmpResults[pos] = results[i];
+			}
+			System.arraycopy(tmpKeys, 0, keys, 0, n);
+			System.arraycopy(tmpResults, 0, results, 0, n);
+		}
+	}
 }
@@ -5,66 +5,69 @@
 package FreeCBR;
 
 /**
- * This class stores the data for CBR
+ * This class stores the data for CBR. The CBR never changes data that 
+ * searches may be reading, it changes a copy and then replaces the data 
+ * with the copy, see copy.<br />
+ * The data is serialized as a binary file of columns, see ColumnFile, 
+ * instead of as the objects of the columns.
  *
  * @since 1.0
  * 
  */
 /* History: Date		Name	Explanation (possibly multi row)
  */
-class CBRdata implements java.io.Serializable
+class CBRdata implements java.io.Externalizable
 {
 	/**
-	 * Is the data changed since finding min- and max-values? Only used internally.
-	 * @since 1.0
-	 */
-	private boolean dirty = false;
-	
-	/**
-	 * An array of min-values
+	 * Headings....
 	 * @since 1.0
 	 */
-	private Object minValues[];
+	private String featureNames[];
 	
 	/**
-	 * An array of max-values
+	 * Data types in String format
 	 * @since 1.0
 	 */
-	private Object maxValues[];
+	private String featureTypesString[];
 	
 	/**
-	 * A matrix of used string values
+	 * Data types in short format
 	 * @since 1.0
 	 */
-	private String usedStrings[][];
+	private short featureTypesShort[];
 	
 	/**
-	 * Headings....
-	 * @since 1.0
+	 * The actual data, stored column by column. To retrieve a feature of a 
+	 * case do columns[featureNum].getFeature(caseNum)
+	 * 
+	 * Stored as columns[feature] => values of all cases. Each column also 
+	 * keeps the min- and max-values and the used string values of its 
+	 * feature up to date as cases are added, changed and removed.
+	 * @since 1.2
 	 */
-	private String featureNames[];
+	private FeatureColumn columns[];
 	
 	/**
-	 * Data types in String format
-	 * @since 1.0
+	 * Number of cases in the data set
+	 * @since 1.2
 	 */
-	private String featureTypesString[];
+	private int numCases;
 	
 	/**
-	 * Data types in short format
-	 * @since 1.0
+	 * Modification count, increased each time a case or a feature is added,
+	 * changed or removed. Used to find out if a compiled search is still 
+	 * valid.
+	 * @since 1.2
 	 */
-	private short featureTypesShort[];
+	private long version;
 	
 	/**
-	 * The actual data. To retrieve a case do 
-	 * (Feature[]) cases.elementAt(caseNum). To retrieve a feature of a case do 
-	 * ((Feature[]) cases.elementAt(caseNum))[featureNum]
-	 * 
-	 * Stored as cases[case] => Feature[]
-	 * @since 1.0
+	 * For each feature, true if the column is shared with the data this 
+	 * data was copied from, and must be copied before it is changed. Null 
+	 * if no column is shared.
+	 * @since 1.2
 	 */
-	private FVector cases;
+	private transient boolean shared[];
 	
 	
 	/**
@@ -81,8 +84,8 @@ class CBRdata implements java.io.Serializable
 		this.featureTypesShort = null;
 		
 		// Initiate the data set
-		cases = new FVector();
-		dirty = false;
+		columns = new FeatureColumn[0];
+		numCases = 0;
 	}
 	/**
 	* Initiates the data and sets the appropriate feature names
@@ -113,8 +116,145 @@ class CBRdata implements java.io.Serializable
 		}
 		
 		// Initiate the data set
-		cases = new FVector();
-		dirty = true;
+		columns = new FeatureColumn[featureTypesShort.length];
+		for ( int i = 0 ; i < columns.length ; i++ )
+		{
+			columns[i] = FeatureColumn.create(featureTypesShort[i], 0);
+		}
+		numCases = 0;
+	}
+	
+	
+	/**
+	* Creates data of columns read from a file, see ColumnFile. The columns 
+	* are shared with the file and copied the first time they are changed.
+	* 
+	* @param featureNames array of names of the features
+	* @param featureTypeNames array of strings describing the datatypes of 
+	*		the features
+	* @param columns the columns of the features
+	* @param numCases the number of cases in each column
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected CBRdata(String featureNames[], String featureTypeNames[], FeatureColumn columns[], int numCases)
+	{
+		this.featureNames = featureNames;
+		this.featureTypesString = featureTypeNames;
+		this.featureTypesShort = new short[featureTypeNames.length];
+		for ( int i = 0 ; i < featureTypeNames.length ; i++ )
+		{
+			featureTypesShort[i] = Feature.stringToType(featureTypeNames[i]);
+		}
+		this.columns = columns;
+		this.numCases = numCases;
+		this.shared = new boolean[columns.length];
+		java.util.Arrays.fill(this.shared, true);
+	}
+	
+	
+	/**
+	* Returns a copy of the data to change. The copy shares the columns with 
+	* the original, a column is copied the first time the copy changes it, 
+	* and adding cases to a column copies none of its values, see 
+	* FeatureColumn.copy. The original must not be changed any more.
+	* 
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected CBRdata copy()
+	{
+		CBRdata copy = new CBRdata();
+		
+		if (featureNames != null)
+		{
+			copy.featureNames = (String[]) featureNames.clone();
+			copy.featureTypesString = (String[]) featureTypesString.clone();
+			copy.featureTypesShort = (short[]) featureTypesShort.clone();
+		}
+		copy.columns = (FeatureColumn[]) columns.clone();
+		copy.shared = new boolean[columns.length];
+		java.util.Arrays.fill(copy.shared, true);
+		copy.numCases = numCases;
+		copy.version = version;
+		return copy;
+	}
+	
+	
+	/**
+	* Writes the data as a binary file of columns: the values of each 
+	* column in a primitive array and the strings of each column once, in 
+	* its dictionary
+	* 
+	* @param out the stream to write to
+	* @throws java.io.IOException if the stream can not be written
+	* @see ColumnFile#write(CBRdata, java.io.DataOutput)
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void writeExternal(java.io.ObjectOutput out)
+		throws java.io.IOException
+	{
+		out.writeBoolean(featureNames != null);
+		out.writeLong(version);
+		ColumnFile.write(this, out);
+	}
+	
+	
+	/**
+	* Reads data written by writeExternal. The columns are read from the 
+	* file in memory and copied the first time they are changed, as when 
+	* the file is mapped.
+	* 
+	* @param in the stream to read from
+	* @throws java.io.IOException if the stream can not be read or does not 
+	*		hold valid data
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void readExternal(java.io.ObjectInput in)
+		throws java.io.IOException
+	{
+		boolean hasFeatures = in.readBoolean();
+		long version = in.readLong();
+		CBRdata read = ColumnFile.read(in);
+		
+		if (hasFeatures)
+		{
+			featureNames = read.featureNames;
+			featureTypesString = read.featureTypesString;
+			featureTypesShort = read.featureTypesShort;
+		}
+		columns = read.columns;
+		shared = read.shared;
+		numCases = read.numCases;
+		this.version = version;
+	}
+	
+	
+	/**
+	* Returns the column of the specified feature to change, copied first 
+	* if it is shared
+	* 
+	* @param featureNum number of the feature
+	* @return the column of the feature
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private FeatureColumn changeColumn(int featureNum)
+	{
+		if (shared != null && shared[featureNum])
+		{
+			columns[featureNum] = columns[featureNum].copy();
+			shared[featureNum] = false;
+		}
+		return columns[featureNum];
 	}
 	
 	
@@ -136,7 +276,6 @@ class CBRdata implements java.io.Serializable
 	{
 		Feature feats[];
 		
-		dirty = true;
 		feats = stringToCaseFeatures(caseString);
 		addCase(feats);
 	}
@@ -153,6 +292,85 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected void addCase(Feature feats[])
 		throws java.lang.ArrayIndexOutOfBoundsException, ClassCastException
+	{
+		checkCaseFeatures(feats);
+		
+		version++;
+		for ( int f = 0 ; f < feats.length ; f++ )
+		{
+			changeColumn(f).add(feats[f]);
+		}
+		numCases++;
+	}
+	
+	
+	/**
+	* Returns the column of the specified feature to append a value of a new 
+	* case to, copied first if it is shared. Used to add cases without 
+	* creating Feature:s, see TextLoader. A value must be appended to every 
+	* column, then the case is counted by caseAppended.
+	* 
+	* @param featureNum number of the feature
+	* @return the column of the feature
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FeatureColumn appendColumn(int featureNum)
+	{
+		return changeColumn(featureNum);
+	}
+	
+	/**
+	* Counts a case whose values have been appended to all columns, see 
+	* appendColumn
+	* 
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void caseAppended()
+	{
+		version++;
+		numCases++;
+	}
+	
+	
+	/**
+	* Adds all cases of another dataset with the same features, after the 
+	* cases of this one and in their order
+	* 
+	* @param other the dataset whose cases to add
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addCases(CBRdata other)
+	{
+		version++;
+		for ( int f = 0 ; f < getNumFeatures() ; f++ )
+		{
+			changeColumn(f).addAll(other.getColumn(f));
+		}
+		numCases += other.getNumCases();
+	}
+	
+	
+	/**
+	* Checks that the features can be stored as a case in the dataset
+	* 
+	* @param feats an array of Feature:s representing a case
+	* @throws java.lang.ArrayIndexOutOfBoundsException if the case is 
+	*		not of the same length as the number of features
+	*		previously defined
+	* @throws IllegalTypeException if a feature is not of the type 
+	*		previously defined
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void checkCaseFeatures(Feature feats[])
+		throws java.lang.ArrayIndexOutOfBoundsException, IllegalTypeException
 	{
 		if (feats.length != getNumFeatures())
 		{
@@ -166,9 +384,6 @@ class CBRdata implements java.io.Serializable
 				throw new FreeCBR.IllegalTypeException("Trying to add value of incorrect type");
 			}
 		}
-		
-		dirty = true;
-		cases.addElement(feats);
 	}
 	
 	
@@ -183,7 +398,34 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected Feature[] getCase(int caseNum)
 	{
-		return (Feature[]) cases.elementAt(caseNum);
+		Feature feats[];
+		
+		if (caseNum < 0 || caseNum >= numCases)
+		{
+			throw new ArrayIndexOutOfBoundsException(caseNum);
+		}
+		feats = new Feature[columns.length];
+		for ( int f = 0 ; f < columns.length ; f++ )
+		{
+			feats[f] = columns[f].getFeature(caseNum);
+		}
+		return feats;
+	}
+	
+	
+	/**
+	* Returns the column holding the values of the specified feature. Used 
+	* when searching, the column must not be changed by the caller.
+	* 
+	* @param featureNum number of the feature to retrieve
+	* @return the column of the feature
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FeatureColumn getColumn(int featureNum)
+	{
+		return columns[featureNum];
 	}
 	
 	
@@ -199,8 +441,7 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected String editCase(int caseNum, String caseString)
 	{
-		dirty = true;
-		return caseFeaturesToString((Feature[]) cases.set(caseNum, stringToCaseFeatures(caseString)));
+		return caseFeaturesToString(editCase(caseNum, stringToCaseFeatures(caseString)));
 	}
 	/**
 	* Replaces a case with another
@@ -214,8 +455,16 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected Feature[] editCase(int caseNum, Feature feats[])
 	{
-		dirty = true;
-		return (Feature[]) cases.set(caseNum, feats);
+		Feature oldFeats[];
+		
+		checkCaseFeatures(feats);
+		oldFeats = getCase(caseNum);
+		version++;
+		for ( int f = 0 ; f < feats.length ; f++ )
+		{
+			changeColumn(f).set(caseNum, feats[f]);
+		}
+		return oldFeats;
 	}
 	
 	
@@ -231,16 +480,19 @@ class CBRdata implements java.io.Serializable
 	protected Feature[] deleteCase(int caseNum)
 	{
 		Feature feats[];
-		String caseStr;
 		
 		if (caseNum < 0 || caseNum >= getNumCases())
 		{
 			return null;
 		}
 		
-		feats = (Feature[]) cases.elementAt(caseNum);
-		dirty = true;
-		cases.remove(caseNum);
+		feats = getCase(caseNum);
+		version++;
+		for ( int f = 0 ; f < columns.length ; f++ )
+		{
+			changeColumn(f).remove(caseNum);
+		}
+		numCases--;
 		return feats;
 	}
 	
@@ -257,8 +509,9 @@ class CBRdata implements java.io.Serializable
 	protected void addFeature(String name, short type)
 	{
 		Feature newFeat = new Feature(null, type);
-		Feature oldCase[];
-		Feature newCase[];
+		FeatureColumn newColumn;
+		FeatureColumn newColumns[];
+		boolean newShared[] = null;
 		int numFeats = getNumFeatures();
 		int numCases = getNumCases();
 		String newNames[];
@@ -286,22 +539,29 @@ class CBRdata implements java.io.Serializable
 			newTypesString[numFeats] = Feature.typeToString(type);
 		}
 		
+		// The new feature is undefined for all existing cases
+		newColumn = FeatureColumn.create(type, numCases);
 		for (int i = 0; i < numCases; i++)
 		{
-			newCase = new Feature[numFeats + 1];
-			newCase[numFeats] = newFeat;
-			oldCase = getCase(i);
-			for (int f = 0; f < numFeats; f++)
-			{
-				newCase[f] = oldCase[f];
-			}
-			editCase(i, newCase);
+			newColumn.add(newFeat);
+		}
+		newColumns = new FeatureColumn[numFeats + 1];
+		for (int f = 0; f < numFeats; f++)
+		{
+			newColumns[f] = columns[f];
 		}
+		newColumns[numFeats] = newColumn;
+		if (shared != null)
+		{
+			newShared = new boolean[numFeats + 1];
+			System.arraycopy(shared, 0, newShared, 0, numFeats);
+		}
+		version++;
+		this.columns = newColumns;
+		this.shared = newShared;
 		this.featureNames = newNames;
 		this.featureTypesShort = newTypesShort;
 		this.featureTypesString = newTypesString;
-		
-		dirty = true;
 	}
 	
 	
@@ -404,13 +664,17 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected void setFeatureType(int featureNumber, short newType)
 	{
-		Feature feat;
+		FeatureColumn oldColumn;
+		FeatureColumn newColumn;
 		
 		if (featureNumber < 0 || featureNumber >= getNumFeatures())
 		{
 			return;
 		}
 		
+		oldColumn = columns[featureNumber];
+		newColumn = FeatureColumn.create(newType, numCases);
+		newColumn.setIndexed(oldColumn.isIndexed());
 		featureTypesShort[featureNumber] = newType;
 		featureTypesString[featureNumber] = Feature.typeToString(newType);
 		
@@ -418,13 +682,48 @@ class CBRdata implements java.io.Serializable
 		{
 			try
 			{
-				setFeature(i, featureNumber, getFeature(i, featureNumber).toString());
+				newColumn.add(new Feature(oldColumn.getFeature(i).toString(), newType));
 			} catch (Exception e)
 			{
-				setFeature(i, featureNumber, Feature.FEATURE_VALUE_UNDEFINED);
+				newColumn.add(new Feature(Feature.FEATURE_VALUE_UNDEFINED, newType));
 			}
 		}
-		dirty = true;
+		columns[featureNumber] = newColumn;
+		if (shared != null)
+		{
+			shared[featureNumber] = false;
+		}
+		version++;
+	}
+	
+	
+	/**
+	* Is the specified feature indexed?
+	* 
+	* @param featureNum the number of the feature
+	* @return true if the feature is indexed
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean isFeatureIndexed(int featureNum)
+	{
+		return columns[featureNum].isIndexed();
+	}
+	
+	
+	/**
+	* Turns the index of the specified feature on or off
+	* 
+	* @param featureNum the number of the feature
+	* @param indexed true to index the feature
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void setFeatureIndexed(int featureNum, boolean indexed)
+	{
+		changeColumn(featureNum).setIndexed(indexed);
 	}
 	
 	
@@ -440,7 +739,7 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected Feature getFeature(int caseNum, int featureNum)
 	{
-		return ((Feature[]) cases.elementAt(caseNum))[featureNum];
+		return columns[featureNum].getFeature(caseNum);
 	}
 	
 	
@@ -456,11 +755,11 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected void setFeature(int caseNum, int featureNum, String value)
 	{
-		Feature feats[];
+		Feature feat;
 		
-		feats = getCase(caseNum);
-		feats[featureNum] = new Feature(value, getFeatureTypeShort(featureNum));
-		editCase(caseNum, feats);
+		feat = new Feature(value, getFeatureTypeShort(featureNum));
+		version++;
+		changeColumn(featureNum).set(caseNum, feat);
 	}
 	
 	
@@ -479,8 +778,8 @@ class CBRdata implements java.io.Serializable
 		String newNames[];
 		short newTypesShort[];
 		String newTypesString[];
-		Feature oldCase[];
-		Feature newCase[];
+		FeatureColumn newColumns[];
+		boolean newShared[] = null;
 		
 		if (featureNumber < 0 || featureNumber >= numFeats)
 		{
@@ -492,11 +791,17 @@ class CBRdata implements java.io.Serializable
 			newNames = null;
 			newTypesShort = null;
 			newTypesString = null;
+			newColumns = new FeatureColumn[0];
 		} else
 		{
+			newColumns = new FeatureColumn[numFeats - 1];
 			newNames = new String[numFeats - 1];
 			newTypesShort = new short[numFeats - 1];
 			newTypesString = new String[numFeats - 1];
+			if (shared != null)
+			{
+				newShared = new boolean[numFeats - 1];
+			}
 			for (int ol=0, n=0; ol < numFeats; ol++)
 			{
 				if (ol == featureNumber)
@@ -504,32 +809,29 @@ class CBRdata implements java.io.Serializable
 				newNames[n] = featureNames[ol];
 				newTypesShort[n] = featureTypesShort[ol];
 				newTypesString[n] = featureTypesString[ol];
+				newColumns[n] = columns[ol];
+				if (shared != null)
+				{
+					newShared[n] = shared[ol];
+				}
 				n++;
 			}
 		}
-			
-		for (int i = 0; i < numCases; i++)
-		{
-			newCase = new Feature[numFeats - 1];
-			oldCase = getCase(i);
-			for (int ol=0, n=0; ol < numFeats; ol++)
-			{
-				if (ol == featureNumber)
-					continue;
-				newCase[n++] = oldCase[ol];
-			}
-			editCase(i, newCase);
-		}
+		
+		version++;
+		this.columns = newColumns;
+		this.shared = newShared;
 		this.featureNames = newNames;
 		this.featureTypesShort = newTypesShort;
 		this.featureTypesString = newTypesString;
-		
-		dirty = true;
 	}
 	
 	
 	/**
-	* Finds the min- and max-values and all used string values for each feature
+	* Makes sure the min- and max-values and all used string values for each 
+	* feature are up to date. The columns maintain them incrementally, so 
+	* this only recalculates the values of features where the minimum or 
+	* maximum value has been removed since last time.
 	* 
 	* @since 1.0
 	*/
@@ -537,97 +839,12 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected void finishInput()
 	{
-		int caseNum = cases.size();
-		int featureNum;
-		Object tmpObject, minObject, maxObject;
-		Feature feats[];
-		FVector set = new FVector();
-		
-		if (featureNames == null)
+		for (int f = 0 ; f < columns.length ; f++ )
 		{
-			featureNum = 0;
-		} else
-		{
-			featureNum = featureNames.length;
+			columns[f].getMinValue();
+			columns[f].getMaxValue();
+			columns[f].getUsedStrings();
 		}
-		if (dirty)
-		{
-			minValues = new Object[featureNum];
-			maxValues = new Object[featureNum];
-			usedStrings = new String[featureNum][];
-			
-			// Loop through all features and find minimum and maximum value
-			for (int f = 0 ; f < featureNum ; f++ )
-			{
-				minObject = null;
-				maxObject = null;
-				set.clear();
-				// Loop through all cases and find minimum and maximum value 
-				// for numerical features and find all used string values for 
-				// each feature
-				for (int c = 0 ; c < caseNum ; c++ )
-				{
-					if (cases.elementAt(c) == null ||
-						((Feature[]) cases.elementAt(c))[f] == null  ||
-						(((Feature[]) cases.elementAt(c))[f]).isUndefined() ||
-						(((Feature[]) cases.elementAt(c))[f]).value == null)
-					{
-						continue;
-					}
-					tmpObject = ((Feature[]) cases.elementAt(c))[f].value;
-					
-					switch (featureTypesShort[f])
-					{
-					case Feature.FEATURE_TYPE_FLOAT:
-						if (minObject == null ||
-							((Double) tmpObject).doubleValue() < ((Double) minObject).doubleValue())
-						{
-							minObject = tmpObject;
-						}
-						if (maxObject == null ||
-							((Double) tmpObject).doubleValue() > ((Double) maxObject).doubleValue())
-						{
-							maxObject = tmpObject;
-						}
-						break;
-					
-					case Feature.FEATURE_TYPE_INT:
-						if (minObject == null ||
-							((Long) tmpObject).longValue() < ((Long) minObject).longValue())
-						{
-							minObject = tmpObject;
-						}
-						if (maxObject == null ||
-							((Long) tmpObject).longValue() > ((Long) maxObject).longValue())
-						{
-							maxObject = tmpObject;
-						}
-						break;
-						
-					case Feature.FEATURE_TYPE_STRING:
-						set.add((String) tmpObject);
-						break;
-						
-					case Feature.FEATURE_TYPE_MULTISTRING:
-						for ( int j = 0 ; j < ((String[]) tmpObject).length ; j++ )
-						{
-							set.add(((String[]) tmpObject)[j]);
-						}
-						break;
-					}
-				}
-				minValues[f] = minObject;
-				maxValues[f] = maxObject;
-				set.sortAndRemoveDuplicates(new StringComparator());
-				usedStrings[f] = new String[set.size()];
-				for (int i = 0; i < set.size() ; i++ )
-				{
-					usedStrings[f][i] = (String) set.elementAt(i);
-				}
-			}
-			dirty = false;
-		}
-		System.gc();
 	}
 	
 	
@@ -641,7 +858,22 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected int getNumCases()
 	{
-		return cases.size();
+		return numCases;
+	}
+	
+	
+	/**
+	* Returns the modification count of the data set. The count is increased 
+	* each time a case or a feature is added, changed or removed.
+	* 
+	* @return the modification count
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long getVersion()
+	{
+		return version;
 	}
 	
 	
@@ -673,11 +905,7 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected String[] getUsedStrings(int featureNum)
 	{
-		if (dirty)
-		{
-			finishInput();
-		}
-		return usedStrings[featureNum];
+		return columns[featureNum].getUsedStrings();
 	}
 	
 	
@@ -692,17 +920,7 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected Object getMinValue(int featureNum)
 	{
-		if (dirty)
-		{
-			finishInput();
-		}
-		if (minValues == null || 
-			minValues[featureNum] == null ||
-			minValues.length < featureNum)
-		{
-			return null;
-		}
-		return minValues[featureNum];
+		return columns[featureNum].getMinValue();
 	}
 	
 	
@@ -717,17 +935,7 @@ class CBRdata implements java.io.Serializable
 	*/
 	protected Object getMaxValue(int featureNum)
 	{
-		if (dirty)
-		{
-			finishInput();
-		}
-		if (maxValues == null || 
-			maxValues[featureNum] == null ||
-			maxValues.length < featureNum)
-		{
-			return null;
-		}
-		return maxValues[featureNum];
+		return columns[featureNum].getMaxValue();
 	}
 	
 	
@@ -0,0 +1,49 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class writes a checkpoint of a case set in the background, see
+ * CBR.checkpoint.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class CheckpointTask implements java.util.concurrent.Callable
+{
+	private final CBR cbr;
+
+
+	/**
+	* Creates a task for a checkpoint of the set of a CBR
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	CheckpointTask(CBR cbr)
+	{
+		this.cbr = cbr;
+	}
+
+
+	/**
+	* Writes the checkpoint
+	*
+	* @return null
+	* @throws java.io.IOException if the checkpoint can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public Object call()
+		throws java.io.IOException
+	{
+		cbr.writeCheckpoint();
+		return null;
+	}
+}
@@ -0,0 +1,773 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class reads and writes case sets as binary files of columns. A file
+ * is read by mapping it into memory: the Int, Float and String columns are
+ * searched directly in the mapped file, see MappedIntColumn, so a set is
+ * searchable as soon as the header and the dictionaries are read, and the
+ * pages of the file are shared by all processes reading it. The bit sets
+ * of the undefined cases, the Bool columns and the MultiString columns are
+ * small or of variable length and are read into memory. The same format is
+ * used when a CBRdata is serialized, the columns are then read from the
+ * file in memory.<br />
+ * All numbers are little-endian and all bit sets and values start at a
+ * multiple of 8 bytes. A string is its length in bytes (int) followed by
+ * its UTF-8 bytes. The file is:
+ * <pre>
+ * header       magic (8 bytes), version, number of features, number of
+ *              cases, length of the header (int:s), offset and length of
+ *              the block of each column (long:s), name and type of each
+ *              feature (strings)
+ * column       flags (int, FLAG_INDEXED) followed by
+ *  Int         min and max (long:s), undefined, values (long:s)
+ *  Float       min and max (double:s), number of NaN or infinite values
+ *              (int), undefined, values (double:s)
+ *  String      number of strings (int), use count (int) and string of
+ *              each code, undefined, codes (int:s, -1 if undefined)
+ *  MultiString number of strings (int), string of each code, undefined,
+ *              number of codes and codes of each case (int:s)
+ *  Bool        undefined, bit set of the true values (long:s)
+ * undefined    bit set of the undefined cases (long:s)
+ * </pre>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class ColumnFile
+{
+	/**
+	 * The first bytes of a column file, never the start of a text file
+	 * @since 1.2
+	 */
+	static final byte MAGIC[] = {(byte) 0x89, 'F', 'C', 'B', 'R', '\r', '\n', 0x1A};
+
+	/**
+	 * The version of the file format
+	 * @since 1.2
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Column flag, set if the column is indexed
+	 * @since 1.2
+	 */
+	static final int FLAG_INDEXED = 1;
+
+	/**
+	 * Length of the fixed part of the header
+	 * @since 1.2
+	 */
+	private static final int FIXED_HEADER_LENGTH = 24;
+
+	/**
+	 * Size of the write buffer
+	 * @since 1.2
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+
+	/**
+	* Is the file a column file?
+	*
+	* @param filename the name of the file
+	* @return true if the file starts with the magic bytes of a column file
+	* @throws java.io.IOException if the file can not be read
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static boolean isColumnFile(String filename)
+		throws java.io.IOException
+	{
+		java.io.InputStream in = new java.io.FileInputStream(filename);
+		byte start[] = new byte[MAGIC.length];
+		int n = 0;
+		int read;
+
+		try
+		{
+			while (n < start.length && (read = in.read(start, n, start.length - n)) > 0)
+			{
+				n += read;
+			}
+		} finally
+		{
+			in.close();
+		}
+		return n == start.length && java.util.Arrays.equals(start, MAGIC);
+	}
+
+
+	/**
+	* Reads a column file by mapping it into memory. The file may be closed,
+	* replaced or deleted afterwards, but it must not be changed in place
+	* while the data is used.
+	*
+	* @param filename the name of the file
+	* @return the data of the file
+	* @throws java.io.IOException if the file can not be read or is not a
+	*		valid column file
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static CBRdata read(String filename)
+		throws java.io.IOException
+	{
+		java.io.RandomAccessFile file = new java.io.RandomAccessFile(filename, "r");
+
+		try
+		{
+			return read(file.getChannel(), null);
+		} finally
+		{
+			// The mappings stay valid when the file is closed
+			file.close();
+		}
+	}
+
+
+	/**
+	* Reads a column file written to a stream, see write. The file is read
+	* into memory and the columns are read from it as from a mapped file.
+	*
+	* @param in the stream, positioned at the start of the file
+	* @return the data of the file
+	* @throws java.io.IOException if the stream can not be read or does not
+	*		hold a valid column file
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static CBRdata read(java.io.DataInput in)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer header = java.nio.ByteBuffer.allocate(FIXED_HEADER_LENGTH).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+		byte bytes[];
+		long length;
+		int numFeatures;
+		int headerLength;
+
+		// The length of the file is the end of its last block
+		in.readFully(header.array());
+		if (!java.util.Arrays.equals(java.util.Arrays.copyOf(header.array(), MAGIC.length), MAGIC))
+		{
+			throw new java.io.IOException("Error when reading file, not a binary case file.");
+		}
+		numFeatures = header.getInt(12);
+		headerLength = header.getInt(20);
+		if (numFeatures < 0 || headerLength < FIXED_HEADER_LENGTH + 16L * numFeatures)
+		{
+			throw new java.io.IOException("Error when reading file, the header is damaged.");
+		}
+		bytes = new byte[headerLength];
+		System.arraycopy(header.array(), 0, bytes, 0, FIXED_HEADER_LENGTH);
+		in.readFully(bytes, FIXED_HEADER_LENGTH, headerLength - FIXED_HEADER_LENGTH);
+		header = java.nio.ByteBuffer.wrap(bytes).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+		length = headerLength;
+		for ( int f = 0 ; f < numFeatures ; f++ )
+		{
+			length = Math.max(length, header.getLong(FIXED_HEADER_LENGTH + 16 * f) + header.getLong(FIXED_HEADER_LENGTH + 16 * f + 8));
+		}
+		if (length > Integer.MAX_VALUE)
+		{
+			throw new java.io.IOException("Error when reading file, " + length + " bytes are too large to read.");
+		}
+
+		bytes = java.util.Arrays.copyOf(bytes, (int) length);
+		in.readFully(bytes, headerLength, bytes.length - headerLength);
+		return read(null, java.nio.ByteBuffer.wrap(bytes));
+	}
+
+
+	/**
+	* Reads a column file that is either mapped or in memory
+	*
+	* @param channel the file to map, null if the file is in memory
+	* @param bytes the file in memory
+	* @return the data of the file
+	*/
+	private static CBRdata read(java.nio.channels.FileChannel channel, java.nio.ByteBuffer bytes)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer header;
+		byte magic[] = new byte[MAGIC.length];
+		String featureNames[];
+		String featureTypeNames[];
+		FeatureColumn columns[];
+		long blocks[];
+		int version;
+		int numFeatures;
+		int numCases;
+		int headerLength;
+
+		try
+		{
+			header = block(channel, bytes, 0, FIXED_HEADER_LENGTH);
+			header.get(magic);
+			if (!java.util.Arrays.equals(magic, MAGIC))
+			{
+				throw new java.io.IOException("Error when reading file, not a binary case file.");
+			}
+			version = header.getInt();
+			if (version != VERSION)
+			{
+				throw new java.io.IOException("Error when reading file, unknown version of binary case file: " + version);
+			}
+			numFeatures = header.getInt();
+			numCases = header.getInt();
+			headerLength = header.getInt();
+			if (numFeatures < 0 || numCases < 0 ||
+					headerLength < FIXED_HEADER_LENGTH + 16L * numFeatures)
+			{
+				throw new java.io.IOException("Error when reading file, the header is damaged.");
+			}
+
+			// The directory of the column blocks, then the names and types
+			header = block(channel, bytes, 0, headerLength);
+			header.position(FIXED_HEADER_LENGTH);
+			blocks = new long[2 * numFeatures];
+			for ( int i = 0 ; i < blocks.length ; i++ )
+			{
+				blocks[i] = header.getLong();
+			}
+			featureNames = new String[numFeatures];
+			featureTypeNames = new String[numFeatures];
+			for ( int f = 0 ; f < numFeatures ; f++ )
+			{
+				featureNames[f] = getString(header);
+				featureTypeNames[f] = getString(header);
+			}
+
+			columns = new FeatureColumn[numFeatures];
+			for ( int f = 0 ; f < numFeatures ; f++ )
+			{
+				columns[f] = readColumn(block(channel, bytes, blocks[2 * f], blocks[2 * f + 1]),
+										Feature.stringToType(featureTypeNames[f]),
+										numCases);
+			}
+			return new CBRdata(featureNames, featureTypeNames, columns, numCases);
+		} catch (RuntimeException e)
+		{
+			// Truncated blocks, unknown types and so on
+			throw new java.io.IOException("Error when reading file, error message:" + e.toString());
+		}
+	}
+
+
+	/**
+	* Writes the data as a column file. The length of each column block is
+	* counted before it is written, so the file is written in one pass from
+	* start to end, to an AtomicFile or to a stream. A file mapped by a
+	* reader is never changed in place, it is replaced when the AtomicFile
+	* is committed.
+	*
+	* @param data the data to write
+	* @param file the file or stream to write to
+	* @throws java.io.IOException if the file can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static void write(CBRdata data, java.io.DataOutput file)
+		throws java.io.IOException
+	{
+		Output out;
+		int numFeatures = data.getNumFeatures();
+		int numCases = data.getNumCases();
+		long blocks[] = new long[2 * numFeatures];
+		int headerLength;
+
+		// Count the blocks without writing them
+		out = new Output(null);
+		headerLength = putHeader(out, data, 0, blocks);
+		for ( int f = 0 ; f < numFeatures ; f++ )
+		{
+			out.align();
+			blocks[2 * f] = out.position();
+			writeColumn(out, data.getColumn(f), numCases);
+			blocks[2 * f + 1] = out.position() - blocks[2 * f];
+		}
+
+		out = new Output(file);
+		putHeader(out, data, headerLength, blocks);
+		for ( int f = 0 ; f < numFeatures ; f++ )
+		{
+			out.align();
+			writeColumn(out, data.getColumn(f), numCases);
+		}
+		out.flush();
+	}
+
+
+	/**
+	* Writes the header
+	*
+	* @return the length of the header
+	*/
+	private static int putHeader(Output out, CBRdata data, int headerLength, long blocks[])
+		throws java.io.IOException
+	{
+		out.putBytes(MAGIC);
+		out.putInt(VERSION);
+		out.putInt(data.getNumFeatures());
+		out.putInt(data.getNumCases());
+		out.putInt(headerLength);
+		for ( int i = 0 ; i < blocks.length ; i++ )
+		{
+			out.putLong(blocks[i]);
+		}
+		for ( int f = 0 ; f < data.getNumFeatures() ; f++ )
+		{
+			out.putString(data.getFeatureName(f));
+			out.putString(data.getFeatureTypeString(f));
+		}
+		return (int) out.position();
+	}
+
+
+	/**
+	* Writes the block of a column
+	*/
+	private static void writeColumn(Output out, FeatureColumn column, int numCases)
+		throws java.io.IOException
+	{
+		StringDictionary dictionary;
+		Object min, max;
+
+		out.putInt(column.isIndexed() ? FLAG_INDEXED : 0);
+		switch (column.getFeatureType())
+		{
+		case Feature.FEATURE_TYPE_INT:
+			min = column.getMinValue();
+			max = column.getMaxValue();
+			out.putLong(min == null ? 0 : ((Long) min).longValue());
+			out.putLong(max == null ? 0 : ((Long) max).longValue());
+			putBits(out, getUndefined(column, numCases), numCases);
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				out.putLong(column.getLong(c));
+			}
+			break;
+
+		case Feature.FEATURE_TYPE_FLOAT:
+			int numNonFinite = 0;
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				double value = column.getDouble(c);
+				if (!column.isUndefined(c) && (Double.isNaN(value) || Double.isInfinite(value)))
+				{
+					numNonFinite++;
+				}
+			}
+			min = column.getMinValue();
+			max = column.getMaxValue();
+			out.putDouble(min == null ? 0 : ((Double) min).doubleValue());
+			out.putDouble(max == null ? 0 : ((Double) max).doubleValue());
+			out.putInt(numNonFinite);
+			putBits(out, getUndefined(column, numCases), numCases);
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				out.putDouble(column.getDouble(c));
+			}
+			break;
+
+		case Feature.FEATURE_TYPE_STRING:
+			StringColumn stringColumn = (StringColumn) column;
+			int useCounts[];
+			dictionary = stringColumn.getDictionary();
+			useCounts = new int[dictionary.size()];
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				if (stringColumn.getCode(c) >= 0)
+				{
+					useCounts[stringColumn.getCode(c)]++;
+				}
+			}
+			out.putInt(dictionary.size());
+			for ( int code = 0 ; code < dictionary.size() ; code++ )
+			{
+				out.putInt(useCounts[code]);
+				out.putString(dictionary.get(code));
+			}
+			putBits(out, getUndefined(column, numCases), numCases);
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				out.putInt(stringColumn.getCode(c));
+			}
+			break;
+
+		case Feature.FEATURE_TYPE_MULTISTRING:
+			MultiStringColumn multiStringColumn = (MultiStringColumn) column;
+			dictionary = multiStringColumn.getDictionary();
+			out.putInt(dictionary.size());
+			for ( int code = 0 ; code < dictionary.size() ; code++ )
+			{
+				out.putString(dictionary.get(code));
+			}
+			putBits(out, getUndefined(column, numCases), numCases);
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				int codes[] = multiStringColumn.getCodes(c);
+				if (codes == null)
+				{
+					out.putInt(0);
+					continue;
+				}
+				out.putInt(codes.length);
+				for ( int i = 0 ; i < codes.length ; i++ )
+				{
+					out.putInt(codes[i]);
+				}
+			}
+			break;
+
+		case Feature.FEATURE_TYPE_BOOL:
+			BoolColumn boolColumn = (BoolColumn) column;
+			long values[] = new long[FeatureColumn.wordsFor(numCases)];
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				if (boolColumn.getBoolean(c))
+				{
+					FeatureColumn.setBit(values, c, true);
+				}
+			}
+			putBits(out, getUndefined(column, numCases), numCases);
+			putBits(out, values, numCases);
+			break;
+		}
+	}
+
+
+	/**
+	* Reads the block of a column
+	*/
+	private static FeatureColumn readColumn(java.nio.ByteBuffer block, short type, int numCases)
+		throws java.io.IOException
+	{
+		FeatureColumn column;
+		StringDictionary dictionary;
+		long undefined[];
+		int flags = block.getInt();
+
+		switch (type)
+		{
+		case Feature.FEATURE_TYPE_INT:
+			long minLong = block.getLong();
+			long maxLong = block.getLong();
+			undefined = getBits(block, numCases);
+			column = new MappedIntColumn(numCases, undefined,
+										 slice(block, 8L * numCases).asLongBuffer(),
+										 minLong, maxLong);
+			break;
+
+		case Feature.FEATURE_TYPE_FLOAT:
+			double minDouble = block.getDouble();
+			double maxDouble = block.getDouble();
+			int numNonFinite = block.getInt();
+			undefined = getBits(block, numCases);
+			column = new MappedFloatColumn(numCases, undefined,
+										   slice(block, 8L * numCases).asDoubleBuffer(),
+										   minDouble, maxDouble, numNonFinite);
+			break;
+
+		case Feature.FEATURE_TYPE_STRING:
+			UseCounts useCounts = new UseCounts();
+			int numCodes = block.getInt();
+			dictionary = new StringDictionary();
+			for ( int code = 0 ; code < numCodes ; code++ )
+			{
+				useCounts.add(code, block.getInt());
+				addString(dictionary, getString(block), code);
+			}
+			undefined = getBits(block, numCases);
+			column = new MappedStringColumn(numCases, undefined,
+											slice(block, 4L * numCases).asIntBuffer(),
+											dictionary, useCounts);
+			break;
+
+		case Feature.FEATURE_TYPE_MULTISTRING:
+			MultiStringColumn multiStringColumn;
+			int numStrings = block.getInt();
+			dictionary = new StringDictionary();
+			for ( int code = 0 ; code < numStrings ; code++ )
+			{
+				addString(dictionary, getString(block), code);
+			}
+			undefined = getBits(block, numCases);
+			multiStringColumn = new MultiStringColumn(numCases, dictionary);
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				int caseCodes[] = new int[block.getInt()];
+				for ( int i = 0 ; i < caseCodes.length ; i++ )
+				{
+					caseCodes[i] = block.getInt();
+					if (caseCodes[i] < 0 || caseCodes[i] >= numStrings)
+					{
+						throw new java.io.IOException("Error when reading file, unknown string code " + caseCodes[i]);
+					}
+				}
+				if (FeatureColumn.getBit(undefined, c))
+				{
+					multiStringColumn.addUndefined();
+				} else
+				{
+					multiStringColumn.addCodes(caseCodes);
+				}
+			}
+			column = multiStringColumn;
+			break;
+
+		case Feature.FEATURE_TYPE_BOOL:
+			BoolColumn boolColumn = new BoolColumn(numCases);
+			long values[];
+			undefined = getBits(block, numCases);
+			values = getBits(block, numCases);
+			for ( int c = 0 ; c < numCases ; c++ )
+			{
+				if (FeatureColumn.getBit(undefined, c))
+				{
+					boolColumn.addUndefined();
+				} else
+				{
+					boolColumn.addBoolean(FeatureColumn.getBit(values, c));
+				}
+			}
+			column = boolColumn;
+			break;
+
+		default:
+			throw new IllegalTypeException("This type does is unvalid: \"" + type + "\"");
+		}
+		if ((flags & FLAG_INDEXED) != 0)
+		{
+			column.setIndexed(true);
+		}
+		return column;
+	}
+
+
+	/**
+	* Returns a part of the file, mapped or in memory
+	*/
+	private static java.nio.ByteBuffer block(java.nio.channels.FileChannel channel, java.nio.ByteBuffer bytes, long offset, long length)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer block;
+
+		if (channel != null)
+		{
+			return map(channel, offset, length);
+		}
+		if (offset < 0 || length < 0 || offset + length > bytes.capacity())
+		{
+			throw new java.io.IOException("Error when reading file, the file is truncated.");
+		}
+		block = bytes.duplicate();
+		block.position((int) offset);
+		block.limit((int) (offset + length));
+		return block.slice().order(java.nio.ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	* Maps a part of the file
+	*/
+	private static java.nio.ByteBuffer map(java.nio.channels.FileChannel channel, long offset, long length)
+		throws java.io.IOException
+	{
+		if (offset < 0 || length < 0 || offset + length > channel.size())
+		{
+			throw new java.io.IOException("Error when reading file, the file is truncated.");
+		}
+		if (length > Integer.MAX_VALUE)
+		{
+			throw new java.io.IOException("Error when reading file, a column of " + length + " bytes is too large to map.");
+		}
+		return channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY, offset, length).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	* Returns the next length bytes of a block, starting at the next
+	* multiple of 8 bytes
+	*/
+	private static java.nio.ByteBuffer slice(java.nio.ByteBuffer block, long length)
+	{
+		java.nio.ByteBuffer slice;
+
+		block.position((block.position() + 7) & ~7);
+		if (length > block.remaining())
+		{
+			throw new java.nio.BufferUnderflowException();
+		}
+		slice = block.slice();
+		slice.limit((int) length);
+		block.position(block.position() + (int) length);
+		return slice.order(java.nio.ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	* Reads a bit set with a bit for each case
+	*/
+	private static long[] getBits(java.nio.ByteBuffer block, int numCases)
+	{
+		long bits[] = new long[FeatureColumn.wordsFor(numCases)];
+
+		slice(block, 8L * bits.length).asLongBuffer().get(bits);
+		return bits;
+	}
+
+	/**
+	* Reads a string
+	*/
+	private static String getString(java.nio.ByteBuffer buffer)
+	{
+		byte bytes[] = new byte[buffer.getInt()];
+
+		buffer.get(bytes);
+		return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+	}
+
+	/**
+	* Adds a string of a dictionary, which must get the specified code
+	*/
+	private static void addString(StringDictionary dictionary, String str, int code)
+		throws java.io.IOException
+	{
+		if (dictionary.add(str) != code)
+		{
+			throw new java.io.IOException("Error when reading file, the string \"" + str + "\" is found twice.");
+		}
+	}
+
+	/**
+	* Returns the bit set of the undefined cases of a column in one array
+	*/
+	private static long[] getUndefined(FeatureColumn column, int numCases)
+	{
+		long bits[] = new long[FeatureColumn.wordsFor(numCases)];
+
+		for ( int w = 0 ; w < bits.length ; w++ )
+		{
+			bits[w] = FeatureColumn.getWord(column.undefined, w);
+		}
+		return bits;
+	}
+
+	/**
+	* Writes a bit set with a bit for each case, starting at the next
+	* multiple of 8 bytes
+	*/
+	private static void putBits(Output out, long bits[], int numCases)
+		throws java.io.IOException
+	{
+		int words = FeatureColumn.wordsFor(numCases);
+		long word;
+
+		out.align();
+		for ( int w = 0 ; w < words ; w++ )
+		{
+			word = w < bits.length ? bits[w] : 0;
+			if (w == words - 1 && (numCases & 63) != 0)
+			{
+				// No bits beyond the last case
+				word &= (1L << numCases) - 1;
+			}
+			out.putLong(word);
+		}
+	}
+
+
+	/**
+	 * Buffered output to a file that keeps track of the position, or only
+	 * counts the bytes if there is no file
+	 */
+	private static class Output
+	{
+		private final java.io.DataOutput file;
+		private final java.nio.ByteBuffer buffer;
+		private long flushed;
+
+		Output(java.io.DataOutput file)
+		{
+			this.file = file;
+			buffer = java.nio.ByteBuffer.allocate(BUFFER_SIZE).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+			flushed = 0;
+		}
+
+		long position()
+		{
+			return flushed + buffer.position();
+		}
+
+		void putInt(int value) throws java.io.IOException
+		{
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws java.io.IOException
+		{
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws java.io.IOException
+		{
+			ensure(8);
+			buffer.putDouble(value);
+		}
+
+		void putBytes(byte bytes[]) throws java.io.IOException
+		{
+			int n;
+
+			for (int off = 0; off < bytes.length; off += n)
+			{
+				ensure(1);
+				n = Math.min(buffer.remaining(), bytes.length - off);
+				buffer.put(bytes, off, n);
+			}
+		}
+
+		void putString(String str) throws java.io.IOException
+		{
+			byte bytes[] = str.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+
+			putInt(bytes.length);
+			putBytes(bytes);
+		}
+
+		void align() throws java.io.IOException
+		{
+			while ((position() & 7) != 0)
+			{
+				ensure(1);
+				buffer.put((byte) 0);
+			}
+		}
+
+		void flush() throws java.io.IOException
+		{
+			if (file != null)
+			{
+				file.write(buffer.array(), 0, buffer.position());
+			}
+			flushed += buffer.position();
+			buffer.clear();
+		}
+
+		private void ensure(int n) throws java.io.IOException
+		{
+			if (buffer.remaining() < n)
+			{
+				flush();
+			}
+		}
+	}
+}
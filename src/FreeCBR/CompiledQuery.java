@@ -0,0 +1,167 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class holds a search prepared by CBR.prepareSearch. The searched
+ * features, weights, terms, scales and options are checked and copied once
+ * and each searched feature gets an evaluator with the ranges, min- and
+ * max-values and encoded search values resolved up front. The same
+ * CompiledQuery may be searched any number of times with CBR.search, the
+ * evaluators are rebuilt automatically when the data has changed.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class CompiledQuery
+{
+	/**
+	 * The numbers of the searched features
+	 * @since 1.2
+	 */
+	final int featureNums[];
+
+	/**
+	 * The searched values
+	 * @since 1.2
+	 */
+	final Feature values[];
+
+	/**
+	 * The weights, defaults filled in
+	 * @since 1.2
+	 */
+	final int weights[];
+
+	/**
+	 * The search terms, defaults filled in
+	 * @since 1.2
+	 */
+	final int terms[];
+
+	/**
+	 * The search scales, defaults filled in
+	 * @since 1.2
+	 */
+	final int scales[];
+
+	/**
+	 * The search options, defaults filled in
+	 * @since 1.2
+	 */
+	final int options[];
+
+	/**
+	 * For each searched feature, true if CBR.SEARCH_OPTION_INVERTED is set
+	 * @since 1.2
+	 */
+	final boolean inverted[];
+
+	/**
+	 * The indexes of the searched features in order of decreasing weight
+	 * @since 1.2
+	 */
+	final int byWeight[];
+
+	/**
+	 * The sum of the weights, or -1 if a weight is negative
+	 * @since 1.2
+	 */
+	final long weightsSum;
+
+	/**
+	 * The evaluators, the candidate cases and the data they were built for, 
+	 * null until the first search
+	 * @since 1.2
+	 */
+	private QueryPlan plan;
+
+
+	/**
+	* Creates a query from checked arrays of the same length. The arrays
+	* are copied.
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	CompiledQuery(int featureNums[], Feature values[], int weights[], int terms[], int scales[], int options[])
+	{
+		this.featureNums = (int[]) featureNums.clone();
+		this.values = (Feature[]) values.clone();
+		this.weights = (int[]) weights.clone();
+		this.terms = (int[]) terms.clone();
+		this.scales = (int[]) scales.clone();
+		this.options = (int[]) options.clone();
+		this.inverted = new boolean[options.length];
+		for (int i = 0; i < options.length; i++)
+		{
+			inverted[i] = (options[i] & CBR.SEARCH_OPTION_INVERTED) != 0;
+		}
+		this.byWeight = new int[weights.length];
+		long sum = 0;
+		for (int i = 0; i < weights.length; i++)
+		{
+			// Insertion sort, there are only a few features
+			int j = i;
+			while (j > 0 && weights[byWeight[j - 1]] < weights[i])
+			{
+				byWeight[j] = byWeight[j - 1];
+				j--;
+			}
+			byWeight[j] = i;
+			sum = (sum < 0 || weights[i] < 0) ? -1 : sum + weights[i];
+		}
+		this.weightsSum = sum;
+		this.plan = null;
+	}
+
+
+	/**
+	* Returns the number of searched features
+	*
+	* @return the number of searched features
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public int getNumFeatures()
+	{
+		return featureNums.length;
+	}
+
+
+	/**
+	* Returns the plan to use when searching the specified data. The plan
+	* is built by the CBR the first time and again whenever the data, the
+	* data version, the infinity constant or the verbose flag has changed.
+	*
+	* @param cbr the CBR performing the search
+	* @param data the data to search
+	* @param infinity the current infinity constant of the CBR
+	* @param verbose the current verbose flag of the CBR
+	* @return the plan
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	QueryPlan getPlan(CBR cbr, CBRdata data, int infinity, boolean verbose)
+	{
+		QueryPlan p = plan;
+
+		if (p == null ||
+			p.data != data ||
+			p.version != data.getVersion() ||
+			p.infinity != infinity ||
+			p.verbose != verbose)
+		{
+			p = cbr.compilePlan(this, data);
+			plan = p;
+		}
+		return p;
+	}
+}
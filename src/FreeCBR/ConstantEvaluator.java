@@ -0,0 +1,30 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of a searched feature that is
+ * undefined, it gives the same distance for all cases so the feature is
+ * disqualified for all of them.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class ConstantEvaluator extends FeatureEvaluator
+{
+	private final double value;
+
+	ConstantEvaluator(double value)
+	{
+		this.value = value;
+	}
+
+	double distance(int caseNum)
+	{
+		return value;
+	}
+}
@@ -67,7 +67,7 @@ class FString
 	{
 		int pos1, pos2;
 		int sz = s.length();
-		FVector v = new FVector();
+		int n;
 		String[] ret;
 		Object args[] = {null};
 		
@@ -75,16 +75,25 @@ class FString
 		{
 			if (methodSplit == null)
 			{
+				// Count the parts first so they can be put directly in the array
+				n = 1;
+				pos2 = str.indexOf(s);
+				while (pos2 > 0)
+				{
+					n++;
+					pos2 = str.indexOf(s, pos2 + sz);
+				}
+				ret = new String[n];
+				n = 0;
 				pos1 = 0;
 				pos2 = str.indexOf(s);
 				while (pos2 > 0)
 				{
-					v.addElement(str.substring(pos1, pos2));
+					ret[n++] = str.substring(pos1, pos2);
 					pos1 = pos2 + sz;
 					pos2 = str.indexOf(s, pos1);
 				}
-				v.addElement(str.substring(pos1));
-				ret = (String[]) v.toArray(String.class);
+				ret[n] = str.substring(pos1);
 				return ret;
 			} else
 			{
@@ -525,8 +525,8 @@ public class Feature implements java.io.Serializable
 	{
 		boolean doubleSemi = false;
 		String tmpMultiString[];
-		Object tmpObjs[];
-		FVector multiStringVec;
+		String multiStrings[];
+		int numStrings = 0;
 		
 		// Convert an empty string to "?"
 		if (mstring == null || mstring.length() == 0)
@@ -543,7 +543,7 @@ public class Feature implements java.io.Serializable
 		}
 		
 		tmpMultiString = FString.split(mstring, ";");
-		multiStringVec = new FVector(tmpMultiString.length);
+		multiStrings = new String[tmpMultiString.length];
 		
 		// There might be ";;"s, in that case there are empty 
 		// strings in the array. These strings means there was a ";;"
@@ -559,34 +559,34 @@ public class Feature implements java.io.Serializable
 				if (doubleSemi)
 				{
 					// then add this string
-					((String) multiStringVec.lastElement()).concat(tmpMultiString[i]);
+					multiStrings[numStrings - 1].concat(tmpMultiString[i]);
 					doubleSemi = false;
 				} else
 				{
-					multiStringVec.addElement(tmpMultiString[i]);
+					multiStrings[numStrings++] = tmpMultiString[i];
 				}
 			} else
 			{
 				// A ";;" is found
 				doubleSemi = true;
-				if (multiStringVec.size() > 0)
+				if (numStrings > 0)
 				{
 					// Add ";" to last string
-					((String) multiStringVec.lastElement()).concat(";");
+					multiStrings[numStrings - 1].concat(";");
 				} else
 				{
 					// This is the first string and it begins with a ";"
-					multiStringVec.addElement(new String(";"));
+					multiStrings[numStrings++] = new String(";");
 				}
 			}
 		}
 		
-		tmpObjs = multiStringVec.toArray();
-		tmpMultiString = new String[tmpObjs.length];
-		for (int i = 0 ; i < tmpObjs.length ; i++ )
+		if (numStrings == multiStrings.length)
 		{
-			tmpMultiString[i] = (String) tmpObjs[i];
+			return multiStrings;
 		}
+		tmpMultiString = new String[numStrings];
+		System.arraycopy(multiStrings, 0, tmpMultiString, 0, numStrings);
 		return tmpMultiString;
 	}
 	
@@ -0,0 +1,1039 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class stores the values of one feature (column) for all cases in a
+ * CBRdata. The values are kept in primitive arrays by the subclasses, the
+ * undefined values are kept in a bit set shared by all column types.
+ * The arrays are split in segments of SEGMENT_SIZE cases. A column may be
+ * copied cheaply for a new version of the data, the copy shares the
+ * segments with the original until it changes a shared case, and then
+ * copies only the segment of the case, see copy.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+abstract class FeatureColumn implements java.io.Serializable, Cloneable
+{
+	/**
+	 * Initial capacity of a new column
+	 * @since 1.2
+	 */
+	protected static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * A segment holds 1 &lt;&lt; SEGMENT_BITS cases
+	 * @since 1.2
+	 */
+	protected static final int SEGMENT_BITS = 12;
+
+	/**
+	 * Number of cases in a segment. Only a column with a single segment
+	 * has a shorter segment, which grows up to this size.
+	 * @since 1.2
+	 */
+	protected static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+	/**
+	 * Mask giving the position of a case in its segment
+	 * @since 1.2
+	 */
+	protected static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+	 * Number of cases stored in the column
+	 * @since 1.2
+	 */
+	protected int size;
+
+	/**
+	 * Number of cases there is room for in the segments, the length of the
+	 * single segment or a multiple of SEGMENT_SIZE
+	 * @since 1.2
+	 */
+	protected int capacity;
+
+	/**
+	 * Bit set telling which cases have an undefined value, in segments.
+	 * Bit c is set if case c is undefined, see getBit.
+	 * @since 1.2
+	 */
+	protected long undefined[][];
+
+	/**
+	 * Should the column keep an index of its values for searches?
+	 * @since 1.2
+	 */
+	protected boolean indexed;
+
+	/**
+	 * Number of cases whose values are shared with other copies of the
+	 * column. They must not be changed in place, see copy.
+	 * @since 1.2
+	 */
+	protected transient int sharedSize;
+
+	/**
+	 * Bit set of the segments with shared cases that the column has copied,
+	 * and may change in place. Null if it has copied none, then the arrays
+	 * of segments are shared too.
+	 * @since 1.2
+	 */
+	protected transient long ownedSegments[];
+
+
+	/**
+	* Creates an empty column
+	*
+	* @param capacity the number of cases to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FeatureColumn(int capacity)
+	{
+		size = 0;
+		this.capacity = capacity <= SEGMENT_SIZE ? capacity : (capacity + SEGMENT_MASK) & ~SEGMENT_MASK;
+		undefined = new long[numSegments()][wordsFor(segmentLength())];
+		indexed = false;
+	}
+
+
+	/**
+	* Creates a column of cases read from a file, see ColumnFile
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FeatureColumn(int size, long undefined[])
+	{
+		this(size);
+		this.size = size;
+		for (int w = 0; w < undefined.length; w++)
+		{
+			setWord(this.undefined, w, undefined[w]);
+		}
+	}
+
+
+	/**
+	* Creates an empty column of the specified type
+	*
+	* @param type the feature type of the column, for example Feature.FEATURE_TYPE_INT
+	* @param capacity the number of cases to allocate room for
+	* @return the new column
+	* @throws IllegalTypeException if the type is not valid
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected static FeatureColumn create(short type, int capacity)
+	{
+		capacity = Math.max(capacity, INITIAL_CAPACITY);
+		switch (type)
+		{
+		case Feature.FEATURE_TYPE_STRING:
+			return new StringColumn(capacity);
+
+		case Feature.FEATURE_TYPE_MULTISTRING:
+			return new MultiStringColumn(capacity);
+
+		case Feature.FEATURE_TYPE_INT:
+			return new IntColumn(capacity);
+
+		case Feature.FEATURE_TYPE_FLOAT:
+			return new FloatColumn(capacity);
+
+		case Feature.FEATURE_TYPE_BOOL:
+			return new BoolColumn(capacity);
+
+		default:
+			throw new IllegalTypeException("This type does is unvalid: \"" + type + "\"");
+		}
+	}
+
+
+	/**
+	* Returns the type of the features in this column
+	*
+	* @return the feature type
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected abstract short getFeatureType();
+
+
+	/**
+	* Returns the number of cases in the column
+	*
+	* @return the number of cases
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int size()
+	{
+		return size;
+	}
+
+
+	/**
+	* Is the value of the specified case undefined?
+	*
+	* @param caseNum the number of the case
+	* @return true if the value is undefined, otherwise false
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final boolean isUndefined(int caseNum)
+	{
+		return (undefined[caseNum >>> SEGMENT_BITS][(caseNum & SEGMENT_MASK) >>> 6] & (1L << caseNum)) != 0;
+	}
+
+
+	/**
+	* Appends a value to the end of the column
+	*
+	* @param feat the value to append
+	* @throws IllegalTypeException if the feature is not of the column type
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void add(Feature feat)
+	{
+		checkType(feat);
+		ensureCapacity(size + 1);
+		size++;
+		// The new case is undefined until set. Its bit and value are beyond 
+		// the shared cases, so they are written in place even if the 
+		// segment is shared. The other shared bits of the word are written 
+		// back unchanged.
+		setBit(undefined, size - 1, true);
+		set(size - 1, feat);
+	}
+
+
+	/**
+	* Appends an undefined value to the end of the column
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addUndefined()
+	{
+		ensureCapacity(size + 1);
+		size++;
+		setBit(undefined, size - 1, true);
+		clearValue(size - 1);
+	}
+
+
+	/**
+	* Appends all values of another column of the same type to the end of 
+	* the column, in their order
+	*
+	* @param other the column to append
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addAll(FeatureColumn other)
+	{
+		ensureCapacity(size + other.size());
+		for (int i = 0 ; i < other.size() ; i++ )
+		{
+			add(other.getFeature(i));
+		}
+	}
+
+
+	/**
+	* Replaces the value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @param feat the new value
+	* @throws IllegalTypeException if the feature is not of the column type
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void set(int caseNum, Feature feat)
+	{
+		checkIndex(caseNum);
+		checkType(feat);
+		unshare(caseNum);
+		if (!isUndefined(caseNum))
+		{
+			valueRemoved(caseNum);
+		}
+		if (feat.isUndefined())
+		{
+			setBit(undefined, caseNum, true);
+			clearValue(caseNum);
+		} else
+		{
+			setBit(undefined, caseNum, false);
+			setValue(caseNum, feat);
+			valueAdded(caseNum);
+		}
+	}
+
+
+	/**
+	* Removes the specified case from the column, later cases are shifted
+	* one step down
+	*
+	* @param caseNum the number of the case to remove
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void remove(int caseNum)
+	{
+		checkIndex(caseNum);
+		// All later cases are shifted
+		for (int c = caseNum & ~SEGMENT_MASK; c < sharedSize; c += SEGMENT_SIZE)
+		{
+			unshare(c);
+		}
+		if (!isUndefined(caseNum))
+		{
+			valueRemoved(caseNum);
+		}
+		removeBit(undefined, caseNum, size);
+		removeValue(caseNum);
+		size--;
+	}
+
+
+	/**
+	* Returns a copy of the column to change for a new version of the data. 
+	* The original is not changed any more, searches may go on reading it. 
+	* The copy shares the segments of the values with the original: cases 
+	* added to the copy are stored beyond the cases of the original, which 
+	* never reads them, and changing a case of the original first gives the 
+	* copy a segment of its own, see unshare. Adding a case therefore 
+	* copies no values and changing a case copies one segment. The 
+	* subclasses share their dictionaries, use counts and indexes the same 
+	* way.
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized FeatureColumn copy()
+	{
+		FeatureColumn copy;
+		
+		try
+		{
+			copy = (FeatureColumn) clone();
+		} catch (CloneNotSupportedException e)
+		{
+			throw new InternalError(e.toString());
+		}
+		copy.sharedSize = size;
+		copy.ownedSegments = null;
+		return copy;
+	}
+
+
+	/**
+	* Gives the column a segment of its own for a case, if the case is 
+	* shared, so that the case may be changed
+	*
+	* @param caseNum the number of the case
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final void unshare(int caseNum)
+	{
+		if (caseNum < sharedSize && 
+				(ownedSegments == null || !getBit(ownedSegments, caseNum >>> SEGMENT_BITS)))
+		{
+			copySegment(caseNum >>> SEGMENT_BITS, segmentLength());
+		}
+	}
+
+
+	/**
+	* Replaces a segment by a copy of the specified length. The arrays of 
+	* segments are copied first if they are shared and the segment has 
+	* shared cases.
+	*/
+	private void copySegment(int segment, int length)
+	{
+		if (segment << SEGMENT_BITS < sharedSize)
+		{
+			if (ownedSegments == null)
+			{
+				copySegments(undefined.length);
+				ownedSegments = new long[wordsFor(((sharedSize - 1) >>> SEGMENT_BITS) + 1)];
+			}
+			setBit(ownedSegments, segment, true);
+		}
+		resizeSegment(segment, length);
+	}
+
+
+	/**
+	* Returns the value of the specified case as a Feature
+	*
+	* @param caseNum the number of the case
+	* @return a new Feature holding the value
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Feature getFeature(int caseNum)
+	{
+		checkIndex(caseNum);
+		if (isUndefined(caseNum))
+		{
+			return new Feature((String) null, getFeatureType());
+		}
+		return getDefinedFeature(caseNum);
+	}
+
+
+	/**
+	* Returns the Int value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the value
+	* @throws IllegalTypeException if the column is not of type Int
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long getLong(int caseNum)
+	{
+		throw new IllegalTypeException("Trying to retrieve Int value from non-Int feature.");
+	}
+
+
+	/**
+	* Returns the Float value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the value
+	* @throws IllegalTypeException if the column is not of type Float
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected double getDouble(int caseNum)
+	{
+		throw new IllegalTypeException("Trying to retrieve Float value from non-Float feature.");
+	}
+
+
+	/**
+	* Returns the key of the defined value of the specified case in a 
+	* SortedIndex, for Int, Float and String columns
+	*
+	* @param caseNum the number of the case
+	* @return the key
+	* @throws IllegalTypeException if the column is not of type Int, Float 
+	*		or String
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long getSortKey(int caseNum)
+	{
+		throw new IllegalTypeException("Trying to sort values of a non-sortable feature.");
+	}
+
+
+	/**
+	* Is a key in a SortedIndex a part of the current value of the specified 
+	* case? Used to skip the stale pairs of the index.
+	*
+	* @param caseNum the number of the case
+	* @param key the key of the pair
+	* @return true if the case is defined and its value has the key
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean hasSortKey(int caseNum, long key)
+	{
+		return !isUndefined(caseNum) && getSortKey(caseNum) == key;
+	}
+
+
+	/**
+	* Encodes a searched feature in the form used by the column when 
+	* calculating differences. Called once per search.
+	*
+	* @param searchFeature the searched feature, must not be undefined
+	* @return the encoded search value
+	* @throws IllegalTypeException if the searched feature is not of the column type
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Object encodeSearch(Feature searchFeature)
+	{
+		checkDiffType(searchFeature);
+		return searchFeature;
+	}
+
+
+	/**
+	* Returns the minimum (numerical) value of the column
+	*
+	* @return the minimum value or null if not available
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Object getMinValue()
+	{
+		return null;
+	}
+
+
+	/**
+	* Returns the maximum (numerical) value of the column
+	*
+	* @return the maximum value or null if not available
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Object getMaxValue()
+	{
+		return null;
+	}
+
+
+	/**
+	* Returns all string values used in the column, sorted
+	*
+	* @return an array with all string values used, empty if the column is 
+	*		not a String or MultiString column
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected String[] getUsedStrings()
+	{
+		return new String[0];
+	}
+
+
+	/**
+	* Is the column indexed?
+	*
+	* @return true if the column keeps an index of its values
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean isIndexed()
+	{
+		return indexed;
+	}
+
+
+	/**
+	* Turns the index of the column on or off. The index is built the first
+	* time it is needed and then kept up to date.
+	*
+	* @param indexed true to keep an index of the values
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void setIndexed(boolean indexed)
+	{
+		this.indexed = indexed;
+	}
+
+
+	/**
+	* Removes the cases that a strict search for the specified value would 
+	* disqualify from a bit set of candidate cases. Undefined cases are 
+	* never removed since they are not disqualified by strict searches.
+	*
+	* @param searchKey the searched feature as returned by encodeSearch
+	* @param searchTerm term of the search, CBR.SEARCH_TERM_EQUAL to 
+	*		CBR.SEARCH_TERM_LESS
+	* @param candidates bit set with a bit for each case, changed
+	* @return true if the candidates were filtered, false if the column can 
+	*		not filter the search
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean filter(Object searchKey, int searchTerm, long candidates[])
+	{
+		return false;
+	}
+
+
+	/**
+	* Applies the cases matching a strict search to a bit set of candidate 
+	* cases. For CBR.SEARCH_TERM_NOT_EQUAL the matching cases are removed, 
+	* otherwise all cases but the matching and the undefined are removed.
+	*
+	* @param matching bit set of the cases matching the searched value
+	* @param searchTerm term of the search
+	* @param candidates bit set with a bit for each case, changed
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final void applyFilter(long matching[], int searchTerm, long candidates[])
+	{
+		for (int w = 0; w < candidates.length; w++)
+		{
+			if (searchTerm == CBR.SEARCH_TERM_NOT_EQUAL)
+				candidates[w] &= ~matching[w];
+			else
+				candidates[w] &= matching[w] | getWord(undefined, w);
+		}
+	}
+
+
+	/**
+	* Calculates the difference between a searched feature and the defined
+	* value of the specified case. Same semantics as the difference between
+	* two features used by CBR.
+	*
+	* @param caseNum the number of the case, must not be undefined
+	* @param searchFeature the searched feature, must not be undefined
+	* @param searchKey the searched feature as returned by encodeSearch
+	* @return the difference between the two features, 0.0 means they are equal
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected abstract double diff(int caseNum, Feature searchFeature, Object searchKey);
+
+
+	/**
+	* Makes room for the specified number of cases
+	*
+	* @param capacity the number of cases
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final void ensureCapacity(int capacity)
+	{
+		int numSegments;
+
+		if (capacity <= this.capacity)
+		{
+			return;
+		}
+		if (capacity <= SEGMENT_SIZE)
+		{
+			// The single segment grows
+			capacity = Math.min(SEGMENT_SIZE, Math.max(capacity, this.capacity * 2));
+			copySegment(0, capacity);
+			this.capacity = capacity;
+			return;
+		}
+		if (this.capacity < SEGMENT_SIZE)
+		{
+			copySegment(0, SEGMENT_SIZE);
+		}
+		numSegments = (capacity + SEGMENT_MASK) >>> SEGMENT_BITS;
+		if (numSegments > undefined.length)
+		{
+			copySegments(Math.max(numSegments, undefined.length * 2));
+		}
+		for (int s = Math.max(1, this.capacity >>> SEGMENT_BITS); s < numSegments; s++)
+		{
+			addSegment(s);
+		}
+		this.capacity = numSegments << SEGMENT_BITS;
+	}
+
+
+	/**
+	* Returns the number of segments in use
+	*
+	* @return the number of segments
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final int numSegments()
+	{
+		return capacity <= SEGMENT_SIZE ? 1 : capacity >>> SEGMENT_BITS;
+	}
+
+
+	/**
+	* Returns the number of cases in each segment
+	*
+	* @return the length of the segments
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final int segmentLength()
+	{
+		return Math.min(capacity, SEGMENT_SIZE);
+	}
+
+
+	/**
+	* Replaces the arrays of segments by copies of the specified length, 
+	* referring to the same segments. Subclasses copy the arrays of their 
+	* values too.
+	*
+	* @param length the number of segments to make room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void copySegments(int length)
+	{
+		undefined = java.util.Arrays.copyOf(undefined, length);
+	}
+
+
+	/**
+	* Replaces a segment by a copy of the specified length. Subclasses copy 
+	* the segment of their values too.
+	*
+	* @param segment the number of the segment
+	* @param length the number of cases of the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void resizeSegment(int segment, int length)
+	{
+		undefined[segment] = copyOf(undefined[segment], wordsFor(length));
+	}
+
+
+	/**
+	* Adds a new segment of SEGMENT_SIZE cases after the segments in use. 
+	* Subclasses add a segment of their values too.
+	*
+	* @param segment the number of the new segment
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addSegment(int segment)
+	{
+		undefined[segment] = new long[SEGMENT_SIZE >>> 6];
+	}
+
+
+	/**
+	* Stores a defined value, the type is already checked
+	* @since 1.2
+	*/
+	protected abstract void setValue(int caseNum, Feature feat);
+
+	/**
+	* Clears the value of a case that has become undefined
+	* @since 1.2
+	*/
+	protected abstract void clearValue(int caseNum);
+
+	/**
+	* Removes the value of a case and shifts later values one step down
+	* @since 1.2
+	*/
+	protected abstract void removeValue(int caseNum);
+
+	/**
+	* Returns a new Feature for a defined value
+	* @since 1.2
+	*/
+	protected abstract Feature getDefinedFeature(int caseNum);
+
+	/**
+	* Called when a case gets a defined value, after it is stored. Used to 
+	* keep the statistics of the column up to date.
+	* @since 1.2
+	*/
+	protected void valueAdded(int caseNum)
+	{
+	}
+
+	/**
+	* Called when the defined value of a case is about to be removed or 
+	* replaced. Used to keep the statistics of the column up to date.
+	* @since 1.2
+	*/
+	protected void valueRemoved(int caseNum)
+	{
+	}
+
+
+	/**
+	* Throws an exception if the feature is not of the column type
+	*
+	* @param feat the feature to check
+	* @throws IllegalTypeException if the feature is not of the column type
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final void checkType(Feature feat)
+	{
+		if (feat.getFeatureType() != getFeatureType())
+		{
+			throw new IllegalTypeException("Trying to add value of incorrect type");
+		}
+	}
+
+
+	/**
+	* Throws an exception if the searched feature is not of the column type
+	*
+	* @param searchFeature the feature to check
+	* @throws IllegalTypeException if the feature is not of the column type
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final void checkDiffType(Feature searchFeature)
+	{
+		if (searchFeature.getFeatureType() != getFeatureType())
+		{
+			throw new IllegalTypeException("Impossible to find the difference between two features of different types");
+		}
+	}
+
+
+	/**
+	* Throws an exception if the case number is out of range
+	*
+	* @param caseNum the case number to check
+	* @throws java.lang.ArrayIndexOutOfBoundsException if out of range
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected final void checkIndex(int caseNum)
+	{
+		if (caseNum < 0 || caseNum >= size)
+		{
+			throw new ArrayIndexOutOfBoundsException(caseNum);
+		}
+	}
+
+
+	/*                    */
+	/* Bit set functions  */
+	/*                    */
+	protected static int wordsFor(int bits)
+	{
+		return (bits + 63) >>> 6;
+	}
+
+	protected static void setBit(long bits[], int index, boolean value)
+	{
+		if (value)
+			bits[index >>> 6] |= 1L << index;
+		else
+			bits[index >>> 6] &= ~(1L << index);
+	}
+
+	protected static boolean getBit(long bits[], int index)
+	{
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Same as setBit for a bit set in segments of SEGMENT_SIZE bits
+	 */
+	protected static void setBit(long bits[][], int index, boolean value)
+	{
+		if (value)
+			bits[index >>> SEGMENT_BITS][(index & SEGMENT_MASK) >>> 6] |= 1L << index;
+		else
+			bits[index >>> SEGMENT_BITS][(index & SEGMENT_MASK) >>> 6] &= ~(1L << index);
+	}
+
+	protected static boolean getBit(long bits[][], int index)
+	{
+		return (bits[index >>> SEGMENT_BITS][(index & SEGMENT_MASK) >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns word number word of a bit set in segments, bits 64 * word to
+	 * 64 * word + 63
+	 */
+	protected static long getWord(long bits[][], int word)
+	{
+		return bits[word >>> (SEGMENT_BITS - 6)][word & (SEGMENT_MASK >>> 6)];
+	}
+
+	protected static void setWord(long bits[][], int word, long value)
+	{
+		bits[word >>> (SEGMENT_BITS - 6)][word & (SEGMENT_MASK >>> 6)] = value;
+	}
+
+	/**
+	 * Removes bit number index and shifts all later bits (below size) one step down
+	 */
+	protected static void removeBit(long bits[], int index, int size)
+	{
+		int word = index >>> 6;
+		int lastWord = (size - 1) >>> 6;
+		long low = bits[word] & ((1L << index) - 1);
+		long high = (bits[word] >>> 1) & ~((1L << index) - 1);
+
+		bits[word] = low | high;
+		for (int w = word + 1; w <= lastWord; w++)
+		{
+			bits[w - 1] |= bits[w] << 63;
+			bits[w] >>>= 1;
+		}
+		setBit(bits, size - 1, false);
+	}
+
+	/**
+	 * Same as removeBit for a bit set in segments of SEGMENT_SIZE bits
+	 */
+	protected static void removeBit(long bits[][], int index, int size)
+	{
+		int word = index >>> 6;
+		int lastWord = (size - 1) >>> 6;
+		long first = getWord(bits, word);
+		long low = first & ((1L << index) - 1);
+		long high = (first >>> 1) & ~((1L << index) - 1);
+		long next;
+
+		setWord(bits, word, low | high);
+		for (int w = word + 1; w <= lastWord; w++)
+		{
+			next = getWord(bits, w);
+			setWord(bits, w - 1, getWord(bits, w - 1) | next << 63);
+			setWord(bits, w, next >>> 1);
+		}
+		setBit(bits, size - 1, false);
+	}
+
+	/**
+	 * Returns the first set bit from index from up to (excluding) to, 
+	 * returns to if there is none
+	 */
+	protected static int nextSetBit(long bits[], int from, int to)
+	{
+		int word;
+		long w;
+
+		if (from >= to)
+			return to;
+		word = from >>> 6;
+		w = bits[word] & (-1L << from);
+		while (w == 0)
+		{
+			if (++word >= wordsFor(to))
+				return to;
+			w = bits[word];
+		}
+		return Math.min(to, (word << 6) + Long.numberOfTrailingZeros(w));
+	}
+
+	protected static int countBits(long bits[])
+	{
+		int n = 0;
+
+		for (int w = 0; w < bits.length; w++)
+			n += Long.bitCount(bits[w]);
+		return n;
+	}
+
+	protected static long[] copyOf(long arr[], int length)
+	{
+		long ret[] = new long[length];
+		System.arraycopy(arr, 0, ret, 0, Math.min(arr.length, length));
+		return ret;
+	}
+
+
+	/*                                  */
+	/* Functions for values in segments */
+	/*                                  */
+
+	/**
+	 * Removes value number index and shifts all later values (below size)
+	 * one step down. The last value is left as it was, to be cleared by the
+	 * caller.
+	 */
+	protected static void removeElement(long values[][], int index, int size)
+	{
+		int last = size - 1;
+		int from = index & SEGMENT_MASK;
+
+		for (int s = index >>> SEGMENT_BITS; s < last >>> SEGMENT_BITS; s++)
+		{
+			System.arraycopy(values[s], from + 1, values[s], from, SEGMENT_MASK - from);
+			values[s][SEGMENT_MASK] = values[s + 1][0];
+			from = 0;
+		}
+		System.arraycopy(values[last >>> SEGMENT_BITS], from + 1, values[last >>> SEGMENT_BITS], from, (last & SEGMENT_MASK) - from);
+	}
+
+	protected static void removeElement(double values[][], int index, int size)
+	{
+		int last = size - 1;
+		int from = index & SEGMENT_MASK;
+
+		for (int s = index >>> SEGMENT_BITS; s < last >>> SEGMENT_BITS; s++)
+		{
+			System.arraycopy(values[s], from + 1, values[s], from, SEGMENT_MASK - from);
+			values[s][SEGMENT_MASK] = values[s + 1][0];
+			from = 0;
+		}
+		System.arraycopy(values[last >>> SEGMENT_BITS], from + 1, values[last >>> SEGMENT_BITS], from, (last & SEGMENT_MASK) - from);
+	}
+
+	protected static void removeElement(int values[][], int index, int size)
+	{
+		int last = size - 1;
+		int from = index & SEGMENT_MASK;
+
+		for (int s = index >>> SEGMENT_BITS; s < last >>> SEGMENT_BITS; s++)
+		{
+			System.arraycopy(values[s], from + 1, values[s], from, SEGMENT_MASK - from);
+			values[s][SEGMENT_MASK] = values[s + 1][0];
+			from = 0;
+		}
+		System.arraycopy(values[last >>> SEGMENT_BITS], from + 1, values[last >>> SEGMENT_BITS], from, (last & SEGMENT_MASK) - from);
+	}
+
+	protected static void removeElement(Object values[][], int index, int size)
+	{
+		int last = size - 1;
+		int from = index & SEGMENT_MASK;
+
+		for (int s = index >>> SEGMENT_BITS; s < last >>> SEGMENT_BITS; s++)
+		{
+			System.arraycopy(values[s], from + 1, values[s], from, SEGMENT_MASK - from);
+			values[s][SEGMENT_MASK] = values[s + 1][0];
+			from = 0;
+		}
+		System.arraycopy(values[last >>> SEGMENT_BITS], from + 1, values[last >>> SEGMENT_BITS], from, (last & SEGMENT_MASK) - from);
+	}
+}
@@ -0,0 +1,146 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class calculates the distance between a searched value and the
+ * value of each case for one searched feature. An evaluator is created
+ * once per search with everything that does not depend on the case
+ * (ranges, min- and max-values, encoded search values and so on) already
+ * resolved, see CompiledQuery.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+abstract class FeatureEvaluator
+{
+	/**
+	* Calculates the distance for the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the distance, a decimal number between 0.0 and 1.0 where 1.0 is
+	*		the maximum distance and 0 means exact hit. May also return -1.0
+	*		which means that the feature should be disqualified or -2.0 which
+	*		means the entire case should be disqualified. Same as
+	*		CBR.calculateFeatureDistance.
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	abstract double distance(int caseNum);
+
+
+	/**
+	* Returns the relative cost of a call to distance, 1 for evaluators
+	* that read a single value of a column. Used to choose the order in
+	* which the features are calculated.
+	*
+	* @return the cost
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	int cost()
+	{
+		return 1;
+	}
+
+
+	/**
+	* Can the evaluator give a lower bound of the distance for a range of
+	* values? Used by KDTree.
+	*
+	* @return true if lowerBound may be used
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	boolean hasLowerBound()
+	{
+		return false;
+	}
+
+
+	/**
+	* Returns a distance that is never above the distance of a case with a
+	* value from low to high. Int values are passed as they are and Float
+	* values as Double.doubleToLongBits.
+	*
+	* @param low the lowest value
+	* @param high the highest value
+	* @return the lower bound of the distance
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	double lowerBound(long low, long high)
+	{
+		return 0;
+	}
+
+
+	/**
+	* Returns the distance for a non-numerical feature (String, MultiString
+	* and Bool) from the difference between the searched and the case value.
+	* Only valid for SEARCH_TERM_EQUAL to SEARCH_TERM_LESS and non-logarithmic
+	* scales.
+	*
+	* @param fDiff the difference, 0.0 means equal
+	* @param searchTerm term of search to perform
+	* @param searchScale the scale of the search to perform
+	* @return the distance
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static double nominalDistance(double fDiff, int searchTerm, int searchScale)
+	{
+		switch (searchTerm)
+		{
+		case CBR.SEARCH_TERM_EQUAL:
+			if (fDiff == 0)
+				return 0;
+			break;
+
+		case CBR.SEARCH_TERM_NOT_EQUAL:
+			if (searchScale == CBR.SEARCH_SCALE_STRICT)
+				return fDiff == 0 ? -2 : 0;
+			if (fDiff == 0)
+				return 1;
+			if (searchScale == CBR.SEARCH_SCALE_FLAT)
+				return 0;
+			return 1 - fDiff;
+
+		case CBR.SEARCH_TERM_GREATER_OR_EQUAL:
+			if (fDiff >= 0)
+				return 0;
+			break;
+
+		case CBR.SEARCH_TERM_GREATER:
+			if (fDiff > 0)
+				return 0;
+			break;
+
+		case CBR.SEARCH_TERM_LESS_OR_EQUAL:
+			if (fDiff <= 0)
+				return 0;
+			break;
+
+		case CBR.SEARCH_TERM_LESS:
+			if (fDiff < 0)
+				return 0;
+			break;
+		}
+		// Not a hit
+		if (searchScale == CBR.SEARCH_SCALE_STRICT)
+			return -2;
+		if (searchScale == CBR.SEARCH_SCALE_FLAT)
+			return 1;
+		// Fuzzy linear, same as an equal search
+		return fDiff == 0 ? 0 : fDiff;
+	}
+}
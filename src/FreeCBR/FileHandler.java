@@ -107,7 +107,9 @@ class FileHandler implements java.io.Serializable
 	
 	
 	/**
-	* Reads the file and stores the content in memory
+	* Reads the file and stores the content in memory. A text file is 
+	* parsed by TextLoader, in parallel chunks if it is large. A binary file 
+	* of columns is mapped into memory instead, see ColumnFile.
 	* 
 	* @return the data that is read
 	* @throws java.io.IOException
@@ -118,59 +120,26 @@ class FileHandler implements java.io.Serializable
 	protected CBRdata read()
 		throws java.io.IOException
 	{
-		String line;
-		long linenum = 0;
-		CBRdata data = null;
-		String featureNames[] =  null;
-		String featureTypeNames[] = null;
-		BufferedReader in;
+		TextLoader loader;
+		CBRdata data;
 		
 		if (verbose)
 		{
 			log.write("Reading datafile \"" + this.datafile + "\".");
 		}
 		
-		in = new BufferedReader(new FileReader(datafile));
-		while (in.ready())
+		if (ColumnFile.isColumnFile(datafile))
 		{
-			line = in.readLine();
-			if (linenum == 0)
-			{
-				// First line in file - headings (or feature names)
-				featureNames = FString.split(line, "\t");
-			} else if (linenum == 1)
-			{
-				// Second line in file - data types
-				featureTypeNames = FString.split(line, "\t");
-				try
-				{
-					data = new CBRdata(featureNames, featureTypeNames);
-				} catch (ArrayIndexOutOfBoundsException e)
-				{
-					throw new java.io.IOException("Error when reading file, not equal number of properties in names and types.");
-				} catch (Exception e)
-				{
-					throw new java.io.IOException("Error when reading file, error message:" + e.toString());
-				}
-			} else	// linenum > 1
-			{
-				// Add the case described in this line to the dataset
-				try
-				{
-					data.addCase(line);
-				} catch (Exception e)
-				{
-					log.write("Unable to add case to set, case #" + (linenum - 1) + ", error message: " + e.toString());
-				}
-			}
-			linenum++;
+			return ColumnFile.read(datafile);
 		}
-		in.close();
 		
-		// Create an empty data set if the file was empty
-		if (data == null)
+		loader = new TextLoader(log);
+		data = loader.read(datafile);
+		if (verbose)
 		{
-			data = new CBRdata();
+			log.write("Read " + data.getNumCases() + " cases, " + loader.getBytesRead() + " bytes in " + 
+					  loader.getNumChunks() + " chunks in " + loader.getMillis() + " ms (" + 
+					  Math.round(loader.getMegabytesPerSecond()) + " MB/s).");
 		}
 		
 		return data;
@@ -178,7 +147,7 @@ class FileHandler implements java.io.Serializable
 	
 	
 	/**
-	* Saves the data to a file
+	* Saves the data to a tab separated text file
 	* 
 	* @param data the data to save
 	* @param filename the name of the file in which to store the data. 
@@ -192,7 +161,27 @@ class FileHandler implements java.io.Serializable
 	protected void save(CBRdata data, String filename)
 		throws java.io.IOException
 	{
-		PrintWriter out;
+		save(data, filename, false);
+	}
+	
+	/**
+	* Saves the data to a file. The file is replaced atomically, a crash 
+	* while saving leaves the old file, see AtomicFile.
+	* 
+	* @param data the data to save
+	* @param filename the name of the file in which to store the data. 
+	*		If null then store in current file
+	* @param binary true to save as a binary file of columns, see 
+	*		ColumnFile, false to save as a tab separated text file
+	* @throws java.io.IOException
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void save(CBRdata data, String filename, boolean binary)
+		throws java.io.IOException
+	{
+		AtomicFile file;
 	
 		if (data == null)
 		{
@@ -208,13 +197,80 @@ class FileHandler implements java.io.Serializable
 			this.datafile = filename;
 		}
 		
-		if (verbose)
+		file = write(data, this.datafile, binary);
+		try
+		{
+			file.commit();
+		} finally
 		{
-			log.write("Saving to datafile \"" + this.datafile + "\".");
+			file.discard();
 		}
+	}
+	
+	/**
+	* Writes the data to a temporary file that replaces the file when it is 
+	*	committed. The temporary file is forced to disk and verified against 
+	*	its checksum before it is returned. The data is only read, so it may 
+	*	be a snapshot that is written while the set is changed.
+	* 
+	* @param data the data to write
+	* @param filename the name of the file to replace
+	* @param binary true to write a binary file of columns, see 
+	*		ColumnFile, false to write a tab separated text file
+	* @return the written file, not yet committed
+	* @throws java.io.IOException if the file can not be written or verified, 
+	*		the temporary file is then removed
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected AtomicFile write(CBRdata data, String filename, boolean binary)
+		throws java.io.IOException
+	{
+		AtomicFile file;
+		PrintWriter out;
+		boolean written = false;
 		
-		out = new PrintWriter(new BufferedWriter(new FileWriter(datafile)));
+		if (verbose)
+		{
+			log.write("Saving to datafile \"" + filename + "\".");
+		}
 		
+		file = new AtomicFile(filename);
+		try
+		{
+			if (binary)
+			{
+				ColumnFile.write(data, new DataOutputStream(file));
+			} else
+			{
+				// The platform default charset, as TextLoader reads it
+				out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(file)));
+				writeText(data, out);
+				out.flush();
+				if (out.checkError())
+				{
+					throw new IOException("Error when writing file \"" + filename + "\".");
+				}
+			}
+			file.finish();
+			written = true;
+		} finally
+		{
+			if (!written)
+			{
+				file.discard();
+			}
+		}
+		return file;
+	}
+	
+	
+	/**
+	* Prints the data as a tab separated text file
+	*/
+	private static void writeText(CBRdata data, PrintWriter out)
+	{
 		// First print feature names
 		for ( int propnum = 0 ; propnum < data.getNumFeatures() ; propnum++ )
 		{
@@ -256,8 +312,5 @@ class FileHandler implements java.io.Serializable
 				}
 			}
 		}
-		
-		out.close();
-		out = null;
 	}
 }
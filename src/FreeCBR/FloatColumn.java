@@ -0,0 +1,481 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class stores the values of a Float feature in a primitive array
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class FloatColumn extends FeatureColumn
+{
+	/**
+	 * The values in segments, undefined values are stored as 0
+	 * @since 1.2
+	 */
+	private double values[][];
+	
+	/**
+	 * Number of defined values
+	 * @since 1.2
+	 */
+	private int numDefined;
+	
+	/**
+	 * The minimum defined value, valid if statsValid and numDefined > 0
+	 * @since 1.2
+	 */
+	private double minValue;
+	
+	/**
+	 * The maximum defined value, valid if statsValid and numDefined > 0
+	 * @since 1.2
+	 */
+	private double maxValue;
+	
+	/**
+	 * Are minValue and maxValue up to date? They are only recalculated when 
+	 * the current minimum or maximum value is removed.
+	 * @since 1.2
+	 */
+	private boolean statsValid;
+	
+	/**
+	 * Number of defined values that are NaN or infinite
+	 * @since 1.2
+	 */
+	private int numNonFinite;
+	
+	/**
+	 * Sorted index of the values, only used when the column is indexed. 
+	 * Null until it is needed, then it is kept up to date.
+	 * @since 1.2
+	 */
+	private transient SortedIndex sortedIndex;
+
+
+	/**
+	* Creates an empty column
+	*
+	* @param capacity the number of cases to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FloatColumn(int capacity)
+	{
+		super(capacity);
+		values = new double[numSegments()][segmentLength()];
+		numDefined = 0;
+		statsValid = true;
+		numNonFinite = 0;
+	}
+
+
+	/**
+	* Creates a column of cases read from a file, see ColumnFile, whose 
+	* values are kept by a subclass
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @param minValue the minimum defined value
+	* @param maxValue the maximum defined value
+	* @param numNonFinite number of defined values that are NaN or infinite
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FloatColumn(int size, long undefined[], double minValue, double maxValue, int numNonFinite)
+	{
+		super(size, undefined);
+		numDefined = size - countBits(undefined);
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		statsValid = true;
+		this.numNonFinite = numNonFinite;
+	}
+
+
+	protected short getFeatureType()
+	{
+		return Feature.FEATURE_TYPE_FLOAT;
+	}
+
+
+	protected double getDouble(int caseNum)
+	{
+		return values[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK];
+	}
+
+
+	protected long getSortKey(int caseNum)
+	{
+		return SortedIndex.floatKey(getDouble(caseNum));
+	}
+
+
+	/**
+	* Appends a defined value to the end of the column, same as add but 
+	* without a Feature
+	*
+	* @param value the value to append
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addDouble(double value)
+	{
+		ensureCapacity(size + 1);
+		size++;
+		setBit(undefined, size - 1, false);
+		values[(size - 1) >>> SEGMENT_BITS][(size - 1) & SEGMENT_MASK] = value;
+		valueAdded(size - 1);
+	}
+
+
+	protected void addAll(FeatureColumn other)
+	{
+		ensureCapacity(size + other.size());
+		for (int i = 0 ; i < other.size() ; i++ )
+		{
+			if (other.isUndefined(i))
+			{
+				addUndefined();
+			} else
+			{
+				addDouble(other.getDouble(i));
+			}
+		}
+	}
+
+
+	protected Object getMinValue()
+	{
+		if (numDefined == 0)
+		{
+			return null;
+		}
+		updateStatistics();
+		return Double.valueOf(minValue);
+	}
+
+
+	protected Object getMaxValue()
+	{
+		if (numDefined == 0)
+		{
+			return null;
+		}
+		updateStatistics();
+		return Double.valueOf(maxValue);
+	}
+
+
+	protected double diff(int caseNum, Feature searchFeature, Object searchKey)
+	{
+		return getDouble(caseNum) - searchFeature.getFloatValue();
+	}
+
+
+	protected void copySegments(int length)
+	{
+		super.copySegments(length);
+		values = java.util.Arrays.copyOf(values, length);
+	}
+
+
+	protected void resizeSegment(int segment, int length)
+	{
+		super.resizeSegment(segment, length);
+		values[segment] = java.util.Arrays.copyOf(values[segment], length);
+	}
+
+
+	protected void addSegment(int segment)
+	{
+		super.addSegment(segment);
+		values[segment] = new double[SEGMENT_SIZE];
+	}
+
+
+	protected synchronized FeatureColumn copy()
+	{
+		FloatColumn copy = (FloatColumn) super.copy();
+		
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+	/**
+	* Returns a copy of the column with the values in segments of its own, 
+	* used to copy a column whose values are kept elsewhere by a subclass
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected FloatColumn copyValues()
+	{
+		FloatColumn copy = new FloatColumn(Math.max(size, INITIAL_CAPACITY));
+		
+		copy.addAll(this);
+		copy.indexed = indexed;
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+
+	/**
+	* Is any defined value NaN or infinite?
+	*
+	* @return true if a value is NaN or infinite
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean hasNonFinite()
+	{
+		return numNonFinite > 0;
+	}
+
+
+	protected void setIndexed(boolean indexed)
+	{
+		super.setIndexed(indexed);
+		sortedIndex = null;
+	}
+
+
+	/**
+	* Builds the index the first time it is needed
+	*
+	* @return the index
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized SortedIndex getSortedIndex()
+	{
+		if (sortedIndex == null)
+		{
+			sortedIndex = new SortedIndex(numDefined);
+			for (int c = 0; c < size; c++)
+			{
+				if (!isUndefined(c))
+				{
+					sortedIndex.add(getSortKey(c), c);
+				}
+			}
+			sortedIndex.sortTail();
+		}
+		return sortedIndex;
+	}
+
+
+	/**
+	* Filters the candidates with the sorted index, if the column is indexed. 
+	* Not done if a value or the searched value is NaN or infinite since 
+	* the search compares the sign of value - target, which then is not the 
+	* same as comparing the values.
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean filter(Object searchKey, int searchTerm, long candidates[])
+	{
+		double target;
+		long key;
+		long low = Long.MIN_VALUE;
+		long high = Long.MAX_VALUE;
+		long matching[];
+		
+		if (!indexed || numNonFinite > 0)
+		{
+			return false;
+		}
+		target = ((Feature) searchKey).getFloatValue();
+		if (Double.isNaN(target) || Double.isInfinite(target))
+		{
+			return false;
+		}
+		key = SortedIndex.floatKey(target);
+		switch (searchTerm)
+		{
+		case CBR.SEARCH_TERM_EQUAL:
+		case CBR.SEARCH_TERM_NOT_EQUAL:
+			low = key;
+			high = key;
+			break;
+			
+		case CBR.SEARCH_TERM_GREATER_OR_EQUAL:
+			low = key;
+			break;
+			
+		case CBR.SEARCH_TERM_GREATER:
+			// The next key belongs to the next larger value
+			low = key + 1;
+			break;
+			
+		case CBR.SEARCH_TERM_LESS_OR_EQUAL:
+			high = key;
+			break;
+			
+		case CBR.SEARCH_TERM_LESS:
+			high = key - 1;
+			break;
+			
+		default:
+			return false;
+		}
+		matching = new long[candidates.length];
+		getSortedIndex().mark(low, high, matching, this);
+		applyFilter(matching, searchTerm, candidates);
+		return true;
+	}
+
+
+	protected void setValue(int caseNum, Feature feat)
+	{
+		values[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = feat.getFloatValue();
+	}
+
+
+	protected void clearValue(int caseNum)
+	{
+		values[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = 0;
+	}
+
+
+	protected void removeValue(int caseNum)
+	{
+		removeElement(values, caseNum, size);
+		clearValue(size - 1);
+		if (sortedIndex != null)
+		{
+			sortedIndex.removeCase(caseNum);
+		}
+	}
+
+
+	protected void valueAdded(int caseNum)
+	{
+		double value = getDouble(caseNum);
+		
+		numDefined++;
+		if (Double.isNaN(value) || Double.isInfinite(value))
+		{
+			numNonFinite++;
+		}
+		if (sortedIndex != null)
+		{
+			sortedIndex.add(SortedIndex.floatKey(value), caseNum);
+		}
+		if (!statsValid)
+		{
+			return;
+		}
+		if (numDefined == 1)
+		{
+			minValue = value;
+			maxValue = value;
+		} else
+		{
+			if (value < minValue)
+			{
+				minValue = value;
+			}
+			if (value > maxValue)
+			{
+				maxValue = value;
+			}
+		}
+	}
+
+
+	protected void valueRemoved(int caseNum)
+	{
+		double value = getDouble(caseNum);
+		
+		numDefined--;
+		if (Double.isNaN(value) || Double.isInfinite(value))
+		{
+			numNonFinite--;
+		}
+		if (sortedIndex != null)
+		{
+			sortedIndex.remove(caseNum, 1, this);
+		}
+		// Only removing the current minimum or maximum value requires a rescan
+		if (value == minValue ||
+				value == maxValue ||
+				Double.isNaN(value))
+		{
+			statsValid = false;
+		}
+	}
+	
+	
+	/**
+	* Recalculates the minimum and maximum values if needed
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized void updateStatistics()
+	{
+		boolean found = false;
+		double value;
+		
+		if (statsValid)
+		{
+			return;
+		}
+		for (int c = 0; c < size; c++)
+		{
+			if (isUndefined(c))
+			{
+				continue;
+			}
+			value = getDouble(c);
+			if (!found)
+			{
+				minValue = value;
+				maxValue = value;
+				found = true;
+			} else
+			{
+				if (value < minValue)
+				{
+					minValue = value;
+				}
+				if (value > maxValue)
+				{
+					maxValue = value;
+				}
+			}
+		}
+		statsValid = true;
+	}
+
+
+	protected Feature getDefinedFeature(int caseNum)
+	{
+		return new Feature(getDouble(caseNum));
+	}
+}
@@ -0,0 +1,155 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of Float features. The searched value
+ * and the range of the column are resolved when it is created.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class FloatEvaluator extends FeatureEvaluator
+{
+	private final FloatColumn column;
+	private final int searchTerm;
+	private final int searchScale;
+	/** The searched value */
+	private final double target;
+	/** The max-value for SEARCH_TERM_MAX and the min-value for SEARCH_TERM_MIN */
+	private final double extreme;
+	/** Range of the feature */
+	private final double range;
+	/** Range of the feature multiplied by the infinity constant */
+	private final double corrRange;
+
+	FloatEvaluator(FloatColumn column, int searchTerm, int searchScale, double target,
+				   double extreme, double range, double corrRange)
+	{
+		this.column = column;
+		this.searchTerm = searchTerm;
+		this.searchScale = searchScale;
+		this.target = target;
+		this.extreme = extreme;
+		this.range = range;
+		this.corrRange = corrRange;
+	}
+
+	double distance(int caseNum)
+	{
+		double value;
+		double fDiff;
+		boolean hit;
+
+		if (column.isUndefined(caseNum))
+			return 1;
+		value = column.getDouble(caseNum);
+
+		switch (searchTerm)
+		{
+		case CBR.SEARCH_TERM_MAX:
+			return extremeDistance(extreme - value);
+
+		case CBR.SEARCH_TERM_MIN:
+			return extremeDistance(value - extreme);
+
+		case CBR.SEARCH_TERM_NOT_EQUAL:
+			fDiff = value - target;
+			if (searchScale == CBR.SEARCH_SCALE_STRICT)
+				return fDiff == 0 ? -2 : 0;
+			if (fDiff == 0)
+				return 1;
+			if (searchScale == CBR.SEARCH_SCALE_FLAT)
+				return 0;
+			if (corrRange == 0)
+				return 0;
+			return 1 - Math.min(1, Math.abs(fDiff)/range);
+
+		case CBR.SEARCH_TERM_EQUAL:
+			fDiff = value - target;
+			hit = fDiff == 0;
+			break;
+
+		case CBR.SEARCH_TERM_GREATER_OR_EQUAL:
+			fDiff = value - target;
+			hit = fDiff >= 0;
+			break;
+
+		case CBR.SEARCH_TERM_GREATER:
+			fDiff = value - target;
+			hit = fDiff > 0;
+			break;
+
+		case CBR.SEARCH_TERM_LESS_OR_EQUAL:
+			fDiff = value - target;
+			hit = fDiff <= 0;
+			break;
+
+		default:	// CBR.SEARCH_TERM_LESS
+			fDiff = value - target;
+			hit = fDiff < 0;
+			break;
+		}
+		if (hit)
+			return 0;
+		if (searchScale == CBR.SEARCH_SCALE_STRICT)
+			return -2;
+		if (searchScale == CBR.SEARCH_SCALE_FLAT)
+			return 1;
+		// Fuzzy linear, same as an equal search
+		if (fDiff == 0)
+			return 0;
+		if (corrRange == 0)
+			return 1;
+		return Math.min(1, Math.abs(fDiff)/corrRange);
+	}
+
+	/**
+	 * Only for fuzzy linear equality, when the values, the searched value 
+	 * and the corrected range are finite and the corrected range is not 
+	 * negative
+	 */
+	boolean hasLowerBound()
+	{
+		return searchTerm == CBR.SEARCH_TERM_EQUAL &&
+			   searchScale == CBR.SEARCH_SCALE_FUZZY_LINEAR &&
+			   corrRange >= 0 && !Double.isInfinite(corrRange) &&
+			   !Double.isNaN(target) && !Double.isInfinite(target) &&
+			   !column.hasNonFinite();
+	}
+
+	double lowerBound(long low, long high)
+	{
+		double lowValue = Double.longBitsToDouble(low);
+		double highValue = Double.longBitsToDouble(high);
+		double fDiff;
+
+		// Same calculation as distance for the value in the range closest to the target
+		if (target < lowValue)
+			fDiff = lowValue - target;
+		else if (target > highValue)
+			fDiff = highValue - target;
+		else
+			return 0;
+		if (fDiff == 0)
+			return 0;
+		if (corrRange == 0)
+			return 1;
+		return Math.min(1, Math.abs(fDiff)/corrRange);
+	}
+
+	private double extremeDistance(double floatDiff)
+	{
+		if (searchScale == CBR.SEARCH_SCALE_STRICT)
+			return floatDiff == 0 ? 0 : -2;
+		if (searchScale == CBR.SEARCH_SCALE_FLAT)
+			return floatDiff == 0 ? 0 : 1;
+		if (corrRange == 0)
+			return floatDiff == 0 ? 0 : 1;
+		return floatDiff/corrRange;
+	}
+}
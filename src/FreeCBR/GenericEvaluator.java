@@ -0,0 +1,49 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is a FeatureEvaluator that calls CBR.calculateFeatureDistance
+ * for each case. It is used for unknown terms and scales and when the
+ * search is verbose.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class GenericEvaluator extends FeatureEvaluator
+{
+	private final CBR cbr;
+	private final FeatureColumn column;
+	private final Feature searchFeature;
+	private final Object searchKey;
+	private final int searchTerm;
+	private final int searchScale;
+	private final int featureNum;
+
+	GenericEvaluator(CBR cbr, FeatureColumn column, Feature searchFeature, Object searchKey,
+					 int searchTerm, int searchScale, int featureNum)
+	{
+		this.cbr = cbr;
+		this.column = column;
+		this.searchFeature = searchFeature;
+		this.searchKey = searchKey;
+		this.searchTerm = searchTerm;
+		this.searchScale = searchScale;
+		this.featureNum = featureNum;
+	}
+
+	double distance(int caseNum)
+	{
+		return cbr.calculateFeatureDistance(column, caseNum, searchFeature, searchKey,
+											searchTerm, searchScale, featureNum);
+	}
+
+	int cost()
+	{
+		return 8;
+	}
+}
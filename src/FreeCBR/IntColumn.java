@@ -0,0 +1,466 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class stores the values of an Int feature in a primitive array
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class IntColumn extends FeatureColumn
+{
+	/**
+	 * The values in segments, undefined values are stored as 0
+	 * @since 1.2
+	 */
+	private long values[][];
+	
+	/**
+	 * Number of defined values
+	 * @since 1.2
+	 */
+	private int numDefined;
+	
+	/**
+	 * The minimum defined value, valid if statsValid and numDefined > 0
+	 * @since 1.2
+	 */
+	private long minValue;
+	
+	/**
+	 * The maximum defined value, valid if statsValid and numDefined > 0
+	 * @since 1.2
+	 */
+	private long maxValue;
+	
+	/**
+	 * Are minValue and maxValue up to date? They are only recalculated when 
+	 * the current minimum or maximum value is removed.
+	 * @since 1.2
+	 */
+	private boolean statsValid;
+	
+	/**
+	 * Sorted index of the values, only used when the column is indexed. 
+	 * Null until it is needed, then it is kept up to date.
+	 * @since 1.2
+	 */
+	private transient SortedIndex sortedIndex;
+
+
+	/**
+	* Creates an empty column
+	*
+	* @param capacity the number of cases to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected IntColumn(int capacity)
+	{
+		super(capacity);
+		values = new long[numSegments()][segmentLength()];
+		numDefined = 0;
+		statsValid = true;
+	}
+
+
+	/**
+	* Creates a column of cases read from a file, see ColumnFile, whose 
+	* values are kept by a subclass
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @param minValue the minimum defined value
+	* @param maxValue the maximum defined value
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected IntColumn(int size, long undefined[], long minValue, long maxValue)
+	{
+		super(size, undefined);
+		numDefined = size - countBits(undefined);
+		this.minValue = minValue;
+		this.maxValue = maxValue;
+		statsValid = true;
+	}
+
+
+	protected short getFeatureType()
+	{
+		return Feature.FEATURE_TYPE_INT;
+	}
+
+
+	protected long getLong(int caseNum)
+	{
+		return values[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK];
+	}
+
+
+	protected long getSortKey(int caseNum)
+	{
+		return getLong(caseNum);
+	}
+
+
+	/**
+	* Appends a defined value to the end of the column, same as add but 
+	* without a Feature
+	*
+	* @param value the value to append
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addLong(long value)
+	{
+		ensureCapacity(size + 1);
+		size++;
+		setBit(undefined, size - 1, false);
+		values[(size - 1) >>> SEGMENT_BITS][(size - 1) & SEGMENT_MASK] = value;
+		valueAdded(size - 1);
+	}
+
+
+	protected void addAll(FeatureColumn other)
+	{
+		ensureCapacity(size + other.size());
+		for (int i = 0 ; i < other.size() ; i++ )
+		{
+			if (other.isUndefined(i))
+			{
+				addUndefined();
+			} else
+			{
+				addLong(other.getLong(i));
+			}
+		}
+	}
+
+
+	protected Object getMinValue()
+	{
+		if (numDefined == 0)
+		{
+			return null;
+		}
+		updateStatistics();
+		return Long.valueOf(minValue);
+	}
+
+
+	protected Object getMaxValue()
+	{
+		if (numDefined == 0)
+		{
+			return null;
+		}
+		updateStatistics();
+		return Long.valueOf(maxValue);
+	}
+
+
+	protected double diff(int caseNum, Feature searchFeature, Object searchKey)
+	{
+		return getLong(caseNum) - searchFeature.getIntValue();
+	}
+
+
+	protected void copySegments(int length)
+	{
+		super.copySegments(length);
+		values = java.util.Arrays.copyOf(values, length);
+	}
+
+
+	protected void resizeSegment(int segment, int length)
+	{
+		super.resizeSegment(segment, length);
+		values[segment] = java.util.Arrays.copyOf(values[segment], length);
+	}
+
+
+	protected void addSegment(int segment)
+	{
+		super.addSegment(segment);
+		values[segment] = new long[SEGMENT_SIZE];
+	}
+
+
+	protected synchronized FeatureColumn copy()
+	{
+		IntColumn copy = (IntColumn) super.copy();
+		
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+	/**
+	* Returns a copy of the column with the values in segments of its own, 
+	* used to copy a column whose values are kept elsewhere by a subclass
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected IntColumn copyValues()
+	{
+		IntColumn copy = new IntColumn(Math.max(size, INITIAL_CAPACITY));
+		
+		copy.addAll(this);
+		copy.indexed = indexed;
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+
+	protected void setIndexed(boolean indexed)
+	{
+		super.setIndexed(indexed);
+		sortedIndex = null;
+	}
+
+
+	/**
+	* Builds the index the first time it is needed
+	*
+	* @return the index
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized SortedIndex getSortedIndex()
+	{
+		if (sortedIndex == null)
+		{
+			sortedIndex = new SortedIndex(numDefined);
+			for (int c = 0; c < size; c++)
+			{
+				if (!isUndefined(c))
+				{
+					sortedIndex.add(getSortKey(c), c);
+				}
+			}
+			sortedIndex.sortTail();
+		}
+		return sortedIndex;
+	}
+
+
+	/**
+	* Filters the candidates with the sorted index, if the column is indexed
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean filter(Object searchKey, int searchTerm, long candidates[])
+	{
+		long target;
+		long low = Long.MIN_VALUE;
+		long high = Long.MAX_VALUE;
+		long matching[];
+		
+		if (!indexed)
+		{
+			return false;
+		}
+		target = ((Feature) searchKey).getIntValue();
+		switch (searchTerm)
+		{
+		case CBR.SEARCH_TERM_EQUAL:
+		case CBR.SEARCH_TERM_NOT_EQUAL:
+			low = target;
+			high = target;
+			break;
+			
+		case CBR.SEARCH_TERM_GREATER_OR_EQUAL:
+			low = target;
+			break;
+			
+		case CBR.SEARCH_TERM_GREATER:
+			if (target == Long.MAX_VALUE)
+				high = target - 1;	// Nothing is greater
+			else
+				low = target + 1;
+			break;
+			
+		case CBR.SEARCH_TERM_LESS_OR_EQUAL:
+			high = target;
+			break;
+			
+		case CBR.SEARCH_TERM_LESS:
+			if (target == Long.MIN_VALUE)
+				low = target + 1;	// Nothing is less
+			else
+				high = target - 1;
+			break;
+			
+		default:
+			return false;
+		}
+		if (searchTerm != CBR.SEARCH_TERM_EQUAL && 
+				searchTerm != CBR.SEARCH_TERM_NOT_EQUAL && 
+				numDefined > 0)
+		{
+			// The search compares the sign of value - target, which is not 
+			// the same as comparing the values if the difference overflows
+			updateStatistics();
+			if (overflows(minValue, target) || overflows(maxValue, target))
+			{
+				return false;
+			}
+		}
+		matching = new long[candidates.length];
+		getSortedIndex().mark(low, high, matching, this);
+		applyFilter(matching, searchTerm, candidates);
+		return true;
+	}
+	
+	
+	/**
+	* Does a - b overflow?
+	*/
+	protected static boolean overflows(long a, long b)
+	{
+		return ((a ^ b) & (a ^ (a - b))) < 0;
+	}
+
+
+	protected void setValue(int caseNum, Feature feat)
+	{
+		values[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = feat.getIntValue();
+	}
+
+
+	protected void clearValue(int caseNum)
+	{
+		values[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = 0;
+	}
+
+
+	protected void removeValue(int caseNum)
+	{
+		removeElement(values, caseNum, size);
+		clearValue(size - 1);
+		if (sortedIndex != null)
+		{
+			sortedIndex.removeCase(caseNum);
+		}
+	}
+
+
+	protected void valueAdded(int caseNum)
+	{
+		long value = getLong(caseNum);
+		
+		numDefined++;
+		if (sortedIndex != null)
+		{
+			sortedIndex.add(value, caseNum);
+		}
+		if (!statsValid)
+		{
+			return;
+		}
+		if (numDefined == 1)
+		{
+			minValue = value;
+			maxValue = value;
+		} else
+		{
+			if (value < minValue)
+			{
+				minValue = value;
+			}
+			if (value > maxValue)
+			{
+				maxValue = value;
+			}
+		}
+	}
+
+
+	protected void valueRemoved(int caseNum)
+	{
+		long value = getLong(caseNum);
+		
+		numDefined--;
+		if (sortedIndex != null)
+		{
+			sortedIndex.remove(caseNum, 1, this);
+		}
+		// Only removing the current minimum or maximum value requires a rescan
+		if (value == minValue ||
+				value == maxValue)
+		{
+			statsValid = false;
+		}
+	}
+	
+	
+	/**
+	* Recalculates the minimum and maximum values if needed
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized void updateStatistics()
+	{
+		boolean found = false;
+		long value;
+		
+		if (statsValid)
+		{
+			return;
+		}
+		for (int c = 0; c < size; c++)
+		{
+			if (isUndefined(c))
+			{
+				continue;
+			}
+			value = getLong(c);
+			if (!found)
+			{
+				minValue = value;
+				maxValue = value;
+				found = true;
+			} else
+			{
+				if (value < minValue)
+				{
+					minValue = value;
+				}
+				if (value > maxValue)
+				{
+					maxValue = value;
+				}
+			}
+		}
+		statsValid = true;
+	}
+
+
+	protected Feature getDefinedFeature(int caseNum)
+	{
+		return new Feature(getLong(caseNum));
+	}
+}
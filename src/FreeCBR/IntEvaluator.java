@@ -0,0 +1,166 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of Int features. The searched value
+ * and the range of the column are resolved when it is created.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class IntEvaluator extends FeatureEvaluator
+{
+	private final IntColumn column;
+	private final int searchTerm;
+	private final int searchScale;
+	/** The searched value */
+	private final long target;
+	/** The searched value used by fuzzy greater/less, adjusted +1/-1 */
+	private final long linearTarget;
+	/** The max-value for SEARCH_TERM_MAX and the min-value for SEARCH_TERM_MIN */
+	private final long extreme;
+	/** Range of the feature */
+	private final double range;
+	/** Range of the feature multiplied by the infinity constant */
+	private final double corrRange;
+
+	IntEvaluator(IntColumn column, int searchTerm, int searchScale, long target,
+				 long extreme, double range, double corrRange)
+	{
+		this.column = column;
+		this.searchTerm = searchTerm;
+		this.searchScale = searchScale;
+		this.target = target;
+		if (searchTerm == CBR.SEARCH_TERM_GREATER)
+			this.linearTarget = target + 1;
+		else if (searchTerm == CBR.SEARCH_TERM_LESS)
+			this.linearTarget = target - 1;
+		else
+			this.linearTarget = target;
+		this.extreme = extreme;
+		this.range = range;
+		this.corrRange = corrRange;
+	}
+
+	double distance(int caseNum)
+	{
+		long value;
+		double fDiff;
+		boolean hit;
+
+		if (column.isUndefined(caseNum))
+			return 1;
+		value = column.getLong(caseNum);
+
+		switch (searchTerm)
+		{
+		case CBR.SEARCH_TERM_MAX:
+			return extremeDistance(extreme - value);
+
+		case CBR.SEARCH_TERM_MIN:
+			return extremeDistance(value - extreme);
+
+		case CBR.SEARCH_TERM_NOT_EQUAL:
+			fDiff = value - target;
+			if (searchScale == CBR.SEARCH_SCALE_STRICT)
+				return fDiff == 0 ? -2 : 0;
+			if (fDiff == 0)
+				return 1;
+			if (searchScale == CBR.SEARCH_SCALE_FLAT)
+				return 0;
+			if (corrRange == 0)
+				return 0;
+			return 1 - Math.min(1, Math.abs(fDiff)/range);
+
+		case CBR.SEARCH_TERM_EQUAL:
+			fDiff = value - target;
+			hit = fDiff == 0;
+			break;
+
+		case CBR.SEARCH_TERM_GREATER_OR_EQUAL:
+			fDiff = value - target;
+			hit = fDiff >= 0;
+			break;
+
+		case CBR.SEARCH_TERM_GREATER:
+			fDiff = value - target;
+			hit = fDiff > 0;
+			break;
+
+		case CBR.SEARCH_TERM_LESS_OR_EQUAL:
+			fDiff = value - target;
+			hit = fDiff <= 0;
+			break;
+
+		default:	// CBR.SEARCH_TERM_LESS
+			fDiff = value - target;
+			hit = fDiff < 0;
+			break;
+		}
+		if (hit)
+			return 0;
+		if (searchScale == CBR.SEARCH_SCALE_STRICT)
+			return -2;
+		if (searchScale == CBR.SEARCH_SCALE_FLAT)
+			return 1;
+		// Fuzzy linear, same as an equal search for the (adjusted) value
+		fDiff = value - linearTarget;
+		if (fDiff == 0)
+			return 0;
+		if (corrRange == 0)
+			return 1;
+		return Math.min(1, Math.abs(fDiff)/corrRange);
+	}
+
+	/**
+	 * Only for fuzzy linear equality, when the differences can not overflow 
+	 * and the corrected range is not negative
+	 */
+	boolean hasLowerBound()
+	{
+		Long min, max;
+		
+		if (searchTerm != CBR.SEARCH_TERM_EQUAL ||
+			searchScale != CBR.SEARCH_SCALE_FUZZY_LINEAR ||
+			!(corrRange >= 0))
+		{
+			return false;
+		}
+		min = (Long) column.getMinValue();
+		max = (Long) column.getMaxValue();
+		return min == null ||
+			   !IntColumn.overflows(min.longValue(), target) && !IntColumn.overflows(max.longValue(), target);
+	}
+
+	double lowerBound(long low, long high)
+	{
+		double fDiff;
+
+		// Same calculation as distance for the value in the range closest to the target
+		if (target < low)
+			fDiff = low - target;
+		else if (target > high)
+			fDiff = high - target;
+		else
+			return 0;
+		if (corrRange == 0)
+			return 1;
+		return Math.min(1, Math.abs(fDiff)/corrRange);
+	}
+
+	private double extremeDistance(long longDiff)
+	{
+		if (searchScale == CBR.SEARCH_SCALE_STRICT)
+			return longDiff == 0 ? 0 : -2;
+		if (searchScale == CBR.SEARCH_SCALE_FLAT)
+			return longDiff == 0 ? 0 : 1;
+		if (corrRange == 0)
+			return longDiff == 0 ? 0 : 1;
+		return longDiff/corrRange;
+	}
+}
@@ -0,0 +1,1341 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is an append-only log of the changes of a case set, see
+ * CBR.openJournal. Each change is appended as a record when it is made,
+ * so saving a change costs as much as the change and not as much as the
+ * whole set. The data file is a checkpoint of the set, the journal holds
+ * the changes made since the checkpoint was written and is replayed on
+ * top of it when the set is read again.<br />
+ * A checkpoint is written while changes are appended. When the new data
+ * file is written, a CHECKPOINT record with its fingerprint and the
+ * position of the first change that is not in it is appended, then the
+ * data file is replaced and the journal is compacted to the changes after
+ * that position. A crash between the steps leaves a journal that still
+ * applies to the data file, by its header or by the CHECKPOINT record.
+ * A text data file does not store which features are indexed, so the
+ * CHECKPOINT record and the compacted journal record the index flags of
+ * the set in the file.<br />
+ * The file starts with a header: 8 magic bytes, the version and the
+ * fingerprint of the data file the journal is based on, see fingerprint.
+ * A journal based on another version of the data file is not replayed,
+ * the changes are already in the data file. After the header comes one
+ * record per change: the length of the record, the CRC-32 of the record,
+ * the type of the change and its arguments. A record that is cut short by
+ * a crash is detected by its length or checksum and removed.<br />
+ * The records are written to the file when the change is made. They are
+ * forced to disk either before the change returns, or at most a sync
+ * interval later by a thread of the journal. Changes that return at the
+ * same time share one force, which is the expensive part.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class Journal implements Runnable
+{
+	/**
+	 * The first bytes of a journal, the \r\n and the 0x1A detect a file that
+	 * was transferred as text
+	 * @since 1.2
+	 */
+	private static final byte MAGIC[] = {(byte) 0x89, 'F', 'C', 'B', 'J', '\r', '\n', 0x1A};
+
+	/**
+	 * The version of the file format
+	 * @since 1.2
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The types of the records, one for each kind of change
+	 * @since 1.2
+	 */
+	private static final byte ADD_CASE_STRING = 1;
+	private static final byte ADD_CASE = 2;
+	private static final byte EDIT_CASE = 3;
+	private static final byte REMOVE_CASE = 4;
+	private static final byte ADD_FEATURE = 5;
+	private static final byte SET_FEATURE_VALUE = 6;
+	private static final byte SET_FEATURE_NAME = 7;
+	private static final byte SET_FEATURE_TYPE = 8;
+	private static final byte SET_FEATURE_INDEXED = 9;
+	private static final byte REMOVE_FEATURE = 10;
+	private static final byte NEW_SET = 11;
+	private static final byte CHECKPOINT = 12;
+
+	/**
+	 * Path to the journal
+	 * @since 1.2
+	 */
+	private String journalfile;
+
+	/**
+	 * Logger
+	 * @since 1.2
+	 */
+	private Logger log;
+
+	/**
+	 * The open journal
+	 * @since 1.2
+	 */
+	private java.nio.channels.FileChannel channel;
+
+	/**
+	 * The fingerprint of the data file the journal is based on, null if the
+	 * file has no valid header
+	 * @since 1.2
+	 */
+	private String base;
+
+	/**
+	 * The length of the header
+	 * @since 1.2
+	 */
+	private long headerLength;
+
+	/**
+	 * The length of the file, the next record is written here
+	 * @since 1.2
+	 */
+	private long size;
+
+	/**
+	 * The features indexed in the set of the CHECKPOINT record found by
+	 * find, null if find did not return the position of a CHECKPOINT
+	 * record. A text data file does not store its index flags.
+	 * @since 1.2
+	 */
+	private int checkpointIndexed[];
+
+	/**
+	 * Number of records appended since the journal was opened, the
+	 * sequence number of the last record
+	 * @since 1.2
+	 */
+	private long appended;
+
+	/**
+	 * Sequence number of the last record that is forced to disk, guarded
+	 * by syncLock
+	 * @since 1.2
+	 */
+	private long synced;
+
+	/**
+	 * Lock held while forcing the journal to disk. When a change waits for
+	 * the lock it is often forced by the change holding it, then it
+	 * returns without forcing again.
+	 * @since 1.2
+	 */
+	private Object syncLock = new Object();
+
+	/**
+	 * Milliseconds between the forces of the syncing thread, 0 to force
+	 * each change before it returns
+	 * @since 1.2
+	 */
+	private long syncInterval;
+
+	/**
+	 * The thread that forces the journal if the sync interval is not 0
+	 * @since 1.2
+	 */
+	private Thread syncer;
+
+	/**
+	 * True when the journal is closed
+	 * @since 1.2
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Checksum of the records, used by append
+	 * @since 1.2
+	 */
+	private java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+
+
+	/**
+	* Opens a journal, creates it if it does not exist. Its header is read
+	* but not its records, see getBase and replay.
+	*
+	* @param journalfile path to the journal
+	* @param syncInterval milliseconds between forces of the journal to
+	*		disk, 0 to force each change before it returns
+	* @param log Logger
+	* @throws java.io.IOException if the journal can not be opened
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Journal(String journalfile, long syncInterval, Logger log)
+		throws java.io.IOException
+	{
+		this.journalfile = journalfile;
+		this.syncInterval = syncInterval;
+		this.log = log;
+		open();
+
+		if (syncInterval > 0)
+		{
+			syncer = new Thread(this, "Journal " + journalfile);
+			syncer.setDaemon(true);
+			syncer.start();
+		}
+	}
+
+
+	/**
+	* Returns the fingerprint of a data file. The fingerprint changes when
+	* the file is replaced or changed.
+	*
+	* @param datafile path to the data file, may be null
+	* @return the fingerprint, an empty string if there is no such file
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected static String fingerprint(String datafile)
+	{
+		java.nio.file.attribute.BasicFileAttributes attributes;
+
+		if (datafile == null || datafile.length() == 0)
+		{
+			return "";
+		}
+		try
+		{
+			attributes = java.nio.file.Files.readAttributes(java.nio.file.Paths.get(datafile),
+															java.nio.file.attribute.BasicFileAttributes.class);
+			return attributes.size() + " " + attributes.lastModifiedTime() + " " + attributes.fileKey();
+		} catch (java.io.IOException e)
+		{
+			return "";
+		}
+	}
+
+
+	/**
+	* Returns the fingerprint of the data file the journal is based on. An
+	* empty fingerprint means that the journal holds the whole set.
+	*
+	* @return the fingerprint, null if the journal is new or not valid
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected String getBase()
+	{
+		return base;
+	}
+
+
+	/**
+	* Returns the length of the journal
+	*
+	* @return the number of bytes
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized long size()
+	{
+		return size;
+	}
+
+
+	/**
+	* Returns the position of the first record to replay on top of a data
+	* file. That is the first record if the journal is based on the file,
+	* or the first record after a CHECKPOINT record of the file if the
+	* journal was not compacted after the file was written.
+	*
+	* @param fingerprint the fingerprint of the data file
+	* @return the position, -1 if the journal does not apply to the file
+	* @throws java.io.IOException if the journal can not be read
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized long find(String fingerprint)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer frame = java.nio.ByteBuffer.allocate(8);
+		java.io.DataInputStream in;
+		java.util.zip.CRC32 check = new java.util.zip.CRC32();
+		long position = headerLength;
+		long start = -1;
+		byte record[];
+		int length;
+
+		checkpointIndexed = null;
+		if (base == null)
+		{
+			return -1;
+		}
+		if (base.equals(fingerprint))
+		{
+			return headerLength;
+		}
+		while (size - position >= 8)
+		{
+			frame.clear();
+			read(frame, position);
+			frame.flip();
+			length = frame.getInt();
+			if (length <= 0 || length > size - position - 8)
+			{
+				break;
+			}
+			record = new byte[length];
+			read(java.nio.ByteBuffer.wrap(record), position + 8);
+			check.reset();
+			check.update(record, 0, length);
+			if ((int) check.getValue() != frame.getInt())
+			{
+				break;
+			}
+			if (record[0] == CHECKPOINT)
+			{
+				in = new java.io.DataInputStream(new java.io.ByteArrayInputStream(record, 1, length - 1));
+				if (readString(in).equals(fingerprint))
+				{
+					start = in.readLong();
+					checkpointIndexed = new int[in.readInt()];
+					for (int i = 0 ; i < checkpointIndexed.length ; i++ )
+					{
+						checkpointIndexed[i] = in.readInt();
+					}
+				}
+			}
+			position += 8 + length;
+		}
+		return start;
+	}
+
+
+	/**
+	* Applies the records of the journal from a position to a data set. A
+	* record that is cut short, by a crash while it was written, ends the
+	* journal and is removed.
+	*
+	* @param data the data set read from the data file, an empty set if
+	*		the fingerprint is empty
+	* @param start the position of the first record to apply, see find
+	* @return the data set with the changes, not the same object if a new
+	*		set was created
+	* @throws java.io.IOException if the journal can not be read or a
+	*		record can not be applied
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized CBRdata replay(CBRdata data, long start)
+		throws java.io.IOException
+	{
+		java.io.DataInputStream in;
+		java.util.zip.CRC32 check = new java.util.zip.CRC32();
+		long position = headerLength;
+		long numRecords = 0;
+		byte record[];
+		int length;
+		int checksum;
+
+		if (start > headerLength && checkpointIndexed != null)
+		{
+			// The records from the checkpoint are applied to the set as it
+			// was when the checkpoint was taken, with its index flags
+			for (int i = 0 ; i < checkpointIndexed.length ; i++ )
+			{
+				data.setFeatureIndexed(checkpointIndexed[i], true);
+			}
+		}
+		channel.position(headerLength);
+		in = new java.io.DataInputStream(new java.io.BufferedInputStream(java.nio.channels.Channels.newInputStream(channel), 1 << 16));
+		while (position < size)
+		{
+			if (size - position < 8)
+			{
+				break;
+			}
+			length = in.readInt();
+			checksum = in.readInt();
+			if (length <= 0 || length > size - position - 8)
+			{
+				break;
+			}
+			record = new byte[length];
+			in.readFully(record);
+			check.reset();
+			check.update(record, 0, length);
+			if ((int) check.getValue() != checksum)
+			{
+				break;
+			}
+
+			try
+			{
+				if (position >= start)
+				{
+					data = apply(data, new java.io.DataInputStream(new java.io.ByteArrayInputStream(record)));
+				}
+			} catch (Exception e)
+			{
+				throw new java.io.IOException("Error when replaying journal, record #" + (numRecords + 1) + ", error message: " + e.toString());
+			}
+			numRecords++;
+			position += 8 + length;
+		}
+
+		if (position < size)
+		{
+			log.write("Journal \"" + journalfile + "\" ends with an incomplete record after record #" + numRecords + ", it is removed.");
+			channel.truncate(position);
+			channel.force(false);
+			size = position;
+		}
+		return data;
+	}
+
+
+	/**
+	* Empties the journal and bases it on a new data file, done when the
+	* set is saved to or read from the data file
+	*
+	* @param base the fingerprint of the data file, empty if there is no
+	*		data file
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void reset(String base)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.write(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, base);
+
+		synchronized (syncLock)
+		{
+			synchronized (this)
+			{
+				channel.truncate(0);
+				write(java.nio.ByteBuffer.wrap(bytes.toByteArray()), 0);
+				channel.force(false);
+				this.base = base;
+				headerLength = bytes.size();
+				size = headerLength;
+				synced = appended;
+			}
+		}
+	}
+
+
+	/**
+	* Appends a CHECKPOINT record and forces it to disk, done when a new
+	* data file is written but before it replaces the data file
+	*
+	* @param fingerprint the fingerprint of the new data file
+	* @param start the length of the journal when the snapshot of the set
+	*		was taken, the changes after it are not in the new file
+	* @param snapshot the set written to the new data file, its index
+	*		flags are recorded
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void checkpoint(String fingerprint, long start, CBRdata snapshot)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+		int indexed[] = getIndexed(snapshot);
+
+		out.writeByte(CHECKPOINT);
+		writeString(out, fingerprint);
+		out.writeLong(start);
+		out.writeInt(indexed.length);
+		for (int i = 0 ; i < indexed.length ; i++ )
+		{
+			out.writeInt(indexed[i]);
+		}
+		force(append(bytes));
+	}
+
+
+	/**
+	* Bases the journal on a new data file and removes the changes that
+	* are in it. The journal is rewritten to a temporary file that
+	* replaces it, so a crash leaves either the old or the new journal.
+	*
+	* @param base the fingerprint of the new data file
+	* @param start the length of the journal when the snapshot of the set
+	*		in the data file was taken, the records from here are kept
+	* @param snapshot the set written to the data file, its index flags
+	*		are recorded before the kept records
+	* @throws java.io.IOException if the journal can not be written, it is
+	*		then left as it was
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void compact(String base, long start, CBRdata snapshot)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+		java.nio.ByteBuffer frame = java.nio.ByteBuffer.allocate(8);
+		java.nio.ByteBuffer record;
+		AtomicFile file;
+		long position = start;
+		int length;
+
+		out.write(MAGIC);
+		out.writeInt(VERSION);
+		writeString(out, base);
+
+		synchronized (syncLock)
+		{
+			synchronized (this)
+			{
+				file = new AtomicFile(journalfile);
+				try
+				{
+					file.write(java.nio.ByteBuffer.wrap(bytes.toByteArray()));
+					writeIndexed(file, snapshot);
+					while (position < size)
+					{
+						// The records were written by this journal, only the
+						// CHECKPOINT records are left out
+						frame.clear();
+						read(frame, position);
+						frame.flip();
+						length = frame.getInt();
+						record = java.nio.ByteBuffer.allocate(8 + length);
+						read(record, position);
+						record.flip();
+						if (record.get(8) != CHECKPOINT)
+						{
+							file.write(record);
+						}
+						position += 8 + length;
+					}
+					file.finish();
+
+					// The journal is closed while it is replaced, and opened
+					// again also if it is not replaced
+					channel.close();
+					try
+					{
+						file.commit();
+					} finally
+					{
+						open();
+					}
+					synced = appended;
+				} finally
+				{
+					file.discard();
+				}
+			}
+		}
+	}
+
+
+	/**
+	* Appends records that create the set on top of the data file the
+	* journal is based on. That is the whole set when the journal is not
+	* based on a data file, otherwise the index flags, which a text data
+	* file does not store.
+	*
+	* @param data the set to write
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void snapshot(CBRdata data)
+		throws java.io.IOException
+	{
+		String names[] = new String[data.getNumFeatures()];
+		String typeNames[] = new String[data.getNumFeatures()];
+
+		if (data.getNumFeatures() == 0 && data.getNumCases() == 0)
+		{
+			return;
+		}
+		if (base == null || base.length() == 0)
+		{
+			for (int f = 0 ; f < names.length ; f++ )
+			{
+				names[f] = data.getFeatureName(f);
+				typeNames[f] = data.getFeatureTypeString(f);
+			}
+			newSet(names, typeNames);
+			for (int c = 0 ; c < data.getNumCases() ; c++ )
+			{
+				addCase(data.getCase(c));
+			}
+		}
+		for (int f = 0 ; f < names.length ; f++ )
+		{
+			if (data.isFeatureIndexed(f))
+			{
+				setFeatureIndexed(f, true);
+			}
+		}
+		force(Long.MAX_VALUE);
+	}
+
+
+	/**
+	* Appends a record of CBR.addCase(String)
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long addCase(String caseString)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(ADD_CASE_STRING);
+		writeString(out, caseString);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.addCase(Feature[])
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long addCase(Feature feats[])
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(ADD_CASE);
+		writeFeatures(out, feats);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.editCase
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long editCase(int caseNum, Feature feats[])
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(EDIT_CASE);
+		out.writeInt(caseNum);
+		writeFeatures(out, feats);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.removeCase
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long removeCase(int caseNum)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(REMOVE_CASE);
+		out.writeInt(caseNum);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.addFeature
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long addFeature(String name, short type)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(ADD_FEATURE);
+		writeString(out, name);
+		out.writeShort(type);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.setFeatureValue
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long setFeatureValue(int caseNum, int featureNum, String value)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(SET_FEATURE_VALUE);
+		out.writeInt(caseNum);
+		out.writeInt(featureNum);
+		writeString(out, value);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.setFeatureName
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long setFeatureName(int featureNum, String newName)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(SET_FEATURE_NAME);
+		out.writeInt(featureNum);
+		writeString(out, newName);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.setFeatureType
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long setFeatureType(int featureNum, short newType)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(SET_FEATURE_TYPE);
+		out.writeInt(featureNum);
+		out.writeShort(newType);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.setFeatureIndexed
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long setFeatureIndexed(int featureNum, boolean indexed)
+		throws java.io.IOException
+	{
+		return append(featureIndexedRecord(featureNum, indexed));
+	}
+
+
+	/**
+	* Appends a record of CBR.removeFeature
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long removeFeature(int featureNumber)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(REMOVE_FEATURE);
+		out.writeInt(featureNumber);
+		return append(bytes);
+	}
+
+
+	/**
+	* Appends a record of CBR.newSet
+	*
+	* @return the sequence number of the record, see sync
+	* @throws java.io.IOException if the journal can not be written
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long newSet(String featureNames[], String featureTypeNames[])
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(NEW_SET);
+		writeStrings(out, featureNames);
+		writeStrings(out, featureTypeNames);
+		return append(bytes);
+	}
+
+
+	/**
+	* Waits until the specified record is forced to disk, if the journal
+	* forces each change. Returns at once if the record already is forced,
+	* for example by another change.
+	*
+	* @param seq the sequence number of the record
+	* @throws java.io.IOException if the journal can not be forced
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void sync(long seq)
+		throws java.io.IOException
+	{
+		if (syncInterval == 0)
+		{
+			force(seq);
+		}
+	}
+
+
+	/**
+	* Forces the journal and closes it
+	*
+	* @throws java.io.IOException if the journal can not be forced
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void close()
+		throws java.io.IOException
+	{
+		try
+		{
+			force(Long.MAX_VALUE);
+		} finally
+		{
+			closed = true;
+			if (syncer != null)
+			{
+				syncer.interrupt();
+			}
+			channel.close();
+		}
+	}
+
+
+	/**
+	* Forces the journal every sync interval, run by the syncing thread
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public void run()
+	{
+		while (!closed)
+		{
+			try
+			{
+				Thread.sleep(syncInterval);
+				force(Long.MAX_VALUE);
+			} catch (InterruptedException e)
+			{
+				// Closed
+			} catch (java.io.IOException e)
+			{
+				if (!closed)
+				{
+					log.write("Unable to sync journal \"" + journalfile + "\", error message: " + e.toString());
+				}
+			}
+		}
+	}
+
+
+	/**
+	* Opens the file and reads its header
+	*/
+	private void open()
+		throws java.io.IOException
+	{
+		channel = java.nio.channels.FileChannel.open(java.nio.file.Paths.get(journalfile),
+													java.nio.file.StandardOpenOption.READ,
+													java.nio.file.StandardOpenOption.WRITE,
+													java.nio.file.StandardOpenOption.CREATE);
+		try
+		{
+			size = channel.size();
+			readHeader();
+		} catch (java.io.IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+
+	/**
+	* Reads the header, or sets base to null if there is no valid header
+	*/
+	private void readHeader()
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(16);
+		byte magic[] = new byte[MAGIC.length];
+		byte bytes[];
+		int length;
+
+		base = null;
+		headerLength = 0;
+		if (size < 16 || read(buffer, 0) < 16)
+		{
+			return;
+		}
+		buffer.flip();
+		buffer.get(magic);
+		if (!java.util.Arrays.equals(magic, MAGIC) || buffer.getInt() != VERSION)
+		{
+			return;
+		}
+		length = buffer.getInt();
+		if (length < 0 || length > size - 16)
+		{
+			return;
+		}
+		bytes = new byte[length];
+		if (read(java.nio.ByteBuffer.wrap(bytes), 16) < length)
+		{
+			return;
+		}
+		base = new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+		headerLength = 16 + length;
+	}
+
+
+	/**
+	* Applies a record to a data set
+	*
+	* @return the data set, a new one for NEW_SET
+	*/
+	private static CBRdata apply(CBRdata data, java.io.DataInputStream in)
+		throws java.io.IOException
+	{
+		byte type = in.readByte();
+		int caseNum;
+		int featureNum;
+		String names[];
+
+		switch (type)
+		{
+		case ADD_CASE_STRING:
+			data.addCase(readString(in));
+			break;
+		case ADD_CASE:
+			data.addCase(readFeatures(in));
+			break;
+		case EDIT_CASE:
+			caseNum = in.readInt();
+			data.editCase(caseNum, readFeatures(in));
+			break;
+		case REMOVE_CASE:
+			data.deleteCase(in.readInt());
+			break;
+		case ADD_FEATURE:
+			data.addFeature(readString(in), in.readShort());
+			break;
+		case SET_FEATURE_VALUE:
+			caseNum = in.readInt();
+			featureNum = in.readInt();
+			data.setFeature(caseNum, featureNum, readString(in));
+			break;
+		case SET_FEATURE_NAME:
+			featureNum = in.readInt();
+			data.setFeatureName(featureNum, readString(in));
+			break;
+		case SET_FEATURE_TYPE:
+			featureNum = in.readInt();
+			data.setFeatureType(featureNum, in.readShort());
+			break;
+		case SET_FEATURE_INDEXED:
+			featureNum = in.readInt();
+			data.setFeatureIndexed(featureNum, in.readBoolean());
+			break;
+		case REMOVE_FEATURE:
+			data.deleteFeature(in.readInt());
+			break;
+		case NEW_SET:
+			names = readStrings(in);
+			data = new CBRdata(names, readStrings(in));
+			break;
+		case CHECKPOINT:
+			// Only used by find
+			break;
+		default:
+			throw new java.io.IOException("Unknown record type " + type);
+		}
+		return data;
+	}
+
+
+	/**
+	* Appends a record to the file
+	*
+	* @return the sequence number of the record
+	*/
+	private synchronized long append(java.io.ByteArrayOutputStream record)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer buffer;
+
+		if (closed)
+		{
+			throw new java.io.IOException("Journal \"" + journalfile + "\" is closed");
+		}
+		buffer = frame(record);
+		write(buffer, size);
+		size += buffer.limit();
+		return ++appended;
+	}
+
+
+	/**
+	* Returns a record preceded by its length and checksum
+	*/
+	private synchronized java.nio.ByteBuffer frame(java.io.ByteArrayOutputStream record)
+	{
+		byte bytes[] = record.toByteArray();
+		java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(8 + bytes.length);
+
+		crc.reset();
+		crc.update(bytes, 0, bytes.length);
+		buffer.putInt(bytes.length);
+		buffer.putInt((int) crc.getValue());
+		buffer.put(bytes);
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/**
+	* Returns a SET_FEATURE_INDEXED record
+	*/
+	private static java.io.ByteArrayOutputStream featureIndexedRecord(int featureNum, boolean indexed)
+		throws java.io.IOException
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.DataOutputStream out = new java.io.DataOutputStream(bytes);
+
+		out.writeByte(SET_FEATURE_INDEXED);
+		out.writeInt(featureNum);
+		out.writeBoolean(indexed);
+		return bytes;
+	}
+
+
+	/**
+	* Writes a SET_FEATURE_INDEXED record of each indexed feature of a set
+	* to a rewritten journal
+	*/
+	private void writeIndexed(AtomicFile file, CBRdata data)
+		throws java.io.IOException
+	{
+		int indexed[] = getIndexed(data);
+
+		for (int i = 0 ; i < indexed.length ; i++ )
+		{
+			file.write(frame(featureIndexedRecord(indexed[i], true)));
+		}
+	}
+
+
+	/**
+	* Returns the numbers of the indexed features of a set
+	*/
+	private static int[] getIndexed(CBRdata data)
+	{
+		int indexed[] = new int[data.getNumFeatures()];
+		int n = 0;
+
+		for (int f = 0 ; f < indexed.length ; f++ )
+		{
+			if (data.isFeatureIndexed(f))
+			{
+				indexed[n++] = f;
+			}
+		}
+		return java.util.Arrays.copyOf(indexed, n);
+	}
+
+
+	/**
+	* Forces the records up to and including the specified one to disk,
+	* and all records appended before the force starts
+	*/
+	private void force(long seq)
+		throws java.io.IOException
+	{
+		long target;
+
+		synchronized (syncLock)
+		{
+			synchronized (this)
+			{
+				target = appended;
+			}
+			if (synced >= Math.min(seq, target) || closed)
+			{
+				return;
+			}
+			channel.force(false);
+			synced = target;
+		}
+	}
+
+
+	/**
+	* Writes all of a buffer at a position of the file
+	*/
+	private void write(java.nio.ByteBuffer buffer, long position)
+		throws java.io.IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			position += channel.write(buffer, position);
+		}
+	}
+
+
+	/**
+	* Reads into a buffer from a position of the file until the buffer is
+	* full or the file ends
+	*
+	* @return the number of bytes read
+	*/
+	private int read(java.nio.ByteBuffer buffer, long position)
+		throws java.io.IOException
+	{
+		int total = 0;
+		int n;
+
+		while (buffer.hasRemaining() && (n = channel.read(buffer, position + total)) > 0)
+		{
+			total += n;
+		}
+		return total;
+	}
+
+
+	/**
+	* Writes a string as its length and its UTF-8 bytes, length -1 is null
+	*/
+	private static void writeString(java.io.DataOutputStream out, String str)
+		throws java.io.IOException
+	{
+		byte bytes[];
+
+		if (str == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		bytes = str.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+
+	/**
+	* Reads a string written by writeString
+	*/
+	private static String readString(java.io.DataInputStream in)
+		throws java.io.IOException
+	{
+		int length = in.readInt();
+		byte bytes[];
+
+		if (length < 0)
+		{
+			return null;
+		}
+		bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
+	}
+
+
+	/**
+	* Writes an array of strings, length -1 is null
+	*/
+	private static void writeStrings(java.io.DataOutputStream out, String strs[])
+		throws java.io.IOException
+	{
+		if (strs == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(strs.length);
+		for (int i = 0 ; i < strs.length ; i++ )
+		{
+			writeString(out, strs[i]);
+		}
+	}
+
+
+	/**
+	* Reads an array of strings written by writeStrings
+	*/
+	private static String[] readStrings(java.io.DataInputStream in)
+		throws java.io.IOException
+	{
+		int length = in.readInt();
+		String strs[];
+
+		if (length < 0)
+		{
+			return null;
+		}
+		strs = new String[length];
+		for (int i = 0 ; i < length ; i++ )
+		{
+			strs[i] = readString(in);
+		}
+		return strs;
+	}
+
+
+	/**
+	* Writes Feature:s as their type, if they are defined and their value
+	*/
+	private static void writeFeatures(java.io.DataOutputStream out, Feature feats[])
+		throws java.io.IOException
+	{
+		out.writeInt(feats.length);
+		for (int i = 0 ; i < feats.length ; i++ )
+		{
+			out.writeShort(feats[i].getFeatureType());
+			out.writeBoolean(feats[i].isUndefined());
+			if (feats[i].isUndefined())
+			{
+				continue;
+			}
+			switch (feats[i].getFeatureType())
+			{
+			case Feature.FEATURE_TYPE_STRING:
+				writeString(out, feats[i].getStringValue());
+				break;
+			case Feature.FEATURE_TYPE_MULTISTRING:
+				writeStrings(out, feats[i].getMultiStringValue());
+				break;
+			case Feature.FEATURE_TYPE_INT:
+				out.writeLong(feats[i].getIntValue());
+				break;
+			case Feature.FEATURE_TYPE_FLOAT:
+				out.writeDouble(feats[i].getFloatValue());
+				break;
+			case Feature.FEATURE_TYPE_BOOL:
+				out.writeBoolean(feats[i].getBoolValue());
+				break;
+			}
+		}
+	}
+
+
+	/**
+	* Reads Feature:s written by writeFeatures
+	*/
+	private static Feature[] readFeatures(java.io.DataInputStream in)
+		throws java.io.IOException
+	{
+		Feature feats[] = new Feature[in.readInt()];
+		short type;
+
+		for (int i = 0 ; i < feats.length ; i++ )
+		{
+			type = in.readShort();
+			if (in.readBoolean())
+			{
+				feats[i] = new Feature(null, type);
+				continue;
+			}
+			switch (type)
+			{
+			case Feature.FEATURE_TYPE_STRING:
+				feats[i] = new Feature(readString(in));
+				break;
+			case Feature.FEATURE_TYPE_MULTISTRING:
+				feats[i] = new Feature(readStrings(in));
+				break;
+			case Feature.FEATURE_TYPE_INT:
+				feats[i] = new Feature(in.readLong());
+				break;
+			case Feature.FEATURE_TYPE_FLOAT:
+				feats[i] = new Feature(in.readDouble());
+				break;
+			case Feature.FEATURE_TYPE_BOOL:
+				feats[i] = new Feature(in.readBoolean());
+				break;
+			default:
+				throw new java.io.IOException("Unknown feature type " + type);
+			}
+		}
+		return feats;
+	}
+}
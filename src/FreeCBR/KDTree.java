@@ -0,0 +1,427 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is a KD-tree over the Int and Float features of a CBRdata. It
+ * is used for top-k searches where every searched feature is numerical
+ * with CBR.SEARCH_TERM_EQUAL and CBR.SEARCH_SCALE_FUZZY_LINEAR. Each node
+ * has the bounding box of its cases, the lowest possible distance to the
+ * box gives the highest possible match of the cases in it. Nodes that can
+ * not beat the k:th best match found so far are skipped, all other cases
+ * are calculated exactly the same way as by a full search.
+ *
+ * Cases with an undefined (or NaN or infinite) value in any of the
+ * features are not put in the tree, they are calculated by every search.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class KDTree
+{
+	/**
+	 * Maximum number of cases in a leaf
+	 * @since 1.2
+	 */
+	private static final int LEAF_SIZE = 32;
+
+	/**
+	 * The data the tree is built from
+	 * @since 1.2
+	 */
+	final CBRdata data;
+
+	/**
+	 * The version of the data when the tree was built
+	 * @since 1.2
+	 */
+	final long version;
+
+	/**
+	 * The columns of the tree, one per dimension
+	 * @since 1.2
+	 */
+	private final FeatureColumn columns[];
+
+	/**
+	 * Dimension of each feature number, -1 for non-numerical features
+	 * @since 1.2
+	 */
+	private final int dimOf[];
+
+	/**
+	 * The cases in the tree, ordered so that each node is a range
+	 * @since 1.2
+	 */
+	private final int order[];
+
+	/**
+	 * The cases not in the tree
+	 * @since 1.2
+	 */
+	private final int leftovers[];
+
+	/*
+	 * The nodes, node n covers order[nodeFrom[n], nodeTo[n]) and has the
+	 * children nodeLeft[n] and nodeLeft[n] + 1, or -1 if it is a leaf.
+	 * The bounding box of node n in dimension d is stored at n * dims + d
+	 * in low and high, Int values as they are and Float values as
+	 * Double.doubleToLongBits.
+	 */
+	private int nodeFrom[];
+	private int nodeTo[];
+	private int nodeLeft[];
+	private long low[];
+	private long high[];
+	private int numNodes;
+
+
+	/**
+	* Builds a tree of the current data
+	*
+	* @param data the data
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	KDTree(CBRdata data)
+	{
+		int numCases = data.getNumCases();
+		int dims = 0;
+		int inTree = 0;
+		int numLeftovers = 0;
+		boolean ok[] = new boolean[numCases];
+
+		this.data = data;
+		this.version = data.getVersion();
+		dimOf = new int[data.getNumFeatures()];
+		for (int f = 0; f < dimOf.length; f++)
+		{
+			short type = data.getFeatureTypeShort(f);
+			dimOf[f] = (type == Feature.FEATURE_TYPE_INT || type == Feature.FEATURE_TYPE_FLOAT) ? dims++ : -1;
+		}
+		columns = new FeatureColumn[dims];
+		for (int f = 0; f < dimOf.length; f++)
+		{
+			if (dimOf[f] >= 0)
+			{
+				columns[dimOf[f]] = data.getColumn(f);
+			}
+		}
+
+		for (int c = 0; c < numCases; c++)
+		{
+			ok[c] = true;
+			for (int d = 0; d < dims && ok[c]; d++)
+			{
+				if (columns[d].isUndefined(c))
+				{
+					ok[c] = false;
+				} else if (columns[d].getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
+				{
+					double value = columns[d].getDouble(c);
+					ok[c] = !Double.isNaN(value) && !Double.isInfinite(value);
+				}
+			}
+			if (ok[c])
+				inTree++;
+			else
+				numLeftovers++;
+		}
+		order = new int[inTree];
+		leftovers = new int[numLeftovers];
+		inTree = 0;
+		numLeftovers = 0;
+		for (int c = 0; c < numCases; c++)
+		{
+			if (ok[c])
+				order[inTree++] = c;
+			else
+				leftovers[numLeftovers++] = c;
+		}
+
+		// Only nodes with more than LEAF_SIZE cases are split in halves, so
+		// every leaf has at least LEAF_SIZE / 2 cases
+		int maxNodes = 2 * (inTree / (LEAF_SIZE / 2)) + 1;
+		nodeFrom = new int[maxNodes];
+		nodeTo = new int[maxNodes];
+		nodeLeft = new int[maxNodes];
+		low = new long[maxNodes * dims];
+		high = new long[maxNodes * dims];
+		numNodes = 1;
+		build(0, 0, inTree);
+	}
+
+
+	/**
+	* Returns true if the tree can be used for the search, that is if all
+	* searched features are numerical, fuzzy linear searches for equality
+	* without options and with weights >= 0. Also the differences between the
+	* values and the searched values must not overflow.
+	*
+	* @param query the search
+	* @param plan the plan of the search
+	* @return true if the tree can be used
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	boolean canSearch(CompiledQuery query, QueryPlan plan)
+	{
+		long weightsSum = 0;
+
+		if (plan.candidates != null || plan.verbose)
+		{
+			return false;
+		}
+		for (int i = 0; i < query.featureNums.length; i++)
+		{
+			FeatureEvaluator evaluator = plan.evaluators[i];
+			if (evaluator instanceof ConstantEvaluator)
+			{
+				// Undefined search value, the feature is skipped for all cases
+				continue;
+			}
+			if (dimOf[query.featureNums[i]] < 0 ||
+				query.terms[i] != CBR.SEARCH_TERM_EQUAL ||
+				query.scales[i] != CBR.SEARCH_SCALE_FUZZY_LINEAR ||
+				query.inverted[i] ||
+				query.weights[i] < 0 ||
+				!evaluator.hasLowerBound())
+			{
+				return false;
+			}
+			weightsSum += query.weights[i];
+		}
+		return weightsSum > 0;
+	}
+
+
+	/**
+	* Searches the tree for the best k cases. Only call if canSearch.
+	*
+	* @param cbr the CBR calculating the matches
+	* @param query the search
+	* @param plan the plan of the search
+	* @param heap the heap to add the results to
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void search(CBR cbr, CompiledQuery query, QueryPlan plan, ResultHeap heap)
+	{
+		long weightsSum = 0;
+
+		for (int i = 0; i < leftovers.length; i++)
+		{
+			cbr.scanCases(query, plan, leftovers[i], leftovers[i] + 1, heap, null);
+		}
+		for (int i = 0; i < query.featureNums.length; i++)
+		{
+			if (!(plan.evaluators[i] instanceof ConstantEvaluator))
+			{
+				weightsSum += query.weights[i];
+			}
+		}
+		if (order.length > 0)
+		{
+			search(0, cbr, query, plan, heap, weightsSum);
+		}
+	}
+
+
+	private void search(int node, CBR cbr, CompiledQuery query, QueryPlan plan, ResultHeap heap, long weightsSum)
+	{
+		int left;
+		double leftBound, rightBound;
+
+		if (nodeLeft[node] < 0)
+		{
+			for (int i = nodeFrom[node]; i < nodeTo[node]; i++)
+			{
+				cbr.scanCases(query, plan, order[i], order[i] + 1, heap, null);
+			}
+			return;
+		}
+		// Visit the most promising child first, it makes the heap better sooner
+		left = nodeLeft[node];
+		leftBound = maxMatch(left, query, plan, weightsSum);
+		rightBound = maxMatch(left + 1, query, plan, weightsSum);
+		if (leftBound >= rightBound)
+		{
+			visit(left, leftBound, cbr, query, plan, heap, weightsSum);
+			visit(left + 1, rightBound, cbr, query, plan, heap, weightsSum);
+		} else
+		{
+			visit(left + 1, rightBound, cbr, query, plan, heap, weightsSum);
+			visit(left, leftBound, cbr, query, plan, heap, weightsSum);
+		}
+	}
+
+	private void visit(int node, double bound, CBR cbr, CompiledQuery query, QueryPlan plan, ResultHeap heap, long weightsSum)
+	{
+		// A case with the same match as the worst kept may still get in on
+		// the case number, so only skip nodes that are strictly worse
+		if (heap.isFull() && bound < heap.worstMatch())
+		{
+			return;
+		}
+		search(node, cbr, query, plan, heap, weightsSum);
+	}
+
+
+	/**
+	* Returns the highest possible match of the cases in a node. Calculated
+	* with the same operations in the same order as the real match, from the
+	* lowest possible distance in each searched feature, so it is never
+	* below the real match of any case in the node.
+	*/
+	private double maxMatch(int node, CompiledQuery query, QueryPlan plan, long weightsSum)
+	{
+		int dims = columns.length;
+		double hit = 0.0;
+
+		for (int i = 0; i < query.featureNums.length; i++)
+		{
+			FeatureEvaluator evaluator = plan.evaluators[i];
+			if (evaluator instanceof ConstantEvaluator)
+			{
+				continue;
+			}
+			int box = node * dims + dimOf[query.featureNums[i]];
+			double dist = evaluator.lowerBound(low[box], high[box]);
+			hit += query.weights[i] *
+				   Math.pow(dist, 2);
+		}
+		return 100 * (1 - Math.sqrt(hit/weightsSum));
+	}
+
+
+	/**
+	* Builds node number node from order[from, to)
+	*/
+	private void build(int node, int from, int to)
+	{
+		int dims = columns.length;
+		int splitDim = -1;
+		double widest = -1;
+
+		nodeFrom[node] = from;
+		nodeTo[node] = to;
+		nodeLeft[node] = -1;
+		for (int d = 0; d < dims; d++)
+		{
+			boolean isFloat = columns[d].getFeatureType() == Feature.FEATURE_TYPE_FLOAT;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			long minLong = Long.MAX_VALUE;
+			long maxLong = Long.MIN_VALUE;
+			for (int i = from; i < to; i++)
+			{
+				if (isFloat)
+				{
+					double value = columns[d].getDouble(order[i]);
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				} else
+				{
+					long value = columns[d].getLong(order[i]);
+					minLong = Math.min(minLong, value);
+					maxLong = Math.max(maxLong, value);
+				}
+			}
+			if (isFloat)
+			{
+				low[node * dims + d] = Double.doubleToLongBits(min);
+				high[node * dims + d] = Double.doubleToLongBits(max);
+			} else
+			{
+				low[node * dims + d] = minLong;
+				high[node * dims + d] = maxLong;
+				min = minLong;
+				max = maxLong;
+			}
+			// Split the dimension with the widest spread relative to the
+			// range of the whole feature, the same scale as the distances
+			if (to > from && max > min)
+			{
+				double spread = (max - min) / range(d);
+				if (spread > widest)
+				{
+					widest = spread;
+					splitDim = d;
+				}
+			}
+		}
+		if (to - from <= LEAF_SIZE || splitDim < 0)
+		{
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		select(splitDim, from, to - 1, mid);
+		nodeLeft[node] = numNodes;
+		numNodes += 2;
+		build(nodeLeft[node], from, mid);
+		build(nodeLeft[node] + 1, mid, to);
+	}
+
+	/**
+	* Returns the range of the values in the root node, never 0
+	*/
+	private double range(int d)
+	{
+		double range;
+
+		if (columns[d].getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
+			range = Double.longBitsToDouble(high[d]) - Double.longBitsToDouble(low[d]);
+		else
+			range = (double) high[d] - (double) low[d];
+		return range > 0 ? range : 1;
+	}
+
+	/**
+	* Reorders order[from, to] so that order[k] has the value it would have
+	* if sorted in dimension d, with lower values before and higher after
+	*/
+	private void select(int d, int from, int to, int k)
+	{
+		while (to > from)
+		{
+			double pivot = value(d, order[(from + to) >>> 1]);
+			int i = from;
+			int j = to;
+			while (i <= j)
+			{
+				while (value(d, order[i]) < pivot)
+					i++;
+				while (value(d, order[j]) > pivot)
+					j--;
+				if (i <= j)
+				{
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				to = j;
+			else if (k >= i)
+				from = i;
+			else
+				return;
+		}
+	}
+
+	private double value(int d, int caseNum)
+	{
+		if (columns[d].getFeatureType() == Feature.FEATURE_TYPE_FLOAT)
+			return columns[d].getDouble(caseNum);
+		return columns[d].getLong(caseNum);
+	}
+}
@@ -0,0 +1,40 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of SEARCH_SCALE_FUZZY_LOGARITHMIC.
+ * It wraps the evaluator of the same search with a linear scale and makes
+ * its distances logarithmic.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class LogEvaluator extends FeatureEvaluator
+{
+	private final FeatureEvaluator linear;
+
+	LogEvaluator(FeatureEvaluator linear)
+	{
+		this.linear = linear;
+	}
+
+	double distance(int caseNum)
+	{
+		double res = linear.distance(caseNum);
+
+		// Return -1 or -2 the same way as fuzzy linear. Otherwise do it logarithmic
+		if (res < 0)
+			return res;
+		return Math.log(res * CBR.modE + 1);
+	}
+
+	int cost()
+	{
+		return linear.cost() + 2;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is a Float column read by ColumnFile whose values are read 
+ * directly from the mapped file. The column is never changed, the data 
+ * copies it into a FloatColumn the first time it changes it, see copy.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class MappedFloatColumn extends FloatColumn
+{
+	/**
+	 * The values in the mapped file, undefined values are stored as 0
+	 * @since 1.2
+	 */
+	private transient java.nio.DoubleBuffer values;
+
+
+	/**
+	* Creates a column of a mapped file
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @param values the values in the mapped file
+	* @param minValue the minimum defined value
+	* @param maxValue the maximum defined value
+	* @param numNonFinite number of defined values that are NaN or infinite
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected MappedFloatColumn(int size, long undefined[], java.nio.DoubleBuffer values, double minValue, double maxValue, int numNonFinite)
+	{
+		super(size, undefined, minValue, maxValue, numNonFinite);
+		this.values = values;
+	}
+
+
+	protected double getDouble(int caseNum)
+	{
+		return values.get(caseNum);
+	}
+
+
+	/**
+	* Returns a copy of the column with the values read into segments
+	*
+	* @return the copy, a FloatColumn
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized FeatureColumn copy()
+	{
+		return copyValues();
+	}
+
+
+	/**
+	* Serializes the column as a FloatColumn, the mapped file is not serialized
+	*/
+	private Object writeReplace()
+	{
+		return copy();
+	}
+}
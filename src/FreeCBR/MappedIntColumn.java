@@ -0,0 +1,72 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is an Int column read by ColumnFile whose values are read 
+ * directly from the mapped file. The column is never changed, the data 
+ * copies it into an IntColumn the first time it changes it, see copy.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class MappedIntColumn extends IntColumn
+{
+	/**
+	 * The values in the mapped file, undefined values are stored as 0
+	 * @since 1.2
+	 */
+	private transient java.nio.LongBuffer values;
+
+
+	/**
+	* Creates a column of a mapped file
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @param values the values in the mapped file
+	* @param minValue the minimum defined value
+	* @param maxValue the maximum defined value
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected MappedIntColumn(int size, long undefined[], java.nio.LongBuffer values, long minValue, long maxValue)
+	{
+		super(size, undefined, minValue, maxValue);
+		this.values = values;
+	}
+
+
+	protected long getLong(int caseNum)
+	{
+		return values.get(caseNum);
+	}
+
+
+	/**
+	* Returns a copy of the column with the values read into segments
+	*
+	* @return the copy, an IntColumn
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized FeatureColumn copy()
+	{
+		return copyValues();
+	}
+
+
+	/**
+	* Serializes the column as an IntColumn, the mapped file is not serialized
+	*/
+	private Object writeReplace()
+	{
+		return copy();
+	}
+}
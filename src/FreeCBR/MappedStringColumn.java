@@ -0,0 +1,74 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is a String column read by ColumnFile whose codes are read 
+ * directly from the mapped file, the dictionary is kept in memory. The 
+ * column is never changed, the data copies it into a StringColumn the 
+ * first time it changes it, see copy.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class MappedStringColumn extends StringColumn
+{
+	/**
+	 * The codes in the mapped file, undefined values are stored as -1
+	 * @since 1.2
+	 */
+	private transient java.nio.IntBuffer codes;
+
+
+	/**
+	* Creates a column of a mapped file
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @param codes the codes in the mapped file
+	* @param dictionary the strings used by the feature
+	* @param useCounts number of cases using each string of the dictionary
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected MappedStringColumn(int size, long undefined[], java.nio.IntBuffer codes, StringDictionary dictionary, UseCounts useCounts)
+	{
+		super(size, undefined, dictionary, useCounts);
+		this.codes = codes;
+	}
+
+
+	protected int getCode(int caseNum)
+	{
+		return codes.get(caseNum);
+	}
+
+
+	/**
+	* Returns a copy of the column with the codes read into segments
+	*
+	* @return the copy, a StringColumn
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized FeatureColumn copy()
+	{
+		return copyCodes();
+	}
+
+
+	/**
+	* Serializes the column as a StringColumn, the mapped file is not 
+	* serialized
+	*/
+	private Object writeReplace()
+	{
+		return copy();
+	}
+}
@@ -0,0 +1,595 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class stores the values of a MultiString feature as arrays of int 
+ * codes into a dictionary of the strings used by the feature
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class MultiStringColumn extends FeatureColumn
+{
+	/**
+	 * The codes of the values in the original order in segments, undefined 
+	 * values are stored as null
+	 * @since 1.2
+	 */
+	private int codes[][][];
+	
+	/**
+	 * The codes of the values sorted in increasing order without duplicates, 
+	 * in segments. Refers to the same array as the original codes when they 
+	 * are already sorted.
+	 * @since 1.2
+	 */
+	private int sortedCodes[][][];
+	
+	/**
+	 * The strings used by the feature
+	 * @since 1.2
+	 */
+	private StringDictionary dictionary;
+	
+	/**
+	 * Number of cases using each string
+	 * @since 1.2
+	 */
+	private UseCounts useCounts;
+	
+	/**
+	 * The sorted strings with a use count above 0, null when it has to be 
+	 * recalculated
+	 * @since 1.2
+	 */
+	private String usedStrings[];
+	
+	/**
+	 * Sorted index of the codes, with a pair for each string of a value. 
+	 * Only used when the column is indexed. Null until it is needed, then 
+	 * it is kept up to date.
+	 * @since 1.2
+	 */
+	private transient SortedIndex sortedIndex;
+
+
+	/**
+	* Creates an empty column
+	*
+	* @param capacity the number of cases to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected MultiStringColumn(int capacity)
+	{
+		this(capacity, new StringDictionary());
+	}
+
+
+	/**
+	* Creates an empty column for cases read from a file, see ColumnFile
+	*
+	* @param capacity the number of cases to allocate room for
+	* @param dictionary the strings used by the feature
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected MultiStringColumn(int capacity, StringDictionary dictionary)
+	{
+		super(capacity);
+		codes = new int[numSegments()][segmentLength()][];
+		sortedCodes = new int[numSegments()][segmentLength()][];
+		this.dictionary = dictionary;
+		useCounts = new UseCounts();
+		usedStrings = null;
+		sortedIndex = null;
+	}
+
+
+	protected short getFeatureType()
+	{
+		return Feature.FEATURE_TYPE_MULTISTRING;
+	}
+
+
+	/**
+	* Returns the MultiString value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the value, null if undefined
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected String[] getMultiString(int caseNum)
+	{
+		int caseCodes[] = getCodes(caseNum);
+		String strs[];
+		
+		if (caseCodes == null)
+		{
+			return null;
+		}
+		strs = new String[caseCodes.length];
+		for (int i = 0; i < caseCodes.length; i++)
+		{
+			strs[i] = dictionary.get(caseCodes[i]);
+		}
+		return strs;
+	}
+	
+	
+	/**
+	* Returns the dictionary codes of the value of the specified case in the 
+	* original order
+	*
+	* @param caseNum the number of the case
+	* @return the codes, null if undefined. The array must not be changed by 
+	*		the caller.
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int[] getCodes(int caseNum)
+	{
+		return codes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK];
+	}
+	
+	
+	/**
+	* Appends a defined value by its dictionary codes, same as add but 
+	* without a Feature
+	*
+	* @param caseCodes the codes of the strings in the original order, not 
+	*		changed afterwards
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addCodes(int caseCodes[])
+	{
+		ensureCapacity(size + 1);
+		size++;
+		setBit(undefined, size - 1, false);
+		setCodes(size - 1, caseCodes);
+		valueAdded(size - 1);
+	}
+	
+	
+	/**
+	* Returns the sorted dictionary codes of the value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the codes in increasing order without duplicates, null if undefined. 
+	*		The array must not be changed by the caller.
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int[] getSortedCodes(int caseNum)
+	{
+		return sortedCodes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK];
+	}
+	
+	
+	/**
+	* Returns the dictionary of the strings used by the feature
+	*
+	* @return the dictionary
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected StringDictionary getDictionary()
+	{
+		return dictionary;
+	}
+
+
+	protected synchronized String[] getUsedStrings()
+	{
+		int n = 0;
+		
+		if (usedStrings == null)
+		{
+			for (int code = 0; code < dictionary.size(); code++)
+			{
+				if (useCounts.get(code) > 0)
+				{
+					n++;
+				}
+			}
+			usedStrings = new String[n];
+			n = 0;
+			for (int code = 0; code < dictionary.size(); code++)
+			{
+				if (useCounts.get(code) > 0)
+				{
+					usedStrings[n++] = dictionary.get(code);
+				}
+			}
+			FArrays.sort(usedStrings, new StringComparator());
+		}
+		return usedStrings;
+	}
+
+
+	/**
+	* Encodes a searched MultiString as its sorted dictionary codes
+	*
+	* @param searchFeature the searched feature, must not be undefined
+	* @return the codes as an int[] in increasing order, strings not used by 
+	*		any case get the code -1. Duplicates are kept.
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Object encodeSearch(Feature searchFeature)
+	{
+		checkDiffType(searchFeature);
+		return dictionary.lookupSorted(searchFeature.getMultiStringValue());
+	}
+
+
+	/**
+	* Calculates the difference as 1 - (found searched strings / number of 
+	* searched strings). Both code arrays are sorted so the overlap is found 
+	* by a merge.
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected double diff(int caseNum, Feature searchFeature, Object searchKey)
+	{
+		return overlapDiff(caseNum, (int[]) searchKey);
+	}
+
+
+	/**
+	* Calculates the difference between searched codes, as returned by 
+	* encodeSearch, and the defined value of the specified case
+	*
+	* @param caseNum the number of the case, must not be undefined
+	* @param searchCodes the sorted codes of the searched strings
+	* @return the difference, 0.0 means all searched strings are found
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected double overlapDiff(int caseNum, int searchCodes[])
+	{
+		int m1[], m2[];
+		int found, total;
+		int i1, i2;
+
+		m1 = searchCodes;
+		m2 = getSortedCodes(caseNum);
+		if (m1.length == 0)
+			return 1;
+		found = 0;
+		total = m1.length;
+		i1 = 0;
+		i2 = 0;
+		while (i1 < m1.length && i2 < m2.length)
+		{
+			if (m1[i1] < m2[i2])
+			{
+				i1++;
+			} else if (m1[i1] > m2[i2])
+			{
+				i2++;
+			} else
+			{
+				// Duplicates among the searched strings are counted once each
+				found++;
+				i1++;
+			}
+		}
+		return 1 - ((double)found)/total;
+	}
+
+
+	protected void copySegments(int length)
+	{
+		super.copySegments(length);
+		codes = java.util.Arrays.copyOf(codes, length);
+		sortedCodes = java.util.Arrays.copyOf(sortedCodes, length);
+	}
+
+
+	protected void resizeSegment(int segment, int length)
+	{
+		super.resizeSegment(segment, length);
+		// The code arrays of the cases are never changed, only replaced
+		codes[segment] = java.util.Arrays.copyOf(codes[segment], length);
+		sortedCodes[segment] = java.util.Arrays.copyOf(sortedCodes[segment], length);
+	}
+
+
+	protected void addSegment(int segment)
+	{
+		super.addSegment(segment);
+		codes[segment] = new int[SEGMENT_SIZE][];
+		sortedCodes[segment] = new int[SEGMENT_SIZE][];
+	}
+
+
+	protected synchronized FeatureColumn copy()
+	{
+		MultiStringColumn copy = (MultiStringColumn) super.copy();
+		
+		// Changed by every change of a value, shared the same way as the 
+		// segments
+		copy.dictionary = dictionary.copy();
+		copy.useCounts = useCounts.copy();
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+	protected void setIndexed(boolean indexed)
+	{
+		super.setIndexed(indexed);
+		sortedIndex = null;
+	}
+
+
+	/**
+	* Filters the candidates with the sorted index of the codes, if the 
+	* column is indexed. A case is equal to the searched value when it 
+	* contains all of the searched strings. The index finds the cases with 
+	* the least used of the strings, which are then checked for the others.
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean filter(Object searchKey, int searchTerm, long candidates[])
+	{
+		int searchCodes[] = (int[]) searchKey;
+		int rarest;
+		long matching[];
+		
+		if (!indexed || 
+				searchTerm != CBR.SEARCH_TERM_EQUAL && 
+				searchTerm != CBR.SEARCH_TERM_NOT_EQUAL)
+		{
+			return false;
+		}
+		matching = new long[candidates.length];
+		// The codes are sorted, -1 for a string no case uses comes first
+		if (searchCodes.length > 0 && searchCodes[0] >= 0)
+		{
+			rarest = searchCodes[0];
+			for (int i = 1; i < searchCodes.length; i++)
+			{
+				if (useCounts.get(searchCodes[i]) < useCounts.get(rarest))
+				{
+					rarest = searchCodes[i];
+				}
+			}
+			getSortedIndex().mark(rarest, rarest, matching, this);
+			for (int c = nextSetBit(matching, 0, size); c < size; c = nextSetBit(matching, c + 1, size))
+			{
+				if (!containsAll(getSortedCodes(c), searchCodes))
+				{
+					setBit(matching, c, false);
+				}
+			}
+		}
+		applyFilter(matching, searchTerm, candidates);
+		return true;
+	}
+
+
+	/**
+	* Does a case contain all of the searched codes? Both are sorted.
+	*/
+	private static boolean containsAll(int caseCodes[], int searchCodes[])
+	{
+		int i = 0;
+		
+		for (int s = 0; s < searchCodes.length; s++)
+		{
+			while (i < caseCodes.length && caseCodes[i] < searchCodes[s])
+			{
+				i++;
+			}
+			if (i == caseCodes.length || caseCodes[i] != searchCodes[s])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	* Builds the index the first time it is needed
+	*
+	* @return the index
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized SortedIndex getSortedIndex()
+	{
+		if (sortedIndex == null)
+		{
+			sortedIndex = new SortedIndex(size);
+			for (int c = 0; c < size; c++)
+			{
+				if (!isUndefined(c))
+				{
+					int caseCodes[] = getSortedCodes(c);
+					for (int i = 0; i < caseCodes.length; i++)
+					{
+						sortedIndex.add(caseCodes[i], c);
+					}
+				}
+			}
+			sortedIndex.sortTail();
+		}
+		return sortedIndex;
+	}
+
+
+	protected boolean hasSortKey(int caseNum, long key)
+	{
+		return !isUndefined(caseNum) && 
+				java.util.Arrays.binarySearch(getSortedCodes(caseNum), (int) key) >= 0;
+	}
+
+
+	protected void setValue(int caseNum, Feature feat)
+	{
+		String strs[] = feat.getMultiStringValue();
+		int caseCodes[] = new int[strs.length];
+		
+		for (int i = 0; i < strs.length; i++)
+		{
+			caseCodes[i] = dictionary.add(strs[i]);
+		}
+		setCodes(caseNum, caseCodes);
+	}
+
+
+	/**
+	* Stores the codes of a value and its sorted codes
+	*/
+	private void setCodes(int caseNum, int caseCodes[])
+	{
+		codes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = caseCodes;
+		sortedCodes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = sortUnique(caseCodes);
+	}
+
+
+	protected void clearValue(int caseNum)
+	{
+		codes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = null;
+		sortedCodes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = null;
+	}
+
+
+	protected void removeValue(int caseNum)
+	{
+		removeElement(codes, caseNum, size);
+		removeElement(sortedCodes, caseNum, size);
+		clearValue(size - 1);
+		if (sortedIndex != null)
+		{
+			sortedIndex.removeCase(caseNum);
+		}
+	}
+
+
+	protected void valueAdded(int caseNum)
+	{
+		int caseCodes[] = getSortedCodes(caseNum);
+		
+		for (int i = 0; i < caseCodes.length; i++)
+		{
+			use(caseCodes[i], 1);
+			if (sortedIndex != null)
+			{
+				sortedIndex.add(caseCodes[i], caseNum);
+			}
+		}
+	}
+
+
+	protected void valueRemoved(int caseNum)
+	{
+		int caseCodes[] = getSortedCodes(caseNum);
+		
+		for (int i = 0; i < caseCodes.length; i++)
+		{
+			use(caseCodes[i], -1);
+		}
+		if (sortedIndex != null)
+		{
+			sortedIndex.remove(caseNum, caseCodes.length, this);
+		}
+	}
+	
+	
+	/**
+	* Changes the use count of a string. The sorted list of used strings is 
+	* only recalculated when a string becomes used or unused.
+	*
+	* @param code the code of the string
+	* @param change the change of the use count, 1 or -1
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void use(int code, int change)
+	{
+		int count = useCounts.add(code, change);
+		
+		if (count == 0 || 
+				count == 1 && change > 0)
+		{
+			usedStrings = null;
+		}
+	}
+
+
+	protected Feature getDefinedFeature(int caseNum)
+	{
+		return new Feature(getMultiString(caseNum));
+	}
+	
+	
+	/**
+	* Returns the codes sorted without duplicates. Returns the array itself 
+	* if it already is sorted without duplicates, otherwise a sorted copy.
+	*
+	* @param caseCodes the codes to sort
+	* @return the sorted codes
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private static int[] sortUnique(int caseCodes[])
+	{
+		int sorted[];
+		int n;
+		
+		for (int i = 1; i < caseCodes.length; i++)
+		{
+			if (caseCodes[i - 1] >= caseCodes[i])
+			{
+				sorted = (int[]) caseCodes.clone();
+				StringDictionary.sort(sorted);
+				n = 1;
+				for (int j = 1; j < sorted.length; j++)
+				{
+					if (sorted[j] != sorted[n - 1])
+					{
+						sorted[n++] = sorted[j];
+					}
+				}
+				if (n < sorted.length)
+				{
+					int unique[] = new int[n];
+					System.arraycopy(sorted, 0, unique, 0, n);
+					sorted = unique;
+				}
+				return sorted;
+			}
+		}
+		return caseCodes;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of MultiString features, it merges
+ * the sorted dictionary codes of each case with the searched codes.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class MultiStringEvaluator extends FeatureEvaluator
+{
+	private final MultiStringColumn column;
+	private final int searchTerm;
+	private final int searchScale;
+	/** Sorted dictionary codes of the searched values */
+	private final int codes[];
+
+	MultiStringEvaluator(MultiStringColumn column, int searchTerm, int searchScale, int codes[])
+	{
+		this.column = column;
+		this.searchTerm = searchTerm;
+		this.searchScale = searchScale;
+		this.codes = codes;
+	}
+
+	double distance(int caseNum)
+	{
+		if (column.isUndefined(caseNum))
+			return 1;
+		return nominalDistance(column.overlapDiff(caseNum, codes), searchTerm, searchScale);
+	}
+
+	int cost()
+	{
+		// Merges the codes of the case with the searched codes
+		return 2 + codes.length;
+	}
+}
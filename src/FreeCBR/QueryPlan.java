@@ -0,0 +1,43 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class holds the evaluators and the candidate cases of a
+ * CompiledQuery, together with the data, version and settings they were
+ * compiled for. A plan is compiled again when one of them changes.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class QueryPlan
+{
+	final CBRdata data;
+	final long version;
+	final int infinity;
+	final boolean verbose;
+	final FeatureEvaluator evaluators[];
+	/** Bit set of the cases not disqualified by indexed features, null means all cases */
+	final long candidates[];
+	/** The indexes of the searched features in the order to calculate them */
+	final int order[];
+	/** Does some feature disqualify cases that are candidates? */
+	final boolean disqualifies;
+
+	QueryPlan(CBRdata data, long version, int infinity, boolean verbose, FeatureEvaluator evaluators[], long candidates[],
+			  int order[], boolean disqualifies)
+	{
+		this.data = data;
+		this.version = version;
+		this.infinity = infinity;
+		this.verbose = verbose;
+		this.evaluators = evaluators;
+		this.candidates = candidates;
+		this.order = order;
+		this.disqualifies = disqualifies;
+	}
+}
@@ -0,0 +1,289 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class keeps the results of recent searches. The entries are kept in
+ * least recently used order and the least recently used entries are
+ * dropped when the total number of kept results gets too large. All
+ * entries are for one version of one CBRdata, when the data or its version
+ * changes all entries are dropped, so results of old data are never
+ * returned.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class ResultCache
+{
+	/**
+	 * The entries, maps Key to CBRResult[], least recently used first
+	 * @since 1.2
+	 */
+	private final java.util.LinkedHashMap entries;
+
+	/**
+	 * Maximum total number of kept results
+	 * @since 1.2
+	 */
+	private int maxResults;
+
+	/**
+	 * Total number of kept results
+	 * @since 1.2
+	 */
+	private int numResults;
+
+	/**
+	 * The data of the entries
+	 * @since 1.2
+	 */
+	private CBRdata data;
+
+	/**
+	 * The version of the data of the entries
+	 * @since 1.2
+	 */
+	private long version;
+
+	/*
+	 * Statistics
+	 */
+	private long hits;
+	private long misses;
+	private long evictions;
+
+
+	/**
+	* Creates an empty cache
+	*
+	* @param maxResults the maximum total number of results to keep
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	ResultCache(int maxResults)
+	{
+		this.entries = new java.util.LinkedHashMap(16, 0.75f, true);
+		this.maxResults = maxResults;
+	}
+
+
+	/**
+	* Returns the results of a search if kept
+	*
+	* @param key the key of the search
+	* @param data the data searched
+	* @param version the current version of the data
+	* @return a copy of the results or null if not kept
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized CBRResult[] get(Key key, CBRdata data, long version)
+	{
+		CBRResult results[];
+
+		if (this.data != data || this.version != version)
+		{
+			reset(data, version);
+		}
+		results = (CBRResult[]) entries.get(key);
+		if (results == null)
+		{
+			misses++;
+			return null;
+		}
+		hits++;
+		return (CBRResult[]) results.clone();
+	}
+
+
+	/**
+	* Keeps the results of a search, unless they are more than all results
+	* the cache may keep
+	*
+	* @param key the key of the search
+	* @param results the results, copied
+	* @param data the data searched
+	* @param version the version of the data searched
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized void put(Key key, CBRResult results[], CBRdata data, long version)
+	{
+		java.util.Iterator it;
+		CBRResult old[];
+
+		if (this.data != data || this.version != version)
+		{
+			reset(data, version);
+		}
+		if (results.length > maxResults)
+		{
+			return;
+		}
+		old = (CBRResult[]) entries.put(key, results.clone());
+		if (old != null)
+		{
+			numResults -= old.length;
+		}
+		numResults += results.length;
+		// Drop the least recently used entries until the results fit
+		it = entries.values().iterator();
+		while (numResults > maxResults && it.hasNext())
+		{
+			numResults -= ((CBRResult[]) it.next()).length;
+			it.remove();
+			evictions++;
+		}
+	}
+
+
+	/**
+	* Sets the maximum total number of kept results, dropping entries if
+	* needed
+	*
+	* @param maxResults the maximum number of results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized void setMaxResults(int maxResults)
+	{
+		java.util.Iterator it = entries.values().iterator();
+
+		this.maxResults = maxResults;
+		while (numResults > maxResults && it.hasNext())
+		{
+			numResults -= ((CBRResult[]) it.next()).length;
+			it.remove();
+			evictions++;
+		}
+	}
+
+
+	/**
+	* Drops all entries
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized void clear()
+	{
+		reset(null, 0);
+	}
+
+
+	/**
+	* Returns the number of searches answered from the cache
+	*
+	* @return the number of hits
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	* Returns the number of searches not answered from the cache
+	*
+	* @return the number of misses
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	* Returns the number of entries dropped to make room for others
+	*
+	* @return the number of evictions
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	synchronized long getEvictions()
+	{
+		return evictions;
+	}
+
+
+	/**
+	* Drops all entries and tags the cache with another data version
+	*/
+	private void reset(CBRdata data, long version)
+	{
+		entries.clear();
+		numResults = 0;
+		this.data = data;
+		this.version = version;
+	}
+
+
+	/**
+	 * The key of a search, made from the checked arrays of a CompiledQuery
+	 * with the defaults filled in, the number of results, the minimum match
+	 * and the infinity constant
+	 */
+	static class Key
+	{
+		private final int ints[];
+		private final String values[];
+		private final long minMatch;
+		private final int hash;
+
+		Key(CompiledQuery query, int k, double minMatch, int infinity)
+		{
+			int n = query.featureNums.length;
+
+			ints = new int[6 * n + 2];
+			values = new String[n];
+			for (int i = 0; i < n; i++)
+			{
+				ints[6 * i] = query.featureNums[i];
+				ints[6 * i + 1] = query.weights[i];
+				ints[6 * i + 2] = query.terms[i];
+				ints[6 * i + 3] = query.scales[i];
+				ints[6 * i + 4] = query.options[i];
+				// The type and undefined flag tell "?" and undefined apart
+				ints[6 * i + 5] = query.values[i].getFeatureType() * 2 + (query.values[i].isUndefined() ? 1 : 0);
+				values[i] = query.values[i].toString();
+			}
+			ints[6 * n] = k;
+			ints[6 * n + 1] = infinity;
+			this.minMatch = Double.doubleToLongBits(minMatch);
+			hash = 31 * (31 * java.util.Arrays.hashCode(ints) + java.util.Arrays.hashCode(values)) + 
+				   (int) (this.minMatch ^ (this.minMatch >>> 32));
+		}
+
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash &&
+				   minMatch == other.minMatch &&
+				   java.util.Arrays.equals(ints, other.ints) &&
+				   java.util.Arrays.equals(values, other.values);
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class keeps the best k results of a search in a bounded heap. The
+ * worst of the kept results is at the top of the heap so a new result
+ * only has to be compared with it. The results are ordered the same way
+ * as by CBRResultComparator.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class ResultHeap
+{
+	/**
+	 * Case numbers of the kept results, in heap order
+	 * @since 1.2
+	 */
+	private int caseNums[];
+
+	/**
+	 * Match percentages of the kept results, in heap order
+	 * @since 1.2
+	 */
+	private double matches[];
+
+	/**
+	 * Number of kept results
+	 * @since 1.2
+	 */
+	private int size;
+
+	/**
+	 * Maximum number of kept results
+	 * @since 1.2
+	 */
+	private int capacity;
+
+
+	/**
+	* Creates an empty heap
+	*
+	* @param k the maximum number of results to keep, must be > 0
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	ResultHeap(int k)
+	{
+		this(new int[k], new double[k], k);
+	}
+
+	/**
+	* Creates an empty heap kept in the specified arrays
+	*
+	* @param caseNums array for the case numbers, at least k long
+	* @param matches array for the match percentages, at least k long
+	* @param k the maximum number of results to keep, must be > 0
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	ResultHeap(int caseNums[], double matches[], int k)
+	{
+		reset(caseNums, matches, k);
+	}
+
+
+	/**
+	* Empties the heap and lets it keep its results in other arrays, so
+	* that the same heap may be used for several searches
+	*
+	* @param caseNums array for the case numbers, at least k long
+	* @param matches array for the match percentages, at least k long
+	* @param k the maximum number of results to keep
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void reset(int caseNums[], double matches[], int k)
+	{
+		this.caseNums = caseNums;
+		this.matches = matches;
+		this.capacity = k;
+		this.size = 0;
+	}
+
+
+	/**
+	* Returns the number of kept results
+	*
+	* @return the number of results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	int size()
+	{
+		return size;
+	}
+
+
+	/**
+	* Are k results kept?
+	*
+	* @return true if the heap is full
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	boolean isFull()
+	{
+		return size == capacity;
+	}
+
+
+	/**
+	* Returns the match of the worst kept result
+	*
+	* @return the match, only valid if size() > 0
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	double worstMatch()
+	{
+		return matches[0];
+	}
+
+
+	/**
+	* Offers a result to the heap. The result is kept if there are less than
+	* k results or if it is better than the worst kept result, which is then
+	* dropped.
+	*
+	* @param caseNum the case number of the result
+	* @param matchPercent the match of the result
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void offer(int caseNum, double matchPercent)
+	{
+		if (size < capacity)
+		{
+			siftUp(size++, caseNum, matchPercent);
+		} else if (CBRResultComparator.compare(caseNum, matchPercent, caseNums[0], matches[0]) < 0)
+		{
+			siftDown(0, caseNum, matchPercent);
+		}
+	}
+
+
+	/**
+	* Offers all results kept by another heap to this heap
+	*
+	* @param other the heap whose results to offer
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void offerAll(ResultHeap other)
+	{
+		for (int i = 0; i < other.size; i++)
+		{
+			offer(other.caseNums[i], other.matches[i]);
+		}
+	}
+
+
+	/**
+	* Returns the kept results ordered by match, best first. The heap is
+	* emptied.
+	*
+	* @return array of results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	CBRResult[] toArray()
+	{
+		CBRResult resultArr[] = new CBRResult[size];
+
+		// Remove the worst result until the heap is empty
+		while (size > 0)
+		{
+			int last = --size;
+			resultArr[last] = new CBRResult(caseNums[0], matches[0]);
+			if (last > 0)
+			{
+				siftDown(0, caseNums[last], matches[last]);
+			}
+		}
+		return resultArr;
+	}
+
+
+	/**
+	* Orders the kept results by match, best first, in the arrays of the 
+	* heap. The heap is emptied.
+	*
+	* @return the number of results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	int sort()
+	{
+		int n = size;
+
+		// Move the worst result to the end until the heap is empty
+		while (size > 0)
+		{
+			int last = --size;
+			int caseNum = caseNums[0];
+			double matchPercent = matches[0];
+			if (last > 0)
+			{
+				siftDown(0, caseNums[last], matches[last]);
+			}
+			caseNums[last] = caseNum;
+			matches[last] = matchPercent;
+		}
+		return n;
+	}
+
+
+	/**
+	* Is the first result worse than the second?
+	*/
+	private boolean worse(int caseNum1, double matchPercent1, int caseNum2, double matchPercent2)
+	{
+		return CBRResultComparator.compare(caseNum1, matchPercent1, caseNum2, matchPercent2) > 0;
+	}
+
+	private void siftUp(int pos, int caseNum, double matchPercent)
+	{
+		while (pos > 0)
+		{
+			int parent = (pos - 1) >>> 1;
+			if (!worse(caseNum, matchPercent, caseNums[parent], matches[parent]))
+				break;
+			caseNums[pos] = caseNums[parent];
+			matches[pos] = matches[parent];
+			pos = parent;
+		}
+		caseNums[pos] = caseNum;
+		matches[pos] = matchPercent;
+	}
+
+	private void siftDown(int pos, int caseNum, double matchPercent)
+	{
+		int half = size >>> 1;
+
+		while (pos < half)
+		{
+			int child = 2 * pos + 1;
+			int right = child + 1;
+			if (right < size && worse(caseNums[right], matches[right], caseNums[child], matches[child]))
+				child = right;
+			if (!worse(caseNums[child], matches[child], caseNum, matchPercent))
+				break;
+			caseNums[pos] = caseNums[child];
+			matches[pos] = matches[child];
+			pos = child;
+		}
+		caseNums[pos] = caseNum;
+		matches[pos] = matchPercent;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is a growable list of search results kept as case numbers
+ * and matches in primitive arrays. It is used instead of a vector of
+ * CBRResult:s while a search collects all its results, so adding a
+ * result neither locks nor allocates an object. The CBRResult:s are
+ * created once, by toArray. Not thread safe, each search or chunk of a
+ * search has its own list.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class ResultList
+{
+	/**
+	 * The case numbers of the results
+	 * @since 1.2
+	 */
+	private int caseNums[];
+
+	/**
+	 * The matches of the results, matches[i] is the match of caseNums[i]
+	 * @since 1.2
+	 */
+	private double matches[];
+
+	/**
+	 * Number of results in the list
+	 * @since 1.2
+	 */
+	private int size;
+
+
+	/**
+	* Creates an empty list
+	*
+	* @param capacity the number of results to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	ResultList(int capacity)
+	{
+		capacity = Math.max(capacity, 16);
+		caseNums = new int[capacity];
+		matches = new double[capacity];
+		size = 0;
+	}
+
+
+	/**
+	* Adds a result last in the list
+	*
+	* @param caseNum the case number
+	* @param match the match percentage
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void add(int caseNum, double match)
+	{
+		if (size == caseNums.length)
+		{
+			grow(size + 1);
+		}
+		caseNums[size] = caseNum;
+		matches[size] = match;
+		size++;
+	}
+
+
+	/**
+	* Adds all results of another list last in the list, in their order
+	*
+	* @param other the list to add
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void addAll(ResultList other)
+	{
+		if (size + other.size > caseNums.length)
+		{
+			grow(size + other.size);
+		}
+		System.arraycopy(other.caseNums, 0, caseNums, size, other.size);
+		System.arraycopy(other.matches, 0, matches, size, other.size);
+		size += other.size;
+	}
+
+
+	/**
+	* Returns the number of results in the list
+	*
+	* @return the number of results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	int size()
+	{
+		return size;
+	}
+
+
+	/**
+	* Returns the results in the order they were added
+	*
+	* @return array of the results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	CBRResult[] toArray()
+	{
+		CBRResult results[] = new CBRResult[size];
+
+		for (int i = 0; i < size; i++)
+		{
+			results[i] = new CBRResult(caseNums[i], matches[i]);
+		}
+		return results;
+	}
+
+
+	/**
+	* Makes room for at least the specified number of results
+	*/
+	private void grow(int capacity)
+	{
+		int newCapacity = Math.max(capacity, caseNums.length * 2);
+		int newCaseNums[] = new int[newCapacity];
+		double newMatches[] = new double[newCapacity];
+
+		System.arraycopy(caseNums, 0, newCaseNums, 0, size);
+		System.arraycopy(matches, 0, newMatches, 0, size);
+		caseNums = newCaseNums;
+		matches = newMatches;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class holds the work arrays of a scan that gives up cases early, see
+ * CBR.scanCasesAbandoning. The arrays are kept per thread and reused, so
+ * a scan allocates nothing once the arrays are large enough. It also
+ * chooses the order in which the features are calculated: first the order
+ * of the QueryPlan, then, after some cases, the features that have
+ * disqualified cases by decreasing share of disqualified cases per cost,
+ * followed by the others by decreasing average addition to the hit per
+ * cost. The features most likely to give up a case are calculated first.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class ScanState
+{
+	/**
+	 * Number of cases calculated before the order is chosen again
+	 * @since 1.2
+	 */
+	static final int SAMPLE_SIZE = 256;
+
+	/**
+	 * The distance of each searched feature of the current case
+	 * @since 1.2
+	 */
+	double dists[];
+
+	/**
+	 * For each searched feature, true if it counts for the current case
+	 * @since 1.2
+	 */
+	boolean counted[];
+
+	/**
+	 * The indexes of the searched features in calculation order
+	 * @since 1.2
+	 */
+	int order[];
+
+	/**
+	 * Sum of weight * distance^2 of each searched feature over the sample
+	 * @since 1.2
+	 */
+	private double additions[];
+
+	/**
+	 * Number of times each searched feature was calculated in the sample
+	 * @since 1.2
+	 */
+	private int calculations[];
+
+	/**
+	 * Number of cases each searched feature disqualified in the sample
+	 * @since 1.2
+	 */
+	private int disqualifications[];
+
+	/**
+	 * The cost of each searched feature, see FeatureEvaluator.cost
+	 * @since 1.2
+	 */
+	private int costs[];
+
+	/**
+	 * Number of cases sampled so far
+	 * @since 1.2
+	 */
+	private int sampled;
+
+
+	/**
+	* Creates a state for n searched features
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	ScanState(int n)
+	{
+		dists = new double[n];
+		counted = new boolean[n];
+		order = new int[n];
+		additions = new double[n];
+		calculations = new int[n];
+		disqualifications = new int[n];
+		costs = new int[n];
+	}
+
+
+	/**
+	* Prepares for a scan of a search
+	*
+	* @param plan the plan of the search
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void start(QueryPlan plan)
+	{
+		int n = plan.order.length;
+
+		if (order.length < n)
+		{
+			dists = new double[n];
+			counted = new boolean[n];
+			order = new int[n];
+			additions = new double[n];
+			calculations = new int[n];
+			disqualifications = new int[n];
+			costs = new int[n];
+		}
+		System.arraycopy(plan.order, 0, order, 0, n);
+		for (int i = 0; i < n; i++)
+		{
+			additions[i] = 0;
+			calculations[i] = 0;
+			disqualifications[i] = 0;
+			costs[i] = plan.evaluators[i].cost();
+		}
+		sampled = 0;
+	}
+
+
+	/**
+	* Notes that a searched feature was calculated
+	*
+	* @param searchNum the index of the searched feature
+	* @param addition what it added to the hit, 0 if it did not count
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void calculated(int searchNum, double addition)
+	{
+		if (sampled < SAMPLE_SIZE)
+		{
+			additions[searchNum] += addition;
+			calculations[searchNum]++;
+		}
+	}
+
+
+	/**
+	* Notes that a searched feature disqualified the case
+	*
+	* @param searchNum the index of the searched feature
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void disqualified(int searchNum)
+	{
+		if (sampled < SAMPLE_SIZE)
+		{
+			disqualifications[searchNum]++;
+			calculations[searchNum]++;
+		}
+	}
+
+
+	/**
+	* Notes that a case is done, and orders the features when the sample is
+	* complete
+	*
+	* @param n the number of searched features
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void caseDone(int n)
+	{
+		if (sampled < SAMPLE_SIZE && ++sampled == SAMPLE_SIZE)
+		{
+			// Insertion sort, stable so equal features keep the plan order
+			for (int i = 1; i < n; i++)
+			{
+				int searchNum = order[i];
+				int j = i;
+				while (j > 0 && before(searchNum, order[j - 1]))
+				{
+					order[j] = order[j - 1];
+					j--;
+				}
+				order[j] = searchNum;
+			}
+		}
+	}
+
+	/**
+	* Should feature a be calculated before feature b?
+	*/
+	private boolean before(int a, int b)
+	{
+		if ((disqualifications[a] > 0) != (disqualifications[b] > 0))
+		{
+			return disqualifications[a] > 0;
+		}
+		if (disqualifications[a] > 0)
+		{
+			return (double) disqualifications[a] / calculations[a] / costs[a] >
+				   (double) disqualifications[b] / calculations[b] / costs[b];
+		}
+		return average(a) > average(b);
+	}
+
+	/**
+	* Returns the average addition of a feature per cost, features that were
+	* never calculated are placed first since nothing is known about them
+	*/
+	private double average(int searchNum)
+	{
+		if (calculations[searchNum] == 0)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		return additions[searchNum] / calculations[searchNum] / costs[searchNum];
+	}
+}
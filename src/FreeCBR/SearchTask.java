@@ -0,0 +1,69 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class searches one chunk of the cases when a search is split over
+ * several threads. The result of the chunk is either a ResultHeap with its
+ * best k results or a ResultList with all its results in case order.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class SearchTask implements java.util.concurrent.Callable
+{
+	private final CBR cbr;
+	private final CompiledQuery query;
+	private final QueryPlan plan;
+	private final int from;
+	private final int to;
+	private final int k;
+	private final double minMatch;
+
+
+	/**
+	* Creates a task for the cases from (inclusive) to to (exclusive)
+	*
+	* @param k the number of results to keep, 0 means all results
+	* @param minMatch the lowest match to keep
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	SearchTask(CBR cbr, CompiledQuery query, QueryPlan plan, int from, int to, int k, double minMatch)
+	{
+		this.cbr = cbr;
+		this.query = query;
+		this.plan = plan;
+		this.from = from;
+		this.to = to;
+		this.k = k;
+		this.minMatch = minMatch;
+	}
+
+
+	/**
+	* Searches the chunk
+	*
+	* @return a ResultHeap if k > 0, otherwise a ResultList of the results
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public Object call()
+	{
+		if (k > 0)
+		{
+			ResultHeap heap = new ResultHeap(k);
+			cbr.scanCases(query, plan, from, to, minMatch, heap, null);
+			return heap;
+		}
+		ResultList resultSet = new ResultList(to - from);
+		cbr.scanCases(query, plan, from, to, minMatch, null, resultSet);
+		return resultSet;
+	}
+}
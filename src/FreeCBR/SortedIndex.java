@@ -0,0 +1,409 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is a sorted index for a column. It keeps the defined values
+ * of the column as (key, case number) pairs sorted by key so that the
+ * cases within a range of values are found by binary search. Float values
+ * are stored as keys with the same order, see floatKey, and strings as
+ * their dictionary codes, one pair for each string of a MultiString value.
+ * Cases added last are kept in an unsorted tail that is merged into the
+ * sorted part when it grows.<br />
+ * A changed value is added as a new pair, the pair of the old value is
+ * left as a stale pair. mark checks the pairs it finds against the values
+ * of the column, so the index is never rebuilt when a value changes. The
+ * stale pairs are removed when they become too many, or when a case is
+ * removed and the numbers of the later cases are shifted.<br />
+ * A copy of the index for a new version of the data shares the arrays
+ * with the original, see copy. The arrays are only changed beyond the
+ * pairs of the original, other changes write new arrays.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class SortedIndex
+{
+	/**
+	 * The keys of the sorted part
+	 * @since 1.2
+	 */
+	private long keys[];
+
+	/**
+	 * The case numbers of the sorted part, cases[i] has the key keys[i]
+	 * @since 1.2
+	 */
+	private int cases[];
+
+	/**
+	 * Number of pairs in the sorted part
+	 * @since 1.2
+	 */
+	private int sortedSize;
+
+	/**
+	 * Total number of pairs, the pairs from sortedSize are the unsorted tail
+	 * @since 1.2
+	 */
+	private int size;
+
+	/**
+	 * Number of stale pairs, of values that have been changed or removed
+	 * @since 1.2
+	 */
+	private int numStale;
+
+
+	/**
+	* Creates an empty index
+	*
+	* @param capacity the number of pairs to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	SortedIndex(int capacity)
+	{
+		keys = new long[Math.max(capacity, 16)];
+		cases = new int[keys.length];
+		sortedSize = 0;
+		size = 0;
+	}
+
+
+	/**
+	* Returns a copy of the index that may be changed without changing the
+	* original. The original is not changed any more, searches may go on 
+	* reading it. The copy shares the arrays with the original: pairs added 
+	* to the copy are stored beyond the pairs of the original, which never 
+	* reads them, and merging the tail or removing pairs writes new arrays.
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	SortedIndex copy()
+	{
+		SortedIndex copy = new SortedIndex(0);
+
+		copy.keys = keys;
+		copy.cases = cases;
+		copy.sortedSize = sortedSize;
+		copy.size = size;
+		copy.numStale = numStale;
+		return copy;
+	}
+
+
+	/**
+	* Returns the key of a Float value. The keys are ordered the same way as
+	* the values, except that NaN is ordered above all other values, and
+	* -0.0 and 0.0 get the same key.
+	*
+	* @param value the value
+	* @return the key
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	static long floatKey(double value)
+	{
+		// Adding 0.0 turns -0.0 into 0.0
+		long bits = Double.doubleToLongBits(value + 0.0);
+
+		return bits >= 0 ? bits : bits ^ Long.MAX_VALUE;
+	}
+
+
+	/**
+	* Adds a pair, when a case gets a defined value. The pair is added to
+	* the tail, which is merged into the sorted part now and then.
+	*
+	* @param key the key of the value
+	* @param caseNum the number of the case
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void add(long key, int caseNum)
+	{
+		if (size == keys.length)
+		{
+			long newKeys[] = new long[size * 2];
+			int newCases[] = new int[size * 2];
+			System.arraycopy(keys, 0, newKeys, 0, size);
+			System.arraycopy(cases, 0, newCases, 0, size);
+			keys = newKeys;
+			cases = newCases;
+		}
+		keys[size] = key;
+		cases[size] = caseNum;
+		size++;
+		if (size - sortedSize > Math.max(64, sortedSize / 8))
+		{
+			sortTail();
+		}
+	}
+
+
+	/**
+	* Makes the pairs of a case stale, when the defined value of the case is
+	* about to be changed or removed. The stale pairs are removed when they
+	* are more than an eighth of the pairs.
+	*
+	* @param caseNum the number of the case
+	* @param numPairs the number of pairs of the value, 1 unless the value
+	*		is a MultiString
+	* @param column the column of the index, holding the old value
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void remove(int caseNum, int numPairs, FeatureColumn column)
+	{
+		numStale += numPairs;
+		if (numStale > Math.max(64, size / 8))
+		{
+			removeStale(column, caseNum);
+		}
+	}
+
+
+	/**
+	* Removes the pairs of a removed case and shifts the numbers of the
+	* later cases one step down. The value of the case is already made
+	* stale by remove.
+	*
+	* @param caseNum the number of the removed case
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void removeCase(int caseNum)
+	{
+		long newKeys[] = new long[keys.length];
+		int newCases[] = new int[keys.length];
+		int n = 0;
+		int numSorted = 0;
+
+		for (int pos = 0; pos < size; pos++)
+		{
+			if (cases[pos] == caseNum)
+			{
+				numStale--;
+				continue;
+			}
+			if (pos < sortedSize)
+			{
+				numSorted++;
+			}
+			newKeys[n] = keys[pos];
+			newCases[n++] = cases[pos] > caseNum ? cases[pos] - 1 : cases[pos];
+		}
+		keys = newKeys;
+		cases = newCases;
+		sortedSize = numSorted;
+		size = n;
+	}
+
+
+	/**
+	* Sets the bits of the cases whose keys are within a range. The pairs
+	* found are checked against the values of the column, stale pairs are
+	* skipped.
+	*
+	* @param low the lowest key, inclusive
+	* @param high the highest key, inclusive
+	* @param bits bit set with a bit for each case, changed
+	* @param column the column of the index
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	void mark(long low, long high, long bits[], FeatureColumn column)
+	{
+		int pos;
+
+		if (low > high)
+		{
+			return;
+		}
+		// The first key >= low in the sorted part
+		int lo = 0;
+		int hi = sortedSize;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid] < low)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		for (pos = lo; pos < sortedSize && keys[pos] <= high; pos++)
+		{
+			if (numStale == 0 || isCurrent(pos, column))
+			{
+				FeatureColumn.setBit(bits, cases[pos], true);
+			}
+		}
+		for (pos = sortedSize; pos < size; pos++)
+		{
+			if (keys[pos] >= low && keys[pos] <= high && 
+					(numStale == 0 || isCurrent(pos, column)))
+			{
+				FeatureColumn.setBit(bits, cases[pos], true);
+			}
+		}
+	}
+
+
+	/**
+	* Is the pair at a position a part of the current value of its case?
+	*/
+	private boolean isCurrent(int pos, FeatureColumn column)
+	{
+		return column.hasSortKey(cases[pos], keys[pos]);
+	}
+
+
+	/**
+	* Removes the stale pairs and the pairs of a case whose value is about
+	* to be changed. Of the equal pairs of the current value of a case, 
+	* which there are more of if the case got the same value again, one is 
+	* kept.
+	*/
+	private void removeStale(FeatureColumn column, int caseNum)
+	{
+		long kept[] = new long[FeatureColumn.wordsFor(column.size())];
+		long newKeys[];
+		int newCases[];
+		int n = 0;
+		int runStart = 0;
+
+		sortTail();
+		newKeys = new long[keys.length];
+		newCases = new int[keys.length];
+		for (int pos = 0; pos < size; pos++)
+		{
+			if (n > runStart && newKeys[n - 1] != keys[pos])
+			{
+				// A new key, equal pairs are next to each other
+				for (int i = runStart; i < n; i++)
+				{
+					FeatureColumn.setBit(kept, newCases[i], false);
+				}
+				runStart = n;
+			}
+			if (cases[pos] == caseNum || 
+					!isCurrent(pos, column) || 
+					FeatureColumn.getBit(kept, cases[pos]))
+			{
+				continue;
+			}
+			FeatureColumn.setBit(kept, cases[pos], true);
+			newKeys[n] = keys[pos];
+			newCases[n++] = cases[pos];
+		}
+		keys = newKeys;
+		cases = newCases;
+		sortedSize = n;
+		size = n;
+		numStale = 0;
+	}
+
+
+	/**
+	* Sorts the tail and merges it into the sorted part, in new arrays
+	*/
+	void sortTail()
+	{
+		long newKeys[];
+		int newCases[];
+		long tmpKeys[];
+		int tmpCases[];
+
+		if (sortedSize == size)
+		{
+			return;
+		}
+		newKeys = new long[keys.length];
+		newCases = new int[keys.length];
+		tmpKeys = new long[keys.length];
+		tmpCases = new int[keys.length];
+		System.arraycopy(keys, 0, newKeys, 0, size);
+		System.arraycopy(cases, 0, newCases, 0, size);
+		sort(newKeys, newCases, sortedSize, size, tmpKeys, tmpCases);
+		// Merge the two sorted runs [0, sortedSize) and [sortedSize, size)
+		if (sortedSize > 0)
+		{
+			merge(newKeys, newCases, 0, sortedSize, size, tmpKeys, tmpCases);
+			newKeys = tmpKeys;
+			newCases = tmpCases;
+		}
+		keys = newKeys;
+		cases = newCases;
+		sortedSize = size;
+	}
+
+
+	/**
+	* Merge sort of keys[from, to) with the cases following their keys
+	*/
+	private static void sort(long keys[], int cases[], int from, int to, long tmpKeys[], int tmpCases[])
+	{
+		int mid;
+
+		if (to - from < 2)
+		{
+			return;
+		}
+		mid = (from + to) >>> 1;
+		sort(keys, cases, from, mid, tmpKeys, tmpCases);
+		sort(keys, cases, mid, to, tmpKeys, tmpCases);
+		if (keys[mid - 1] <= keys[mid])
+		{
+			// Already in order, common when values are added in order
+			return;
+		}
+		merge(keys, cases, from, mid, to, tmpKeys, tmpCases);
+		System.arraycopy(tmpKeys, from, keys, from, to - from);
+		System.arraycopy(tmpCases, from, cases, from, to - from);
+	}
+
+	/**
+	* Merges the sorted runs [from, mid) and [mid, to) into tmp[from, to)
+	*/
+	private static void merge(long keys[], int cases[], int from, int mid, int to, long tmpKeys[], int tmpCases[])
+	{
+		int i = from, j = mid, k = from;
+
+		while (i < mid && j < to)
+		{
+			if (keys[j] < keys[i])
+			{
+				tmpKeys[k] = keys[j];
+				tmpCases[k++] = cases[j++];
+			} else
+			{
+				tmpKeys[k] = keys[i];
+				tmpCases[k++] = cases[i++];
+			}
+		}
+		while (i < mid)
+		{
+			tmpKeys[k] = keys[i];
+			tmpCases[k++] = cases[i++];
+		}
+		while (j < to)
+		{
+			tmpKeys[k] = keys[j];
+			tmpCases[k++] = cases[j++];
+		}
+	}
+}
@@ -0,0 +1,472 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class stores the values of a String feature as int codes into a 
+ * dictionary of the strings used by the feature
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class StringColumn extends FeatureColumn
+{
+	/**
+	 * The codes of the values in segments, undefined values are stored as -1
+	 * @since 1.2
+	 */
+	private int codes[][];
+	
+	/**
+	 * The strings used by the feature
+	 * @since 1.2
+	 */
+	private StringDictionary dictionary;
+	
+	/**
+	 * Number of cases using each string
+	 * @since 1.2
+	 */
+	private UseCounts useCounts;
+	
+	/**
+	 * The sorted strings with a use count above 0, null when it has to be 
+	 * recalculated
+	 * @since 1.2
+	 */
+	private String usedStrings[];
+	
+	/**
+	 * Sorted index of the codes, only used when the column is indexed. 
+	 * Null until it is needed, then it is kept up to date.
+	 * @since 1.2
+	 */
+	private transient SortedIndex sortedIndex;
+
+
+	/**
+	* Creates an empty column
+	*
+	* @param capacity the number of cases to allocate room for
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected StringColumn(int capacity)
+	{
+		super(capacity);
+		codes = new int[numSegments()][segmentLength()];
+		dictionary = new StringDictionary();
+		useCounts = new UseCounts();
+		usedStrings = null;
+		sortedIndex = null;
+	}
+
+
+	/**
+	* Creates a column of cases read from a file, see ColumnFile, whose 
+	* codes are kept by a subclass
+	*
+	* @param size the number of cases
+	* @param undefined bit set telling which cases are undefined
+	* @param dictionary the strings used by the feature
+	* @param useCounts number of cases using each string of the dictionary
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected StringColumn(int size, long undefined[], StringDictionary dictionary, UseCounts useCounts)
+	{
+		super(size, undefined);
+		this.dictionary = dictionary;
+		this.useCounts = useCounts;
+		usedStrings = null;
+		sortedIndex = null;
+	}
+
+
+	protected short getFeatureType()
+	{
+		return Feature.FEATURE_TYPE_STRING;
+	}
+
+
+	/**
+	* Returns the String value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the value, null if undefined
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected String getString(int caseNum)
+	{
+		int code = getCode(caseNum);
+		
+		if (code < 0)
+		{
+			return null;
+		}
+		return dictionary.get(code);
+	}
+	
+	
+	/**
+	* Appends a defined value to the end of the column, same as add but 
+	* without a Feature
+	*
+	* @param value the value to append
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addString(String value)
+	{
+		addCode(dictionary.add(value));
+	}
+	
+	
+	/**
+	* Appends all values of another String column. The codes of the other 
+	* dictionary are mapped to codes of this one the first time they are 
+	* used, so the strings are added to the dictionary in the same order as 
+	* if the values were added one by one.
+	*
+	* @param other the column to append
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void addAll(FeatureColumn other)
+	{
+		StringColumn strings = (StringColumn) other;
+		int map[] = new int[strings.getDictionary().size()];
+		int code;
+		
+		java.util.Arrays.fill(map, -1);
+		ensureCapacity(size + other.size());
+		for (int i = 0 ; i < other.size() ; i++ )
+		{
+			if (other.isUndefined(i))
+			{
+				addUndefined();
+			} else
+			{
+				code = strings.getCode(i);
+				if (map[code] < 0)
+				{
+					map[code] = dictionary.add(strings.getDictionary().get(code));
+				}
+				addCode(map[code]);
+			}
+		}
+	}
+	
+	
+	/**
+	* Appends a defined value by its dictionary code
+	*/
+	private void addCode(int code)
+	{
+		ensureCapacity(size + 1);
+		size++;
+		setBit(undefined, size - 1, false);
+		codes[(size - 1) >>> SEGMENT_BITS][(size - 1) & SEGMENT_MASK] = code;
+		valueAdded(size - 1);
+	}
+	
+	
+	/**
+	* Returns the dictionary code of the value of the specified case
+	*
+	* @param caseNum the number of the case
+	* @return the code, -1 if undefined
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int getCode(int caseNum)
+	{
+		return codes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK];
+	}
+
+
+	protected long getSortKey(int caseNum)
+	{
+		return getCode(caseNum);
+	}
+	
+	
+	/**
+	* Returns the dictionary of the strings used by the feature
+	*
+	* @return the dictionary
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected StringDictionary getDictionary()
+	{
+		return dictionary;
+	}
+
+
+	protected synchronized String[] getUsedStrings()
+	{
+		int n = 0;
+		
+		if (usedStrings == null)
+		{
+			for (int code = 0; code < dictionary.size(); code++)
+			{
+				if (useCounts.get(code) > 0)
+				{
+					n++;
+				}
+			}
+			usedStrings = new String[n];
+			n = 0;
+			for (int code = 0; code < dictionary.size(); code++)
+			{
+				if (useCounts.get(code) > 0)
+				{
+					usedStrings[n++] = dictionary.get(code);
+				}
+			}
+			FArrays.sort(usedStrings, new StringComparator());
+		}
+		return usedStrings;
+	}
+
+
+	/**
+	* Encodes a searched String as its dictionary code
+	*
+	* @param searchFeature the searched feature, must not be undefined
+	* @return the code as an Integer, -1 if the string is not used by any case
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected Object encodeSearch(Feature searchFeature)
+	{
+		checkDiffType(searchFeature);
+		return Integer.valueOf(dictionary.lookup(searchFeature.getStringValue()));
+	}
+
+
+	protected double diff(int caseNum, Feature searchFeature, Object searchKey)
+	{
+		if (getCode(caseNum) == ((Integer) searchKey).intValue())
+			return 0;
+		else
+			return 1;
+	}
+
+
+	protected void copySegments(int length)
+	{
+		super.copySegments(length);
+		codes = java.util.Arrays.copyOf(codes, length);
+	}
+
+
+	protected void resizeSegment(int segment, int length)
+	{
+		super.resizeSegment(segment, length);
+		codes[segment] = java.util.Arrays.copyOf(codes[segment], length);
+	}
+
+
+	protected void addSegment(int segment)
+	{
+		super.addSegment(segment);
+		codes[segment] = new int[SEGMENT_SIZE];
+	}
+
+
+	protected synchronized FeatureColumn copy()
+	{
+		StringColumn copy = (StringColumn) super.copy();
+		
+		// Changed by every change of a value, shared the same way as the 
+		// segments
+		copy.dictionary = dictionary.copy();
+		copy.useCounts = useCounts.copy();
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+	/**
+	* Returns a copy of the column with the codes in segments of its own, 
+	* used to copy a column whose codes are kept elsewhere by a subclass
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected StringColumn copyCodes()
+	{
+		StringColumn copy = new StringColumn(Math.max(size, INITIAL_CAPACITY));
+		
+		copy.dictionary = dictionary.copy();
+		for (int c = 0 ; c < size ; c++ )
+		{
+			if (isUndefined(c))
+			{
+				copy.addUndefined();
+			} else
+			{
+				copy.addCode(getCode(c));
+			}
+		}
+		copy.usedStrings = usedStrings;
+		copy.indexed = indexed;
+		if (sortedIndex != null)
+		{
+			copy.sortedIndex = sortedIndex.copy();
+		}
+		return copy;
+	}
+
+
+	protected void setIndexed(boolean indexed)
+	{
+		super.setIndexed(indexed);
+		sortedIndex = null;
+	}
+
+
+	/**
+	* Filters the candidates with the sorted index of the codes, if the 
+	* column is indexed
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected boolean filter(Object searchKey, int searchTerm, long candidates[])
+	{
+		int code;
+		long matching[];
+		
+		if (!indexed || 
+				searchTerm != CBR.SEARCH_TERM_EQUAL && 
+				searchTerm != CBR.SEARCH_TERM_NOT_EQUAL)
+		{
+			return false;
+		}
+		code = ((Integer) searchKey).intValue();
+		matching = new long[candidates.length];
+		getSortedIndex().mark(code, code, matching, this);
+		applyFilter(matching, searchTerm, candidates);
+		return true;
+	}
+
+
+	/**
+	* Builds the index the first time it is needed
+	*
+	* @return the index
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private synchronized SortedIndex getSortedIndex()
+	{
+		if (sortedIndex == null)
+		{
+			sortedIndex = new SortedIndex(size);
+			for (int c = 0; c < size; c++)
+			{
+				if (!isUndefined(c))
+				{
+					sortedIndex.add(getCode(c), c);
+				}
+			}
+			sortedIndex.sortTail();
+		}
+		return sortedIndex;
+	}
+
+
+	protected void setValue(int caseNum, Feature feat)
+	{
+		codes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = dictionary.add(feat.getStringValue());
+	}
+
+
+	protected void clearValue(int caseNum)
+	{
+		codes[caseNum >>> SEGMENT_BITS][caseNum & SEGMENT_MASK] = -1;
+	}
+
+
+	protected void removeValue(int caseNum)
+	{
+		removeElement(codes, caseNum, size);
+		clearValue(size - 1);
+		if (sortedIndex != null)
+		{
+			sortedIndex.removeCase(caseNum);
+		}
+	}
+
+
+	protected void valueAdded(int caseNum)
+	{
+		use(getCode(caseNum), 1);
+		if (sortedIndex != null)
+		{
+			sortedIndex.add(getCode(caseNum), caseNum);
+		}
+	}
+
+
+	protected void valueRemoved(int caseNum)
+	{
+		use(getCode(caseNum), -1);
+		if (sortedIndex != null)
+		{
+			sortedIndex.remove(caseNum, 1, this);
+		}
+	}
+	
+	
+	/**
+	* Changes the use count of a string. The sorted list of used strings is 
+	* only recalculated when a string becomes used or unused.
+	*
+	* @param code the code of the string
+	* @param change the change of the use count, 1 or -1
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	private void use(int code, int change)
+	{
+		int count = useCounts.add(code, change);
+		
+		if (count == 0 || 
+				count == 1 && change > 0)
+		{
+			usedStrings = null;
+		}
+	}
+
+
+	protected Feature getDefinedFeature(int caseNum)
+	{
+		return new Feature(dictionary.get(getCode(caseNum)));
+	}
+}
@@ -0,0 +1,264 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class maps the string values of a String or MultiString feature to
+ * int codes. Codes are given out in the order the strings are added,
+ * starting with 0, and never change. A copy for a new version of the data
+ * shares the arrays with the original, see copy.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class StringDictionary implements java.io.Serializable
+{
+	/**
+	 * The strings, stored as strings[code]
+	 * @since 1.2
+	 */
+	private String strings[];
+
+	/**
+	 * Hash table with open addressing, stores code + 1 for each used slot
+	 * and 0 for empty slots
+	 * @since 1.2
+	 */
+	private int table[];
+
+	/**
+	 * Number of strings in the dictionary
+	 * @since 1.2
+	 */
+	private int size;
+
+	/**
+	 * Has a copy sharing the arrays been made? Then only that copy may add
+	 * strings to them.
+	 * @since 1.2
+	 */
+	private transient boolean copied;
+
+
+	/**
+	* Creates an empty dictionary
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected StringDictionary()
+	{
+		strings = new String[16];
+		table = new int[32];
+		size = 0;
+	}
+
+
+	/**
+	* Returns a copy of the dictionary, strings added to the copy are not
+	* added to the original. The first copy shares the arrays with the 
+	* original, which is not changed any more: the copy stores its strings 
+	* beyond the strings of the original, and the original skips the codes 
+	* beyond its size in the hash table. Later copies of the same original 
+	* get arrays of their own, since the first copy may already have added 
+	* strings.
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected synchronized StringDictionary copy()
+	{
+		StringDictionary copy = new StringDictionary();
+
+		if (copied)
+		{
+			copy.strings = (String[]) strings.clone();
+			copy.size = size;
+			copy.rehash(table.length);
+		} else
+		{
+			copy.strings = strings;
+			copy.table = table;
+			copy.size = size;
+			copied = true;
+		}
+		return copy;
+	}
+
+
+	/**
+	* Returns the number of strings in the dictionary
+	*
+	* @return the number of strings
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int size()
+	{
+		return size;
+	}
+
+
+	/**
+	* Returns the string with the specified code
+	*
+	* @param code the code of the string
+	* @return the string
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected String get(int code)
+	{
+		return strings[code];
+	}
+
+
+	/**
+	* Returns the code of the specified string
+	*
+	* @param str the string to look for
+	* @return the code of the string, -1 if the string is not in the dictionary
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int lookup(String str)
+	{
+		int mask = table.length - 1;
+		int slot = hash(str) & mask;
+
+		while (table[slot] != 0)
+		{
+			// Codes from size are strings added by a copy
+			if (table[slot] <= size && strings[table[slot] - 1].equals(str))
+			{
+				return table[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	/**
+	* Returns the code of the specified string, the string is added to the
+	* dictionary if it is not already there
+	*
+	* @param str the string to add
+	* @return the code of the string
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int add(String str)
+	{
+		int code = lookup(str);
+
+		if (code >= 0)
+		{
+			return code;
+		}
+		if (size == strings.length)
+		{
+			String newStrings[] = new String[size * 2];
+			System.arraycopy(strings, 0, newStrings, 0, size);
+			strings = newStrings;
+		}
+		code = size++;
+		strings[code] = str;
+		if (size * 2 > table.length)
+		{
+			rehash(table.length * 2);
+		} else
+		{
+			insert(code);
+		}
+		return code;
+	}
+
+
+	/**
+	* Returns the codes of the specified strings, sorted in increasing order.
+	* Strings that are not in the dictionary get the code -1. Duplicates are
+	* kept.
+	*
+	* @param strs the strings to look for
+	* @return the sorted codes
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int[] lookupSorted(String strs[])
+	{
+		int codes[] = new int[strs.length];
+
+		for (int i = 0; i < strs.length; i++)
+		{
+			codes[i] = lookup(strs[i]);
+		}
+		sort(codes);
+		return codes;
+	}
+
+
+	/**
+	* Sorts an array of codes in increasing order
+	*
+	* @param codes the codes to sort
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected static void sort(int codes[])
+	{
+		// The arrays are the values of a single case, insertion sort is enough
+		for (int i = 1; i < codes.length; i++)
+		{
+			int code = codes[i];
+			int j = i - 1;
+			while (j >= 0 && codes[j] > code)
+			{
+				codes[j + 1] = codes[j];
+				j--;
+			}
+			codes[j + 1] = code;
+		}
+	}
+
+
+	private void rehash(int newLength)
+	{
+		table = new int[newLength];
+		for (int code = 0; code < size; code++)
+		{
+			insert(code);
+		}
+	}
+
+	private void insert(int code)
+	{
+		int mask = table.length - 1;
+		int slot = hash(strings[code]) & mask;
+
+		while (table[slot] != 0)
+		{
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = code + 1;
+	}
+
+	private static int hash(String str)
+	{
+		int h = str.hashCode();
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,38 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class is the FeatureEvaluator of String features, it compares the
+ * dictionary code of each case with the code of the searched string.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class StringEvaluator extends FeatureEvaluator
+{
+	private final StringColumn column;
+	private final int searchTerm;
+	private final int searchScale;
+	/** Dictionary code of the searched value, -1 if not used by any case */
+	private final int code;
+
+	StringEvaluator(StringColumn column, int searchTerm, int searchScale, int code)
+	{
+		this.column = column;
+		this.searchTerm = searchTerm;
+		this.searchScale = searchScale;
+		this.code = code;
+	}
+
+	double distance(int caseNum)
+	{
+		if (column.isUndefined(caseNum))
+			return 1;
+		return nominalDistance(column.getCode(caseNum) == code ? 0 : 1, searchTerm, searchScale);
+	}
+}
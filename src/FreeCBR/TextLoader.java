@@ -0,0 +1,1084 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class reads a tab separated text file into a data set. The file is
+ * read through a channel into a byte buffer and the lines and tabs are
+ * found in the bytes, no line or field String:s are created. Int, Float
+ * and Bool values in plain ASCII are parsed directly from the bytes and
+ * String values are interned per feature, so a value that is repeated is
+ * decoded once. The values are appended directly to the columns of the
+ * data set. Anything else is interpreted by Feature exactly as
+ * CBRdata.addCase(String) does, so the cases and the errors are the same.
+ * The file is decoded with the platform default charset, as FileHandler
+ * writes it, or the charset set by setCharset. The charset must encode
+ * ASCII as itself. A value that is not valid in the charset is an error of
+ * its case, it is not replaced.<br />
+ * A large file is split into chunks of whole lines after the feature names
+ * and types. Each chunk is read into a data set of its own by a TextLoader
+ * of its own, on the threads of the common fork/join pool, and the data
+ * sets are then concatenated in order. The errors of the chunks are logged
+ * in order when all are read, with the same case numbers as if the file
+ * was read by one thread.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class TextLoader implements java.util.concurrent.Callable
+{
+	/**
+	 * Size of the buffer the file is read into, it grows if a line is longer
+	 * @since 1.2
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Default smallest number of bytes per chunk of a file that is split
+	 * @since 1.2
+	 */
+	protected static final long DEFAULT_MIN_CHUNK_SIZE = 1 << 23;
+
+	/**
+	 * Exact powers of ten, for parsing Float values with few digits
+	 * @since 1.2
+	 */
+	private static final double POWERS_OF_TEN[] = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+													1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+	/**
+	 * Logger for the cases that can not be added
+	 * @since 1.2
+	 */
+	private Logger log;
+
+	/**
+	 * The maximum number of chunks to split a file in
+	 * @since 1.2
+	 */
+	private int maxChunks = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The smallest number of bytes per chunk
+	 * @since 1.2
+	 */
+	private long minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+
+	/**
+	 * The charset of the file
+	 * @since 1.2
+	 */
+	private java.nio.charset.Charset charset = java.nio.charset.Charset.defaultCharset();
+
+	/**
+	 * Decoder of the charset that reports malformed and unmappable bytes,
+	 * created when the file is read since it can not be shared by threads
+	 * @since 1.2
+	 */
+	private java.nio.charset.CharsetDecoder decoder;
+
+	/**
+	 * The file and the bytes from (inclusive) to (exclusive) that are read 
+	 * by call, when the loader reads a chunk
+	 * @since 1.2
+	 */
+	private java.nio.channels.FileChannel channel;
+	private long from;
+	private long to;
+
+	/**
+	 * The data set that is read
+	 * @since 1.2
+	 */
+	private CBRdata data;
+
+	/**
+	 * The names and the types of the features
+	 * @since 1.2
+	 */
+	private String featureNames[];
+	private String featureTypeNames[];
+
+	/**
+	 * The types of the features
+	 * @since 1.2
+	 */
+	private short types[];
+
+	/**
+	 * The interned String values of each feature, null for other types
+	 * @since 1.2
+	 */
+	private StringCache caches[];
+
+	/**
+	 * The values of the line that is parsed, undefined[f] tells if the
+	 * value of feature f is undefined, otherwise it is in features[f] if
+	 * it was interpreted by Feature or else in the array of its type
+	 * @since 1.2
+	 */
+	private boolean undefined[];
+	private Feature features[];
+	private long longs[];
+	private double doubles[];
+	private boolean bools[];
+	private String strings[];
+
+	/**
+	 * The value parsed by parseLong or parseDouble
+	 * @since 1.2
+	 */
+	private long longValue;
+	private double doubleValue;
+
+	/**
+	 * Number of lines read, of the file or of the chunk
+	 * @since 1.2
+	 */
+	private long numLines;
+
+	/**
+	 * The cases that could not be added, as the line number in the chunk 
+	 * and the error message
+	 * @since 1.2
+	 */
+	private long errorLines[];
+	private String errorMessages[];
+	private int numErrors;
+
+	/**
+	 * Number of bytes read by the last call to read
+	 * @since 1.2
+	 */
+	private long bytesRead;
+
+	/**
+	 * Number of chunks the file was split in by the last call to read
+	 * @since 1.2
+	 */
+	private int numChunks;
+
+	/**
+	 * Time in nanoseconds taken by the last call to read
+	 * @since 1.2
+	 */
+	private long nanos;
+
+
+	/**
+	* Creates a loader
+	*
+	* @param log Logger for the cases that can not be added
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected TextLoader(Logger log)
+	{
+		this.log = log;
+	}
+
+
+	/**
+	* Creates a loader of a chunk of a file
+	*/
+	private TextLoader(java.nio.channels.FileChannel channel, long from, long to, 
+					   java.nio.charset.Charset charset, String featureNames[], String featureTypeNames[])
+	{
+		this.channel = channel;
+		this.from = from;
+		this.to = to;
+		this.charset = charset;
+		decoder = newDecoder(charset);
+		createData(featureNames, featureTypeNames);
+	}
+
+
+	/**
+	* Sets how a file may be split in chunks that are read in parallel
+	*
+	* @param maxChunks the maximum number of chunks, 1 to read by one 
+	*		thread. Default is the number of processors.
+	* @param minChunkSize the smallest number of bytes per chunk. Default 
+	*		is DEFAULT_MIN_CHUNK_SIZE.
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void setChunks(int maxChunks, long minChunkSize)
+	{
+		this.maxChunks = Math.max(1, maxChunks);
+		this.minChunkSize = Math.max(1, minChunkSize);
+	}
+
+
+	/**
+	* Sets the charset of the files that are read
+	*
+	* @param charset the charset, it must encode ASCII as itself. Default is 
+	*		the platform default charset.
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected void setCharset(java.nio.charset.Charset charset)
+	{
+		this.charset = charset;
+	}
+
+
+	/**
+	* Reads the file. The first line has the feature names and the second
+	* the feature types, the others are cases. Cases that can not be added
+	* are logged and skipped.
+	*
+	* @param filename the file to read
+	* @return the data that is read, empty if the file has less than two lines
+	* @throws java.io.IOException if the file can not be read or the names
+	*		and types are not valid, also if they are not valid in the charset
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected CBRdata read(String filename)
+		throws java.io.IOException
+	{
+		java.nio.channels.FileChannel channel;
+		TextLoader chunks[];
+		long bounds[];
+		long offset;
+		long size;
+		long linenum;
+		long time = System.nanoTime();
+
+		data = null;
+		numLines = 0;
+		numErrors = 0;
+		bytesRead = 0;
+		numChunks = 0;
+		decoder = newDecoder(charset);
+		channel = java.nio.channels.FileChannel.open(java.nio.file.Paths.get(filename), java.nio.file.StandardOpenOption.READ);
+		try
+		{
+			size = channel.size();
+			offset = scan(channel, 0, size, true);
+			// The header scan reads ahead, the bytes after the header are 
+			// counted when the cases are read
+			bytesRead = offset;
+			if (data == null)
+			{
+				// Create an empty data set if the file has no types
+				nanos = System.nanoTime() - time;
+				return new CBRdata();
+			}
+
+			numChunks = (int) Math.max(1, Math.min(maxChunks, (size - offset) / minChunkSize));
+			if (numChunks == 1)
+			{
+				numLines = 0;
+				scan(channel, offset, size, false);
+				chunks = new TextLoader[] {this};
+			} else
+			{
+				bounds = split(channel, offset, size, numChunks);
+				chunks = new TextLoader[numChunks];
+				for (int i = 0 ; i < numChunks ; i++ )
+				{
+					chunks[i] = new TextLoader(channel, bounds[i], bounds[i + 1], charset, featureNames, featureTypeNames);
+				}
+				readChunks(chunks);
+				data = chunks[0].data;
+				for (int i = 1 ; i < numChunks ; i++ )
+				{
+					data.addCases(chunks[i].data);
+					chunks[i].data = null;
+				}
+			}
+		} finally
+		{
+			channel.close();
+		}
+
+		// The first case is on line 2, after the names and the types
+		linenum = 2;
+		for (int i = 0 ; i < chunks.length ; i++ )
+		{
+			for (int e = 0 ; e < chunks[i].numErrors ; e++ )
+			{
+				log.write("Unable to add case to set, case #" + (linenum + chunks[i].errorLines[e] - 1) + ", error message: " + chunks[i].errorMessages[e]);
+			}
+			linenum += chunks[i].numLines;
+			if (chunks[i] != this)
+			{
+				bytesRead += chunks[i].bytesRead;
+			}
+		}
+		nanos = System.nanoTime() - time;
+
+		return data;
+	}
+
+
+	/**
+	* Reads the chunk of the file, when the loader reads a chunk
+	*
+	* @return the loader
+	* @throws java.io.IOException if the file can not be read
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	public Object call()
+		throws java.io.IOException
+	{
+		scan(channel, from, to, false);
+		return this;
+	}
+
+
+	/**
+	* Returns the number of bytes read by the last call to read
+	*
+	* @return the number of bytes
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long getBytesRead()
+	{
+		return bytesRead;
+	}
+
+
+	/**
+	* Returns the number of chunks the file was split in by the last call 
+	* to read
+	*
+	* @return the number of chunks, 1 if it was read by one thread
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int getNumChunks()
+	{
+		return numChunks;
+	}
+
+
+	/**
+	* Returns the time taken by the last call to read
+	*
+	* @return the time in milliseconds
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected long getMillis()
+	{
+		return nanos / 1000000;
+	}
+
+
+	/**
+	* Returns the throughput of the last call to read
+	*
+	* @return the throughput in megabytes (2^20 bytes) per second
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected double getMegabytesPerSecond()
+	{
+		return nanos == 0 ? 0 : bytesRead / 1048576.0 / (nanos / 1e9);
+	}
+
+
+	/**
+	* Reads the lines of the bytes from (inclusive) to (exclusive) of the 
+	* file, or only the names and the types if header is true
+	*
+	* @return the position after the last line that was read
+	*/
+	private long scan(java.nio.channels.FileChannel channel, long from, long to, boolean header)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer buffer;
+		byte buf[] = new byte[(int) Math.min(BUFFER_SIZE, Math.max(to - from, 1))];
+		long position = from;
+		int start = 0;
+		int limit = 0;
+		int pos;
+		int n;
+		boolean eof = false;
+		boolean skipLF = false;
+
+		while (true)
+		{
+			// A line ending with \r may be followed by \n, not an empty line
+			if (skipLF && start < limit)
+			{
+				if (buf[start] == '\n')
+				{
+					start++;
+				}
+				skipLF = false;
+			}
+			if (header && data != null && !skipLF)
+			{
+				return position - (limit - start);
+			}
+
+			pos = start;
+			while (pos < limit && buf[pos] != '\n' && buf[pos] != '\r')
+			{
+				pos++;
+			}
+
+			if (pos == limit)
+			{
+				if (eof)
+				{
+					// The last line need not end with a line break
+					if (start < limit)
+					{
+						line(buf, start, limit);
+					}
+					return position;
+				}
+
+				// Keep the incomplete line and read more after it
+				System.arraycopy(buf, start, buf, 0, limit - start);
+				limit -= start;
+				start = 0;
+				if (limit == buf.length)
+				{
+					byte newBuf[] = new byte[buf.length * 2];
+
+					System.arraycopy(buf, 0, newBuf, 0, limit);
+					buf = newBuf;
+				}
+				buffer = java.nio.ByteBuffer.wrap(buf, limit, (int) Math.min(buf.length - limit, to - position));
+				n = position < to ? channel.read(buffer, position) : -1;
+				if (n < 0)
+				{
+					eof = true;
+				} else
+				{
+					limit += n;
+					position += n;
+					bytesRead += n;
+				}
+				continue;
+			}
+
+			line(buf, start, pos);
+			skipLF = buf[pos] == '\r';
+			start = pos + 1;
+		}
+	}
+
+
+	/**
+	* Splits the bytes from (inclusive) to (exclusive) of the file in 
+	* chunks of whole lines
+	*
+	* @return the bounds of the chunks, chunk i is from bounds[i] to 
+	*		bounds[i + 1]
+	*/
+	private static long[] split(java.nio.channels.FileChannel channel, long from, long to, int numChunks)
+		throws java.io.IOException
+	{
+		java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(8192);
+		long bounds[] = new long[numChunks + 1];
+		long pos;
+		int n;
+		byte b;
+
+		bounds[0] = from;
+		bounds[numChunks] = to;
+		for (int i = 1 ; i < numChunks ; i++ )
+		{
+			// Move the bound to after the next line break
+			pos = Math.max(bounds[i - 1], from + (to - from) / numChunks * i);
+			bounds[i] = to;
+			search:
+			while (pos < to)
+			{
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), to - pos));
+				n = channel.read(buffer, pos);
+				if (n <= 0)
+				{
+					break;
+				}
+				for (int j = 0 ; j < n ; j++ )
+				{
+					b = buffer.get(j);
+					if (b == '\n')
+					{
+						bounds[i] = pos + j + 1;
+						break search;
+					} else if (b == '\r')
+					{
+						// Do not split \r\n, the \n may be first in the next read
+						bounds[i] = pos + j + 1;
+						if (j + 1 == n && bounds[i] < to)
+						{
+							buffer.clear();
+							buffer.limit(1);
+							if (channel.read(buffer, bounds[i]) == 1 && buffer.get(0) == '\n')
+							{
+								bounds[i]++;
+							}
+						} else if (j + 1 < n && buffer.get(j + 1) == '\n')
+						{
+							bounds[i]++;
+						}
+						break search;
+					}
+				}
+				pos += n;
+			}
+		}
+		return bounds;
+	}
+
+
+	/**
+	* Reads the chunks on the threads of the common fork/join pool
+	*/
+	private static void readChunks(TextLoader chunks[])
+		throws java.io.IOException
+	{
+		java.util.List tasks = java.util.Arrays.asList((Object[]) chunks);
+		java.util.List partials;
+
+		try
+		{
+			partials = java.util.concurrent.ForkJoinPool.commonPool().invokeAll(tasks);
+			for (int i = 0 ; i < partials.size() ; i++ )
+			{
+				((java.util.concurrent.Future) partials.get(i)).get();
+			}
+		} catch (java.util.concurrent.ExecutionException e)
+		{
+			if (e.getCause() instanceof java.io.IOException)
+			{
+				throw (java.io.IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new java.io.InterruptedIOException("Reading interrupted");
+		}
+	}
+
+
+	/**
+	* Handles a line of the file
+	*/
+	private void line(byte buf[], int start, int end)
+		throws java.io.IOException
+	{
+		if (data == null)
+		{
+			try
+			{
+				if (numLines == 0)
+				{
+					// First line in file - headings (or feature names)
+					featureNames = FString.split(decode(decoder, buf, start, end), "\t");
+				} else
+				{
+					// Second line in file - data types
+					featureTypeNames = FString.split(decode(decoder, buf, start, end), "\t");
+				}
+			} catch (java.nio.charset.CharacterCodingException e)
+			{
+				throw new java.io.IOException("Error when reading file, the names or types are not valid " + charset.name() + ", " + e.toString());
+			}
+			if (numLines == 1)
+			{
+				try
+				{
+					createData(featureNames, featureTypeNames);
+				} catch (ArrayIndexOutOfBoundsException e)
+				{
+					throw new java.io.IOException("Error when reading file, not equal number of properties in names and types.");
+				} catch (Exception e)
+				{
+					throw new java.io.IOException("Error when reading file, error message:" + e.toString());
+				}
+			}
+		} else
+		{
+			// Add the case described in this line to the dataset
+			try
+			{
+				addCase(buf, start, end);
+			} catch (java.nio.charset.CharacterCodingException e)
+			{
+				addError(numLines, "A value is not valid " + charset.name() + ", " + e.toString());
+			} catch (Exception e)
+			{
+				addError(numLines, e.toString());
+			}
+		}
+		numLines++;
+	}
+
+
+	/**
+	* Remembers a case that could not be added, it is logged when all 
+	* chunks are read
+	*/
+	private void addError(long line, String message)
+	{
+		if (errorLines == null || numErrors == errorLines.length)
+		{
+			long newLines[] = new long[numErrors == 0 ? 16 : numErrors * 2];
+			String newMessages[] = new String[newLines.length];
+
+			if (numErrors > 0)
+			{
+				System.arraycopy(errorLines, 0, newLines, 0, numErrors);
+				System.arraycopy(errorMessages, 0, newMessages, 0, numErrors);
+			}
+			errorLines = newLines;
+			errorMessages = newMessages;
+		}
+		errorLines[numErrors] = line;
+		errorMessages[numErrors] = message;
+		numErrors++;
+	}
+
+
+	/**
+	* Creates the data set and the arrays for the values of a line
+	*/
+	private void createData(String featureNames[], String featureTypeNames[])
+	{
+		int numFeatures;
+
+		data = new CBRdata(featureNames, featureTypeNames);
+		this.featureNames = featureNames;
+		this.featureTypeNames = featureTypeNames;
+		numFeatures = data.getNumFeatures();
+		types = new short[numFeatures];
+		caches = new StringCache[numFeatures];
+		for (int f = 0 ; f < numFeatures ; f++ )
+		{
+			types[f] = data.getFeatureTypeShort(f);
+			if (types[f] == Feature.FEATURE_TYPE_STRING)
+			{
+				caches[f] = new StringCache(decoder);
+			}
+		}
+		undefined = new boolean[numFeatures];
+		features = new Feature[numFeatures];
+		longs = new long[numFeatures];
+		doubles = new double[numFeatures];
+		bools = new boolean[numFeatures];
+		strings = new String[numFeatures];
+	}
+
+
+	/**
+	* Adds the case of a line, same as CBRdata.addCase(String). All values
+	* are parsed before any is added, so nothing is added if one is wrong.
+	*/
+	private void addCase(byte buf[], int start, int end)
+		throws java.nio.charset.CharacterCodingException
+	{
+		int numFields = 0;
+		int pos = start;
+		int tab;
+
+		if (start < end && buf[start] == '\t')
+		{
+			// FString.split does not split at a tab first in the line
+			parseField(0, buf, start, end);
+			numFields = 1;
+		} else
+		{
+			while (true)
+			{
+				tab = pos;
+				while (tab < end && buf[tab] != '\t')
+				{
+					tab++;
+				}
+				parseField(numFields, buf, pos, tab);
+				numFields++;
+				if (tab == end)
+				{
+					break;
+				}
+				pos = tab + 1;
+			}
+		}
+
+		if (numFields != types.length)
+		{
+			throw new java.lang.ArrayIndexOutOfBoundsException("Feature names and feature values not of the same cardinality");
+		}
+
+		for (int f = 0 ; f < numFields ; f++ )
+		{
+			FeatureColumn column = data.appendColumn(f);
+
+			if (features[f] != null)
+			{
+				column.add(features[f]);
+			} else if (undefined[f])
+			{
+				column.addUndefined();
+			} else
+			{
+				switch (types[f])
+				{
+				case Feature.FEATURE_TYPE_INT:
+					((IntColumn) column).addLong(longs[f]);
+					break;
+				case Feature.FEATURE_TYPE_FLOAT:
+					((FloatColumn) column).addDouble(doubles[f]);
+					break;
+				case Feature.FEATURE_TYPE_BOOL:
+					((BoolColumn) column).addBoolean(bools[f]);
+					break;
+				case Feature.FEATURE_TYPE_STRING:
+					((StringColumn) column).addString(strings[f]);
+					break;
+				}
+			}
+		}
+		data.caseAppended();
+	}
+
+
+	/**
+	* Parses the value of feature f, same as new Feature(String, short)
+	*/
+	private void parseField(int f, byte buf[], int start, int end)
+		throws java.nio.charset.CharacterCodingException
+	{
+		short type = types[f];
+
+		features[f] = null;
+		undefined[f] = start == end || end - start == 1 && buf[start] == '?';
+		if (undefined[f])
+		{
+			return;
+		}
+
+		switch (type)
+		{
+		case Feature.FEATURE_TYPE_INT:
+			if (parseLong(buf, start, end))
+			{
+				longs[f] = longValue;
+				return;
+			}
+			break;
+		case Feature.FEATURE_TYPE_FLOAT:
+			if (parseDouble(buf, start, end))
+			{
+				doubles[f] = doubleValue;
+				return;
+			}
+			break;
+		case Feature.FEATURE_TYPE_BOOL:
+			if (end - start == 1 && (buf[start] == '0' || buf[start] == '1'))
+			{
+				bools[f] = buf[start] == '1';
+				return;
+			} else if (equalsIgnoreCase(buf, start, end, "true"))
+			{
+				bools[f] = true;
+				return;
+			} else if (equalsIgnoreCase(buf, start, end, "false"))
+			{
+				bools[f] = false;
+				return;
+			}
+			break;
+		case Feature.FEATURE_TYPE_STRING:
+			strings[f] = caches[f].get(buf, start, end);
+			return;
+		}
+
+		// Everything else, including the errors, is left to Feature
+		features[f] = new Feature(decode(decoder, buf, start, end), type);
+	}
+
+
+	/**
+	* Parses an Int value of at most 18 digits with an optional sign, which
+	* can not overflow. Returns false for anything else.
+	*/
+	private boolean parseLong(byte buf[], int start, int end)
+	{
+		int pos = start;
+		boolean negative = false;
+		long value = 0;
+		int digit;
+
+		if (buf[pos] == '-' || buf[pos] == '+')
+		{
+			negative = buf[pos] == '-';
+			pos++;
+		}
+		if (pos == end || end - pos > 18)
+		{
+			return false;
+		}
+		for ( ; pos < end ; pos++ )
+		{
+			digit = buf[pos] - '0';
+			if (digit < 0 || digit > 9)
+			{
+				return false;
+			}
+			value = value * 10 + digit;
+		}
+		longValue = negative ? -value : value;
+		return true;
+	}
+
+
+	/**
+	* Parses a Float value of at most 15 digits with an optional sign and
+	* decimal point or comma. The digits are exact as a double and so is the
+	* power of ten, so dividing them rounds as Double.parseDouble does.
+	* Returns false for anything else.
+	*/
+	private boolean parseDouble(byte buf[], int start, int end)
+	{
+		int pos = start;
+		boolean negative = false;
+		long value = 0;
+		int numDigits = 0;
+		int decimals = -1;
+		int digit;
+
+		if (buf[pos] == '-' || buf[pos] == '+')
+		{
+			negative = buf[pos] == '-';
+			pos++;
+		}
+		for ( ; pos < end ; pos++ )
+		{
+			if ((buf[pos] == '.' || buf[pos] == ',') && decimals < 0)
+			{
+				decimals = 0;
+				continue;
+			}
+			digit = buf[pos] - '0';
+			if (digit < 0 || digit > 9 || ++numDigits > 15)
+			{
+				return false;
+			}
+			value = value * 10 + digit;
+			if (decimals >= 0)
+			{
+				decimals++;
+			}
+		}
+		if (numDigits == 0)
+		{
+			return false;
+		}
+		doubleValue = decimals > 0 ? value / POWERS_OF_TEN[decimals] : value;
+		if (negative)
+		{
+			doubleValue = -doubleValue;
+		}
+		return true;
+	}
+
+
+	/**
+	* Compares the bytes with a lower case ASCII string, ignoring case
+	*/
+	private static boolean equalsIgnoreCase(byte buf[], int start, int end, String lowerCase)
+	{
+		if (end - start != lowerCase.length())
+		{
+			return false;
+		}
+		for (int i = 0 ; i < lowerCase.length() ; i++ )
+		{
+			if ((buf[start + i] | 0x20) != lowerCase.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	* Returns a decoder of the charset that reports malformed and unmappable 
+	* bytes instead of replacing them
+	*/
+	private static java.nio.charset.CharsetDecoder newDecoder(java.nio.charset.Charset charset)
+	{
+		return charset.newDecoder()
+			.onMalformedInput(java.nio.charset.CodingErrorAction.REPORT)
+			.onUnmappableCharacter(java.nio.charset.CodingErrorAction.REPORT);
+	}
+
+
+	/**
+	* Decodes the bytes with the charset of the file
+	*
+	* @throws java.nio.charset.CharacterCodingException if the bytes are not 
+	*		valid in the charset
+	*/
+	private static String decode(java.nio.charset.CharsetDecoder decoder, byte buf[], int start, int end)
+		throws java.nio.charset.CharacterCodingException
+	{
+		return decoder.decode(java.nio.ByteBuffer.wrap(buf, start, end - start)).toString();
+	}
+
+
+	/**
+	 * Interns the String values of a feature, the bytes of a value that is
+	 * already interned are looked up without decoding them. Stops interning
+	 * new values when it is full, since a feature with that many different
+	 * values probably has few repeated ones.
+	 *
+	 * @since 1.2
+	 */
+	private static class StringCache
+	{
+		/**
+		 * The maximum number of interned values
+		 */
+		private static final int MAX_SIZE = 1 << 16;
+
+		/**
+		 * Hash table with open addressing of the bytes of the values, the
+		 * hashes of the bytes and the decoded values
+		 */
+		private byte keys[][] = new byte[64][];
+		private int hashes[] = new int[64];
+		private String values[] = new String[64];
+
+		/**
+		 * Number of interned values
+		 */
+		private int size = 0;
+
+		/**
+		 * Decoder of the charset of the file
+		 */
+		private java.nio.charset.CharsetDecoder decoder;
+
+		/**
+		* Creates an empty cache of values decoded by the decoder
+		*/
+		StringCache(java.nio.charset.CharsetDecoder decoder)
+		{
+			this.decoder = decoder;
+		}
+
+		/**
+		* Returns the value of the bytes, the same String each time
+		*/
+		String get(byte buf[], int start, int end)
+			throws java.nio.charset.CharacterCodingException
+		{
+			int hash = 0;
+			int slot;
+			byte key[];
+			String value;
+
+			for (int i = start ; i < end ; i++ )
+			{
+				hash = 31 * hash + buf[i];
+			}
+			slot = (hash ^ (hash >>> 16)) & (keys.length - 1);
+			while (keys[slot] != null)
+			{
+				if (hashes[slot] == hash && equals(keys[slot], buf, start, end))
+				{
+					return values[slot];
+				}
+				slot = (slot + 1) & (keys.length - 1);
+			}
+
+			value = decode(decoder, buf, start, end);
+			if (size < MAX_SIZE)
+			{
+				key = new byte[end - start];
+				System.arraycopy(buf, start, key, 0, key.length);
+				keys[slot] = key;
+				hashes[slot] = hash;
+				values[slot] = value;
+				size++;
+				if (size * 2 > keys.length)
+				{
+					rehash();
+				}
+			}
+			return value;
+		}
+
+		/**
+		* Compares a key with the bytes
+		*/
+		private static boolean equals(byte key[], byte buf[], int start, int end)
+		{
+			if (key.length != end - start)
+			{
+				return false;
+			}
+			for (int i = 0 ; i < key.length ; i++ )
+			{
+				if (key[i] != buf[start + i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		* Doubles the size of the hash table
+		*/
+		private void rehash()
+		{
+			byte oldKeys[][] = keys;
+			int oldHashes[] = hashes;
+			String oldValues[] = values;
+			int slot;
+
+			keys = new byte[oldKeys.length * 2][];
+			hashes = new int[oldKeys.length * 2];
+			values = new String[oldKeys.length * 2];
+			for (int i = 0 ; i < oldKeys.length ; i++ )
+			{
+				if (oldKeys[i] != null)
+				{
+					slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & (keys.length - 1);
+					while (keys[slot] != null)
+					{
+						slot = (slot + 1) & (keys.length - 1);
+					}
+					keys[slot] = oldKeys[i];
+					hashes[slot] = oldHashes[i];
+					values[slot] = oldValues[i];
+				}
+			}
+		}
+	}
+}
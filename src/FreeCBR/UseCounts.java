@@ -0,0 +1,182 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class counts the cases using each string of a String or MultiString
+ * column, by dictionary code. The counts are kept in segments so that a
+ * copy for a new version of the data shares them with the original, and
+ * changing a count copies only its segment, see copy.
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+class UseCounts implements java.io.Serializable
+{
+	/**
+	 * A segment holds the counts of 1 &lt;&lt; SEGMENT_BITS codes
+	 * @since 1.2
+	 */
+	private static final int SEGMENT_BITS = 8;
+
+	/**
+	 * Number of counts in a segment
+	 * @since 1.2
+	 */
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+	/**
+	 * Mask giving the position of a code in its segment
+	 * @since 1.2
+	 */
+	private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+	 * The counts in segments, stored as
+	 * counts[code &gt;&gt;&gt; SEGMENT_BITS][code &amp; SEGMENT_MASK]
+	 * @since 1.2
+	 */
+	private int counts[][];
+
+	/**
+	 * Number of codes counted, the codes from size have the count 0 whatever
+	 * is stored for them
+	 * @since 1.2
+	 */
+	private int size;
+
+	/**
+	 * Number of codes whose counts are shared with other copies. They must
+	 * not be changed in place, see copy.
+	 * @since 1.2
+	 */
+	private transient int sharedSize;
+
+	/**
+	 * Bit set of the segments with shared counts that have been copied, and
+	 * may be changed in place. Null if none is copied, then the array of
+	 * segments is shared too.
+	 * @since 1.2
+	 */
+	private transient long ownedSegments[];
+
+
+	/**
+	* Creates counts where all codes have the count 0
+	*
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected UseCounts()
+	{
+		counts = new int[0][];
+		size = 0;
+	}
+
+
+	/**
+	* Returns a copy of the counts for a new version of the data. The
+	* original is not changed any more. The copy shares the segments with
+	* the original: the counts of new codes are stored beyond the codes of
+	* the original, which never reads them, and changing the count of a
+	* shared code first gives the copy a segment of its own.
+	*
+	* @return the copy
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected UseCounts copy()
+	{
+		UseCounts copy = new UseCounts();
+
+		copy.counts = counts;
+		copy.size = size;
+		copy.sharedSize = size;
+		return copy;
+	}
+
+
+	/**
+	* Returns the count of a code
+	*
+	* @param code the dictionary code
+	* @return the number of cases using the string of the code
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int get(int code)
+	{
+		if (code >= size)
+		{
+			return 0;
+		}
+		return counts[code >>> SEGMENT_BITS][code & SEGMENT_MASK];
+	}
+
+
+	/**
+	* Changes the count of a code
+	*
+	* @param code the dictionary code
+	* @param change the change of the count
+	* @return the new count
+	* @since 1.2
+	*/
+	/* History: Date		Name	Explanation (possibly multi row)
+	*/
+	protected int add(int code, int change)
+	{
+		int segment = code >>> SEGMENT_BITS;
+
+		if (code >= size)
+		{
+			count(code);
+		} else if (code < sharedSize &&
+				(ownedSegments == null || !FeatureColumn.getBit(ownedSegments, segment)))
+		{
+			if (ownedSegments == null)
+			{
+				counts = (int[][]) counts.clone();
+				ownedSegments = new long[FeatureColumn.wordsFor(((sharedSize - 1) >>> SEGMENT_BITS) + 1)];
+			}
+			counts[segment] = (int[]) counts[segment].clone();
+			FeatureColumn.setBit(ownedSegments, segment, true);
+		}
+		counts[segment][code & SEGMENT_MASK] += change;
+		return counts[segment][code & SEGMENT_MASK];
+	}
+
+
+	/**
+	* Starts counting the codes up to and including a code, with the count
+	* 0. The counts are beyond the shared codes, so they are cleared in
+	* place. A copy that was thrown away may have stored counts there.
+	*/
+	private void count(int code)
+	{
+		int numSegments = (code >>> SEGMENT_BITS) + 1;
+
+		if (numSegments > counts.length)
+		{
+			int newCounts[][] = new int[numSegments][];
+			System.arraycopy(counts, 0, newCounts, 0, counts.length);
+			for (int s = counts.length; s < numSegments; s++)
+			{
+				newCounts[s] = new int[SEGMENT_SIZE];
+			}
+			counts = newCounts;
+		}
+		for (int c = size; c <= code; c++)
+		{
+			counts[c >>> SEGMENT_BITS][c & SEGMENT_MASK] = 0;
+		}
+		size = code + 1;
+	}
+}
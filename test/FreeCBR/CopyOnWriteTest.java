@@ -0,0 +1,415 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class tests that the versions of a column share its segments,
+ * dictionary, use counts and index. Older versions must keep their values
+ * and searches while newer versions are changed, also when a version is
+ * changed and thrown away, and adding a case to a large indexed set must
+ * not take longer than adding it to a small one. Usage:<br />
+ * <code>java FreeCBR.CopyOnWriteTest</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class CopyOnWriteTest
+{
+	/**
+	 * The column types tested
+	 * @since 1.2
+	 */
+	private static final short TYPES[] = {Feature.FEATURE_TYPE_STRING,
+										  Feature.FEATURE_TYPE_MULTISTRING,
+										  Feature.FEATURE_TYPE_INT,
+										  Feature.FEATURE_TYPE_FLOAT,
+										  Feature.FEATURE_TYPE_BOOL};
+
+	/**
+	 * Number of cases of the columns, several segments
+	 * @since 1.2
+	 */
+	private static final int NUM_CASES = 3 * FeatureColumn.SEGMENT_SIZE + 100;
+
+
+	/**
+	 * The main entry point, exits with status 1 if a test fails
+	 *
+	 * @param args not used
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+	{
+		int failures = 0;
+
+		for (int t = 0 ; t < TYPES.length ; t++ )
+		{
+			failures += testVersions("versions of type " + TYPES[t], TYPES[t], t + 1);
+		}
+		failures += testAddCost("add to large indexed set");
+
+		if (failures > 0)
+		{
+			System.out.println(failures + " tests failed");
+			System.exit(1);
+		}
+		System.out.println("All tests passed");
+	}
+
+
+	/**
+	 * Makes a chain of versions of an indexed column, each changed at random,
+	 * and checks that the older versions keep their values and searches
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testVersions(String name, short type, long seed)
+	{
+		java.util.Random random = new java.util.Random(seed);
+		java.util.ArrayList versions = new java.util.ArrayList();
+		java.util.ArrayList dumps = new java.util.ArrayList();
+		FeatureColumn column = FeatureColumn.create(type, 0);
+		FeatureColumn discarded;
+		int numChecks = 0;
+
+		column.setIndexed(true);
+		for (int c = 0 ; c < NUM_CASES ; c++ )
+		{
+			column.add(value(type, random));
+		}
+		for (int round = 0 ; round < 20 ; round++ )
+		{
+			// Search so the index is built before the copies share it
+			check(column, definedValue(type, random), CBR.SEARCH_TERM_EQUAL);
+			versions.add(column);
+			dumps.add(dump(column));
+
+			// A writer that is thrown away, its sibling copies the same version
+			discarded = column.copy();
+			change(discarded, type, random);
+			column = column.copy();
+			change(column, type, random);
+
+			for (int v = 0 ; v < versions.size() ; v++ )
+			{
+				FeatureColumn version = (FeatureColumn) versions.get(v);
+				if (!dump(version).equals(dumps.get(v)))
+				{
+					System.out.println("FAILED " + name + ": round " + round + ", version " + v + " changed");
+					return 1;
+				}
+			}
+			for (int i = 0 ; i < 4 ; i++ )
+			{
+				FeatureColumn version = i == 0 ? column : (FeatureColumn) versions.get(random.nextInt(versions.size()));
+				Feature target = definedValue(type, random);
+				int searchTerm = random.nextBoolean() ? CBR.SEARCH_TERM_EQUAL : CBR.SEARCH_TERM_NOT_EQUAL;
+				if (!check(version, target, searchTerm))
+				{
+					System.out.println("FAILED " + name + ": round " + round + ", search term " +
+									   searchTerm + ", value " + target);
+					return 1;
+				}
+				if (!checkUsedStrings(version))
+				{
+					System.out.println("FAILED " + name + ": round " + round + ", used strings");
+					return 1;
+				}
+				numChecks++;
+			}
+		}
+		System.out.println("OK " + name + ": " + versions.size() + " versions, " + numChecks + " searches");
+		return 0;
+	}
+
+
+	/**
+	 * Adds, changes and removes values of a column at random
+	 */
+	private static void change(FeatureColumn column, short type, java.util.Random random)
+	{
+		int op;
+
+		for (int i = 0 ; i < 100 ; i++ )
+		{
+			op = random.nextInt(10);
+			if (op < 3)
+			{
+				column.add(value(type, random));
+			} else if (op < 5 && column.size() > 0)
+			{
+				column.remove(random.nextInt(column.size()));
+			} else if (column.size() > 0)
+			{
+				column.set(random.nextInt(column.size()), value(type, random));
+			}
+		}
+	}
+
+
+	/**
+	 * Returns a random value, undefined now and then
+	 */
+	private static Feature value(short type, java.util.Random random)
+	{
+		if (random.nextInt(10) == 0)
+		{
+			return new Feature((String) null, type);
+		}
+		switch (type)
+		{
+		case Feature.FEATURE_TYPE_STRING:
+			return new Feature("s" + random.nextInt(40));
+
+		case Feature.FEATURE_TYPE_MULTISTRING:
+			String strings[] = new String[1 + random.nextInt(3)];
+			for (int i = 0 ; i < strings.length ; i++ )
+			{
+				strings[i] = "m" + random.nextInt(12);
+			}
+			return new Feature(strings);
+
+		case Feature.FEATURE_TYPE_INT:
+			return new Feature((long) random.nextInt(50));
+
+		case Feature.FEATURE_TYPE_FLOAT:
+			return new Feature(random.nextInt(50) / 4.0);
+
+		default:
+			return new Feature(random.nextBoolean());
+		}
+	}
+
+
+	/**
+	 * Returns a random defined value
+	 */
+	private static Feature definedValue(short type, java.util.Random random)
+	{
+		Feature value;
+
+		do
+		{
+			value = value(type, random);
+		} while (value.isUndefined());
+		return value;
+	}
+
+
+	/**
+	 * Returns the values of a column as a string
+	 */
+	private static String dump(FeatureColumn column)
+	{
+		StringBuffer buf = new StringBuffer();
+
+		for (int c = 0 ; c < column.size() ; c++ )
+		{
+			buf.append(column.getFeature(c)).append('\n');
+		}
+		return buf.toString();
+	}
+
+
+	/**
+	 * Does the column filter the same cases as comparing the values?
+	 */
+	private static boolean check(FeatureColumn column, Feature target, int searchTerm)
+	{
+		long candidates[] = new long[FeatureColumn.wordsFor(column.size())];
+		Object searchKey = column.encodeSearch(target);
+		boolean match;
+
+		for (int c = 0 ; c < column.size() ; c++ )
+		{
+			FeatureColumn.setBit(candidates, c, true);
+		}
+		if (!column.filter(searchKey, searchTerm, candidates))
+		{
+			return false;
+		}
+		for (int c = 0 ; c < column.size() ; c++ )
+		{
+			if (column.isUndefined(c))
+			{
+				match = true;
+			} else
+			{
+				match = (column.diff(c, target, searchKey) == 0) == (searchTerm == CBR.SEARCH_TERM_EQUAL);
+			}
+			if (match != FeatureColumn.getBit(candidates, c))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Are the used strings of a String or MultiString column the strings of
+	 * its values?
+	 */
+	private static boolean checkUsedStrings(FeatureColumn column)
+	{
+		java.util.TreeSet expected = new java.util.TreeSet();
+		String used[];
+
+		if (column.getFeatureType() != Feature.FEATURE_TYPE_STRING &&
+				column.getFeatureType() != Feature.FEATURE_TYPE_MULTISTRING)
+		{
+			return true;
+		}
+		for (int c = 0 ; c < column.size() ; c++ )
+		{
+			if (column.isUndefined(c))
+			{
+				continue;
+			}
+			if (column.getFeatureType() == Feature.FEATURE_TYPE_STRING)
+			{
+				expected.add(column.getFeature(c).getStringValue());
+			} else
+			{
+				expected.addAll(java.util.Arrays.asList(column.getFeature(c).getMultiStringValue()));
+			}
+		}
+		used = column.getUsedStrings();
+		return new java.util.TreeSet(java.util.Arrays.asList(used)).equals(expected) &&
+			used.length == expected.size();
+	}
+
+
+	/**
+	 * Compares the time to add and edit cases of a small and a large set,
+	 * with all features indexed. Copying the columns, dictionaries, use
+	 * counts or indexes for each change would make the large set many times
+	 * slower.
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testAddCost(String name)
+	{
+		CBR small = newSet(2000);
+		CBR large = newSet(64000);
+		double smallTime = Double.MAX_VALUE;
+		double largeTime = Double.MAX_VALUE;
+
+		// Warm up before timing
+		changeTime(small, 3);
+		changeTime(large, 3);
+		for (int i = 0 ; i < 5 ; i++ )
+		{
+			smallTime = Math.min(smallTime, changeTime(small, i));
+			largeTime = Math.min(largeTime, changeTime(large, i));
+		}
+		if (largeTime > 4 * smallTime)
+		{
+			System.out.println("FAILED " + name + ": " + (long) (largeTime / 1000) + " us for 64000 cases, " +
+							   (long) (smallTime / 1000) + " us for 2000 cases");
+			return 1;
+		}
+		System.out.println("OK " + name + ": " + (long) (largeTime / 1000) + " us for 64000 cases, " +
+						   (long) (smallTime / 1000) + " us for 2000 cases");
+		return 0;
+	}
+
+
+	/**
+	 * Returns a set of cases with all features indexed and the indexes built
+	 */
+	private static CBR newSet(int numCases)
+	{
+		CBR cbr = new CBR(null, false, true);
+
+		try
+		{
+			cbr.newSet(new String[] {"Manufacturer", "Options", "Speed", "HDD", "CD"},
+					   new String[] {"String", "MultiString", "Int", "Float", "Bool"});
+		} catch (Exception e)
+		{
+			throw new RuntimeException(e.toString());
+		}
+		for (int f = 0 ; f < 5 ; f++ )
+		{
+			cbr.setFeatureIndexed(f, true);
+		}
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			cbr.addCase(caseString(i));
+		}
+		search(cbr, 0);
+		return cbr;
+	}
+
+
+	/**
+	 * Returns the case string of case number i
+	 */
+	private static String caseString(int i)
+	{
+		return "M" + (i % 50) + "\tO" + (i % 7) + ";O" + (i % 11) + "\t" + (i % 1000) + "\t" +
+			(i % 300) / 4.0 + "\t" + (i % 2 == 0);
+	}
+
+
+	/**
+	 * Searches all features strictly, which uses the indexes
+	 */
+	private static CBRResult[] search(CBR cbr, int i)
+	{
+		return cbr.search(new int[] {0, 1, 2, 3, 4},
+						  new Feature[] {new Feature("M" + (i % 50)),
+										 new Feature(new String[] {"O" + (i % 7)}),
+										 new Feature((long) (i % 1000)),
+										 new Feature((i % 300) / 4.0),
+										 new Feature(i % 2 == 0)},
+						  null,
+						  null,
+						  new int[] {CBR.SEARCH_SCALE_STRICT, CBR.SEARCH_SCALE_STRICT,
+									 CBR.SEARCH_SCALE_STRICT, CBR.SEARCH_SCALE_STRICT,
+									 CBR.SEARCH_SCALE_STRICT},
+						  null);
+	}
+
+
+	/**
+	 * Adds and edits cases, searching now and then so that the indexes are
+	 * kept up to date, and returns the time taken in nanoseconds
+	 */
+	private static double changeTime(CBR cbr, int round)
+	{
+		long start = System.nanoTime();
+		int numCases = cbr.getNumCases();
+
+		for (int i = 0 ; i < 500 ; i++ )
+		{
+			cbr.addCase(caseString(round * 500 + i));
+			cbr.editCase(i * 97 % numCases, parse(caseString(i + 1)));
+			if (i % 100 == 99)
+			{
+				search(cbr, i);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+
+	/**
+	 * Returns the features of a case string
+	 */
+	private static Feature[] parse(String caseString)
+	{
+		String values[] = caseString.split("\t");
+
+		return new Feature[] {new Feature(values[0]),
+							  new Feature(values[1].split(";")),
+							  new Feature(Long.parseLong(values[2])),
+							  new Feature(Double.parseDouble(values[3])),
+							  new Feature(Boolean.valueOf(values[4]).booleanValue())};
+	}
+}
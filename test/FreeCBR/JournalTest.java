@@ -0,0 +1,183 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class tests that the index flags of a set survive a checkpoint of
+ * its journal. The set is changed with the journal open, checkpointed to
+ * its data file and opened again from the data file and the journal. Usage:<br />
+ * <code>java FreeCBR.JournalTest</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class JournalTest
+{
+	/**
+	 * The main entry point, exits with status 1 if a test fails
+	 *
+	 * @param args not used
+	 * @throws Exception if a file can not be written or read
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		int failures = 0;
+
+		failures += testCheckpoint("text checkpoint", false);
+		failures += testCheckpoint("binary checkpoint", true);
+		failures += testUncompacted("checkpoint not compacted");
+
+		if (failures > 0)
+		{
+			System.out.println(failures + " tests failed");
+			System.exit(1);
+		}
+		System.out.println("All tests passed");
+	}
+
+
+	/**
+	 * Indexes a feature, checkpoints the set and opens it again
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testCheckpoint(String name, boolean binary)
+		throws Exception
+	{
+		java.io.File datafile = java.io.File.createTempFile("JournalTest", binary ? ".bin" : ".txt");
+		java.io.File journalfile = new java.io.File(datafile.getPath() + ".log");
+		CBR cbr = newSet();
+
+		try
+		{
+			if (binary)
+			{
+				cbr.saveBinarySet(datafile.getPath(), true);
+			} else
+			{
+				cbr.saveSet(datafile.getPath(), true);
+			}
+			cbr.openJournal(journalfile.getPath(), 0);
+			cbr.setFeatureIndexed(1, true);
+			cbr.addCase("M3\t1500\t25.0\ttrue");
+			cbr.checkpoint().get();
+			cbr.addCase("M4\t1700\t30.0\tfalse");
+			cbr.closeJournal();
+
+			return check(name, open(datafile, journalfile), 12);
+		} finally
+		{
+			datafile.delete();
+			journalfile.delete();
+		}
+	}
+
+
+	/**
+	 * Opens a set from a data file whose checkpoint is in the journal, but
+	 * the journal is not compacted, as after a crash between the two
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testUncompacted(String name)
+		throws Exception
+	{
+		java.io.File datafile = java.io.File.createTempFile("JournalTest", ".txt");
+		java.io.File journalfile = new java.io.File(datafile.getPath() + ".log");
+		CBR cbr = newSet();
+		CBRdata snapshot = new CBRdata(new String[] {"Manufacturer", "Speed", "HDD", "CD"},
+									   new String[] {"String", "Int", "Float", "Bool"});
+		Journal journal;
+
+		try
+		{
+			cbr.saveSet(datafile.getPath(), true);
+			cbr.openJournal(journalfile.getPath(), 0);
+			cbr.setFeatureIndexed(1, true);
+			cbr.addCase("M3\t1500\t25.0\ttrue");
+			cbr.closeJournal();
+			cbr.saveSet(datafile.getPath(), true);
+
+			// The journal has the changes in the new data file, its
+			// checkpoint and a change after it
+			snapshot.setFeatureIndexed(1, true);
+			journal = new Journal(journalfile.getPath(), 0, new Logger());
+			try
+			{
+				journal.checkpoint(Journal.fingerprint(datafile.getPath()), journal.size(), snapshot);
+				journal.addCase("M4\t1700\t30.0\tfalse");
+			} finally
+			{
+				journal.close();
+			}
+
+			return check(name, open(datafile, journalfile), 12);
+		} finally
+		{
+			datafile.delete();
+			journalfile.delete();
+		}
+	}
+
+
+	/**
+	 * Returns a set of ten cases without a data file
+	 */
+	private static CBR newSet()
+		throws Exception
+	{
+		CBR cbr = new CBR(null, false, true);
+
+		cbr.newSet(new String[] {"Manufacturer", "Speed", "HDD", "CD"},
+				   new String[] {"String", "Int", "Float", "Bool"});
+		for (int i = 0 ; i < 10 ; i++ )
+		{
+			cbr.addCase("M" + (i % 3) + "\t" + (500 + 100 * i) + "\t" + (i * 2.5) + "\t" + (i % 2 == 0));
+		}
+		return cbr;
+	}
+
+
+	/**
+	 * Opens a set from its data file and journal
+	 */
+	private static CBR open(java.io.File datafile, java.io.File journalfile)
+		throws Exception
+	{
+		CBR cbr = new CBR(datafile.getPath(), null, false, true);
+
+		cbr.openJournal(journalfile.getPath(), 0);
+		return cbr;
+	}
+
+
+	/**
+	 * Checks that the second feature of an opened set is indexed and that
+	 * the set has the cases added after the checkpoint
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int check(String name, CBR cbr, int numCases)
+		throws Exception
+	{
+		try
+		{
+			if (!cbr.isFeatureIndexed(1) || cbr.getNumCases() != numCases)
+			{
+				System.out.println("FAILED " + name + ": indexed " + cbr.isFeatureIndexed(1) + ", " + cbr.getNumCases() + " cases of " + numCases);
+				return 1;
+			}
+			System.out.println("OK " + name + ": indexed, " + cbr.getNumCases() + " cases");
+			return 0;
+		} finally
+		{
+			cbr.closeJournal();
+		}
+	}
+}
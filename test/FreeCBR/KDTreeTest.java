@@ -0,0 +1,303 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class tests that a top-k search through the KD-tree gives exactly
+ * the same results as a search of all cases. The set has Int and Float
+ * features with few different values, so there are many ties, undefined
+ * and infinite values, and it is changed between the searches. Usage:<br />
+ * <code>java FreeCBR.KDTreeTest</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class KDTreeTest
+{
+	/**
+	 * The numbers of the Int and Float features, the String feature is
+	 * last and never searched
+	 * @since 1.2
+	 */
+	private static final int NUMERICAL_FEATURES[] = {0, 1, 2, 3};
+
+
+	/**
+	 * The main entry point, exits with status 1 if a test fails
+	 *
+	 * @param args not used
+	 * @throws Exception if a search fails
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		int failures = 0;
+
+		failures += testSearches("few values", 1, 10);
+		failures += testSearches("many values", 2, 1000);
+		failures += testSearches("small set", 3, 10);
+
+		if (failures > 0)
+		{
+			System.out.println(failures + " tests failed");
+			System.exit(1);
+		}
+		System.out.println("All tests passed");
+	}
+
+
+	/**
+	 * Searches a set with and without the tree, changing the set between
+	 * the rounds of searches
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testSearches(String name, long seed, int range)
+		throws Exception
+	{
+		java.util.Random random = new java.util.Random(seed);
+		CBR cbr = new CBR(null, false, true);
+		int numCases = seed == 3 ? 40 : 3000;
+		int numSearches = 0;
+
+		cbr.newSet(new String[] {"Speed", "HDD", "Memory", "Price", "Manufacturer"},
+				   new String[] {"Int", "Float", "Int", "Float", "String"});
+		// Searches that are cached would not use the tree
+		cbr.setResultCacheSize(0);
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			cbr.addCase(caseString(random, range));
+		}
+		for (int round = 0 ; round < 30 ; round++ )
+		{
+			change(cbr, random, range);
+			for (int i = 0 ; i < 20 ; i++ )
+			{
+				String failure = check(cbr, random, range);
+				if (failure != null)
+				{
+					System.out.println("FAILED " + name + ": round " + round + ", " + failure);
+					return 1;
+				}
+				numSearches++;
+			}
+		}
+		System.out.println("OK " + name + ": " + numSearches + " searches, " + cbr.getNumCases() + " cases");
+		return 0;
+	}
+
+
+	/**
+	 * Returns a random case, with undefined and infinite values now and then
+	 */
+	private static String caseString(java.util.Random random, int range)
+	{
+		StringBuffer buf = new StringBuffer();
+
+		for (int f = 0 ; f < NUMERICAL_FEATURES.length ; f++ )
+		{
+			buf.append(value(random, f % 2 == 1, range)).append('\t');
+		}
+		buf.append("M").append(random.nextInt(5));
+		return buf.toString();
+	}
+
+
+	/**
+	 * Returns the features of a case string
+	 */
+	private static Feature[] features(String caseString)
+	{
+		String values[] = FString.split(caseString, "\t");
+		Feature features[] = new Feature[values.length];
+
+		for (int f = 0 ; f < values.length ; f++ )
+		{
+			features[f] = new Feature(values[f], f == NUMERICAL_FEATURES.length ? Feature.FEATURE_TYPE_STRING :
+									  f % 2 == 1 ? Feature.FEATURE_TYPE_FLOAT : Feature.FEATURE_TYPE_INT);
+		}
+		return features;
+	}
+
+
+	/**
+	 * Returns a random Int or Float value as a string
+	 */
+	private static String value(java.util.Random random, boolean isFloat, int range)
+	{
+		int n = random.nextInt(40);
+
+		if (n == 0)
+		{
+			return "?";
+		} else if (n == 1 && isFloat)
+		{
+			return random.nextBoolean() ? "Infinity" : "-Infinity";
+		} else if (isFloat)
+		{
+			return String.valueOf(random.nextInt(range) / 4.0);
+		}
+		return String.valueOf(random.nextInt(range));
+	}
+
+
+	/**
+	 * Adds, edits and removes cases and values at random
+	 */
+	private static void change(CBR cbr, java.util.Random random, int range)
+		throws Exception
+	{
+		int n = random.nextInt(20);
+		int f;
+
+		for (int i = 0 ; i < n ; i++ )
+		{
+			switch (random.nextInt(4))
+			{
+			case 0:
+				cbr.addCase(caseString(random, range));
+				break;
+			case 1:
+				cbr.removeCase(random.nextInt(cbr.getNumCases()));
+				break;
+			case 2:
+				cbr.editCase(random.nextInt(cbr.getNumCases()), features(caseString(random, range)));
+				break;
+			default:
+				f = random.nextInt(NUMERICAL_FEATURES.length);
+				cbr.setFeatureValue(random.nextInt(cbr.getNumCases()), f, value(random, f % 2 == 1, range));
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Makes a random search of the numerical features, with and without
+	 * the tree
+	 *
+	 * @return a description of the difference, or null if the results are
+	 *		the same
+	 */
+	private static String check(CBR cbr, java.util.Random random, int range)
+		throws Exception
+	{
+		int numFeatures = 1 + random.nextInt(NUMERICAL_FEATURES.length);
+		int featureNums[] = new int[numFeatures];
+		Feature values[] = new Feature[numFeatures];
+		int weights[] = new int[numFeatures];
+		int k = new int[] {1, 3, 10, 50}[random.nextInt(4)];
+		double minMatch = random.nextInt(4) == 0 ? random.nextInt(100) : Double.NEGATIVE_INFINITY;
+		CompiledQuery query;
+		CBRResult expected[];
+		CBRResult found[];
+
+		for (int i = 0 ; i < numFeatures ; i++ )
+		{
+			featureNums[i] = NUMERICAL_FEATURES[i];
+			// Search values outside the values of the cases too
+			values[i] = featureNums[i] % 2 == 1 ?
+				new Feature((random.nextInt(range + 4) - 2) / 4.0) :
+				new Feature((long) (random.nextInt(range + 4) - 2));
+			weights[i] = 1 + random.nextInt(10);
+		}
+		query = cbr.prepareSearch(featureNums, values, weights, null, null, null);
+
+		cbr.setTreeThreshold(0);
+		expected = cbr.search(query, k, minMatch);
+		cbr.setTreeThreshold(1);
+		found = cbr.search(query, k, minMatch);
+		if (!same(expected, found))
+		{
+			return "k " + k + ", min match " + minMatch + ", " + query(featureNums, values, weights) +
+				": " + str(found) + " instead of " + str(expected);
+		}
+
+		// The search into arrays uses the tree too
+		cbr.setTreeThreshold(0);
+		expected = search(cbr, query, k);
+		cbr.setTreeThreshold(1);
+		found = search(cbr, query, k);
+		if (!same(expected, found))
+		{
+			return "k " + k + " into arrays, " + query(featureNums, values, weights) +
+				": " + str(found) + " instead of " + str(expected);
+		}
+		return null;
+	}
+
+
+	/**
+	 * Searches into arrays and returns the results
+	 */
+	private static CBRResult[] search(CBR cbr, CompiledQuery query, int k)
+		throws Exception
+	{
+		int caseNums[] = new int[k];
+		double matches[] = new double[k];
+		int n = cbr.search(query, caseNums, matches);
+		CBRResult results[] = new CBRResult[n];
+
+		for (int i = 0 ; i < n ; i++ )
+		{
+			results[i] = new CBRResult(caseNums[i], matches[i]);
+		}
+		return results;
+	}
+
+
+	/**
+	 * Are the results the same cases in the same order with the same matches?
+	 */
+	private static boolean same(CBRResult expected[], CBRResult found[])
+	{
+		if (expected.length != found.length)
+		{
+			return false;
+		}
+		for (int i = 0 ; i < expected.length ; i++ )
+		{
+			if (expected[i].caseNum != found[i].caseNum ||
+					Double.compare(expected[i].matchPercent, found[i].matchPercent) != 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the searched features as a string
+	 */
+	private static String query(int featureNums[], Feature values[], int weights[])
+	{
+		StringBuffer buf = new StringBuffer();
+
+		for (int i = 0 ; i < featureNums.length ; i++ )
+		{
+			buf.append(i == 0 ? "" : ", ").append(featureNums[i]).append('=').append(values[i]).append('*').append(weights[i]);
+		}
+		return buf.toString();
+	}
+
+
+	/**
+	 * Returns the results as a string
+	 */
+	private static String str(CBRResult results[])
+	{
+		StringBuffer buf = new StringBuffer();
+
+		for (int i = 0 ; i < results.length ; i++ )
+		{
+			buf.append(i == 0 ? "" : " ").append(results[i].caseNum).append(':').append(results[i].matchPercent);
+		}
+		return buf.toString();
+	}
+}
@@ -0,0 +1,83 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class measures the throughput of reading a tab separated text file
+ * of a generated data set, and the time of opening the same data set
+ * saved as a binary file of columns. The text file is split in at most the
+ * given number of chunks that are read in parallel. Usage:<br />
+ * <code>java FreeCBR.LoadBenchmark [cases] [rounds] [chunks]</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class LoadBenchmark
+{
+	/**
+	 * The main entry point
+	 *
+	 * @param args number of cases, number of rounds and number of chunks
+	 * @throws Exception if the files can not be written or read
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		int numCases = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int maxChunks = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		java.util.Random random = new java.util.Random(1);
+		java.io.File textFile = java.io.File.createTempFile("LoadBenchmark", ".txt");
+		java.io.File binaryFile = java.io.File.createTempFile("LoadBenchmark", ".fcbr");
+		CBR cbr = new CBR();
+		TextLoader loader = new TextLoader(new Logger());
+		CBRdata data = null;
+		long time;
+
+		cbr.newSet(new String[] {"Manufacturer", "Speed", "HDD", "CD"},
+				   new String[] {"String", "Int", "Float", "Bool"});
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			cbr.addCase("M" + random.nextInt(20) + "\t" +
+						(500 + random.nextInt(3000)) + "\t" +
+						(random.nextInt(2000) / 10.0) + "\t" +
+						(random.nextBoolean() ? "true" : "false"));
+		}
+		try
+		{
+			cbr.saveSet(textFile.getPath(), false);
+			cbr.saveBinarySet(binaryFile.getPath(), false);
+
+			System.out.println(numCases + " cases, " + textFile.length() + " bytes of text, " + numRounds + " rounds");
+			loader.setChunks(maxChunks, TextLoader.DEFAULT_MIN_CHUNK_SIZE);
+			for (int round = 0 ; round < numRounds ; round++ )
+			{
+				data = loader.read(textFile.getPath());
+				System.out.println("Text: " + loader.getNumChunks() + " chunks, " + loader.getMillis() + " ms, " +
+								   Math.round(loader.getMegabytesPerSecond()) + " MB/s");
+			}
+			for (int round = 0 ; round < numRounds ; round++ )
+			{
+				time = System.nanoTime();
+				data = ColumnFile.read(binaryFile.getPath());
+				System.out.println("Binary: " + ((System.nanoTime() - time) / 1000) + " us");
+			}
+			if (data.getNumCases() != numCases)
+			{
+				throw new IllegalStateException("Read " + data.getNumCases() + " cases, expected " + numCases);
+			}
+		} finally
+		{
+			// A mapped file can not be deleted on all platforms until it is collected
+			data = null;
+			System.gc();
+			textFile.delete();
+			binaryFile.delete();
+		}
+	}
+}
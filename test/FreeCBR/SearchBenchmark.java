@@ -0,0 +1,110 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class measures the time and the heap allocation of searches on a
+ * generated data set. The allocation is measured with the thread
+ * allocation counter of the JVM, if the JVM has one. Usage:<br />
+ * <code>java FreeCBR.SearchBenchmark [cases] [searches] [k]</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class SearchBenchmark
+{
+	/**
+	 * The main entry point
+	 *
+	 * @param args number of cases, number of searches and number of results
+	 * @throws Exception if the search fails
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		int numCases = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int numSearches = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		java.util.Random random = new java.util.Random(1);
+		CBR cbr = new CBR();
+		CompiledQuery query;
+		int caseNums[] = new int[k];
+		double matches[] = new double[k];
+
+		cbr.newSet(new String[] {"Manufacturer", "Speed", "HDD", "CD"},
+				   new String[] {"String", "Int", "Float", "Bool"});
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			cbr.addCase("M" + random.nextInt(20) + "\t" +
+						(500 + random.nextInt(3000)) + "\t" +
+						(random.nextInt(2000) / 10.0) + "\t" +
+						(random.nextBoolean() ? "true" : "false"));
+		}
+		// Measure the searches themselves, not the cache or other threads
+		cbr.setResultCacheSize(0);
+		cbr.setParallelThreshold(0);
+		query = cbr.prepareSearch(new int[] {0, 1, 2, 3},
+								  new Feature[] {new Feature("M7", Feature.FEATURE_TYPE_STRING),
+												 new Feature("1800", Feature.FEATURE_TYPE_INT),
+												 new Feature("60.5", Feature.FEATURE_TYPE_FLOAT),
+												 new Feature("true", Feature.FEATURE_TYPE_BOOL)},
+								  new int[] {3, 5, 4, 2},
+								  null,
+								  new int[] {CBR.SEARCH_SCALE_FUZZY_LINEAR, CBR.SEARCH_SCALE_FUZZY_LINEAR, CBR.SEARCH_SCALE_FUZZY_LOGARITHMIC, CBR.SEARCH_SCALE_FUZZY_LINEAR},
+								  null);
+
+		System.out.println(numCases + " cases, " + numSearches + " searches, k = " + k);
+		for (int round = 0 ; round < 2 ; round++ )
+		{
+			// The first round warms up the JVM
+			long bytes = allocatedBytes();
+			long time = System.nanoTime();
+			for (int i = 0 ; i < numSearches ; i++ )
+			{
+				cbr.search(query, k);
+			}
+			report(round, "search(CompiledQuery, int)", numSearches, System.nanoTime() - time, allocatedBytes() - bytes);
+
+			bytes = allocatedBytes();
+			time = System.nanoTime();
+			for (int i = 0 ; i < numSearches ; i++ )
+			{
+				cbr.search(query, caseNums, matches);
+			}
+			report(round, "search(CompiledQuery, int[], double[])", numSearches, System.nanoTime() - time, allocatedBytes() - bytes);
+		}
+	}
+
+	/**
+	* Prints the time and allocation per search of the second round
+	*/
+	private static void report(int round, String what, int numSearches, long nanos, long bytes)
+	{
+		if (round == 0)
+		{
+			return;
+		}
+		System.out.println(what + ": " + (nanos / 1000 / numSearches) + " us/search, " +
+						   (allocatedBytes() < 0 ? "allocation unknown" : (bytes / numSearches) + " bytes/search"));
+	}
+
+	/**
+	* Returns the number of bytes allocated by the current thread, or -1 if
+	* the JVM can not tell
+	*/
+	private static long allocatedBytes()
+	{
+		java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+
+		if (bean instanceof com.sun.management.ThreadMXBean)
+		{
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
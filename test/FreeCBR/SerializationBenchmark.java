@@ -0,0 +1,92 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class measures the size and the round-trip time of a serialized
+ * case set of a generated data set. The set is serialized as a binary file
+ * of columns, see CBRdata.writeExternal, and compared with the default
+ * serialization of its columns and of its cases as Feature objects. Usage:<br />
+ * <code>java FreeCBR.SerializationBenchmark [cases] [rounds]</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class SerializationBenchmark
+{
+	/**
+	 * The main entry point
+	 *
+	 * @param args number of cases and number of rounds
+	 * @throws Exception if the set can not be serialized
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		int numCases = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int numRounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		java.util.Random random = new java.util.Random(1);
+		CBRdata data = new CBRdata(new String[] {"Manufacturer", "Speed", "HDD", "CD"},
+								   new String[] {"String", "Int", "Float", "Bool"});
+		FeatureColumn columns[] = new FeatureColumn[data.getNumFeatures()];
+		Feature cases[][] = new Feature[numCases][];
+
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			data.addCase("M" + random.nextInt(20) + "\t" +
+						 (500 + random.nextInt(3000)) + "\t" +
+						 (random.nextInt(2000) / 10.0) + "\t" +
+						 (random.nextBoolean() ? "true" : "false"));
+		}
+		data.finishInput();
+		for (int f = 0 ; f < columns.length ; f++ )
+		{
+			columns[f] = data.getColumn(f);
+		}
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			cases[i] = data.getCase(i);
+		}
+
+		System.out.println(numCases + " cases, " + numRounds + " rounds");
+		for (int round = 0 ; round < numRounds ; round++ )
+		{
+			measure("Columns as a binary file", data);
+			measure("Default serialization of the columns", columns);
+			measure("Default serialization of the Features", cases);
+		}
+	}
+
+
+	/**
+	 * Serializes and deserializes an object and prints the size and times
+	 */
+	private static void measure(String name, Object object)
+		throws Exception
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes);
+		java.io.ObjectInputStream in;
+		long write;
+		long read;
+
+		write = System.nanoTime();
+		out.writeObject(object);
+		out.close();
+		write = System.nanoTime() - write;
+
+		read = System.nanoTime();
+		in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()));
+		in.readObject();
+		in.close();
+		read = System.nanoTime() - read;
+
+		System.out.println(name + ": " + bytes.size() + " bytes, write " + (write / 1000000) +
+						   " ms, read " + (read / 1000000) + " ms");
+	}
+}
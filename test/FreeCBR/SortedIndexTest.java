@@ -0,0 +1,171 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class tests that the sorted index of an indexed Int or Float column
+ * is kept up to date when values are added, changed and removed and when
+ * cases are removed. The cases found by the index are compared with the
+ * cases found by comparing the values one by one. Usage:<br />
+ * <code>java FreeCBR.SortedIndexTest</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class SortedIndexTest
+{
+	/**
+	 * The search terms filtered by the index
+	 * @since 1.2
+	 */
+	private static final int SEARCH_TERMS[] = {CBR.SEARCH_TERM_EQUAL,
+											   CBR.SEARCH_TERM_NOT_EQUAL,
+											   CBR.SEARCH_TERM_GREATER_OR_EQUAL,
+											   CBR.SEARCH_TERM_GREATER,
+											   CBR.SEARCH_TERM_LESS_OR_EQUAL,
+											   CBR.SEARCH_TERM_LESS};
+
+
+	/**
+	 * The main entry point, exits with status 1 if a test fails
+	 *
+	 * @param args not used
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+	{
+		int failures = 0;
+
+		failures += testChanges("Int column", Feature.FEATURE_TYPE_INT, 1);
+		failures += testChanges("Float column", Feature.FEATURE_TYPE_FLOAT, 2);
+		failures += testChanges("Int column, few values", Feature.FEATURE_TYPE_INT, 3);
+
+		if (failures > 0)
+		{
+			System.out.println(failures + " tests failed");
+			System.exit(1);
+		}
+		System.out.println("All tests passed");
+	}
+
+
+	/**
+	 * Adds, changes and removes values of an indexed column at random and
+	 * checks the searches after each round
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testChanges(String name, short type, long seed)
+	{
+		java.util.Random random = new java.util.Random(seed);
+		int range = seed == 3 ? 4 : 1000;
+		FeatureColumn column = FeatureColumn.create(type, 0);
+		int numChecks = 0;
+		int op;
+
+		column.setIndexed(true);
+		for (int c = 0 ; c < 2000 ; c++ )
+		{
+			column.add(value(type, random, range));
+		}
+		for (int round = 0 ; round < 200 ; round++ )
+		{
+			for (int i = 0 ; i < 50 ; i++ )
+			{
+				op = random.nextInt(10);
+				if (op < 2)
+				{
+					column.add(value(type, random, range));
+				} else if (op < 4 && column.size() > 0)
+				{
+					column.remove(random.nextInt(column.size()));
+				} else if (column.size() > 0)
+				{
+					column.set(random.nextInt(column.size()), value(type, random, range));
+				}
+			}
+			for (int t = 0 ; t < SEARCH_TERMS.length ; t++ )
+			{
+				Feature target = value(type, random, range);
+				if (target.isUndefined())
+				{
+					continue;
+				}
+				if (!check(column, target, SEARCH_TERMS[t]))
+				{
+					System.out.println("FAILED " + name + ": round " + round + ", search term " +
+									   SEARCH_TERMS[t] + ", value " + target);
+					return 1;
+				}
+				numChecks++;
+			}
+		}
+		System.out.println("OK " + name + ": " + numChecks + " searches, " + column.size() + " cases");
+		return 0;
+	}
+
+
+	/**
+	 * Returns a random value, undefined now and then
+	 */
+	private static Feature value(short type, java.util.Random random, int range)
+	{
+		if (random.nextInt(10) == 0)
+		{
+			return new Feature((String) null, type);
+		}
+		if (type == Feature.FEATURE_TYPE_INT)
+		{
+			return new Feature((long) random.nextInt(range));
+		}
+		return new Feature(random.nextInt(range) / 4.0);
+	}
+
+
+	/**
+	 * Does the index filter the same cases as comparing the values?
+	 */
+	private static boolean check(FeatureColumn column, Feature target, int searchTerm)
+	{
+		long candidates[] = new long[FeatureColumn.wordsFor(column.size())];
+		double diff;
+		boolean match;
+
+		for (int c = 0 ; c < column.size() ; c++ )
+		{
+			FeatureColumn.setBit(candidates, c, true);
+		}
+		if (!column.filter(column.encodeSearch(target), searchTerm, candidates))
+		{
+			return false;
+		}
+		for (int c = 0 ; c < column.size() ; c++ )
+		{
+			if (column.isUndefined(c))
+			{
+				match = true;
+			} else
+			{
+				diff = column.diff(c, target, null);
+				switch (searchTerm)
+				{
+				case CBR.SEARCH_TERM_EQUAL:				match = diff == 0; break;
+				case CBR.SEARCH_TERM_NOT_EQUAL:			match = diff != 0; break;
+				case CBR.SEARCH_TERM_GREATER_OR_EQUAL:	match = diff >= 0; break;
+				case CBR.SEARCH_TERM_GREATER:			match = diff > 0; break;
+				case CBR.SEARCH_TERM_LESS_OR_EQUAL:		match = diff <= 0; break;
+				default:								match = diff < 0; break;
+				}
+			}
+			if (match != FeatureColumn.getBit(candidates, c))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
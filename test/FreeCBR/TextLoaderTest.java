@@ -0,0 +1,354 @@
+/*
+	Placed in public domain by Lars Johanson, 2003. Share and enjoy!
+*/
+
+package FreeCBR;
+
+/**
+ * This class tests that TextLoader reports the number of bytes of the file
+ * it read, each byte once, whether the file is read by one thread or in
+ * chunks, that reading in chunks gives the same cases, dictionaries and
+ * logged errors as reading by one thread, and that a file that is not
+ * valid in its charset is reported and not silently changed. Usage:<br />
+ * <code>java FreeCBR.TextLoaderTest</code>
+ *
+ * @since 1.2
+ *
+ */
+/* History: Date		Name	Explanation (possibly multi row)
+ */
+public class TextLoaderTest
+{
+	/**
+	 * The main entry point, exits with status 1 if a test fails
+	 *
+	 * @param args not used
+	 * @throws Exception if a file can not be written or read
+	 * @since 1.2
+	 */
+	public static void main(String[] args)
+		throws Exception
+	{
+		int failures = 0;
+
+		failures += testBytesRead("empty file", "", 1);
+		failures += testBytesRead("names only", "A\tB\n", 1);
+		failures += testBytesRead("no cases", "A\tB\nString\tInt\n", 1);
+		failures += testBytesRead("small file", cases(10, "\n"), 1);
+		failures += testBytesRead("no line break last", cases(10, "\n").trim(), 1);
+		failures += testBytesRead("\\r\\n line breaks", cases(1000, "\r\n"), 1);
+		// Larger than the buffer, the header scan reads a full buffer ahead
+		failures += testBytesRead("large file", cases(200000, "\n"), 1);
+		failures += testBytesRead("large file in chunks", cases(200000, "\n"), 4);
+		failures += testBytesRead("large \\r\\n file in chunks", cases(200000, "\r\n"), 3);
+		failures += testChunks("chunks, \\n line breaks", "\n");
+		failures += testChunks("chunks, \\r\\n line breaks", "\r\n");
+		failures += testChunks("chunks, \\r line breaks", "\r");
+		failures += testCharset("Latin-1 file");
+
+		if (failures > 0)
+		{
+			System.out.println(failures + " tests failed");
+			System.exit(1);
+		}
+		System.out.println("All tests passed");
+	}
+
+
+	/**
+	 * Reads a file with the text and checks that the bytes read is its length
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testBytesRead(String name, String text, int maxChunks)
+		throws Exception
+	{
+		java.io.File file = java.io.File.createTempFile("TextLoaderTest", ".txt");
+		TextLoader loader = new TextLoader(new Logger());
+
+		try
+		{
+			java.nio.file.Files.write(file.toPath(), text.getBytes("UTF-8"));
+			loader.setChunks(maxChunks, 1);
+			loader.read(file.getPath());
+			if (loader.getBytesRead() != file.length())
+			{
+				System.out.println("FAILED " + name + ": " + loader.getBytesRead() + " bytes read of " + file.length());
+				return 1;
+			}
+			System.out.println("OK " + name + ": " + loader.getBytesRead() + " bytes in " + loader.getNumChunks() + " chunks");
+			return 0;
+		} finally
+		{
+			file.delete();
+		}
+	}
+
+
+	/**
+	 * Reads a file with errors by one thread and in four chunks, and checks
+	 * that the cases, the dictionaries and the logged errors are the same
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testChunks(String name, String lineBreak)
+		throws Exception
+	{
+		java.io.File file = java.io.File.createTempFile("TextLoaderTest", ".txt");
+		java.io.File logfiles[] = new java.io.File[2];
+		CBRdata data[] = new CBRdata[2];
+		String lines[][] = new String[2][];
+		int numChunks[] = new int[2];
+		String difference;
+
+		try
+		{
+			java.nio.file.Files.write(file.toPath(), casesWithErrors(5000, lineBreak).getBytes("UTF-8"));
+			for (int i = 0 ; i < 2 ; i++ )
+			{
+				logfiles[i] = java.io.File.createTempFile("TextLoaderTest", ".log");
+				Logger log = new Logger(logfiles[i].getPath());
+				TextLoader loader = new TextLoader(log);
+
+				log.setSilent(true);
+				loader.setCharset(java.nio.charset.StandardCharsets.UTF_8);
+				loader.setChunks(i == 0 ? 1 : 4, 1);
+				data[i] = loader.read(file.getPath());
+				numChunks[i] = loader.getNumChunks();
+				lines[i] = logLines(logfiles[i]);
+			}
+			if (numChunks[1] != 4 || lines[0].length == 0)
+			{
+				System.out.println("FAILED " + name + ": " + numChunks[1] + " chunks, " + lines[0].length + " errors");
+				return 1;
+			}
+			difference = compare(data[0], data[1]);
+			if (difference == null && !java.util.Arrays.equals(lines[0], lines[1]))
+			{
+				difference = "logged errors " + java.util.Arrays.asList(lines[1]) + " instead of " + java.util.Arrays.asList(lines[0]);
+			}
+			if (difference != null)
+			{
+				System.out.println("FAILED " + name + ": " + difference);
+				return 1;
+			}
+			System.out.println("OK " + name + ": " + data[1].getNumCases() + " cases and " + lines[1].length + 
+							   " errors in " + numChunks[1] + " chunks");
+			return 0;
+		} finally
+		{
+			file.delete();
+			for (int i = 0 ; i < 2 ; i++ )
+			{
+				if (logfiles[i] != null)
+				{
+					logfiles[i].delete();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Compares the cases and the dictionaries of two data sets
+	 *
+	 * @return a description of the first difference, or null if they are
+	 *		the same
+	 */
+	private static String compare(CBRdata expected, CBRdata found)
+	{
+		StringDictionary expectedDictionary;
+		StringDictionary foundDictionary;
+
+		if (expected.getNumCases() != found.getNumCases())
+		{
+			return found.getNumCases() + " cases instead of " + expected.getNumCases();
+		}
+		for (int c = 0 ; c < expected.getNumCases() ; c++ )
+		{
+			String expectedCase = java.util.Arrays.asList(expected.getCase(c)).toString();
+			String foundCase = java.util.Arrays.asList(found.getCase(c)).toString();
+
+			if (!expectedCase.equals(foundCase))
+			{
+				return "case " + c + " is \"" + foundCase + "\" instead of \"" + expectedCase + "\"";
+			}
+		}
+		for (int f = 0 ; f < expected.getNumFeatures() ; f++ )
+		{
+			if (expected.getColumn(f) instanceof StringColumn)
+			{
+				expectedDictionary = ((StringColumn) expected.getColumn(f)).getDictionary();
+				foundDictionary = ((StringColumn) found.getColumn(f)).getDictionary();
+			} else if (expected.getColumn(f) instanceof MultiStringColumn)
+			{
+				expectedDictionary = ((MultiStringColumn) expected.getColumn(f)).getDictionary();
+				foundDictionary = ((MultiStringColumn) found.getColumn(f)).getDictionary();
+			} else
+			{
+				continue;
+			}
+			if (expectedDictionary.size() != foundDictionary.size())
+			{
+				return "feature " + f + " has " + foundDictionary.size() + " strings instead of " + expectedDictionary.size();
+			}
+			for (int code = 0 ; code < expectedDictionary.size() ; code++ )
+			{
+				if (!expectedDictionary.get(code).equals(foundDictionary.get(code)))
+				{
+					return "feature " + f + " has \"" + foundDictionary.get(code) + "\" as code " + code + 
+						" instead of \"" + expectedDictionary.get(code) + "\"";
+				}
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Reads a Latin-1 file as Latin-1 and as UTF-8. As UTF-8 the case with
+	 * a Latin-1 letter must be logged and skipped, and a Latin-1 letter in 
+	 * the feature names must fail the read.
+	 *
+	 * @return 1 if the test failed, otherwise 0
+	 */
+	private static int testCharset(String name)
+		throws Exception
+	{
+		java.io.File file = java.io.File.createTempFile("TextLoaderTest", ".txt");
+		java.io.File logfile = java.io.File.createTempFile("TextLoaderTest", ".log");
+		Logger log = new Logger(logfile.getPath());
+		TextLoader loader = new TextLoader(log);
+		CBRdata data;
+		String lines[];
+
+		log.setSilent(true);
+		try
+		{
+			java.nio.file.Files.write(file.toPath(), "Name\tSpeed\nString\tInt\ncaf\u00e9\t1\nplain\t2\n".getBytes("ISO-8859-1"));
+			loader.setCharset(java.nio.charset.StandardCharsets.ISO_8859_1);
+			data = loader.read(file.getPath());
+			if (data.getNumCases() != 2 || !"caf\u00e9".equals(data.getFeature(0, 0).getStringValue()))
+			{
+				System.out.println("FAILED " + name + ": read as Latin-1 " + data.getNumCases() + " cases, first " + data.getFeature(0, 0));
+				return 1;
+			}
+
+			loader.setCharset(java.nio.charset.StandardCharsets.UTF_8);
+			data = loader.read(file.getPath());
+			lines = logLines(logfile);
+			if (data.getNumCases() != 1 || !"plain".equals(data.getFeature(0, 0).getStringValue()) ||
+					lines.length != 1 || !lines[0].startsWith("Unable to add case to set, case #1, error message: A value is not valid UTF-8"))
+			{
+				System.out.println("FAILED " + name + ": read as UTF-8 " + data.getNumCases() + " cases, log " + java.util.Arrays.asList(lines));
+				return 1;
+			}
+
+			java.nio.file.Files.write(file.toPath(), "Caf\u00e9\tSpeed\nString\tInt\nplain\t2\n".getBytes("ISO-8859-1"));
+			try
+			{
+				loader.read(file.getPath());
+				System.out.println("FAILED " + name + ": Latin-1 feature names read as UTF-8");
+				return 1;
+			} catch (java.io.IOException e)
+			{
+				// Expected
+			}
+			System.out.println("OK " + name + ": read as Latin-1, reported as UTF-8");
+			return 0;
+		} finally
+		{
+			file.delete();
+			logfile.delete();
+		}
+	}
+
+
+	/**
+	 * Returns the lines of a log file without the times they were written
+	 */
+	private static String[] logLines(java.io.File logfile)
+		throws Exception
+	{
+		java.util.List lines = java.nio.file.Files.readAllLines(logfile.toPath(), java.nio.charset.Charset.defaultCharset());
+		java.util.List messages = new java.util.ArrayList();
+
+		for (int i = 0 ; i < lines.size() ; i++ )
+		{
+			String line = (String) lines.get(i);
+
+			// The time is the date and the time of day, before the message
+			if (line.length() > 0)
+			{
+				messages.add(line.substring(line.indexOf(' ', line.indexOf(' ') + 1) + 1));
+			}
+		}
+		return (String[]) messages.toArray(new String[messages.size()]);
+	}
+
+
+	/**
+	 * Returns the text of a file with cases of all types, where some lines
+	 * are empty, start with a tab, have the wrong number of values or a
+	 * value that is not valid, and some values are undefined or not ASCII
+	 */
+	private static String casesWithErrors(int numCases, String lineBreak)
+	{
+		StringBuffer text = new StringBuffer();
+		java.util.Random random = new java.util.Random(2);
+
+		text.append("Manufacturer\tSpeed\tHDD\tCD\tOptions").append(lineBreak);
+		text.append("String\tInt\tFloat\tBool\tMultiString").append(lineBreak);
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			switch (random.nextInt(25))
+			{
+			case 0:
+				text.append(lineBreak);
+				break;
+			case 1:
+				text.append("\tM").append(random.nextInt(20)).append("\t1000\t2.5\ttrue\tA").append(lineBreak);
+				break;
+			case 2:
+				text.append("M").append(random.nextInt(20)).append("\t1000").append(lineBreak);
+				break;
+			case 3:
+				text.append("M1\tfast\t2.5\ttrue\tA").append(lineBreak);
+				break;
+			case 4:
+				text.append("M1\t1000\t2,5\tmaybe\tA").append(lineBreak);
+				break;
+			default:
+				text.append(random.nextInt(10) == 0 ? "?" : "M" + random.nextInt(i / 100 + 2) + (i % 7 == 0 ? "\u00e9" : ""));
+				text.append('\t').append(random.nextInt(10) == 0 ? "" : String.valueOf(500 + random.nextInt(3000)));
+				text.append('\t').append(random.nextInt(10) == 0 ? "?" : String.valueOf(random.nextInt(2000) / 10.0));
+				text.append('\t').append(random.nextInt(10) == 0 ? "?" : String.valueOf(random.nextBoolean()));
+				text.append('\t').append("O").append(random.nextInt(i / 50 + 2)).append(";O").append(random.nextInt(5));
+				text.append(lineBreak);
+				break;
+			}
+		}
+		return text.toString();
+	}
+
+
+	/**
+	 * Returns the text of a file with the specified number of cases
+	 */
+	private static String cases(int numCases, String lineBreak)
+	{
+		StringBuffer text = new StringBuffer();
+		java.util.Random random = new java.util.Random(1);
+
+		text.append("Manufacturer\tSpeed\tHDD\tCD").append(lineBreak);
+		text.append("String\tInt\tFloat\tBool").append(lineBreak);
+		for (int i = 0 ; i < numCases ; i++ )
+		{
+			text.append("M").append(random.nextInt(20)).append('\t');
+			text.append(500 + random.nextInt(3000)).append('\t');
+			text.append(random.nextInt(2000) / 10.0).append('\t');
+			text.append(random.nextBoolean()).append(lineBreak);
+		}
+		return text.toString();
+	}
+}